@@ -240,6 +240,9 @@ public abstract class PageBase extends WebPage implements ModelServiceLocator {
 	@SpringBean(name = "workflowManager")
 	private WorkflowManager workflowManager;
 
+	@SpringBean(name = "objectStatisticsService")
+	private ObjectStatisticsService objectStatisticsService;
+
 	@SpringBean(name = "midpointConfiguration")
 	private MidpointConfiguration midpointConfiguration;
 
@@ -444,6 +447,10 @@ public abstract class PageBase extends WebPage implements ModelServiceLocator {
 		return workflowManager;
 	}
 
+	public ObjectStatisticsService getObjectStatisticsService() {
+		return objectStatisticsService;
+	}
+
 	public ResourceValidator getResourceValidator() {
 		return resourceValidator;
 	}
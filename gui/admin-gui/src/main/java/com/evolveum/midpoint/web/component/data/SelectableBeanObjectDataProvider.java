@@ -68,6 +68,9 @@ public class SelectableBeanObjectDataProvider<O extends ObjectType> extends Base
     
     private boolean emptyListOnNullQuery = false;
     private boolean useObjectCounting = true;
+    // if false, the count can be taken from the object statistics maintained by the model (if available for the query);
+    // approximate counts must be explicitly requested by the caller
+    private boolean exactCounting = true;
 
     // we use special options when exporting to CSV (due to bulk nature of the operation)
     private boolean export;
@@ -237,7 +240,8 @@ public class SelectableBeanObjectDataProvider<O extends ObjectType> extends Base
         OperationResult result = new OperationResult(OPERATION_COUNT_OBJECTS);
         try {
             Task task = getPage().createSimpleTask(OPERATION_COUNT_OBJECTS);
-            Integer counted = getModel().countObjects(type, getQuery(), options, task, result);
+            Integer counted = getPage().getObjectStatisticsService()
+                    .countObjects(type, getQuery(), options, exactCounting, task, result);
             count = counted == null ? 0 : counted.intValue();
         } catch (Exception ex) {
             result.recordFatalError("Couldn't count objects.", ex);
@@ -280,6 +284,14 @@ public class SelectableBeanObjectDataProvider<O extends ObjectType> extends Base
     	this.useObjectCounting = useCounting;
     }
 
+    public boolean isExactCounting() {
+        return exactCounting;
+    }
+
+    public void setExactCounting(boolean exactCounting) {
+        this.exactCounting = exactCounting;
+    }
+
     public Collection<SelectorOptions<GetOperationOptions>> getOptions() {
         return options;
     }
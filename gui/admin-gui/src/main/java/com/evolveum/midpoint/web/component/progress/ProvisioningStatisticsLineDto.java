@@ -53,6 +53,7 @@ public class ProvisioningStatisticsLineDto {
     public static final String F_MIN_TIME = "minTime";
     public static final String F_MAX_TIME = "maxTime";
     public static final String F_TOTAL_TIME = "totalTime";
+    public static final String F_CONCURRENCY_LIMITER_WAIT_TIME = "concurrencyLimiterWaitTime";
 
     private String resource;
     private QName objectClass;
@@ -76,6 +77,7 @@ public class ProvisioningStatisticsLineDto {
     private Long minTime;
     private Long maxTime;
     private long totalTime;
+    private Long concurrencyLimiterWaitTime;
 
     public ProvisioningStatisticsLineDto(ProvisioningStatisticsEntryType entry) {
         resource = entry.getResource();
@@ -100,6 +102,7 @@ public class ProvisioningStatisticsLineDto {
         minTime = entry.getMinTime();
         maxTime = entry.getMaxTime();
         totalTime = entry.getTotalTime();
+        concurrencyLimiterWaitTime = entry.getConcurrencyLimiterWaitTime();
     }
 
 //    public ProvisioningStatisticsLineDto(String resource, String objectClass) {
@@ -206,6 +209,10 @@ public class ProvisioningStatisticsLineDto {
         return totalTime;
     }
 
+    public Long getConcurrencyLimiterWaitTime() {
+        return concurrencyLimiterWaitTime;
+    }
+
     public static List<ProvisioningStatisticsLineDto> extractFromOperationalInformation(EnvironmentalPerformanceInformation environmentalPerformanceInformation) {
         EnvironmentalPerformanceInformationType environmentalPerformanceInformationType = environmentalPerformanceInformation.getAggregatedValue();
         ProvisioningStatisticsType provisioningStatisticsType = environmentalPerformanceInformationType.getProvisioningStatistics();
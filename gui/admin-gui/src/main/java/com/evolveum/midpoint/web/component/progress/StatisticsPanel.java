@@ -56,6 +56,7 @@ public class StatisticsPanel extends BasePanel<StatisticsDto> {
     private static final String ID_PROVISIONING_MIN_TIME = "Provisioning.MinTime";
     private static final String ID_PROVISIONING_MAX_TIME = "Provisioning.MaxTime";
     private static final String ID_PROVISIONING_TOTAL_TIME = "Provisioning.TotalTime";
+    private static final String ID_PROVISIONING_CONCURRENCY_LIMITER_WAIT_TIME = "Provisioning.ConcurrencyLimiterWaitTime";
 
     private static final String ID_MAPPINGS_STATISTICS_LINES = "mappingsStatisticsLines";
     private static final String ID_MAPPINGS_OBJECT = "Mappings.Object";
@@ -120,6 +121,7 @@ public class StatisticsPanel extends BasePanel<StatisticsDto> {
                 item.add(new Label(ID_PROVISIONING_MIN_TIME, new PropertyModel<String>(item.getModel(), ProvisioningStatisticsLineDto.F_MIN_TIME)));
                 item.add(new Label(ID_PROVISIONING_MAX_TIME, new PropertyModel<String>(item.getModel(), ProvisioningStatisticsLineDto.F_MAX_TIME)));
                 item.add(new Label(ID_PROVISIONING_TOTAL_TIME, new PropertyModel<String>(item.getModel(), ProvisioningStatisticsLineDto.F_TOTAL_TIME)));
+                item.add(new Label(ID_PROVISIONING_CONCURRENCY_LIMITER_WAIT_TIME, new PropertyModel<String>(item.getModel(), ProvisioningStatisticsLineDto.F_CONCURRENCY_LIMITER_WAIT_TIME)));
             }
         };
         contentsPanel.add(provisioningLines);
@@ -22,9 +22,8 @@ import org.apache.wicket.model.Model;
 import org.apache.wicket.request.component.IRequestablePage;
 
 import com.evolveum.midpoint.gui.api.GuiStyleConstants;
+import com.evolveum.midpoint.model.api.ObjectCountPredicate;
 import com.evolveum.midpoint.prism.PrismObject;
-import com.evolveum.midpoint.prism.query.ObjectQuery;
-import com.evolveum.midpoint.prism.query.builder.QueryBuilder;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.security.api.AuthorizationConstants;
 import com.evolveum.midpoint.task.api.Task;
@@ -129,30 +128,13 @@ public class PageDashboard extends PageAdminHome {
 	private <F extends FocusType> InfoBoxPanel createFocusInfoBoxPanel(String id, Class<F> type, String bgColor, 
 			String icon, String keyPrefix, Class<? extends IRequestablePage> linkPage, OperationResult result, Task task) {
     	InfoBoxType infoBoxType = new InfoBoxType(bgColor, icon, getString(keyPrefix + ".label"));
-    	Integer allCount;
 		try {
-			allCount = getModelService().countObjects(type, null, null, task, result);
-			if (allCount == null) {
-				allCount = 0;
-			}
-
-			ObjectQuery queryDisabled = QueryBuilder.queryFor(type, getPrismContext())
-					.item(FocusType.F_ACTIVATION, ActivationType.F_EFFECTIVE_STATUS).eq(ActivationStatusType.DISABLED)
-					.build();
-			Integer disabledCount = getModelService().countObjects(type, queryDisabled, null, task, result);
-			if (disabledCount == null) {
-				disabledCount = 0;
-			}
-
-			ObjectQuery queryArchived = QueryBuilder.queryFor(type, getPrismContext())
-					.item(FocusType.F_ACTIVATION, ActivationType.F_EFFECTIVE_STATUS).eq(ActivationStatusType.ARCHIVED)
-					.build();
-			Integer archivedCount = getModelService().countObjects(type, queryArchived, null, task, result);
-			if (archivedCount == null) {
-				archivedCount = 0;
-			}
+			// approximate counts are sufficient here; they are maintained by the model, so there's no need to query the repository each time
+			int allCount = getObjectStatisticsService().countObjects(type, ObjectCountPredicate.ALL, false, task, result);
+			int disabledCount = getObjectStatisticsService().countObjects(type, ObjectCountPredicate.DISABLED, false, task, result);
+			int archivedCount = getObjectStatisticsService().countObjects(type, ObjectCountPredicate.ARCHIVED, false, task, result);
 			
-			int activeCount = allCount - disabledCount - archivedCount;
+			int activeCount = Math.max(0, allCount - disabledCount - archivedCount);
 			int totalCount = allCount - archivedCount;
 			
 			infoBoxType.setNumber(activeCount + " " + getString(keyPrefix + ".number"));
@@ -182,20 +164,9 @@ public class PageDashboard extends PageAdminHome {
     private Component createResourceInfoBoxPanel(OperationResult result, Task task) {
     	InfoBoxType infoBoxType = new InfoBoxType("object-resource-bg", GuiStyleConstants.CLASS_OBJECT_RESOURCE_ICON, 
     			getString("PageDashboard.infobox.resources.label"));
-    	Integer totalCount;
 		try {
-			totalCount = getModelService().countObjects(ResourceType.class, null, null, task, result);
-			if (totalCount == null) {
-				totalCount = 0;
-			}
-
-			ObjectQuery query = QueryBuilder.queryFor(ResourceType.class, getPrismContext())
-					.item(ResourceType.F_OPERATIONAL_STATE, OperationalStateType.F_LAST_AVAILABILITY_STATUS).eq(AvailabilityStatusType.UP)
-					.build();
-			Integer activeCount = getModelService().countObjects(ResourceType.class, query, null, task, result);
-			if (activeCount == null) {
-				activeCount = 0;
-			}
+			int totalCount = getObjectStatisticsService().countObjects(ResourceType.class, ObjectCountPredicate.ALL, false, task, result);
+			int activeCount = getObjectStatisticsService().countObjects(ResourceType.class, ObjectCountPredicate.RESOURCE_UP, false, task, result);
 			
 			infoBoxType.setNumber(activeCount + " " + getString("PageDashboard.infobox.resources.number"));
 			
@@ -219,19 +190,9 @@ public class PageDashboard extends PageAdminHome {
     private Component createTaskInfoBoxPanel(OperationResult result, Task task) {
     	InfoBoxType infoBoxType = new InfoBoxType("object-task-bg", GuiStyleConstants.CLASS_OBJECT_TASK_ICON, 
     			getString("PageDashboard.infobox.tasks.label"));
-    	Integer totalCount;
 		try {
-			totalCount = getModelService().countObjects(TaskType.class, null, null, task, result);
-			if (totalCount == null) {
-				totalCount = 0;
-			}
-			ObjectQuery query = QueryBuilder.queryFor(TaskType.class, getPrismContext())
-					.item(TaskType.F_EXECUTION_STATUS).eq(TaskExecutionStatusType.RUNNABLE)
-					.build();
-			Integer activeCount = getModelService().countObjects(TaskType.class, query, null, task, result);
-			if (activeCount == null) {
-				activeCount = 0;
-			}
+			int totalCount = getObjectStatisticsService().countObjects(TaskType.class, ObjectCountPredicate.ALL, false, task, result);
+			int activeCount = getObjectStatisticsService().countObjects(TaskType.class, ObjectCountPredicate.TASK_RUNNABLE, false, task, result);
 			
 			infoBoxType.setNumber(activeCount + " " + getString("PageDashboard.infobox.tasks.number"));
 			
@@ -62,6 +62,12 @@ public class ResourceConnectorPanel extends Panel {
 	private static final String ID_POOL_CONFIG_MIN_EVICTABLE_IDLE_TIME = "poolConfigMinEvictableIdleTime";
 	private static final String ID_POOL_STATUS_NUM_IDLE = "poolStatusNumIdle";
 	private static final String ID_POOL_STATUS_NUM_ACTIVE = "poolStatusNumActive";
+	private static final String ID_CONCURRENCY_LIMIT = "concurrencyLimit";
+	private static final String ID_CONCURRENCY_LIMITER_WAIT_TIME = "concurrencyLimiterWaitTime";
+	private static final String ID_RESOURCE_CACHE_READ_ONLY_HITS = "resourceCacheReadOnlyHits";
+	private static final String ID_RESOURCE_CACHE_CLONES = "resourceCacheClones";
+	private static final String ID_RESOURCE_CACHE_MISSES = "resourceCacheMisses";
+	private static final String ID_RESOURCE_CACHE_CONFLICTING_PUTS = "resourceCacheConflictingPuts";
 
 	private PageBase parentPage;
 	
@@ -113,6 +119,12 @@ public class ResourceConnectorPanel extends Panel {
 		        item.add(createLabel(statModel, ID_POOL_CONFIG_MIN_EVICTABLE_IDLE_TIME,  ConnectorOperationalStatus.F_POOL_CONFIG_MIN_EVICTABLE_IDLE_TIME));
 		        item.add(createLabel(statModel, ID_POOL_STATUS_NUM_IDLE,  ConnectorOperationalStatus.F_POOL_STATUS_NUM_IDLE));
 		        item.add(createLabel(statModel, ID_POOL_STATUS_NUM_ACTIVE,  ConnectorOperationalStatus.F_POOL_STATUS_NUM_ACTIVE));
+		        item.add(createLabel(statModel, ID_CONCURRENCY_LIMIT,  ConnectorOperationalStatus.F_CONCURRENCY_LIMIT));
+		        item.add(createLabel(statModel, ID_CONCURRENCY_LIMITER_WAIT_TIME,  ConnectorOperationalStatus.F_CONCURRENCY_LIMITER_WAIT_TIME));
+		        item.add(createLabel(statModel, ID_RESOURCE_CACHE_READ_ONLY_HITS,  ConnectorOperationalStatus.F_RESOURCE_CACHE_READ_ONLY_HITS));
+		        item.add(createLabel(statModel, ID_RESOURCE_CACHE_CLONES,  ConnectorOperationalStatus.F_RESOURCE_CACHE_CLONES));
+		        item.add(createLabel(statModel, ID_RESOURCE_CACHE_MISSES,  ConnectorOperationalStatus.F_RESOURCE_CACHE_MISSES));
+		        item.add(createLabel(statModel, ID_RESOURCE_CACHE_CONFLICTING_PUTS,  ConnectorOperationalStatus.F_RESOURCE_CACHE_CONFLICTING_PUTS));
 
 		    }
 		};
@@ -217,6 +217,7 @@ public class DummyConnector implements PoolableConnector, AuthenticateOp, Resolv
     public Uid create(final ObjectClass objectClass, final Set<Attribute> createAttributes, final OperationOptions options) {
         log.info("create::begin attributes {0}", createAttributes);
         validate(objectClass);
+        resource.delayOperation();
         
         DummyObject newObject;
         try {
@@ -293,6 +294,7 @@ public class DummyConnector implements PoolableConnector, AuthenticateOp, Resolv
         log.info("update::begin");
         validate(objectClass);
         validate(uid);
+        resource.delayOperation();
         
         try {
         	
@@ -522,6 +524,7 @@ public class DummyConnector implements PoolableConnector, AuthenticateOp, Resolv
     public Uid addAttributeValues(ObjectClass objectClass, Uid uid, Set<Attribute> valuesToAdd, OperationOptions options) {
         validate(objectClass);
         validate(uid);
+        resource.delayOperation();
 
         try {
         
@@ -717,6 +720,7 @@ public class DummyConnector implements PoolableConnector, AuthenticateOp, Resolv
     public Uid removeAttributeValues(ObjectClass objectClass, Uid uid, Set<Attribute> valuesToRemove, OperationOptions options) {
         validate(objectClass);
         validate(uid);
+        resource.delayOperation();
 
         try {
         
@@ -897,6 +901,7 @@ public class DummyConnector implements PoolableConnector, AuthenticateOp, Resolv
         log.info("delete::begin");
         validate(objectClass);
         validate(uid);
+        resource.delayOperation();
         
         String id = uid.getUidValue();
         
@@ -128,6 +128,12 @@ public class DummyResource implements DebugDumpable {
 	
 	private boolean blockOperations = false;
 
+	/**
+	 * Artificial latency (in milliseconds) of write operations, simulating a slow resource.
+	 * Applied outside of any lock, so concurrent operations are delayed in parallel.
+	 */
+	private long operationDelay = 0;
+
 	private boolean generateAccountDescriptionOnCreate = false;		   // simulates volatile behavior (on create)
 	private boolean generateAccountDescriptionOnUpdate = false;        // simulates volatile behavior (on update)
 	
@@ -172,6 +178,7 @@ public class DummyResource implements DebugDumpable {
 		syncStyle = DummySyncStyle.NONE;
 		deltas.clear();
 		latestSyncToken = 0;
+		operationDelay = 0;
 		resetBreakMode();
 	}
 	
@@ -289,6 +296,14 @@ public class DummyResource implements DebugDumpable {
 		this.blockOperations = blockOperations;
 	}
 
+	public long getOperationDelay() {
+		return operationDelay;
+	}
+
+	public void setOperationDelay(long operationDelay) {
+		this.operationDelay = operationDelay;
+	}
+
 	public String getUselessString() {
 		return uselessString;
 	}
@@ -886,6 +901,20 @@ public class DummyResource implements DebugDumpable {
 		}
 	}
 	
+	/**
+	 * Sleeps for the configured operation delay. Must not be called while holding the resource lock.
+	 */
+	public void delayOperation() {
+		if (operationDelay > 0) {
+			try {
+				Thread.sleep(operationDelay);
+			} catch (InterruptedException e) {
+				LOGGER.debug("Operation delay interrupted", e);
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
 	public synchronized void unblock() {
 		LOGGER.info("Unblocking");
 		this.notify();
@@ -305,6 +305,10 @@ public class RefinedResourceSchemaImpl implements RefinedResourceSchema {
 				throw new IllegalStateException("Expected RefinedResourceSchema under user data key "+USER_DATA_KEY_REFINED_SCHEMA+
 						"in "+resource+", but got "+userDataEntry.getClass());
 			}
+		} else if (resource.isImmutable()) {
+			// Immutable resources should come with the schema already parsed (see ResourceCache). If not, we cannot
+			// store it, so it is computed for each call.
+			return parse(resource, prismContext);
 		} else {
 			RefinedResourceSchema refinedSchema = parse(resource, prismContext);
 			resource.setUserData(USER_DATA_KEY_REFINED_SCHEMA, refinedSchema);
@@ -331,6 +335,15 @@ public class RefinedResourceSchemaImpl implements RefinedResourceSchema {
 	}
 
 	public static ResourceSchema getResourceSchema(PrismObject<ResourceType> resource, PrismContext prismContext) throws SchemaException {
+		return getResourceSchema(resource, null, prismContext);
+	}
+
+	/**
+	 * @param parseCache cache of parsed schemas to use (if not null); it may be passed only for resources that
+	 *                   were not modified after being read from the repository
+	 */
+	public static ResourceSchema getResourceSchema(PrismObject<ResourceType> resource, ResourceSchemaParseCache parseCache,
+			PrismContext prismContext) throws SchemaException {
 		Element resourceXsdSchema = ResourceTypeUtil.getResourceXsdSchema(resource);
 		if (resourceXsdSchema == null) {
 			return null;
@@ -343,16 +356,28 @@ public class RefinedResourceSchemaImpl implements RefinedResourceSchema {
 				throw new IllegalStateException("Expected ResourceSchema under user data key "+
 						USER_DATA_KEY_PARSED_RESOURCE_SCHEMA+ "in "+resource+", but got "+userDataEntry.getClass());
 			}
-		} else {
+		}
+		String oid = resource.getOid();
+		String version = resource.getVersion();
+		String namespace = ResourceTypeUtil.getResourceNamespace(resource);
+		ResourceSchemaParseCache cache = ResourceSchemaParseCache.isCacheable(oid, version) ? parseCache : null;
+		ResourceSchema schema = cache != null ? cache.getResourceSchema(oid, version, namespace) : null;
+		if (schema == null) {
 			InternalMonitor.recordCount(InternalCounters.RESOURCE_SCHEMA_PARSE_COUNT);
 			ResourceSchemaImpl parsedSchema = ResourceSchemaImpl.parse(resourceXsdSchema, "resource schema of "+resource, prismContext);
 			if (parsedSchema == null) {
 				throw new IllegalStateException("Parsed schema is null: most likely an internall error");
 			}
-			resource.setUserData(USER_DATA_KEY_PARSED_RESOURCE_SCHEMA, parsedSchema);
-			parsedSchema.setNamespace(ResourceTypeUtil.getResourceNamespace(resource));
-			return parsedSchema;
+			parsedSchema.setNamespace(namespace);
+			if (cache != null) {
+				cache.putResourceSchema(oid, version, namespace, parsedSchema);
+			}
+			schema = parsedSchema;
+		}
+		if (!resource.isImmutable()) {
+			resource.setUserData(USER_DATA_KEY_PARSED_RESOURCE_SCHEMA, schema);
 		}
+		return schema;
 	}
 
 	public static void setParsedResourceSchemaConditional(ResourceType resourceType, ResourceSchema parsedSchema) {
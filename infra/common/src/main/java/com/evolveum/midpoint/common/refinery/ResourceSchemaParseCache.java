@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.common.refinery;
+
+import com.evolveum.midpoint.schema.processor.ResourceSchema;
+import com.evolveum.midpoint.schema.processor.ResourceSchemaImpl;
+import com.evolveum.midpoint.util.caching.BoundedLruCache;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of parsed resource schemas, keyed by resource OID. Each entry is valid for one resource version.
+ *
+ * Parsed schemas are normally kept in the user data of the resource object. That works as long as the same
+ * object instance is used, but the same resource version is often loaded many times (by the model, from
+ * the repository, after cache clean-up, etc.), and each such copy has to parse its (possibly huge) XSD schema again.
+ *
+ * The repository changes the version on each modification, so resources with the same OID and version have
+ * the same XSD schema. That does not hold for resources modified in memory (e.g. in the GUI before saving),
+ * so the cache is used only by components that pass it to {@link RefinedResourceSchemaImpl} explicitly,
+ * i.e. for resources fresh from the repository. Refined schemas are not cached here: they depend on many
+ * parts of the resource and they are much cheaper to create.
+ *
+ * Cached schemas are frozen and shared by all resource instances of the given version, just like a schema
+ * in user data is shared by all clones of a resource. They must not be modified.
+ *
+ * The cache is bounded; least recently used entries are evicted.
+ */
+@Component
+public class ResourceSchemaParseCache {
+
+	private static final int MAX_ENTRIES = 100;
+
+	private final BoundedLruCache<String, Entry> entries = new BoundedLruCache<>(MAX_ENTRIES);
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	static boolean isCacheable(String oid, String version) {
+		return oid != null && version != null;
+	}
+
+	ResourceSchema getResourceSchema(String oid, String version, String namespace) {
+		Entry entry = entries.get(oid);
+		if (entry == null || !entry.matches(version, namespace)) {
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		return entry.resourceSchema;
+	}
+
+	void putResourceSchema(String oid, String version, String namespace, ResourceSchemaImpl resourceSchema) {
+		resourceSchema.freeze();
+		entries.put(oid, new Entry(version, namespace, resourceSchema));
+	}
+
+	/**
+	 * Should be called when the resource is deleted. Modified resources need not be invalidated,
+	 * as their new version does not match the cached entry anyway.
+	 */
+	public void invalidate(String oid) {
+		entries.remove(oid);
+	}
+
+	public void clear() {
+		entries.clear();
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "ResourceSchemaParseCache(" + entries.size() + " entries, hits: " + hits.sum() + ", misses: " + misses.sum() + ")";
+	}
+
+	private static class Entry {
+		private final String version;
+		private final String namespace;
+		private final ResourceSchema resourceSchema;
+
+		private Entry(String version, String namespace, ResourceSchema resourceSchema) {
+			this.version = version;
+			this.namespace = namespace;
+			this.resourceSchema = resourceSchema;
+		}
+
+		private boolean matches(String otherVersion, String otherNamespace) {
+			return version.equals(otherVersion) && Objects.equals(namespace, otherNamespace);
+		}
+	}
+}
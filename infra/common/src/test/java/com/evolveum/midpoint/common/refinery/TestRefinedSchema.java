@@ -54,6 +54,8 @@ import com.evolveum.midpoint.prism.util.PrismAsserts;
 import com.evolveum.midpoint.schema.MidPointPrismContextFactory;
 import com.evolveum.midpoint.schema.constants.MidPointConstants;
 import com.evolveum.midpoint.schema.constants.SchemaConstants;
+import com.evolveum.midpoint.schema.internals.InternalCounters;
+import com.evolveum.midpoint.schema.internals.InternalMonitor;
 import com.evolveum.midpoint.schema.util.ResourceTypeUtil;
 import com.evolveum.midpoint.schema.util.SchemaTestConstants;
 import com.evolveum.midpoint.schema.util.ShadowUtil;
@@ -684,5 +686,61 @@ public class TestRefinedSchema {
         System.out.println(riUidAttrDef.debugDump());
         
     }
-	
+
+	/**
+	 * Two instances of the same resource version should share the same (frozen) parsed resource schema;
+	 * a different version or namespace must be parsed again.
+	 */
+	@Test
+    public void test150ResourceSchemaParseCache() throws Exception {
+    	final String TEST_NAME = "test150ResourceSchemaParseCache";
+    	TestUtil.displayTestTile(TEST_NAME);
+
+        // GIVEN
+    	PrismContext prismContext = createInitializedPrismContext();
+    	ResourceSchemaParseCache parseCache = new ResourceSchemaParseCache();
+        PrismObject<ResourceType> resource1 = parseResource(prismContext, "1");
+        PrismObject<ResourceType> resource2 = parseResource(prismContext, "1");
+        PrismObject<ResourceType> resource3 = parseResource(prismContext, "1");
+        PrismObject<ResourceType> resource4 = parseResource(prismContext, "2");
+        long parseCountBefore = InternalMonitor.getCount(InternalCounters.RESOURCE_SCHEMA_PARSE_COUNT);
+
+        // WHEN
+        TestUtil.displayWhen(TEST_NAME);
+        ResourceSchema schema1 = RefinedResourceSchemaImpl.getResourceSchema(resource1, parseCache, prismContext);
+        ResourceSchema schema2 = RefinedResourceSchemaImpl.getResourceSchema(resource2, parseCache, prismContext);
+        RefinedResourceSchema rSchema2 = RefinedResourceSchemaImpl.getRefinedSchema(resource2, prismContext);
+        ResourceSchema schema3 = RefinedResourceSchemaImpl.getResourceSchema(resource3, prismContext);
+        ResourceSchema schema4 = RefinedResourceSchemaImpl.getResourceSchema(resource4, parseCache, prismContext);
+
+        // THEN
+        TestUtil.displayThen(TEST_NAME);
+        displayText(parseCache.toString());
+        assertEquals("Wrong number of schema parses", 3,
+        		InternalMonitor.getCount(InternalCounters.RESOURCE_SCHEMA_PARSE_COUNT) - parseCountBefore);
+        assertEquals("Wrong number of cache hits", 1, parseCache.getHits());
+        assertTrue("Cached schema instance was not shared", schema1 == schema2);
+        assertTrue("Cached schema is not frozen", ((ResourceSchemaImpl) schema1).isFrozen());
+        assertFalse("Schema of a resource parsed without the cache is shared", schema1 == schema3);
+        assertFalse("Schema of another version is shared", schema1 == schema4);
+        assertEquals("Cached schema differs from the parsed one", schema3.debugDump(), schema2.debugDump());
+        assertRefinedSchema(resource2.asObjectable(), rSchema2, null, LayerType.MODEL, true, true);
+
+        // WHEN
+        TestUtil.displayWhen(TEST_NAME);
+        parseCache.invalidate(resource1.getOid());
+        RefinedResourceSchemaImpl.getResourceSchema(parseResource(prismContext, "2"), parseCache, prismContext);
+
+        // THEN
+        TestUtil.displayThen(TEST_NAME);
+        assertEquals("Resource schema was not parsed after invalidation", 4,
+        		InternalMonitor.getCount(InternalCounters.RESOURCE_SCHEMA_PARSE_COUNT) - parseCountBefore);
+    }
+
+	private PrismObject<ResourceType> parseResource(PrismContext prismContext, String version) throws SchemaException, IOException {
+		PrismObject<ResourceType> resource = prismContext.parseObject(RESOURCE_COMPLEX_FILE);
+		resource.setVersion(version);
+		return resource;
+	}
+
 }
@@ -54,6 +54,11 @@ public class ComplexTypeDefinitionImpl extends TypeDefinitionImpl implements Com
 	// we reset this flag when cloning
 	protected boolean shared = true;
 
+	// candidate item definitions by local part of the name; null if not built yet or if it cannot be used
+	// (a definition of unknown implementation, whose isValidFor method could match other names)
+	private transient volatile ItemDefinitionIndex itemDefinitionIndex;
+	private transient volatile boolean itemDefinitionIndexUnusable;
+
 	public ComplexTypeDefinitionImpl(@NotNull QName typeName, @NotNull PrismContext prismContext) {
 		super(typeName, prismContext);
 	}
@@ -79,6 +84,7 @@ public class ComplexTypeDefinitionImpl extends TypeDefinitionImpl implements Com
 	
 	public void add(ItemDefinition<?> definition) {
 		itemDefinitions.add(definition);
+		invalidateItemDefinitionIndex();
 	}
 
 	@Override
@@ -155,6 +161,7 @@ public class ComplexTypeDefinitionImpl extends TypeDefinitionImpl implements Com
 	public PrismPropertyDefinitionImpl createPropertyDefinition(QName name, QName typeName) {
 		PrismPropertyDefinitionImpl propDef = new PrismPropertyDefinitionImpl(name, typeName, prismContext);
 		itemDefinitions.add(propDef);
+		invalidateItemDefinitionIndex();
 		return propDef;
 	}
 	
@@ -164,6 +171,7 @@ public class ComplexTypeDefinitionImpl extends TypeDefinitionImpl implements Com
 	public PrismPropertyDefinition createPropertyDefinition(QName name) {
 		PrismPropertyDefinition propDef = new PrismPropertyDefinitionImpl(name, null, prismContext);
 		itemDefinitions.add(propDef);
+		invalidateItemDefinitionIndex();
 		return propDef;
 	}
 
@@ -184,7 +192,7 @@ public class ComplexTypeDefinitionImpl extends TypeDefinitionImpl implements Com
 	// TODO deduplicate w.r.t. findNamedItemDefinition
 	@Override
 	public <T extends ItemDefinition> T findItemDefinition(@NotNull QName name, @NotNull Class<T> clazz, boolean caseInsensitive) {
-		for (ItemDefinition def : getDefinitions()) {
+		for (ItemDefinition def : getCandidateDefinitions(name, caseInsensitive)) {
 			if (def.isValidFor(name, clazz, caseInsensitive)) {
 				return (T) def;
 			}
@@ -224,7 +232,7 @@ public class ComplexTypeDefinitionImpl extends TypeDefinitionImpl implements Com
 	// path starts with NamedItemPathSegment
 	public <ID extends ItemDefinition> ID findNamedItemDefinition(@NotNull QName firstName, @NotNull ItemPath rest, @NotNull Class<ID> clazz) {
 		ID found = null;
-		for (ItemDefinition def : getDefinitions()) {
+		for (ItemDefinition def : getCandidateDefinitions(firstName, false)) {
 			if (def.isValidFor(firstName, clazz, false)) {
 				if (found != null) {
 					throw new IllegalStateException("More definitions found for " + firstName + "/" + rest + " in " + this);
@@ -237,6 +245,31 @@ public class ComplexTypeDefinitionImpl extends TypeDefinitionImpl implements Com
         }
 		return found;
 	}
+
+	/**
+	 * Returns definitions that can match given name, in their original order. The isValidFor method
+	 * has to be still called on them.
+	 */
+	private List<ItemDefinition> getCandidateDefinitions(@NotNull QName name, boolean caseInsensitive) {
+		if (caseInsensitive || itemDefinitionIndexUnusable) {
+			return itemDefinitions;
+		}
+		ItemDefinitionIndex index = itemDefinitionIndex;
+		if (index == null) {
+			index = ItemDefinitionIndex.create(itemDefinitions);
+			if (index == null) {
+				itemDefinitionIndexUnusable = true;
+				return itemDefinitions;
+			}
+			itemDefinitionIndex = index;
+		}
+		return index.byLocalName.getOrDefault(name.getLocalPart(), index.references);
+	}
+
+	private void invalidateItemDefinitionIndex() {
+		itemDefinitionIndex = null;
+		itemDefinitionIndexUnusable = false;
+	}
 	//endregion
 
 	/**
@@ -295,6 +328,7 @@ public class ComplexTypeDefinitionImpl extends TypeDefinitionImpl implements Com
 		for (ItemDefinition itemDef: this.itemDefinitions) {
 			clone.itemDefinitions.add(itemDef.deepClone(ctdMap));
 		}
+		clone.invalidateItemDefinitionIndex();
 		return clone;
 	}
 	
@@ -322,6 +356,7 @@ public class ComplexTypeDefinitionImpl extends TypeDefinitionImpl implements Com
 				}
 				// Make sure this is set, not add. set will keep correct ordering
 				itemDefinitions.set(i, newDefinition);
+				invalidateItemDefinitionIndex();
 				return;
 			}
 		}
@@ -415,6 +450,38 @@ public class ComplexTypeDefinitionImpl extends TypeDefinitionImpl implements Com
 		// Do nothing		
 	}
 
+	/**
+	 * Candidate definitions for each local name: definitions with that name (in the original order) followed
+	 * by all the reference definitions, as these can be matched also by their composite object element name
+	 * (which can be set after the reference definition is added).
+	 */
+	private static class ItemDefinitionIndex {
+
+		@NotNull private final Map<String, List<ItemDefinition>> byLocalName = new HashMap<>();
+		@NotNull private final List<ItemDefinition> references = new ArrayList<>();
+
+		private static ItemDefinitionIndex create(List<ItemDefinition> itemDefinitions) {
+			ItemDefinitionIndex index = new ItemDefinitionIndex();
+			for (ItemDefinition<?> def : new ArrayList<>(itemDefinitions)) {
+				if (!(def instanceof ItemDefinitionImpl)) {
+					return null;
+				}
+				index.byLocalName.computeIfAbsent(def.getName().getLocalPart(), k -> new ArrayList<>(1)).add(def);
+				if (def instanceof PrismReferenceDefinition) {
+					index.references.add(def);
+				}
+			}
+			for (List<ItemDefinition> candidates : index.byLocalName.values()) {
+				for (ItemDefinition reference : index.references) {
+					if (!candidates.contains(reference)) {
+						candidates.add(reference);
+					}
+				}
+			}
+			return index;
+		}
+	}
+
 	/**
      * Return a human readable name of this class suitable for logs.
      */
@@ -439,6 +506,7 @@ public class ComplexTypeDefinitionImpl extends TypeDefinitionImpl implements Com
 			ItemPath itemPath = new ItemPath(itemDef.getName());
 			if (!ItemPath.containsSuperpathOrEquivalent(paths, itemPath)) {
 				iterator.remove();
+				invalidateItemDefinitionIndex();
 			} else if (itemDef instanceof PrismContainerDefinition) {
 				PrismContainerDefinition<?> itemPcd = (PrismContainerDefinition<?>) itemDef;
 				if (itemPcd.getComplexTypeDefinition() != null) {
@@ -57,7 +57,7 @@ public class PrismContextImpl implements PrismContext {
     
 	@NotNull private final SchemaRegistryImpl schemaRegistry;
 	@NotNull private final LexicalProcessorRegistry lexicalProcessorRegistry;
-	@NotNull private final PolyStringNormalizer defaultPolyStringNormalizer;			// TODO make non-final when needed
+	@NotNull private volatile PolyStringNormalizer defaultPolyStringNormalizer;
 	@NotNull private final PrismUnmarshaller prismUnmarshaller;
 	@NotNull private final PrismMarshaller prismMarshaller;
 	@NotNull private final BeanMarshaller beanMarshaller;
@@ -191,6 +191,14 @@ public class PrismContextImpl implements PrismContext {
 		return defaultPolyStringNormalizer;
 	}
 
+	/**
+	 * Used to apply the normalizer configuration from the system configuration. Note that changing the normalization
+	 * (as opposed to e.g. memoization settings) makes values that were already normalized inconsistent.
+	 */
+	public void setDefaultPolyStringNormalizer(@NotNull PolyStringNormalizer defaultPolyStringNormalizer) {
+		this.defaultPolyStringNormalizer = defaultPolyStringNormalizer;
+	}
+
 	private LexicalProcessor getParser(String language) {
 		return lexicalProcessorRegistry.processorFor(language);
 	}
@@ -37,6 +37,9 @@ public class SimpleTypeDefinitionImpl extends TypeDefinitionImpl implements Simp
 
 	@Override
 	public void revive(PrismContext prismContext) {
+		if (this.prismContext == null) {
+			this.prismContext = prismContext;
+		}
 	}
 
 	@Override
@@ -21,6 +21,8 @@ import com.evolveum.prism.xml.ns._public.types_3.ProtectedStringType;
 
 import org.apache.commons.lang.Validate;
 
+import java.util.Collection;
+
 /**
  * @author mederly
  */
@@ -39,6 +41,22 @@ public abstract class BaseProtector implements Protector {
         }
     }
 
+    @Override
+    public void decryptAll(Collection<? extends ProtectedData<?>> protectedDataCollection) throws EncryptionException, SchemaException {
+        for (ProtectedData<?> protectedData : protectedDataCollection) {
+            decrypt(protectedData);
+        }
+    }
+
+    @Override
+    public void encryptAll(Collection<? extends ProtectedData<?>> protectedDataCollection) throws EncryptionException {
+        for (ProtectedData<?> protectedData : protectedDataCollection) {
+            if (!protectedData.isEncrypted() && protectedData.getClearValue() != null) {
+                encrypt(protectedData);
+            }
+        }
+    }
+
     protected abstract <T> byte[] decryptBytes(ProtectedData<T> protectedData) throws SchemaException, EncryptionException;
 
     @Override
@@ -17,6 +17,7 @@
 package com.evolveum.midpoint.prism.crypto;
 
 import java.security.KeyStore;
+import java.util.Collection;
 import java.util.List;
 
 import javax.net.ssl.TrustManager;
@@ -30,6 +31,17 @@ public interface Protector {
 	<T> void decrypt(ProtectedData<T> protectedData) throws EncryptionException, SchemaException;
 	
 	<T> void encrypt(ProtectedData<T> protectedData) throws EncryptionException;
+
+	/**
+	 * Decrypts all encrypted values in the collection. Values that are not encrypted are left untouched.
+	 */
+	void decryptAll(Collection<? extends ProtectedData<?>> protectedData) throws EncryptionException, SchemaException;
+
+	/**
+	 * Encrypts all values in the collection that have a cleartext value. Values that are already encrypted
+	 * (or hashed, or empty) are left untouched. This is cheaper than encrypting the values one by one.
+	 */
+	void encryptAll(Collection<? extends ProtectedData<?>> protectedData) throws EncryptionException;
 		
 	/**
 	 * Returns a list of trust managers that will be used to validate communicating party credentials.
@@ -31,8 +31,13 @@ import java.security.UnrecoverableKeyException;
 import java.security.spec.InvalidKeySpecException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Random;
 
 import javax.crypto.BadPaddingException;
@@ -73,6 +78,11 @@ import com.evolveum.prism.xml.ns._public.types_3.ProtectedStringType;
  * needed because this class is using AES-256 for encrypting/decrypting xml
  * data.
  *
+ * Secret keys are indexed by their alias and digest when the keystore is loaded, so that
+ * they do not need to be recovered from the keystore and digested on each operation.
+ * The index is rebuilt when a key is not found in it, e.g. after a new key was added to the keystore
+ * (key rotation). Cipher instances are reused, but they are confined to a thread as they are not thread safe.
+ *
  * @author Radovan Semancik
  * @author lazyman
  */
@@ -103,6 +113,9 @@ public class ProtectorImpl extends BaseProtector {
 	
 	private List<TrustManager> trustManagers;
     private static final KeyStore keyStore;
+
+    private volatile KeyIndex keyIndex = new KeyIndex(Collections.emptyMap(), Collections.emptyMap());
+    private volatile ThreadLocal<Map<String, Cipher>> threadCiphers = createThreadCiphers();
     
     static {
         try {
@@ -151,6 +164,8 @@ public class ProtectorImpl extends BaseProtector {
             keyStore.load(stream, getKeyStorePassword().toCharArray());
             stream.close();
 
+            refreshKeyIndex();
+
             // Initialze trust manager list
 
             TrustManagerFactory tmFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
@@ -178,6 +193,8 @@ public class ProtectorImpl extends BaseProtector {
 
 	public void setRequestedJceProviderName(String requestedJceProviderName) {
 		this.requestedJceProviderName = requestedJceProviderName;
+		// ciphers obtained from the previous provider must not be used any more
+		threadCiphers = createThreadCiphers();
 	}
 
 	public String getEncryptionAlgorithm() {
@@ -277,14 +294,34 @@ public class ProtectorImpl extends BaseProtector {
 		if (protectedData.isEncrypted()) {
 			throw new IllegalArgumentException("Attempt to encrypt protected data that are already encrypted");
 		}
-		SecretKey key = getSecretKeyByAlias(getEncryptionKeyAlias());
+		encrypt(protectedData, getEncryptionKey(), getCipherAlgorithm());
+	}
+
+	/**
+	 * Resolves the encryption key and algorithm only once for all the values. Therefore all of them are encrypted
+	 * by the same key, even if the encryption key alias is changed in the meantime.
+	 */
+	@Override
+	public void encryptAll(Collection<? extends ProtectedData<?>> protectedDataCollection) throws EncryptionException {
+		IndexedKey key = null;
 		String algorithm = getCipherAlgorithm();
-		
+		for (ProtectedData<?> protectedData : protectedDataCollection) {
+			if (protectedData.isEncrypted() || protectedData.getClearValue() == null) {
+				continue;
+			}
+			if (key == null) {
+				key = getEncryptionKey();
+			}
+			encrypt(protectedData, key, algorithm);
+		}
+	}
+
+	private <T> void encrypt(ProtectedData<T> protectedData, IndexedKey key, String algorithm) throws EncryptionException {
 		byte[] clearBytes = protectedData.getClearBytes();
 		
 		byte[] encryptedBytes;
 		try {
-			encryptedBytes = encryptBytes(clearBytes, algorithm, key);
+			encryptedBytes = encryptBytes(clearBytes, algorithm, key.secretKey);
 		} catch (InvalidKeyException | NoSuchAlgorithmException | NoSuchPaddingException
 				| NoSuchProviderException | IllegalBlockSizeException | BadPaddingException | InvalidAlgorithmParameterException e) {
 			throw new EncryptionException(e.getMessage(), e);
@@ -298,7 +335,7 @@ public class ProtectorImpl extends BaseProtector {
 		encryptedDataType.setEncryptionMethod(encryptionMethodType);
 		
 		KeyInfoType keyInfoType = new KeyInfoType();
-		keyInfoType.setKeyName(getSecretKeyDigest(key));
+		keyInfoType.setKeyName(key.digest);
 		encryptedDataType.setKeyInfo(keyInfoType);
 		
 		CipherDataType cipherDataType = new CipherDataType();
@@ -340,13 +377,20 @@ public class ProtectorImpl extends BaseProtector {
 		return decryptedData;
 	}
 	
+	/**
+	 * Returns a cipher for the algorithm, private to the current thread. The caller has to (re)initialize it.
+	 */
 	private Cipher getCipher(int cipherMode, String algorithmUri) throws NoSuchAlgorithmException, NoSuchPaddingException, NoSuchProviderException, InvalidKeyException, InvalidAlgorithmParameterException {
-		String jceAlgorithm = JCEMapper.translateURItoJCEID(algorithmUri);//JCEMapper.getJCEKeyAlgorithmFromURI(algorithmUri);
-		Cipher cipher;
-		if (requestedJceProviderName == null) {
-			cipher = Cipher.getInstance(jceAlgorithm);
-		} else {
-			cipher = Cipher.getInstance(jceAlgorithm, requestedJceProviderName);
+		Map<String, Cipher> ciphers = threadCiphers.get();
+		Cipher cipher = ciphers.get(algorithmUri);
+		if (cipher == null) {
+			String jceAlgorithm = JCEMapper.translateURItoJCEID(algorithmUri);//JCEMapper.getJCEKeyAlgorithmFromURI(algorithmUri);
+			if (requestedJceProviderName == null) {
+				cipher = Cipher.getInstance(jceAlgorithm);
+			} else {
+				cipher = Cipher.getInstance(jceAlgorithm, requestedJceProviderName);
+			}
+			ciphers.put(algorithmUri, cipher);
 		}
 		if (LOGGER.isTraceEnabled()) {
 			String desc;
@@ -357,11 +401,15 @@ public class ProtectorImpl extends BaseProtector {
 			} else {
                 desc = "Ciphering (mode " + cipherMode + ")";
             }
-            LOGGER.trace("{} data by JCE algorithm {} (URI {}), cipher {}, provider {}", new Object[]{
-				desc, jceAlgorithm, algorithmUri, cipher.getAlgorithm(), cipher.getProvider().getName()});
+            LOGGER.trace("{} data by algorithm URI {}, cipher {}, provider {}", new Object[]{
+				desc, algorithmUri, cipher.getAlgorithm(), cipher.getProvider().getName()});
 		}
 		return cipher;
 	}
+
+	private static ThreadLocal<Map<String, Cipher>> createThreadCiphers() {
+		return ThreadLocal.withInitial(HashMap::new);
+	}
 	
     public String getSecretKeyDigest(SecretKey key) throws EncryptionException {
         MessageDigest sha1;
@@ -443,7 +491,43 @@ public class ProtectorImpl extends BaseProtector {
         return (SecretKey) key;
     }
 
+    private IndexedKey getEncryptionKey() throws EncryptionException {
+        String alias = getEncryptionKeyAlias();
+        // aliases in JCEKS keystore are case insensitive and they are listed in lower case
+        String indexedAlias = alias.toLowerCase(Locale.ENGLISH);
+        IndexedKey key = keyIndex.keysByAlias.get(indexedAlias);
+        if (key == null) {
+            refreshKeyIndex();
+            key = keyIndex.keysByAlias.get(indexedAlias);
+        }
+        if (key == null) {
+            // not indexable; this provides the appropriate error (or the key, if it has been just added)
+            SecretKey secretKey = getSecretKeyByAlias(alias);
+            key = new IndexedKey(secretKey, getSecretKeyDigest(secretKey));
+        }
+        return key;
+    }
+
     private SecretKey getSecretKeyByDigest(String digest) throws EncryptionException {
+        SecretKey key = keyIndex.keysByDigest.get(digest);
+        if (key == null) {
+            // maybe the key was added to the keystore after the index was built
+            refreshKeyIndex();
+            key = keyIndex.keysByDigest.get(digest);
+        }
+        if (key == null) {
+            throw new EncryptionException("Key '" + digest + "' is not in keystore.");
+        }
+        return key;
+    }
+
+    /**
+     * Rebuilds the index of secret keys from the current content of the keystore. It is done automatically
+     * when the keystore is loaded and when a key is not found in the index.
+     */
+    public void refreshKeyIndex() throws EncryptionException {
+        Map<String, IndexedKey> keysByAlias = new HashMap<>();
+        Map<String, SecretKey> keysByDigest = new HashMap<>();
         try {
             Enumeration<String> aliases = keyStore.aliases();
             while (aliases.hasMoreElements()) {
@@ -459,19 +543,20 @@ public class ProtectorImpl extends BaseProtector {
                     }
 
                     String keyHash = getSecretKeyDigest((SecretKey) key);
-                    if (digest.equals(keyHash)) {
-                        return (SecretKey) key;
-                    }
+                    keysByAlias.put(alias, new IndexedKey((SecretKey) key, keyHash));
+                    keysByDigest.putIfAbsent(keyHash, (SecretKey) key);
                 } catch (UnrecoverableKeyException ex) {
                     LOGGER.trace("Couldn't recover key {} from keystore, reason: {}", new Object[]{alias,
                             ex.getMessage()});
                 }
             }
+        } catch (EncryptionException ex) {
+            throw ex;
         } catch (Exception ex) {
             throw new EncryptionException(ex.getMessage(), ex);
         }
-
-        throw new EncryptionException("Key '" + digest + "' is not in keystore.");
+        LOGGER.trace("Indexed {} secret keys from keystore", keysByAlias.size());
+        keyIndex = new KeyIndex(keysByAlias, keysByDigest);
     }
     
     @Override
@@ -640,6 +725,27 @@ public class ProtectorImpl extends BaseProtector {
         return Arrays.equals(digestValue, hashBytes);
 	}
 
+	private static class IndexedKey {
+		private final SecretKey secretKey;
+		private final String digest;
+
+		private IndexedKey(SecretKey secretKey, String digest) {
+			this.secretKey = secretKey;
+			this.digest = digest;
+		}
+	}
+
+	// immutable; replaced as a whole when the index is refreshed
+	private static class KeyIndex {
+		private final Map<String, IndexedKey> keysByAlias;
+		private final Map<String, SecretKey> keysByDigest;
+
+		private KeyIndex(Map<String, IndexedKey> keysByAlias, Map<String, SecretKey> keysByDigest) {
+			this.keysByAlias = keysByAlias;
+			this.keysByDigest = keysByDigest;
+		}
+	}
+
 	
     	
 }
@@ -72,6 +72,9 @@ public abstract class ItemDelta<V extends PrismValue,D extends ItemDefinition> i
 
     transient private PrismContext prismContext;
 
+	// Cached result of getPath(). The fields it is computed from are accessible to subclasses, so they are checked on each call.
+	transient private CachedPath cachedPath;
+
 	protected ItemDelta(D itemDefinition, PrismContext prismContext) {
 		if (itemDefinition == null) {
 			throw new IllegalArgumentException("Attempt to create item delta without a definition");
@@ -149,7 +152,25 @@ public abstract class ItemDelta<V extends PrismValue,D extends ItemDefinition> i
 		if (getParentPath() == null) {
 			throw new IllegalStateException("No parent path in "+this);
 		}
-		return getParentPath().subPath(elementName);
+		ItemPath parentPath = getParentPath();
+		CachedPath cachedPath = this.cachedPath;
+		if (cachedPath == null || cachedPath.parentPath != parentPath || cachedPath.elementName != elementName) {
+			cachedPath = new CachedPath(parentPath, elementName, parentPath.subPath(elementName));
+			this.cachedPath = cachedPath;
+		}
+		return cachedPath.path;
+	}
+
+	private static class CachedPath {
+		private final ItemPath parentPath;
+		private final QName elementName;
+		private final ItemPath path;
+
+		private CachedPath(ItemPath parentPath, QName elementName, ItemPath path) {
+			this.parentPath = parentPath;
+			this.elementName = elementName;
+			this.path = path;
+		}
 	}
 
 	public D getDefinition() {
@@ -46,6 +46,7 @@ import java.io.UnsupportedEncodingException;
 import java.lang.reflect.*;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -61,6 +62,7 @@ public class BeanUnmarshaller {
 	@NotNull private final PrismContext prismContext;
 	@NotNull private final Map<Class,PrimitiveUnmarshaller> specialPrimitiveUnmarshallers = new HashMap<>();
 	@NotNull private final Map<Class,MapUnmarshaller> specialMapUnmarshallers = new HashMap<>();
+	@NotNull private final Map<Class<?>, Map<String, PropertyAccessMechanism>> propertyAccessMechanisms = new ConcurrentHashMap<>();
 
 	public BeanUnmarshaller(@NotNull PrismContext prismContext, @NotNull PrismBeanInspector inspector) {
 		this.prismContext = prismContext;
@@ -415,8 +417,8 @@ public class BeanUnmarshaller {
 		final String propName = key.getLocalPart();
 
 		// this code is just to keep this method reasonably short
-		PropertyAccessMechanism mechanism = new PropertyAccessMechanism();
-		if (!mechanism.compute(bean, beanClass, propName, key, node, pc)) {
+		PropertyAccessMechanism mechanism = getPropertyAccessMechanism(bean, beanClass, propName, key, node, pc);
+		if (mechanism == null) {
 			return;
 		}
 
@@ -604,6 +606,29 @@ public class BeanUnmarshaller {
 		}
 	}
 
+	// Mechanisms depend only on the bean class and the property name, so they are computed once and then shared
+	// by all threads. Computations that return false (e.g. "any" properties, that are unmarshalled as part of the
+	// computation) are not cached.
+	@Nullable
+	private <T> PropertyAccessMechanism getPropertyAccessMechanism(T bean, Class<T> beanClass, String propName, QName key,
+			XNode node, ParsingContext pc) throws SchemaException {
+		Map<String, PropertyAccessMechanism> classMechanisms = propertyAccessMechanisms.get(beanClass);
+		if (classMechanisms == null) {
+			propertyAccessMechanisms.putIfAbsent(beanClass, new ConcurrentHashMap<>());
+			classMechanisms = propertyAccessMechanisms.get(beanClass);
+		}
+		PropertyAccessMechanism mechanism = classMechanisms.get(propName);
+		if (mechanism == null) {
+			mechanism = new PropertyAccessMechanism();
+			if (!mechanism.compute(bean, beanClass, propName, key, node, pc)) {
+				return null;
+			}
+			classMechanisms.putIfAbsent(propName, mechanism);
+		}
+		return mechanism;
+	}
+
+	// Immutable after successful computation.
 	private class PropertyAccessMechanism {
 
 		Class<?> beanClass;
@@ -990,11 +1015,7 @@ public class BeanUnmarshaller {
 	}
 
     private Object instantiateObjectFactory(Class objectFactoryClass) {
-        try {
-            return objectFactoryClass.newInstance();
-        } catch (InstantiationException | IllegalAccessException e) {
-            throw new IllegalArgumentException("Cannot instantiate object factory class "+objectFactoryClass.getName()+": "+e.getMessage(), e);
-        }
+        return inspector.getObjectFactory(objectFactoryClass);
     }
 
 	private Object unmarshalSinglePropValue(XNode xsubnode, String fieldName, Class paramType, boolean storeAsRawType,
@@ -40,10 +40,9 @@ import javax.xml.namespace.QName;
 
 import java.lang.reflect.*;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author mederly
@@ -59,19 +58,43 @@ public class PrismBeanInspector {
 
 	//region Caching mechanism (multiple dimensions)
 
+	// The caches are read by all parsing/serialization threads, so they are concurrent (lock-free for reads).
+	// As concurrent maps do not support nulls, null keys and values are represented by this placeholder.
+	private static final Object NULL = new Object();
+
     @FunctionalInterface
     interface Getter1<V, P1> {
         V get(P1 param1);
     }
 
+    @SuppressWarnings("unchecked")
     private <V, P1> V find1(Map<P1,V> cache, P1 param1, Getter1<V, P1> getter) {
-        if (cache.containsKey(param1)) {
-            return cache.get(param1);
-        } else {
-            V value = getter.get(param1);
-            cache.put(param1, value);
-            return value;
+        Map<Object, Object> map = (Map<Object, Object>) cache;
+        Object key = param1 != null ? param1 : NULL;
+        Object cached = map.get(key);
+        if (cached != null) {
+            return cached != NULL ? (V) cached : null;
+        }
+        // Computed outside of the map, as the computation may use other caches. If two threads compute
+        // the same value concurrently, they get equal results, so it does not matter which one is stored.
+        V value = getter.get(param1);
+        map.putIfAbsent(key, value != null ? value : NULL);
+        return value;
+    }
+
+    // Not using computeIfAbsent, as it locks the map segment even if the value is present (in JDK 8).
+    @SuppressWarnings("unchecked")
+    private <P1, C> C findNested(Map<P1, C> cache, P1 param1) {
+        Map<Object, Object> map = (Map<Object, Object>) cache;
+        Object key = param1 != null ? param1 : NULL;
+        Object nested = map.get(key);
+        if (nested == null) {
+            Object existing = map.putIfAbsent(key, nested = new ConcurrentHashMap<>());
+            if (existing != null) {
+                nested = existing;
+            }
         }
+        return (C) nested;
     }
 
     @FunctionalInterface
@@ -80,17 +103,7 @@ public class PrismBeanInspector {
     }
 
     private <V, P1, P2> V find2(final Map<P1,Map<P2,V>> cache, final P1 param1, final P2 param2, final Getter2<V, P1, P2> getter) {
-        Map<P2, V> cache2 = cache.get(param1);
-        if (cache2 == null) {
-            cache2 = Collections.synchronizedMap(new HashMap());
-            cache.put(param1, cache2);
-        }
-        return find1(cache2, param2, new Getter1<V, P2>() {
-            @Override
-            public V get(P2 p) {
-                return getter.get(param1, p);
-            }
-        });
+        return find1(findNested(cache, param1), param2, p -> getter.get(param1, p));
     }
 
     @FunctionalInterface
@@ -99,41 +112,31 @@ public class PrismBeanInspector {
     }
 
     private <V, P1, P2, P3> V find3(final Map<P1,Map<P2,Map<P3,V>>> cache, final P1 param1, final P2 param2, final P3 param3, final Getter3<V, P1, P2, P3> getter) {
-        Map<P2, Map<P3, V>> cache2 = cache.get(param1);
-        if (cache2 == null) {
-            cache2 = Collections.synchronizedMap(new HashMap());
-            cache.put(param1, cache2);
-        }
-        return find2(cache2, param2, param3, new Getter2<V, P2, P3>() {
-            @Override
-            public V get(P2 p, P3 q) {
-                return getter.get(param1, p, q);
-            }
-        });
+        return find2(findNested(cache, param1), param2, param3, (p, q) -> getter.get(param1, p, q));
     }
     //endregion
 
     //region Individual inspection methods - cached versions
 
-    private Map<Class<? extends Object>, String> _determineNamespace = Collections.synchronizedMap(new HashMap());
+    private Map<Class<? extends Object>, String> _determineNamespace = new ConcurrentHashMap<>();
 
     String determineNamespace(Class<? extends Object> paramType) {
         return find1(_determineNamespace, paramType, this::determineNamespaceUncached);
     }
 
-    private Map<Class<?>, QName> _determineTypeForClass = Collections.synchronizedMap(new HashMap());
+    private Map<Class<?>, QName> _determineTypeForClass = new ConcurrentHashMap<>();
 
     QName determineTypeForClass(Class<?> paramType) {
         return find1(_determineTypeForClass, paramType, this::determineTypeForClassUncached);
     }
 
-    private Map<Field,Map<Method,Boolean>> _isAttribute = Collections.synchronizedMap(new HashMap());
+    private Map<Field,Map<Method,Boolean>> _isAttribute = new ConcurrentHashMap<>();
 
     boolean isAttribute(Field field, Method getter) {
         return find2(_isAttribute, field, getter, this::isAttributeUncached);
     }
 
-    private Map<Class,Map<String,Method>> _findSetter = Collections.synchronizedMap(new HashMap());
+    private Map<Class,Map<String,Method>> _findSetter = new ConcurrentHashMap<>();
 
     <T> Method findSetter(Class<T> beanClass, String fieldName) {
         return find2(_findSetter, beanClass, fieldName, new Getter2<Method,Class,String>() {
@@ -144,7 +147,7 @@ public class PrismBeanInspector {
         });
     }
 
-    private Map<Package,Class> _getObjectFactoryClassPackage = Collections.synchronizedMap(new HashMap());
+    private Map<Package,Class> _getObjectFactoryClassPackage = new ConcurrentHashMap<>();
     Class getObjectFactoryClass(Package aPackage) {
         return find1(_getObjectFactoryClassPackage, aPackage, new Getter1<Class,Package>() {
             @Override
@@ -154,7 +157,7 @@ public class PrismBeanInspector {
         });
     }
     
-    private Map<String,Class> _getObjectFactoryClassNamespace = Collections.synchronizedMap(new HashMap());
+    private Map<String,Class> _getObjectFactoryClassNamespace = new ConcurrentHashMap<>();
     Class getObjectFactoryClass(String namespaceUri) {
         return find1(_getObjectFactoryClassNamespace, namespaceUri, new Getter1<Class,String>() {
             @Override
@@ -164,32 +167,32 @@ public class PrismBeanInspector {
         });
     }
 
-    private Map<Class<? extends Object>, List<String>> _getPropOrder = Collections.synchronizedMap(new HashMap());
+    private Map<Class<? extends Object>, List<String>> _getPropOrder = new ConcurrentHashMap<>();
 
     List<String> getPropOrder(Class<? extends Object> beanClass) {
         return find1(_getPropOrder, beanClass, this::getPropOrderUncached);
     }
 
-    private Map<Class,Map<String,Method>> _findElementMethodInObjectFactory = Collections.synchronizedMap(new HashMap());
+    private Map<Class,Map<String,Method>> _findElementMethodInObjectFactory = new ConcurrentHashMap<>();
 
     Method findElementMethodInObjectFactory(Class objectFactoryClass, String propName) {
         return find2(_findElementMethodInObjectFactory, objectFactoryClass, propName,
                 (c, p) -> findElementMethodInObjectFactoryUncached(c, p));
     }
 
-    private Map<Class,Map<Method,Field>> _lookupSubstitution = Collections.synchronizedMap(new HashMap());
+    private Map<Class,Map<Method,Field>> _lookupSubstitution = new ConcurrentHashMap<>();
 
     <T> Field lookupSubstitution(Class<T> beanClass, Method elementMethod) {
         return find2(_lookupSubstitution, beanClass, elementMethod, this::lookupSubstitutionUncached);
     }
 
-    private Map<Class,Map<String,String>> _findEnumFieldName = Collections.synchronizedMap(new HashMap());
+    private Map<Class,Map<String,String>> _findEnumFieldName = new ConcurrentHashMap<>();
 
     <T> String findEnumFieldName(Class<T> classType, String primValue) {
         return find2(_findEnumFieldName, classType, primValue, (c, v) -> findEnumFieldNameUncached(c, v));
     }
 
-    private Map<Class,Map<String,String>> _findEnumFieldValue = Collections.synchronizedMap(new HashMap());
+    private Map<Class,Map<String,String>> _findEnumFieldValue = new ConcurrentHashMap<>();
 
     <T> String findEnumFieldValue(Class<T> classType, String toStringValue) {
         return find2(_findEnumFieldValue, classType, toStringValue, new Getter2<String,Class,String>() {
@@ -200,7 +203,7 @@ public class PrismBeanInspector {
         });
     }
 
-    private Map<Field,Map<Class<? extends Object>,Map<String,QName>>> _findTypeName = Collections.synchronizedMap(new HashMap());
+    private Map<Field,Map<Class<? extends Object>,Map<String,QName>>> _findTypeName = new ConcurrentHashMap<>();
 
 	// Determines type for field/content combination. Field information is used only for simple XSD types.
 	QName findTypeName(Field field, Class<?> contentClass, String defaultNamespacePlaceholder) {
@@ -208,7 +211,7 @@ public class PrismBeanInspector {
                 this::findTypeNameUncached);
     }
 
-    private Map<String,Map<Class<? extends Object>,Map<String,QName>>> _findFieldElementQName = Collections.synchronizedMap(new HashMap());
+    private Map<String,Map<Class<? extends Object>,Map<String,QName>>> _findFieldElementQName = new ConcurrentHashMap<>();
 
     QName findFieldElementQName(String fieldName, Class<? extends Object> beanClass, String defaultNamespace) {
         return find3(_findFieldElementQName, fieldName, beanClass, defaultNamespace, new Getter3<QName, String, Class<? extends Object>, String>() {
@@ -219,19 +222,37 @@ public class PrismBeanInspector {
         });
     }
 
-    private Map<Class,Map<String,Method>> _findPropertyGetter = Collections.synchronizedMap(new HashMap());
+    private Map<Class,Map<String,Method>> _findPropertyGetter = new ConcurrentHashMap<>();
 
     public <T> Method findPropertyGetter(Class<T> beanClass, String propName) {
         return find2(_findPropertyGetter, beanClass, propName, this::findPropertyGetterUncached);
     }
 
-    private Map<Class,Map<String,Field>> _findPropertyField = Collections.synchronizedMap(new HashMap());
+    private Map<Class,Map<String,Field>> _findPropertyField = new ConcurrentHashMap<>();
 
     public <T> Field findPropertyField(Class<T> beanClass, String propName) {
         return find2(_findPropertyField, beanClass, propName, this::findPropertyFieldUncached);
     }
     //endregion
 
+    private final Map<Class<?>, Object> objectFactories = new ConcurrentHashMap<>();
+
+    /**
+     * Returns a shared instance of given JAXB object factory class. (Object factories are stateless.)
+     */
+    Object getObjectFactory(Class<?> objectFactoryClass) {
+        Object objectFactory = objectFactories.get(objectFactoryClass);
+        if (objectFactory == null) {
+            try {
+                objectFactory = objectFactoryClass.newInstance();
+            } catch (InstantiationException | IllegalAccessException e) {
+                throw new IllegalArgumentException("Cannot instantiate object factory class "+objectFactoryClass.getName()+": "+e.getMessage(), e);
+            }
+            objectFactories.putIfAbsent(objectFactoryClass, objectFactory);
+        }
+        return objectFactory;
+    }
+
     //region Uncached versions of the inspection methods
 
     private <T> Field findPropertyFieldUncached(Class<T> classType, String propName) {
@@ -22,10 +22,18 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.xml.namespace.QName;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.*;
 
 /**
+ * Path to an item (or a value), consisting of segments.
+ *
+ * Item paths are immutable after construction (except for the namespace map, which does not influence
+ * their identity). Therefore the hash code is computed only once, and paths derived from this one
+ * (tail, allExceptLast, etc.) share its list of segments instead of copying it.
+ *
  * @author semancik
  *
  */
@@ -42,8 +50,12 @@ public class ItemPath implements Serializable, Cloneable {
 		return empty;
 	}
 
-	private List<ItemPathSegment> segments;
+	// artificial segment used when comparing normalized paths; never exposed
+	private static final IdItemPathSegment NULL_ID_SEGMENT = new IdItemPathSegment();
+
+	private List<ItemPathSegment> segments;			// never modified after the path is constructed
 	private Map<String, String> namespaceMap;
+	private transient int hash;						// 0 = not computed yet
 
 	public void setNamespaceMap(Map<String, String> namespaceMap) {
 		this.namespaceMap = namespaceMap;
@@ -143,6 +155,14 @@ public class ItemPath implements Serializable, Cloneable {
 		Collections.addAll(this.segments, segments);
 	}
 
+	/**
+	 * Creates a path consisting of a part of the segments of the parent path. The segments are not copied,
+	 * which is safe because they are never modified.
+	 */
+	private ItemPath(ItemPath parentPath, int fromIndex, int toIndex) {
+		this.segments = parentPath.segments.subList(fromIndex, toIndex);
+	}
+
 	private ItemPath(Iterator<ItemPathSegment> iterator) {
 		this.segments = new ArrayList<>();		// default size
 		iterator.forEachRemaining(segments::add);
@@ -210,7 +230,7 @@ public class ItemPath implements Serializable, Cloneable {
 	}
 
 	public List<ItemPathSegment> getSegments() {
-		return segments;
+		return Collections.unmodifiableList(segments);
 	}
 	
 	public ItemPathSegment first() {
@@ -257,7 +277,7 @@ public class ItemPath implements Serializable, Cloneable {
 		if (segments.size() < n) {
 			return EMPTY_PATH;
 		}
-		return new ItemPath(segments.subList(n, segments.size()));
+		return new ItemPath(this, n, segments.size());
 	}
 
 	@NotNull
@@ -273,7 +293,7 @@ public class ItemPath implements Serializable, Cloneable {
 		if (segments.size() == 0) {
 			return EMPTY_PATH;
 		}
-		return new ItemPath(segments.subList(0, segments.size()-1));
+		return new ItemPath(this, 0, segments.size()-1);
 	}
 
     /**
@@ -282,7 +302,7 @@ public class ItemPath implements Serializable, Cloneable {
     public ItemPath allUpToLastNamed() {
         for (int i = segments.size()-1; i >= 0; i--) {
             if (segments.get(i) instanceof NameItemPathSegment) {
-                return new ItemPath(segments.subList(0, i));
+                return new ItemPath(this, 0, i);
             }
         }
         return EMPTY_PATH;
@@ -299,7 +319,7 @@ public class ItemPath implements Serializable, Cloneable {
         if (i < 0) {
             return EMPTY_PATH;
         } else {
-            return new ItemPath(segments.subList(0, i));
+            return new ItemPath(this, 0, i);
         }
     }
 
@@ -318,7 +338,7 @@ public class ItemPath implements Serializable, Cloneable {
     }
 
     public ItemPath allUpToIncluding(int i) {
-        return new ItemPath(segments.subList(0, i+1));
+        return new ItemPath(this, 0, i+1);
     }
 
     public int size() {
@@ -435,25 +455,54 @@ public class ItemPath implements Serializable, Cloneable {
 		return new ItemPathNormalizingIterator(this);
 	}
 
+	/**
+	 * Compares the normalized forms of the paths, just like comparing the sequences returned by
+	 * normalizing iterators, but without creating any objects (this method is called very often).
+	 */
 	public CompareResult compareComplex(ItemPath otherPath) {
-		ItemPathNormalizingIterator thisIterator = this.normalizingIterator();
-		ItemPathNormalizingIterator otherIterator = (otherPath != null ? otherPath : EMPTY_PATH).normalizingIterator();
-		while (thisIterator.hasNext() && otherIterator.hasNext()) {
-			ItemPathSegment thisSegment = thisIterator.next();
-			ItemPathSegment otherSegment = otherIterator.next();
-			if (!thisSegment.equivalent(otherSegment)) {
+		if (otherPath == this) {
+			return CompareResult.EQUIVALENT;
+		}
+		List<ItemPathSegment> thisSegments = segments;
+		List<ItemPathSegment> otherSegments = otherPath != null ? otherPath.segments : EMPTY_PATH.segments;
+		int thisSize = thisSegments.size();
+		int otherSize = otherSegments.size();
+		int i = 0, j = 0;
+		boolean thisNextIsNullId = false, otherNextIsNullId = false;
+		while (i < thisSize && j < otherSize) {
+			ItemPathSegment thisSegment;
+			if (thisNextIsNullId) {
+				thisSegment = NULL_ID_SEGMENT;
+				thisNextIsNullId = false;
+			} else {
+				thisSegment = thisSegments.get(i++);
+				thisNextIsNullId = i < thisSize && needsNullIdBetween(thisSegment, thisSegments.get(i));
+			}
+			ItemPathSegment otherSegment;
+			if (otherNextIsNullId) {
+				otherSegment = NULL_ID_SEGMENT;
+				otherNextIsNullId = false;
+			} else {
+				otherSegment = otherSegments.get(j++);
+				otherNextIsNullId = j < otherSize && needsNullIdBetween(otherSegment, otherSegments.get(j));
+			}
+			if (thisSegment != otherSegment && !thisSegment.equivalent(otherSegment)) {
 				return CompareResult.NO_RELATION;
 			}
 		}
-		if (thisIterator.hasNext()) {
+		if (i < thisSize) {
 			return CompareResult.SUPERPATH;				// "this" is longer than "other"
 		}
-		if (otherIterator.hasNext()) {
+		if (j < otherSize) {
 			return CompareResult.SUBPATH;				// "this" is shorter than "other"
 		}
 		return CompareResult.EQUIVALENT;
 	}
 
+	private static boolean needsNullIdBetween(ItemPathSegment segment, ItemPathSegment nextSegment) {
+		return !(segment instanceof IdItemPathSegment) && !(nextSegment instanceof IdItemPathSegment);
+	}
+
 //	public CompareResult compareComplex(ItemPath otherPath) {
 //		CompareResult r1 = compareComplexOld(otherPath);
 //		CompareResult r2 = compareComplexEfficient(otherPath);
@@ -776,9 +825,13 @@ public class ItemPath implements Serializable, Cloneable {
 
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((segments == null) ? 0 : segments.hashCode());
+		int result = hash;
+		if (result == 0) {
+			final int prime = 31;
+			result = 1;
+			result = prime * result + ((segments == null) ? 0 : segments.hashCode());
+			hash = result;
+		}
 		return result;
 	}
 
@@ -805,6 +858,9 @@ public class ItemPath implements Serializable, Cloneable {
 		if (getClass() != obj.getClass())
 			return false;
 		ItemPath other = (ItemPath) obj;
+		if (hash != 0 && other.hash != 0 && hash != other.hash) {
+			return false;
+		}
 		if (segments == null) {
 			if (other.segments != null)
 				return false;
@@ -852,5 +908,13 @@ public class ItemPath implements Serializable, Cloneable {
 		return new ItemPathType(this);
 	}
 
+	// Segments of a derived path are a view of another list, which is not serializable by itself.
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("segments", segments instanceof ArrayList ? segments : new ArrayList<>(segments));
+		fields.put("namespaceMap", namespaceMap);
+		out.writeFields();
+	}
+
 
 }
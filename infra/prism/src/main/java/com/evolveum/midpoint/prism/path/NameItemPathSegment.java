@@ -116,6 +116,15 @@ public class NameItemPathSegment extends ItemPathSegment {
         if (name == null) {
 			return other.name != null;
 		}
+        if (other.name == null) {
+        	return false;
+		}
+        if (name == other.name) {
+        	return true;			// typically names taken from the same definition or constant
+		}
+        if (!name.getLocalPart().equals(other.name.getLocalPart())) {
+        	return false;			// cheap check, valid for all kinds of comparison
+		}
 
         if (allowUnqualified) {
             if (!allowDifferentPrefixes) {
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010-2015 Evolveum
+ * Copyright (c) 2010-2017 Evolveum
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,15 +16,81 @@
 package com.evolveum.midpoint.prism.polystring;
 
 import java.text.Normalizer;
+import java.util.Locale;
 
-import org.apache.commons.lang.StringUtils;
+import com.evolveum.midpoint.util.caching.BoundedLruCache;
 
 /**
+ * Default normalizer. It trims the string, decomposes it (NFKD), removes all characters except for ASCII letters,
+ * digits, underscore and whitespace, collapses whitespace sequences into a single space and converts the result
+ * to lower case. Whitespace-only result is normalized to an empty string.
+ *
+ * This is the same as applying the corresponding regular expressions one after another, but it is done in a single
+ * pass over the string. Strings consisting of ASCII characters only (the majority of names in most deployments)
+ * need no decomposition at all, and strings that are already normalized are returned as they are.
+ *
+ * The individual steps (trimming, decomposition, lower-casing) can be switched off. Results for non-ASCII strings
+ * can be memoized, as their decomposition is the most expensive part of the normalization. Note that the normalizer
+ * must not be reconfigured after it was used to compute values that were stored (e.g. in the repository).
+ *
  * @author semancik
  *
  */
 public class PrismDefaultPolyStringNormalizer implements PolyStringNormalizer {
 
+	private boolean trim = true;
+	private boolean nfkd = true;
+	private boolean lowerCase = true;
+
+	private volatile BoundedLruCache<String, String> memo;			// null if memoization is off
+
+	public boolean isTrim() {
+		return trim;
+	}
+
+	public void setTrim(boolean trim) {
+		this.trim = trim;
+	}
+
+	public boolean isNfkd() {
+		return nfkd;
+	}
+
+	public void setNfkd(boolean nfkd) {
+		this.nfkd = nfkd;
+	}
+
+	public boolean isLowerCase() {
+		return lowerCase;
+	}
+
+	public void setLowerCase(boolean lowerCase) {
+		this.lowerCase = lowerCase;
+	}
+
+	public int getMemoSize() {
+		BoundedLruCache<String, String> currentMemo = memo;
+		return currentMemo != null ? currentMemo.getMaxSize() : 0;
+	}
+
+	/**
+	 * Maximal number of memoized results for non-ASCII strings. Zero (the default) means no memoization.
+	 * When the limit is reached, the least recently used results are evicted.
+	 */
+	public void setMemoSize(int memoSize) {
+		memo = memoSize > 0 ? new BoundedLruCache<>(memoSize) : null;
+	}
+
+	public long getMemoHits() {
+		BoundedLruCache<String, String> currentMemo = memo;
+		return currentMemo != null ? currentMemo.getHits() : 0;
+	}
+
+	public long getMemoMisses() {
+		BoundedLruCache<String, String> currentMemo = memo;
+		return currentMemo != null ? currentMemo.getMisses() : 0;
+	}
+
 	/* (non-Javadoc)
 	 * @see com.evolveum.midpoint.prism.polystring.PolyStringNormalizer#normalize(java.lang.String)
 	 */
@@ -33,14 +99,104 @@ public class PrismDefaultPolyStringNormalizer implements PolyStringNormalizer {
 		if (orig == null) {
 			return null;
 		}
-		String s = StringUtils.trim(orig);
-		s = Normalizer.normalize(s, Normalizer.Form.NFKD);
-		s = s.replaceAll("[^\\w\\s\\d]", "");
-		s = s.replaceAll("\\s+", " ");
-		if (StringUtils.isBlank(s)) {
-			s = "";
+		int start = 0;
+		int end = orig.length();
+		if (trim) {
+			// the same as String.trim()
+			while (start < end && orig.charAt(start) <= ' ') {
+				start++;
+			}
+			while (start < end && orig.charAt(end - 1) <= ' ') {
+				end--;
+			}
+		}
+		if (!nfkd || isAscii(orig, start, end)) {
+			return normalizeAscii(orig, start, end);
+		}
+		BoundedLruCache<String, String> currentMemo = memo;
+		if (currentMemo == null) {
+			return normalizeNonAscii(orig, start, end);
+		}
+		String norm = currentMemo.get(orig);
+		if (norm == null) {
+			norm = normalizeNonAscii(orig, start, end);
+			currentMemo.put(orig, norm);
+		}
+		return norm;
+	}
+
+	private String normalizeNonAscii(String orig, int start, int end) {
+		String decomposed = Normalizer.normalize(orig.substring(start, end), Normalizer.Form.NFKD);
+		return normalizeAscii(decomposed, 0, decomposed.length());
+	}
+
+	/**
+	 * Filters out non-word characters, collapses whitespace and converts to lower case. Characters outside
+	 * the ASCII range are simply removed here, as they are not word characters (in the regex sense).
+	 */
+	private String normalizeAscii(String s, int start, int end) {
+		char[] result = null;			// allocated when the first difference is found
+		int length = 0;
+		// ASCII lower-casing is the same as String.toLowerCase() except for the dotless i in Turkic locales
+		boolean asciiLowerCase = lowerCase && !isTurkic(Locale.getDefault());
+		for (int i = start; i < end; i++) {
+			char c = s.charAt(i);
+			char out;
+			if (isWordCharacter(c)) {
+				out = asciiLowerCase && c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+			} else if (isWhitespace(c)) {
+				if (length > 0 && (result != null ? result[length - 1] : s.charAt(start + length - 1)) == ' ') {
+					out = 0;
+				} else {
+					out = ' ';
+				}
+			} else {
+				out = 0;
+			}
+			if (result == null) {
+				if (out == c) {
+					length++;
+					continue;
+				}
+				result = new char[end - start];
+				s.getChars(start, start + length, result, 0);
+			}
+			if (out != 0) {
+				result[length++] = out;
+			}
+		}
+		String norm;
+		if (length == 0 || length == 1 && (result != null ? result[0] : s.charAt(start)) == ' ') {
+			norm = "";
+		} else if (result == null) {
+			norm = start == 0 && end == s.length() ? s : s.substring(start, end);
+		} else {
+			norm = new String(result, 0, length);
+		}
+		return lowerCase && !asciiLowerCase ? norm.toLowerCase() : norm;
+	}
+
+	private static boolean isAscii(String s, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (s.charAt(i) >= 0x80) {
+				return false;
+			}
 		}
-		return StringUtils.lowerCase(s);
+		return true;
 	}
 
+	// \w in Java regular expressions (without UNICODE_CHARACTER_CLASS)
+	private static boolean isWordCharacter(char c) {
+		return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_';
+	}
+
+	// \s in Java regular expressions (without UNICODE_CHARACTER_CLASS)
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+	private static boolean isTurkic(Locale locale) {
+		String language = locale.getLanguage();
+		return "tr".equals(language) || "az".equals(language);
+	}
 }
@@ -52,6 +52,12 @@ public class PrismSchemaImpl implements PrismSchema {
 	// These definitions are to be resolved after parsing the set of schemas.
 	@NotNull private final List<DefinitionSupplier> delayedItemDefinitions = new ArrayList<>();
 
+	// Indexes used for lookups by type name and compile-time class. They are used only after the schema is frozen,
+	// i.e. when names, types and compile-time classes of its definitions are no longer changed. Definitions
+	// added later cause the indexes to be rebuilt on the next lookup.
+	private volatile boolean frozen;
+	private volatile DefinitionIndex index;
+
 	protected PrismSchemaImpl(PrismContext prismContext) {
 		this.prismContext = prismContext;
 	}
@@ -110,6 +116,19 @@ public class PrismSchemaImpl implements PrismSchema {
 			ItemDefinition<?> itemDef = (ItemDefinition<?>) def;
 			itemDefinitionMap.put(itemDef.getName(), itemDef);
 		}
+		index = null;
+	}
+
+	/**
+	 * Marks the schema as complete: names, type names and compile-time classes of the definitions will not change
+	 * any more, so lookups can use indexes instead of scanning all the definitions.
+	 */
+	public void freeze() {
+		frozen = true;
+	}
+
+	public boolean isFrozen() {
+		return frozen;
 	}
 	
 	@Override
@@ -147,6 +166,9 @@ public class PrismSchemaImpl implements PrismSchema {
 		processor.setRuntime(isRuntime);
 		processor.setAllowDelayedItemDefinitions(allowDelayedItemDefinitions);
 		processor.parseDom(schema, element);
+		if (!allowDelayedItemDefinitions) {
+			schema.freeze();
+		}
 		return schema;
 	}
 
@@ -331,6 +353,10 @@ public class PrismSchemaImpl implements PrismSchema {
 	@NotNull
 	public <ID extends ItemDefinition> List<ID> findItemDefinitionsByCompileTimeClass(
 			@NotNull Class<?> compileTimeClass, @NotNull Class<ID> definitionClass) {
+		DefinitionIndex index = getIndex();
+		if (index != null) {
+			return index.findItemDefinitionsByCompileTimeClass(compileTimeClass, definitionClass);
+		}
 		List<ID> found = new ArrayList<>();
 		for (Definition def: definitions) {
 			if (definitionClass.isAssignableFrom(def.getClass())) {
@@ -357,7 +383,7 @@ public class PrismSchemaImpl implements PrismSchema {
 	@Override
 	public <ID extends ItemDefinition> ID findItemDefinitionByType(@NotNull QName typeName, @NotNull Class<ID> definitionClass) {
 		// TODO: check for multiple definition with the same type
-		for (Definition definition : definitions) {
+		for (Definition definition : getCandidatesByType(typeName)) {
 			if (definitionClass.isAssignableFrom(definition.getClass())) {
 				@SuppressWarnings("unchecked")
 				ID itemDef = (ID) definition;
@@ -414,7 +440,7 @@ public class PrismSchemaImpl implements PrismSchema {
 
 	@Override
 	public <C extends Containerable> ComplexTypeDefinition findComplexTypeDefinitionByCompileTimeClass(@NotNull Class<C> compileTimeClass) {
-		for (Definition def: definitions) {
+		for (Definition def: getCandidatesByCompileTimeClass(compileTimeClass)) {
 			if (def instanceof ComplexTypeDefinition) {
 				ComplexTypeDefinition ctd = (ComplexTypeDefinition) def;
 				if (compileTimeClass.equals(ctd.getCompileTimeClass())) {
@@ -437,7 +463,7 @@ public class PrismSchemaImpl implements PrismSchema {
 	@Override
 	@SuppressWarnings("unchecked")
 	public <TD extends TypeDefinition> Collection<TD> findTypeDefinitionsByType(@NotNull QName typeName, @NotNull Class<TD> definitionClass) {
-		return (List) definitions.stream()
+		return (List) getCandidatesByType(typeName).stream()
 				.filter(def -> definitionClass.isAssignableFrom(def.getClass()) && QNameUtil.match(typeName, def.getTypeName()))
 				.collect(Collectors.toList());
 	}
@@ -446,7 +472,7 @@ public class PrismSchemaImpl implements PrismSchema {
 	@Override
 	public <TD extends TypeDefinition> TD findTypeDefinitionByCompileTimeClass(@NotNull Class<?> compileTimeClass, @NotNull Class<TD> definitionClass) {
 		// TODO: check for multiple definition with the same type
-		for (Definition definition : definitions) {
+		for (Definition definition : getCandidatesByCompileTimeClass(compileTimeClass)) {
 			if (definitionClass.isAssignableFrom(definition.getClass()) && compileTimeClass.equals(((TD) definition).getCompileTimeClass())) {
 				return (TD) definition;
 			}
@@ -454,6 +480,81 @@ public class PrismSchemaImpl implements PrismSchema {
 		return null;
 	}
 
+	// Definitions that can match given type name (a superset of them, in the original order).
+	@NotNull
+	private Collection<Definition> getCandidatesByType(@NotNull QName typeName) {
+		DefinitionIndex index = getIndex();
+		return index != null ? index.byTypeLocalName.getOrDefault(typeName.getLocalPart(), Collections.emptyList()) : definitions;
+	}
+
+	// Definitions that can have given compile-time class (a superset of them, in the original order).
+	@NotNull
+	private Collection<Definition> getCandidatesByCompileTimeClass(@NotNull Class<?> compileTimeClass) {
+		DefinitionIndex index = getIndex();
+		return index != null ? index.byCompileTimeClass.getOrDefault(compileTimeClass, Collections.emptyList()) : definitions;
+	}
 
+	@Nullable
+	private DefinitionIndex getIndex() {
+		if (!frozen) {
+			return null;
+		}
+		DefinitionIndex current = index;
+		if (current == null) {
+			current = new DefinitionIndex(new ArrayList<>(definitions));
+			index = current;
+		}
+		return current;
+	}
 	//endregion
+
+	/**
+	 * Immutable lookup structures built from the definitions. Type names are indexed by their local part only,
+	 * because type name matching ignores missing namespaces (see QNameUtil.match).
+	 */
+	private class DefinitionIndex {
+
+		@NotNull private final Map<String, List<Definition>> byTypeLocalName = new HashMap<>();
+		@NotNull private final Map<Class<?>, List<Definition>> byCompileTimeClass = new HashMap<>();
+		// compile-time classes of property definitions are determined by the schema registry
+		@NotNull private final List<PrismPropertyDefinition> propertyDefinitions = new ArrayList<>();
+
+		private DefinitionIndex(@NotNull List<Definition> definitions) {
+			for (Definition def : definitions) {
+				if (def.getTypeName() != null) {
+					byTypeLocalName.computeIfAbsent(def.getTypeName().getLocalPart(), k -> new ArrayList<>(1)).add(def);
+				}
+				Class<?> compileTimeClass = null;
+				if (def instanceof TypeDefinition) {
+					compileTimeClass = ((TypeDefinition) def).getCompileTimeClass();
+				} else if (def instanceof PrismContainerDefinition) {
+					compileTimeClass = ((PrismContainerDefinition) def).getCompileTimeClass();
+				} else if (def instanceof PrismPropertyDefinition) {
+					propertyDefinitions.add((PrismPropertyDefinition) def);
+				}
+				if (compileTimeClass != null) {
+					byCompileTimeClass.computeIfAbsent(compileTimeClass, k -> new ArrayList<>(1)).add(def);
+				}
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		@NotNull
+		private <ID extends ItemDefinition> List<ID> findItemDefinitionsByCompileTimeClass(@NotNull Class<?> compileTimeClass,
+				@NotNull Class<ID> definitionClass) {
+			List<ID> found = new ArrayList<>();
+			for (Definition def : byCompileTimeClass.getOrDefault(compileTimeClass, Collections.emptyList())) {
+				if (def instanceof PrismContainerDefinition && definitionClass.isAssignableFrom(def.getClass())) {
+					found.add((ID) def);
+				}
+			}
+			for (PrismPropertyDefinition def : propertyDefinitions) {
+				if (definitionClass.isAssignableFrom(def.getClass())
+						&& compileTimeClass.equals(prismContext.getSchemaRegistry().determineClassForType(def.getTypeName()))) {
+					found.add((ID) def);
+				}
+			}
+			return found;
+		}
+	}
 }
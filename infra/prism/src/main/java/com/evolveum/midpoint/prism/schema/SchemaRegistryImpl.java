@@ -67,6 +67,7 @@ import com.evolveum.midpoint.util.DebugDumpable;
 import com.evolveum.midpoint.util.DebugUtil;
 import com.evolveum.midpoint.util.JAXBUtil;
 import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.exception.SystemException;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
 
@@ -95,6 +96,7 @@ public class SchemaRegistryImpl implements DebugDumpable, SchemaRegistry {
 	private boolean initialized = false;
 	private DynamicNamespacePrefixMapper namespacePrefixMapper;
 	private String defaultNamespace;
+	private File snapshotFile;					// if set, parsed prism schemas are stored there and reused on next start
 
 	private XmlEntityResolver entityResolver = new XmlEntityResolverImpl(this);
 
@@ -149,6 +151,18 @@ public class SchemaRegistryImpl implements DebugDumpable, SchemaRegistry {
 		this.catalogResourceName = catalogResourceName;
 	}
 
+	public File getSnapshotFile() {
+		return snapshotFile;
+	}
+
+	/**
+	 * Sets the file where parsed prism schemas are stored after their parsing. If the file exists and was created
+	 * from the same schemas (and the same prism code), the schemas are loaded from it instead of being parsed.
+	 */
+	public void setSnapshotFile(File snapshotFile) {
+		this.snapshotFile = snapshotFile;
+	}
+
 	@Override
 	public String getDefaultNamespace() {
 		return defaultNamespace;
@@ -359,17 +373,28 @@ public class SchemaRegistryImpl implements DebugDumpable, SchemaRegistry {
 			throw new IllegalStateException("Namespace prefix mapper not set");
 		}
 		try {
-			LOGGER.trace("initialize() starting");			// TODO remove (all of these)
+			long start = System.currentTimeMillis();
 			initResolver();
-			LOGGER.trace("initResolver() done");
-			parsePrismSchemas();
-			LOGGER.trace("parsePrismSchemas() done");
-			parseJavaxSchema();
-			LOGGER.trace("parseJavaxSchema() done");
+			long resolverDone = System.currentTimeMillis();
+			boolean fromSnapshot = loadPrismSchemasFromSnapshot();
+			if (!fromSnapshot) {
+				parsePrismSchemas();
+				storePrismSchemasToSnapshot();
+			}
+			long prismSchemasDone = System.currentTimeMillis();
+			// Schemas loaded from the snapshot were successfully parsed when it was created, so there's no need
+			// to check them now. The javax schema (used only for validation) will be parsed on first use then.
+			if (!fromSnapshot) {
+				parseJavaxSchema();
+			}
+			long javaxSchemaDone = System.currentTimeMillis();
 			compileCompileTimeClassList();
-			LOGGER.trace("compileCompileTimeClassList() done");
+			long done = System.currentTimeMillis();
 			initialized = true;
-			
+			LOGGER.info("Schema registry initialized in {} ms: catalog resolver {} ms, prism schemas {} ms ({}), "
+							+ "javax schema {} ms{}, compile-time classes {} ms", done - start, resolverDone - start,
+					prismSchemasDone - resolverDone, fromSnapshot ? "loaded from snapshot" : "parsed",
+					javaxSchemaDone - prismSchemasDone, fromSnapshot ? " (deferred)" : "", done - javaxSchemaDone);
 		} catch (SAXException ex) {
 			if (ex instanceof SAXParseException) {
 				SAXParseException sex = (SAXParseException)ex;
@@ -379,6 +404,50 @@ public class SchemaRegistryImpl implements DebugDumpable, SchemaRegistry {
 		}
 	}
 
+	private boolean loadPrismSchemasFromSnapshot() {
+		if (snapshotFile == null) {
+			return false;
+		}
+		List<SchemaDescription> prismSchemaDescriptions = getPrismSchemaDescriptions();
+		String fingerprint = SchemaRegistrySnapshot.computeFingerprint(prismSchemaDescriptions);
+		List<List<Definition>> schemasDefinitions = new SchemaRegistrySnapshot(snapshotFile).read(fingerprint, prismSchemaDescriptions, prismContext);
+		if (schemasDefinitions == null) {
+			return false;
+		}
+		if (schemasDefinitions.size() != prismSchemaDescriptions.size()) {
+			LOGGER.warn("Schema snapshot {} contains {} schemas instead of {}, schemas will be parsed", snapshotFile,
+					schemasDefinitions.size(), prismSchemaDescriptions.size());
+			return false;
+		}
+		for (int i = 0; i < prismSchemaDescriptions.size(); i++) {
+			SchemaDescription schemaDescription = prismSchemaDescriptions.get(i);
+			PrismSchemaImpl schema = new PrismSchemaImpl(prismContext);
+			schema.setNamespace(schemaDescription.getNamespace());
+			schemasDefinitions.get(i).forEach(schema::add);
+			schema.freeze();
+			schemaDescription.setSchema(schema);
+		}
+		return true;
+	}
+
+	private void storePrismSchemasToSnapshot() {
+		if (snapshotFile == null) {
+			return;
+		}
+		List<SchemaDescription> prismSchemaDescriptions = getPrismSchemaDescriptions();
+		String fingerprint = SchemaRegistrySnapshot.computeFingerprint(prismSchemaDescriptions);
+		List<PrismSchema> schemas = prismSchemaDescriptions.stream()
+				.map(SchemaDescription::getSchema)
+				.collect(Collectors.toList());
+		new SchemaRegistrySnapshot(snapshotFile).write(fingerprint, schemas);
+	}
+
+	private List<SchemaDescription> getPrismSchemaDescriptions() {
+		return schemaDescriptions.stream()
+				.filter(SchemaDescription::isPrismSchema)
+				.collect(Collectors.toList());
+	}
+
 	private void parseJavaxSchema() throws SAXException, IOException {
 		schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
 		Source[] sources = new Source[schemaDescriptions.size()];
@@ -404,6 +473,11 @@ public class SchemaRegistryImpl implements DebugDumpable, SchemaRegistry {
 				resolveMissingTypeDefinitionsInGlobalItemDefinitions((PrismSchemaImpl) schemaDescription.getSchema());
 			}
 		}
+		for (SchemaDescription schemaDescription : schemaDescriptions) {
+			if (schemaDescription.getSchema() != null) {
+				((PrismSchemaImpl) schemaDescription.getSchema()).freeze();
+			}
+		}
 	}
 
 	// global item definitions may refer to types that are not yet available
@@ -509,7 +583,14 @@ public class SchemaRegistryImpl implements DebugDumpable, SchemaRegistry {
 
 	//region Schemas and type maps (TODO)
 	@Override
-	public javax.xml.validation.Schema getJavaxSchema() {
+	public synchronized javax.xml.validation.Schema getJavaxSchema() {
+		if (javaxSchema == null && initialized) {
+			try {
+				parseJavaxSchema();
+			} catch (SAXException | IOException e) {
+				throw new SystemException("Couldn't parse javax schema: " + e.getMessage(), e);
+			}
+		}
 		return javaxSchema;
 	}
 	
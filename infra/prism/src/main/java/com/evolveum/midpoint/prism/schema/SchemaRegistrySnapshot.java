@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.prism.schema;
+
+import com.evolveum.midpoint.prism.Definition;
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.xml.bind.DatatypeConverter;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized form of the prism schemas parsed by the schema registry. It allows to skip parsing of the XSD files
+ * (the most expensive part of the registry initialization) on subsequent starts.
+ *
+ * The snapshot is bound to a fingerprint of the schema files (their namespaces, content and compile-time packages)
+ * and of the prism code that parsed them. If the fingerprint does not match, or if the snapshot is corrupted
+ * (checked by a digest of its content), it is not used and the schemas are parsed as usual.
+ *
+ * The digest only detects accidental damage: anyone able to write the file can compute it as well. Therefore
+ * the deserialization accepts only the classes that can occur in prism definitions (prism classes, compile-time
+ * classes of the schemas, basic JDK types and collections). Anything else makes the snapshot unusable.
+ */
+class SchemaRegistrySnapshot {
+
+	private static final Trace LOGGER = TraceManager.getTrace(SchemaRegistrySnapshot.class);
+
+	private static final String MAGIC = "midPoint prism schema snapshot";
+	private static final int FORMAT_VERSION = 1;
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+
+	private static final Set<String> ALLOWED_CLASSES = new HashSet<>(Arrays.asList(
+			String.class.getName(), Boolean.class.getName(), Integer.class.getName(), Long.class.getName(),
+			Number.class.getName(), Enum.class.getName(), javax.xml.namespace.QName.class.getName()));
+	private static final List<String> ALLOWED_PACKAGE_PREFIXES = Arrays.asList(
+			"com.evolveum.midpoint.prism.", "com.evolveum.midpoint.util.");
+
+	@NotNull private final File file;
+
+	SchemaRegistrySnapshot(@NotNull File file) {
+		this.file = file;
+	}
+
+	@NotNull
+	File getFile() {
+		return file;
+	}
+
+	/**
+	 * Computes the fingerprint of prism schemas from given descriptions.
+	 */
+	@NotNull
+	static String computeFingerprint(@NotNull List<SchemaDescription> prismSchemaDescriptions) {
+		MessageDigest digest = createDigest();
+		update(digest, String.valueOf(FORMAT_VERSION));
+		update(digest, getCodeVersion());
+		for (SchemaDescription description : prismSchemaDescriptions) {
+			update(digest, description.getNamespace());
+			Package compileTimePackage = description.getCompileTimeClassesPackage();
+			update(digest, compileTimePackage != null ? compileTimePackage.getName() : null);
+			update(digest, DOMUtil.serializeDOMToString(description.getDomElement()));
+		}
+		return DatatypeConverter.printHexBinary(digest.digest());
+	}
+
+	// Version of the prism code; for development builds we use the time of the jar (or the class) as well.
+	private static String getCodeVersion() {
+		String version = SchemaRegistrySnapshot.class.getPackage().getImplementationVersion();
+		long timestamp = 0;
+		try {
+			File codeSource = new File(SchemaRegistrySnapshot.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+			timestamp = codeSource.lastModified();
+		} catch (Exception e) {
+			LOGGER.debug("Couldn't determine code source of prism: {}", e.getMessage(), e);
+		}
+		return version + "/" + timestamp;
+	}
+
+	/**
+	 * Returns definitions of the schemas (in the order of descriptions the fingerprint was computed from), or null
+	 * if the snapshot does not exist or cannot be used.
+	 */
+	@Nullable
+	List<List<Definition>> read(@NotNull String fingerprint, @NotNull List<SchemaDescription> prismSchemaDescriptions,
+			@NotNull PrismContext prismContext) {
+		if (!file.exists()) {
+			LOGGER.info("Schema snapshot {} does not exist, schemas will be parsed", file);
+			return null;
+		}
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (!MAGIC.equals(input.readUTF()) || input.readInt() != FORMAT_VERSION) {
+				LOGGER.warn("Schema snapshot {} has unknown format, schemas will be parsed", file);
+				return null;
+			}
+			if (!fingerprint.equals(input.readUTF())) {
+				LOGGER.info("Schema snapshot {} is outdated (schemas or prism code have changed), schemas will be parsed", file);
+				return null;
+			}
+			String expectedDigest = input.readUTF();
+			byte[] payload = new byte[input.readInt()];
+			input.readFully(payload);
+			if (!expectedDigest.equals(DatatypeConverter.printHexBinary(createDigest().digest(payload)))) {
+				LOGGER.warn("Schema snapshot {} is corrupted (digest mismatch), schemas will be parsed", file);
+				return null;
+			}
+			try (ObjectInputStream objectInput = new DefinitionInputStream(new GZIPInputStream(new ByteArrayInputStream(payload)),
+					getCompileTimePackages(prismSchemaDescriptions))) {
+				@SuppressWarnings("unchecked")
+				List<List<Definition>> schemas = (List<List<Definition>>) objectInput.readObject();
+				for (List<Definition> definitions : schemas) {
+					for (Definition definition : definitions) {
+						definition.revive(prismContext);
+					}
+				}
+				return schemas;
+			}
+		} catch (IOException | ClassNotFoundException | SchemaException | RuntimeException | Error e) {
+			LOGGER.warn("Couldn't read schema snapshot {}, schemas will be parsed: {}", file, e.getMessage(), e);
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the definitions of the schemas. Errors are only logged, as the snapshot is just an optimization.
+	 */
+	void write(@NotNull String fingerprint, @NotNull List<PrismSchema> schemas) {
+		File tempFile = null;
+		try {
+			List<List<Definition>> content = new ArrayList<>(schemas.size());
+			for (PrismSchema schema : schemas) {
+				content.add(new ArrayList<>(schema.getDefinitions()));
+			}
+			ByteArrayOutputStream payloadStream = new ByteArrayOutputStream();
+			try (ObjectOutputStream objectOutput = new ObjectOutputStream(new GZIPOutputStream(payloadStream))) {
+				objectOutput.writeObject(content);
+			}
+			byte[] payload = payloadStream.toByteArray();
+
+			File directory = file.getAbsoluteFile().getParentFile();
+			if (directory != null && !directory.exists() && !directory.mkdirs()) {
+				throw new IOException("Couldn't create directory " + directory);
+			}
+			// written to a temporary file first, so other nodes sharing the file never see an incomplete snapshot
+			tempFile = File.createTempFile(file.getName(), ".tmp", directory);
+			try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+				output.writeUTF(MAGIC);
+				output.writeInt(FORMAT_VERSION);
+				output.writeUTF(fingerprint);
+				output.writeUTF(DatatypeConverter.printHexBinary(createDigest().digest(payload)));
+				output.writeInt(payload.length);
+				output.write(payload);
+			}
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			LOGGER.info("Schema snapshot written to {} ({} bytes)", file, payload.length);
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("Couldn't write schema snapshot {}: {}", file, e.getMessage(), e);
+			if (tempFile != null && tempFile.exists() && !tempFile.delete()) {
+				LOGGER.warn("Couldn't delete temporary file {}", tempFile);
+			}
+		}
+	}
+
+	private static Set<String> getCompileTimePackages(List<SchemaDescription> prismSchemaDescriptions) {
+		Set<String> packages = new HashSet<>();
+		for (SchemaDescription description : prismSchemaDescriptions) {
+			if (description.getCompileTimeClassesPackage() != null) {
+				packages.add(description.getCompileTimeClassesPackage().getName());
+			}
+		}
+		return packages;
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(DIGEST_ALGORITHM + " is not available: " + e.getMessage(), e);
+		}
+	}
+
+	private static void update(MessageDigest digest, String value) {
+		if (value != null) {
+			digest.update(value.getBytes(StandardCharsets.UTF_8));
+		}
+		digest.update((byte) 0);
+	}
+
+	/**
+	 * Resolves only the classes that can be part of the serialized definitions.
+	 */
+	private static class DefinitionInputStream extends ObjectInputStream {
+
+		@NotNull private final Collection<String> compileTimePackages;
+
+		private DefinitionInputStream(InputStream in, @NotNull Collection<String> compileTimePackages) throws IOException {
+			super(in);
+			this.compileTimePackages = compileTimePackages;
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			if (!isAllowed(desc.getName())) {
+				throw new InvalidClassException(desc.getName(), "Class is not allowed in a schema snapshot");
+			}
+			return super.resolveClass(desc);
+		}
+
+		@Override
+		protected Class<?> resolveProxyClass(String[] interfaces) throws IOException {
+			throw new InvalidClassException("Proxy classes are not allowed in a schema snapshot");
+		}
+
+		private boolean isAllowed(String className) {
+			String name = className;
+			while (name.startsWith("[")) {
+				name = name.substring(1);
+			}
+			if (name.length() == 1) {
+				return true;					// array of primitives
+			} else if (name.startsWith("L") && name.endsWith(";") && !name.equals(className)) {
+				name = name.substring(1, name.length() - 1);
+			}
+			if (ALLOWED_CLASSES.contains(name) || isJdkCollection(name)) {
+				return true;
+			}
+			for (String prefix : ALLOWED_PACKAGE_PREFIXES) {
+				if (name.startsWith(prefix)) {
+					return true;
+				}
+			}
+			int lastDot = name.lastIndexOf('.');
+			return lastDot > 0 && compileTimePackages.contains(name.substring(0, lastDot));
+		}
+
+		// collections from java.util itself (not from its subpackages)
+		private boolean isJdkCollection(String name) {
+			return name.startsWith("java.util.") && name.indexOf('.', "java.util.".length()) < 0;
+		}
+	}
+}
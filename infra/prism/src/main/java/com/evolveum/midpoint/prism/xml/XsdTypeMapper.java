@@ -150,7 +150,8 @@ public class XsdTypeMapper {
     
     public static <T> Class<T> getXsdToJavaMapping(QName xsdType) {
     	Class clazz = xsdToJavaTypeMap.get(xsdType);
-    	if (clazz == null){
+    	// all the keys are qualified, so only an unqualified type name can match them in a relaxed way
+    	if (clazz == null && StringUtils.isEmpty(xsdType.getNamespaceURI())) {
     		Set<QName> keys = xsdToJavaTypeMap.keySet();
     		for (Iterator<QName> iterator = keys.iterator(); iterator.hasNext();){
     			QName key = iterator.next();
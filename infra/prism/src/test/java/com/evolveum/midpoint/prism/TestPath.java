@@ -20,12 +20,19 @@ import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import javax.xml.namespace.QName;
 
+import org.testng.AssertJUnit;
 import org.testng.annotations.BeforeSuite;
 import org.testng.annotations.Test;
 import org.xml.sax.SAXException;
@@ -157,6 +164,13 @@ public class TestPath {
 		assertTrue(ItemPath.containsSubpath(onlyFooBar, pathFooBarBaz));
 		assertFalse(ItemPath.containsSuperpathOrEquivalent(onlyFooBar, pathFooBarBaz));
 		assertFalse(ItemPath.containsSuperpath(onlyFooBar, pathFooBarBaz));
+
+		// segments without a name (e.g. created by careless deserialization) must not break the comparison
+		@SuppressWarnings("ConstantConditions")
+		NameItemPathSegment unnamed = new NameItemPathSegment(null);
+		NameItemPathSegment foo = new NameItemPathSegment(new QName(NS, "foo"));
+		assertFalse(foo.equals(unnamed));
+		assertFalse(foo.equivalent(unnamed));
 	}
 	
 	@Test
@@ -179,6 +193,74 @@ public class TestPath {
 		assertEquals("Remainder fooBar, fooNull", pathBar, remainder1);
 	}
 
+	@Test
+	public void testPathCompareRandom() throws Exception {
+		System.out.println("\n\n===[ testPathCompareRandom ]===\n");
+
+		// GIVEN
+		ItemPathSegment[] segments = {
+				new NameItemPathSegment(new QName(NS, "foo")), new NameItemPathSegment(new QName("foo")),
+				new NameItemPathSegment(new QName(NS, "bar")), new IdItemPathSegment(1L), new IdItemPathSegment(null),
+				IdItemPathSegment.WILDCARD };
+		Random random = new Random(42);
+		List<ItemPath> paths = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			// one segment more, so that the rest() can be used to create a derived path
+			ItemPathSegment[] pathSegments = new ItemPathSegment[random.nextInt(5) + 1];
+			for (int j = 0; j < pathSegments.length; j++) {
+				pathSegments[j] = segments[random.nextInt(segments.length)];
+			}
+			ItemPath path = new ItemPath(pathSegments);
+			paths.add(random.nextBoolean() ? path : path.rest());
+		}
+
+		// WHEN, THEN
+		for (ItemPath path1 : paths) {
+			for (ItemPath path2 : paths) {
+				assertEquals("Wrong comparison of " + path1 + " and " + path2,
+						path1.compareComplexOld(path2), path1.compareComplex(path2));
+			}
+		}
+	}
+
+	@Test
+    public void testDerivedPaths() throws Exception {
+		System.out.println("\n\n===[ testDerivedPaths ]===\n");
+
+		// GIVEN
+		ItemPath path = new ItemPath(new QName(NS, "foo"), 123L, new QName(NS, "bar"), new QName(NS, "baz"));
+
+		// WHEN
+		ItemPath tail = path.rest().rest();
+		ItemPath allExceptLast = tail.allExceptLast();
+
+		// THEN
+		ItemPath expectedTail = new ItemPath(new QName(NS, "bar"), new QName(NS, "baz"));
+		assertEquals("Wrong tail", expectedTail, tail);
+		assertEquals("Wrong hash code of tail", expectedTail.hashCode(), tail.hashCode());
+		assertEquals("Wrong allExceptLast", new ItemPath(new QName(NS, "bar")), allExceptLast);
+		assertTrue("Empty rest is not empty", allExceptLast.rest().isEmpty());
+
+		// derived paths share segments with their parent, yet they must be serializable
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(tail);
+		}
+		ItemPath deserialized;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			deserialized = (ItemPath) in.readObject();
+		}
+		assertEquals("Wrong deserialized tail", expectedTail, deserialized);
+		assertEquals("Wrong hash code of deserialized tail", expectedTail.hashCode(), deserialized.hashCode());
+
+		try {
+			path.getSegments().clear();
+			AssertJUnit.fail("Segments of the path are modifiable");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
 	private void assertNormalizedPath(ItemPath normalized, Object... expected) {
 		assertEquals("wrong path length",normalized.size(), expected.length);
 		for(int i=0; i<normalized.size(); i+=2) {
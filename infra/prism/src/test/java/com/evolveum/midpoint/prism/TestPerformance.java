@@ -16,15 +16,37 @@
 package com.evolveum.midpoint.prism;
 
 import static com.evolveum.midpoint.prism.PrismInternalTestUtil.*;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
 
 import javax.xml.namespace.QName;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.testng.annotations.BeforeSuite;
 import org.testng.annotations.Test;
 
+import com.evolveum.midpoint.prism.foo.AccountConstructionType;
 import com.evolveum.midpoint.prism.foo.AssignmentType;
 import com.evolveum.midpoint.prism.foo.UserType;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.schema.PrismSchema;
+import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
+import com.evolveum.midpoint.prism.xnode.RootXNode;
 import com.evolveum.midpoint.util.PrettyPrinter;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.prism.xml.ns._public.query_3.OrderDirectionType;
+import com.evolveum.prism.xml.ns._public.query_3.PagingType;
+import com.evolveum.prism.xml.ns._public.types_3.ItemPathType;
 
 /**
  * @author semancik
@@ -32,7 +54,15 @@ import com.evolveum.midpoint.util.PrettyPrinter;
  */
 public class TestPerformance {
 	
+	private static final Trace LOGGER = TraceManager.getTrace(TestPerformance.class);
+
 	private static final int ITERATIONS = 10000;
+	private static final int PARSE_WARMUP_ITERATIONS = 200;
+	private static final int PARSE_ITERATIONS = 1000;
+	private static final int LOOKUP_ITERATIONS = 100000;
+	private static final int BEAN_WARMUP_ITERATIONS = 1000;
+	private static final int BEAN_ITERATIONS = 10000;
+	private static final int BEAN_THREADS = 4;
 	
 	
 	@BeforeSuite
@@ -98,4 +128,151 @@ public class TestPerformance {
 		System.out.println(user.debugDump());
 	}	
 
+	/**
+	 * Measures parsing throughput; definition lookups (by element name, type name and compile-time class)
+	 * make up a significant part of the parsing time. User jack contains embedded accounts, so their
+	 * attributes are parsed as well.
+	 */
+	@Test
+	public void testPerfParseUser() throws Exception {
+		final String TEST_NAME = "testPerfParseUser";
+		PrismInternalTestUtil.displayTestTitle(TEST_NAME);
+
+		// GIVEN
+		PrismContext ctx = constructInitializedPrismContext();
+		String userXml = new String(Files.readAllBytes(USER_JACK_FILE_XML.toPath()), StandardCharsets.UTF_8);
+
+		// WHEN + THEN
+		measureParsing(ctx, userXml, "parseUser");
+	}
+
+	@Test
+	public void testPerfParseResource() throws Exception {
+		final String TEST_NAME = "testPerfParseResource";
+		PrismInternalTestUtil.displayTestTitle(TEST_NAME);
+
+		// GIVEN
+		PrismContext ctx = constructInitializedPrismContext();
+		String resourceXml = new String(Files.readAllBytes(new File(COMMON_DIR_XML, RESOURCE_RUM_FILE_BASENAME + ".xml").toPath()),
+				StandardCharsets.UTF_8);
+
+		// WHEN + THEN
+		measureParsing(ctx, resourceXml, "parseResource");
+	}
+
+	/**
+	 * Measures the lookups of definitions by item name (qualified and unqualified), type name and compile-time class.
+	 */
+	@Test
+	public void testPerfDefinitionLookup() throws Exception {
+		final String TEST_NAME = "testPerfDefinitionLookup";
+		PrismInternalTestUtil.displayTestTitle(TEST_NAME);
+
+		// GIVEN
+		PrismContext ctx = constructInitializedPrismContext();
+		PrismSchema fooSchema = getFooSchema(ctx);
+		ComplexTypeDefinition userCtd = fooSchema.findComplexTypeDefinitionByType(USER_TYPE_QNAME);
+		List<QName> names = new ArrayList<>();
+		for (ItemDefinition<?> def : userCtd.getDefinitions()) {
+			names.add(def.getName());
+			names.add(new QName(def.getName().getLocalPart()));
+		}
+
+		// WHEN
+		long started = System.nanoTime();
+		long lookups = 0;
+		for (int i = 0; i < LOOKUP_ITERATIONS; i++) {
+			for (QName name : names) {
+				assertNotNull("No definition for " + name, userCtd.findItemDefinition(name, ItemDefinition.class, false));
+			}
+			assertNotNull(fooSchema.findItemDefinitionByType(USER_TYPE_QNAME, PrismObjectDefinition.class));
+			assertNotNull(fooSchema.findComplexTypeDefinitionByCompileTimeClass(UserType.class));
+			lookups += names.size() + 2;
+		}
+		long duration = System.nanoTime() - started;
+
+		// THEN
+		LOGGER.info("definitionLookup: {} lookups/s", lookups * 1000000000L / duration);
+	}
+
+	/**
+	 * Measures marshalling and unmarshalling of beans (i.e. values that are not containerables), as done e.g. for
+	 * queries, expressions or mappings. Runs in several threads, as the bean inspector caches are shared.
+	 */
+	@Test
+	public void testPerfBeanMarshallingMultiThreaded() throws Exception {
+		final String TEST_NAME = "testPerfBeanMarshallingMultiThreaded";
+		PrismInternalTestUtil.displayTestTitle(TEST_NAME);
+
+		// GIVEN
+		PrismContext ctx = constructInitializedPrismContext();
+		PagingType paging = new PagingType();
+		paging.setOrderBy(new ItemPathType(new ItemPath(UserType.F_NAME)));
+		paging.setOrderDirection(OrderDirectionType.DESCENDING);
+		paging.setOffset(10);
+		paging.setMaxSize(50);
+		AccountConstructionType construction = new AccountConstructionType();
+		construction.setHowto("Just do it");
+		construction.setWhen(XmlTypeConverter.createXMLGregorianCalendar(System.currentTimeMillis()));
+		QName pagingName = new QName(NS_FOO, "paging");
+		QName constructionName = new QName(NS_FOO, "accountConstruction");
+
+		Callable<Long> roundTrip = () -> {
+			RootXNode pagingNode = ctx.xnodeSerializer().serializeRealValue(paging, pagingName);
+			PagingType pagingParsed = ctx.parserFor(pagingNode).parseRealValue(PagingType.class);
+			RootXNode constructionNode = ctx.xnodeSerializer().serializeRealValue(construction, constructionName);
+			AccountConstructionType constructionParsed = ctx.parserFor(constructionNode).parseRealValue(AccountConstructionType.class);
+			assertEquals("Wrong paging", paging, pagingParsed);
+			assertEquals("Wrong construction", construction, constructionParsed);
+			return 2L;
+		};
+
+		ExecutorService executor = Executors.newFixedThreadPool(BEAN_THREADS);
+		long beans = 0;
+		long duration;
+		try {
+			// WHEN
+			for (int i = 0; i < BEAN_WARMUP_ITERATIONS; i++) {
+				roundTrip.call();
+			}
+			List<Future<Long>> futures = new ArrayList<>();
+			long started = System.nanoTime();
+			for (int t = 0; t < BEAN_THREADS; t++) {
+				futures.add(executor.submit(() -> {
+					long count = 0;
+					for (int i = 0; i < BEAN_ITERATIONS / BEAN_THREADS; i++) {
+						count += roundTrip.call();
+					}
+					return count;
+				}));
+			}
+			for (Future<Long> future : futures) {
+				beans += future.get();
+			}
+			duration = System.nanoTime() - started;
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// THEN
+		assertEquals("Wrong number of round trips", 2L * (BEAN_ITERATIONS / BEAN_THREADS) * BEAN_THREADS, beans);
+		LOGGER.info("beanMarshalling ({} threads): {} round trips/s", BEAN_THREADS, beans * 1000000000L / duration);
+	}
+
+	private void measureParsing(PrismContext ctx, String xml, String label) throws Exception {
+		// Note that the test logging is at TRACE level, so the numbers are useful only for comparison.
+		for (int i = 0; i < PARSE_WARMUP_ITERATIONS; i++) {
+			ctx.parserFor(xml).xml().parse();
+		}
+		PerfRecorder recorder = new PerfRecorder(label);
+		long started = System.nanoTime();
+		for (int i = 0; i < PARSE_ITERATIONS; i++) {
+			long tsStart = System.nanoTime();
+			ctx.parserFor(xml).xml().parse();
+			recorder.record(i, ((double) (System.nanoTime() - tsStart)) / 1000000);
+		}
+		long duration = System.nanoTime() - started;
+		LOGGER.info("{}\n{}: {} objects/s", recorder.dump(), label, PARSE_ITERATIONS * 1000000000L / duration);
+	}
+
 }
@@ -20,11 +20,14 @@ import static org.testng.AssertJUnit.assertEquals;
 import static com.evolveum.midpoint.prism.PrismInternalTestUtil.*;
 
 import java.io.IOException;
+import java.text.Normalizer;
+import java.util.Random;
 
 import javax.xml.namespace.QName;
 
 import org.testng.annotations.BeforeSuite;
 import org.testng.annotations.Test;
+import org.apache.commons.lang.StringUtils;
 import org.xml.sax.SAXException;
 
 import com.evolveum.midpoint.prism.foo.UserType;
@@ -34,12 +37,16 @@ import com.evolveum.midpoint.prism.polystring.PrismDefaultPolyStringNormalizer;
 import com.evolveum.midpoint.prism.util.PrismTestUtil;
 import com.evolveum.midpoint.util.PrettyPrinter;
 import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
 
 /**
  * @author semancik
  *
  */
 public class TestPolyString {
+
+	private static final Trace LOGGER = TraceManager.getTrace(TestPolyString.class);
 	
 	@BeforeSuite
 	public void setupDebug() throws SchemaException, SAXException, IOException {
@@ -83,6 +90,105 @@ public class TestPolyString {
 		assertEquals("wrong toString", orig, polyString.toString());
 	}
 	
+	@Test
+	public void testNormalizationSpecialCases() {
+		PolyStringNormalizer normalizer = new PrismDefaultPolyStringNormalizer();
+		assertEquals(null, normalizer.normalize(null));
+		assertEquals("", normalizer.normalize(""));
+		assertEquals("", normalizer.normalize(" \t "));
+		assertEquals("", normalizer.normalize("!?"));
+		assertEquals("", normalizer.normalize("\u00A0"));
+		assertEquals("jack", normalizer.normalize("jack"));
+		assertEquals("jack sparrow", normalizer.normalize("Jack\t\n Sparrow"));
+		assertEquals("a ", normalizer.normalize("a !"));
+		assertEquals(" a", normalizer.normalize("\u00A0a"));
+		assertEquals("fi_2", normalizer.normalize("\uFB01_\u00B2"));
+	}
+
+	/**
+	 * Compares the normalizer with the straightforward regex-based implementation
+	 * on random strings mixing ASCII, accented and non-Latin characters.
+	 */
+	@Test
+	public void testNormalizationRandom() {
+		System.out.println("===[ testNormalizationRandom ]===");
+		PolyStringNormalizer normalizer = new PrismDefaultPolyStringNormalizer();
+		String alphabet = " \t\n\u000B\f\r\u00A0!-._AZaz09I\u00E1\u010C\u0301\u00DF\uFB01\u00B2\u0421\u044E\u4E2D";
+		Random random = new Random(42);
+		for (int i = 0; i < 100000; i++) {
+			char[] chars = new char[random.nextInt(12)];
+			for (int j = 0; j < chars.length; j++) {
+				chars[j] = alphabet.charAt(random.nextInt(alphabet.length()));
+			}
+			String orig = new String(chars);
+			assertEquals("Wrong norm for '" + orig + "'", normalizeByRegex(orig), normalizer.normalize(orig));
+		}
+	}
+
+	@Test
+	public void testNormalizationMemo() {
+		System.out.println("===[ testNormalizationMemo ]===");
+		PrismDefaultPolyStringNormalizer normalizer = new PrismDefaultPolyStringNormalizer();
+		normalizer.setMemoSize(2);
+		String accented = "Gul\u00F4\u010Dka";
+
+		assertEquals("Wrong norm", "gulocka", normalizer.normalize(accented));
+		assertEquals("Wrong memoized norm", "gulocka", normalizer.normalize(accented));
+		assertEquals("Wrong norm", "jack", normalizer.normalize("Jack"));				// ASCII, not memoized
+		assertEquals("Wrong number of memo hits", 1, normalizer.getMemoHits());
+		assertEquals("Wrong number of memo misses", 1, normalizer.getMemoMisses());
+
+		// eviction must not change the results
+		for (char c = '\u00E0'; c < '\u00F0'; c++) {
+			String orig = accented + c;
+			assertEquals("Wrong norm for '" + orig + "'", normalizeByRegex(orig), normalizer.normalize(orig));
+			assertEquals("Wrong memoized norm for '" + orig + "'", normalizeByRegex(orig), normalizer.normalize(orig));
+		}
+		assertEquals("Wrong memo size", 2, normalizer.getMemoSize());
+	}
+
+	private String normalizeByRegex(String orig) {
+		String s = StringUtils.trim(orig);
+		s = Normalizer.normalize(s, Normalizer.Form.NFKD);
+		s = s.replaceAll("[^\\w\\s\\d]", "");
+		s = s.replaceAll("\\s+", " ");
+		if (StringUtils.isBlank(s)) {
+			s = "";
+		}
+		return StringUtils.lowerCase(s);
+	}
+
+	@Test
+	public void testNormalizationThroughput() {
+		System.out.println("===[ testNormalizationThroughput ]===");
+		PrismDefaultPolyStringNormalizer memoizing = new PrismDefaultPolyStringNormalizer();
+		memoizing.setMemoSize(1000);
+		measureThroughput("Latin", "Jack Sparrow", memoizing);
+		measureThroughput("accented", "Gul\u00F4\u010Dka v jam\u00F4\u010Dke", memoizing);
+		measureThroughput("non-Latin", "\u0421\u043E\u044E\u0301\u0437 \u0421\u043E\u0432\u0435\u0301\u0442\u0441\u043A\u0438\u0445", memoizing);
+	}
+
+	private void measureThroughput(String label, String orig, PolyStringNormalizer memoizing) {
+		final int COUNT = 200000;
+		PolyStringNormalizer normalizer = new PrismDefaultPolyStringNormalizer();
+		String[] values = new String[100];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = orig + " " + i;
+		}
+		long regex = measure(this::normalizeByRegex, values, COUNT);
+		long plain = measure(normalizer, values, COUNT);
+		long memo = measure(memoizing, values, COUNT);
+		LOGGER.info("{}: regex {} ns, single-pass {} ns, memoized {} ns per value", label, regex, plain, memo);
+	}
+
+	private long measure(PolyStringNormalizer normalizer, String[] values, int count) {
+		long start = System.nanoTime();
+		for (int i = 0; i < count; i++) {
+			normalizer.normalize(values[i % values.length]);
+		}
+		return (System.nanoTime() - start) / count;
+	}
+
 	@Test
 	public void testRecompute() throws Exception {
 		System.out.println("===[ testRecompute ]===");
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.prism;
+
+import static com.evolveum.midpoint.prism.PrismInternalTestUtil.*;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.bind.DatatypeConverter;
+
+import com.evolveum.midpoint.prism.foo.UserType;
+import com.evolveum.midpoint.prism.schema.PrismSchema;
+import com.evolveum.midpoint.prism.schema.SchemaRegistryImpl;
+import com.evolveum.midpoint.util.PrettyPrinter;
+import org.testng.annotations.BeforeSuite;
+import org.testng.annotations.Test;
+
+public class TestSchemaRegistrySnapshot {
+
+	private static final File SNAPSHOT_FILE = new File("target/schema-snapshot.bin");
+
+	@BeforeSuite
+	public void setupDebug() {
+		PrettyPrinter.setDefaultNamespacePrefix(DEFAULT_NAMESPACE_PREFIX);
+	}
+
+	@Test
+	public void test100CreateSnapshot() throws Exception {
+		final String TEST_NAME = "test100CreateSnapshot";
+		PrismInternalTestUtil.displayTestTitle(TEST_NAME);
+
+		// GIVEN
+		Files.deleteIfExists(SNAPSHOT_FILE.toPath());
+		PrismContextImpl prismContext = constructPrismContext();
+		((SchemaRegistryImpl) prismContext.getSchemaRegistry()).setSnapshotFile(SNAPSHOT_FILE);
+
+		// WHEN
+		prismContext.initialize();
+
+		// THEN
+		assertTrue("Snapshot was not created", SNAPSHOT_FILE.exists());
+	}
+
+	@Test
+	public void test110LoadFromSnapshot() throws Exception {
+		final String TEST_NAME = "test110LoadFromSnapshot";
+		PrismInternalTestUtil.displayTestTitle(TEST_NAME);
+
+		// GIVEN
+		byte[] snapshotContent = Files.readAllBytes(SNAPSHOT_FILE.toPath());
+		PrismContextImpl prismContext = constructPrismContext();
+		((SchemaRegistryImpl) prismContext.getSchemaRegistry()).setSnapshotFile(SNAPSHOT_FILE);
+
+		// WHEN
+		prismContext.initialize();
+
+		// THEN
+		assertTrue("Snapshot was rewritten", Arrays.equals(snapshotContent, Files.readAllBytes(SNAPSHOT_FILE.toPath())));
+
+		PrismSchema parsedSchema = getFooSchema(constructInitializedPrismContext());
+		PrismSchema loadedSchema = getFooSchema(prismContext);
+		assertEquals("Wrong schema loaded from snapshot", parsedSchema.debugDump(), loadedSchema.debugDump());
+
+		PrismObject<UserType> user = prismContext.parseObject(new File(COMMON_DIR_XML, USER_JACK_FILE_BASENAME + ".xml"));
+		System.out.println("User:");
+		System.out.println(user.debugDump());
+		assertUserJack(user, true);
+
+		assertNotNull("No javax schema", prismContext.getSchemaRegistry().getJavaxSchema());
+	}
+
+	@Test
+	public void test120OutdatedSnapshot() throws Exception {
+		final String TEST_NAME = "test120OutdatedSnapshot";
+		PrismInternalTestUtil.displayTestTitle(TEST_NAME);
+
+		// GIVEN
+		byte[] snapshotContent = Files.readAllBytes(SNAPSHOT_FILE.toPath());
+		PrismContextImpl prismContext = constructPrismContext(new File(EXTRA_SCHEMA_DIR, "root.xsd"));
+		((SchemaRegistryImpl) prismContext.getSchemaRegistry()).setSnapshotFile(SNAPSHOT_FILE);
+
+		// WHEN
+		prismContext.initialize();
+
+		// THEN
+		assertFalse("Outdated snapshot was not rewritten", Arrays.equals(snapshotContent, Files.readAllBytes(SNAPSHOT_FILE.toPath())));
+		assertNotNull("No extra schema", prismContext.getSchemaRegistry().findSchemaByNamespace(NS_ROOT));
+	}
+
+	@Test
+	public void test130CorruptedSnapshot() throws Exception {
+		final String TEST_NAME = "test130CorruptedSnapshot";
+		PrismInternalTestUtil.displayTestTitle(TEST_NAME);
+
+		// GIVEN
+		try (RandomAccessFile file = new RandomAccessFile(SNAPSHOT_FILE, "rw")) {
+			file.seek(file.length() - 10);
+			byte b = file.readByte();
+			file.seek(file.length() - 10);
+			file.writeByte(b ^ 0xff);
+		}
+		PrismContextImpl prismContext = constructPrismContext(new File(EXTRA_SCHEMA_DIR, "root.xsd"));
+		((SchemaRegistryImpl) prismContext.getSchemaRegistry()).setSnapshotFile(SNAPSHOT_FILE);
+
+		// WHEN
+		prismContext.initialize();
+
+		// THEN
+		PrismObject<UserType> user = prismContext.parseObject(new File(COMMON_DIR_XML, USER_JACK_FILE_BASENAME + ".xml"));
+		assertUserJack(user, true);
+	}
+
+	/**
+	 * Snapshot with a correct digest but with a class that is not allowed in it must not be deserialized.
+	 */
+	@Test
+	public void test140ForeignClassInSnapshot() throws Exception {
+		final String TEST_NAME = "test140ForeignClassInSnapshot";
+		PrismInternalTestUtil.displayTestTitle(TEST_NAME);
+
+		// GIVEN
+		String magic, fingerprint;
+		int formatVersion;
+		try (DataInputStream input = new DataInputStream(new FileInputStream(SNAPSHOT_FILE))) {
+			magic = input.readUTF();
+			formatVersion = input.readInt();
+			fingerprint = input.readUTF();
+		}
+		ByteArrayOutputStream payloadStream = new ByteArrayOutputStream();
+		try (ObjectOutputStream objectOutput = new ObjectOutputStream(new GZIPOutputStream(payloadStream))) {
+			objectOutput.writeObject(Collections.singletonList(Collections.singletonList(new File("foreign"))));
+		}
+		byte[] payload = payloadStream.toByteArray();
+		try (DataOutputStream output = new DataOutputStream(new FileOutputStream(SNAPSHOT_FILE))) {
+			output.writeUTF(magic);
+			output.writeInt(formatVersion);
+			output.writeUTF(fingerprint);
+			output.writeUTF(DatatypeConverter.printHexBinary(MessageDigest.getInstance("SHA-256").digest(payload)));
+			output.writeInt(payload.length);
+			output.write(payload);
+		}
+		byte[] snapshotContent = Files.readAllBytes(SNAPSHOT_FILE.toPath());
+		PrismContextImpl prismContext = constructPrismContext(new File(EXTRA_SCHEMA_DIR, "root.xsd"));
+		((SchemaRegistryImpl) prismContext.getSchemaRegistry()).setSnapshotFile(SNAPSHOT_FILE);
+
+		// WHEN
+		prismContext.initialize();
+
+		// THEN
+		assertFalse("Snapshot with foreign class was not rewritten", Arrays.equals(snapshotContent, Files.readAllBytes(SNAPSHOT_FILE.toPath())));
+		PrismObject<UserType> user = prismContext.parseObject(new File(COMMON_DIR_XML, USER_JACK_FILE_BASENAME + ".xml"));
+		assertUserJack(user, true);
+	}
+}
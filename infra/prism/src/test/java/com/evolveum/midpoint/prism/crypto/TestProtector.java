@@ -19,6 +19,15 @@ import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.assertTrue;
 import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
 import org.apache.xml.security.encryption.XMLCipher;
 import org.testng.AssertJUnit;
 import org.testng.annotations.Test;
@@ -240,4 +249,77 @@ public class TestProtector {
 		// THEN
 		assertTrue("compare4e failed", compare4e);
 	}
+
+	@Test
+	public void testProtectorBulkEncryption() throws Exception {
+		final int COUNT = 10000;
+		ProtectorImpl protector = (ProtectorImpl) PrismInternalTestUtil.createProtector(XMLCipher.AES_128);
+
+		List<ProtectedStringType> values = new ArrayList<>();
+		for (int i = 0; i < COUNT; i++) {
+			ProtectedStringType value = new ProtectedStringType();
+			value.setClearValue("value" + i);
+			values.add(value);
+		}
+		ProtectedStringType empty = new ProtectedStringType();
+		values.add(empty);
+
+		// WHEN
+		long start = System.nanoTime();
+		protector.encryptAll(values);
+		long encrypted = System.nanoTime();
+
+		// THEN
+		for (int i = 0; i < COUNT; i++) {
+			assertTrue("value " + i + " not encrypted", values.get(i).isEncrypted());
+			assertNull(values.get(i).getClearValue());
+		}
+		assertTrue(empty.isEmpty());
+
+		// WHEN
+		protector.decryptAll(values);
+		long decrypted = System.nanoTime();
+
+		// THEN
+		for (int i = 0; i < COUNT; i++) {
+			assertFalse(values.get(i).isEncrypted());
+			assertEquals("value" + i, values.get(i).getClearValue());
+		}
+		LOGGER.info("Bulk encryption of {} values: {} us per value; decryption: {} us per value", COUNT,
+				(encrypted - start) / 1000 / COUNT, (decrypted - encrypted) / 1000 / COUNT);
+	}
+
+	@Test
+	public void testProtectorKeyRotation() throws Exception {
+		ProtectorImpl protector = (ProtectorImpl) PrismInternalTestUtil.createProtector(XMLCipher.AES_128);
+		ProtectedStringType encryptedByDefault = protector.encryptString("default");
+
+		// a key that is not in the keystore when the key index is built
+		KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+		keyGenerator.init(128);
+		SecretKey newKey = keyGenerator.generateKey();
+		KeyStore keyStore = protector.getKeyStore();
+		keyStore.setEntry("rotated", new KeyStore.SecretKeyEntry(newKey),
+				new KeyStore.PasswordProtection("midpoint".toCharArray()));
+		try {
+			// WHEN
+			protector.setEncryptionKeyAlias("rotated");
+			ProtectedStringType encryptedByRotated = protector.encryptString("rotated");
+
+			// THEN
+			assertEquals(protector.getSecretKeyDigest(newKey), encryptedByRotated.getEncryptedDataType().getKeyInfo().getKeyName());
+
+			// WHEN
+			List<ProtectedStringType> values = new ArrayList<>();
+			values.add(encryptedByDefault);
+			values.add(encryptedByRotated);
+			protector.decryptAll(values);
+
+			// THEN
+			assertEquals("default", encryptedByDefault.getClearValue());
+			assertEquals("rotated", encryptedByRotated.getClearValue());
+		} finally {
+			keyStore.deleteEntry("rotated");
+		}
+	}
 }
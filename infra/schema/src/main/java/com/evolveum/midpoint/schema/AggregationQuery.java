@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.schema;
+
+import com.evolveum.midpoint.prism.ItemDefinition;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.query.OrderDirection;
+import com.evolveum.midpoint.util.DebugDumpable;
+import com.evolveum.midpoint.util.DebugUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.xml.namespace.QName;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Specification of an aggregation over objects selected by an object query: values to group by, aggregate functions
+ * to compute for each group, conditions on these aggregates (having) and ordering of the groups.
+ *
+ * For example, "number of users in each organizational unit having at least 10 users, biggest first":
+ * <pre>
+ *   new AggregationQuery()
+ *       .groupBy(UserType.F_ORGANIZATIONAL_UNIT)
+ *       .aggregate(Aggregate.count())
+ *       .having(Aggregate.count(), Comparison.GE, 10)
+ *       .orderBy(Aggregate.count(), OrderDirection.DESCENDING)
+ * </pre>
+ *
+ * Grouping items can be properties (including multi-valued ones: an object is then counted in the group of each
+ * of its values), references (grouped by target OID) and extension items (their definitions must be provided).
+ * Results are returned as {@link AggregationResult} objects, one per group.
+ */
+public class AggregationQuery implements DebugDumpable, Serializable {
+
+	public enum Function {
+		/**
+		 * Number of (distinct) objects in the group.
+		 */
+		COUNT,
+		MIN,
+		MAX
+	}
+
+	public enum Comparison {
+		EQ("="), GT(">"), GE(">="), LT("<"), LE("<=");
+
+		private final String operator;
+
+		Comparison(String operator) {
+			this.operator = operator;
+		}
+
+		public String getOperator() {
+			return operator;
+		}
+	}
+
+	/**
+	 * Item (with an optional definition, needed for extension items) used for grouping or for min/max computation.
+	 */
+	public static class AggregationItem implements Serializable {
+		@NotNull private final ItemPath path;
+		@Nullable private final ItemDefinition definition;
+
+		public AggregationItem(@NotNull ItemPath path, @Nullable ItemDefinition definition) {
+			this.path = path;
+			this.definition = definition;
+		}
+
+		@NotNull
+		public ItemPath getPath() {
+			return path;
+		}
+
+		@Nullable
+		public ItemDefinition getDefinition() {
+			return definition;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (!(o instanceof AggregationItem))
+				return false;
+			AggregationItem that = (AggregationItem) o;
+			return path.equals(that.path);
+		}
+
+		@Override
+		public int hashCode() {
+			return path.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return path.toString();
+		}
+	}
+
+	public static class Aggregate implements Serializable {
+		@NotNull private final Function function;
+		@Nullable private final AggregationItem item;		// null for COUNT
+
+		private Aggregate(@NotNull Function function, @Nullable AggregationItem item) {
+			this.function = function;
+			this.item = item;
+		}
+
+		public static Aggregate count() {
+			return new Aggregate(Function.COUNT, null);
+		}
+
+		public static Aggregate min(ItemPath path) {
+			return min(path, null);
+		}
+
+		public static Aggregate min(ItemPath path, ItemDefinition definition) {
+			return new Aggregate(Function.MIN, new AggregationItem(path, definition));
+		}
+
+		public static Aggregate max(ItemPath path) {
+			return max(path, null);
+		}
+
+		public static Aggregate max(ItemPath path, ItemDefinition definition) {
+			return new Aggregate(Function.MAX, new AggregationItem(path, definition));
+		}
+
+		@NotNull
+		public Function getFunction() {
+			return function;
+		}
+
+		@Nullable
+		public AggregationItem getItem() {
+			return item;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (!(o instanceof Aggregate))
+				return false;
+			Aggregate aggregate = (Aggregate) o;
+			return function == aggregate.function && (item != null ? item.equals(aggregate.item) : aggregate.item == null);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * function.hashCode() + (item != null ? item.hashCode() : 0);
+		}
+
+		@Override
+		public String toString() {
+			return function + "(" + (item != null ? item : "") + ")";
+		}
+	}
+
+	public static class HavingCondition implements Serializable {
+		@NotNull private final Aggregate aggregate;
+		@NotNull private final Comparison comparison;
+		@NotNull private final Object value;
+
+		public HavingCondition(@NotNull Aggregate aggregate, @NotNull Comparison comparison, @NotNull Object value) {
+			this.aggregate = aggregate;
+			this.comparison = comparison;
+			this.value = value;
+		}
+
+		@NotNull
+		public Aggregate getAggregate() {
+			return aggregate;
+		}
+
+		@NotNull
+		public Comparison getComparison() {
+			return comparison;
+		}
+
+		@NotNull
+		public Object getValue() {
+			return value;
+		}
+
+		@Override
+		public String toString() {
+			return aggregate + " " + comparison.getOperator() + " " + value;
+		}
+	}
+
+	public static class AggregateOrdering implements Serializable {
+		@NotNull private final Aggregate aggregate;
+		@NotNull private final OrderDirection direction;
+
+		public AggregateOrdering(@NotNull Aggregate aggregate, @NotNull OrderDirection direction) {
+			this.aggregate = aggregate;
+			this.direction = direction;
+		}
+
+		@NotNull
+		public Aggregate getAggregate() {
+			return aggregate;
+		}
+
+		@NotNull
+		public OrderDirection getDirection() {
+			return direction;
+		}
+
+		@Override
+		public String toString() {
+			return aggregate + " " + direction;
+		}
+	}
+
+	@NotNull private final List<AggregationItem> groupBy = new ArrayList<>();
+	@NotNull private final List<Aggregate> aggregates = new ArrayList<>();
+	@NotNull private final List<HavingCondition> having = new ArrayList<>();
+	@NotNull private final List<AggregateOrdering> ordering = new ArrayList<>();
+
+	public AggregationQuery groupBy(QName name) {
+		return groupBy(new ItemPath(name), null);
+	}
+
+	public AggregationQuery groupBy(ItemPath path) {
+		return groupBy(path, null);
+	}
+
+	public AggregationQuery groupBy(ItemPath path, ItemDefinition definition) {
+		groupBy.add(new AggregationItem(path, definition));
+		return this;
+	}
+
+	public AggregationQuery aggregate(Aggregate aggregate) {
+		aggregates.add(aggregate);
+		return this;
+	}
+
+	public AggregationQuery having(Aggregate aggregate, Comparison comparison, Object value) {
+		having.add(new HavingCondition(aggregate, comparison, value));
+		return this;
+	}
+
+	/**
+	 * Orders groups by an aggregate. Groups are always ordered by their grouping values as well (after aggregate orderings).
+	 */
+	public AggregationQuery orderBy(Aggregate aggregate, OrderDirection direction) {
+		ordering.add(new AggregateOrdering(aggregate, direction));
+		return this;
+	}
+
+	@NotNull
+	public List<AggregationItem> getGroupBy() {
+		return Collections.unmodifiableList(groupBy);
+	}
+
+	@NotNull
+	public List<Aggregate> getAggregates() {
+		return Collections.unmodifiableList(aggregates);
+	}
+
+	@NotNull
+	public List<HavingCondition> getHaving() {
+		return Collections.unmodifiableList(having);
+	}
+
+	@NotNull
+	public List<AggregateOrdering> getOrdering() {
+		return Collections.unmodifiableList(ordering);
+	}
+
+	@Override
+	public String debugDump(int indent) {
+		StringBuilder sb = new StringBuilder();
+		DebugUtil.debugDumpLabelLn(sb, "AggregationQuery", indent);
+		DebugUtil.debugDumpWithLabelLn(sb, "groupBy", groupBy.toString(), indent + 1);
+		DebugUtil.debugDumpWithLabelLn(sb, "aggregates", aggregates.toString(), indent + 1);
+		DebugUtil.debugDumpWithLabelLn(sb, "having", having.toString(), indent + 1);
+		DebugUtil.debugDumpWithLabel(sb, "ordering", ordering.toString(), indent + 1);
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return "AggregationQuery{groupBy=" + groupBy + ", aggregates=" + aggregates + ", having=" + having
+				+ ", ordering=" + ordering + "}";
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.schema;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * One group produced by an {@link AggregationQuery}: values of the grouping items and of the aggregates,
+ * in the order in which they were specified in the query.
+ *
+ * Values are "real values" of the items: polystrings are represented by their original form (String),
+ * references by target OIDs, dates by XMLGregorianCalendar, enumerated values by their schema (JAXB) enums.
+ * COUNT is represented by Long. Values can be null, e.g. if the grouping item is missing in some objects.
+ *
+ * Objects of this type are considered READ ONLY.
+ */
+public class AggregationResult implements Serializable {
+
+	@NotNull private final List<Object> groupValues;
+	@NotNull private final List<Object> aggregateValues;
+
+	public AggregationResult(@NotNull List<Object> groupValues, @NotNull List<Object> aggregateValues) {
+		this.groupValues = groupValues;
+		this.aggregateValues = aggregateValues;
+	}
+
+	@NotNull
+	public List<Object> getGroupValues() {
+		return groupValues;
+	}
+
+	public Object getGroupValue(int index) {
+		return groupValues.get(index);
+	}
+
+	@NotNull
+	public List<Object> getAggregateValues() {
+		return aggregateValues;
+	}
+
+	public Object getAggregateValue(int index) {
+		return aggregateValues.get(index);
+	}
+
+	@Override
+	public String toString() {
+		return groupValues + " -> " + aggregateValues;
+	}
+}
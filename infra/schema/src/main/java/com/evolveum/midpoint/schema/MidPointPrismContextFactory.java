@@ -100,8 +100,15 @@ public class MidPointPrismContextFactory implements PrismContextFactory {
 		schemaRegistry.setNamespacePrefixMapper(new GlobalDynamicNamespacePrefixMapper());
 		registerBuiltinSchemas(schemaRegistry);
         registerExtensionSchemas(schemaRegistry);
+		configureSchemaRegistry(schemaRegistry);
 		return schemaRegistry;
 	}
+
+	/**
+	 * Hook for additional settings of the schema registry (e.g. the schema snapshot file).
+	 */
+	protected void configureSchemaRegistry(SchemaRegistryImpl schemaRegistry) {
+	}
     
     protected void registerExtensionSchemas(SchemaRegistryImpl schemaRegistry) throws SchemaException, FileNotFoundException {
     	if (extraSchemaDir != null && extraSchemaDir.exists()) {
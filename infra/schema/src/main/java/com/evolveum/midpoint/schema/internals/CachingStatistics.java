@@ -15,57 +15,60 @@
  */
 package com.evolveum.midpoint.schema.internals;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * @author semancik
  *
  */
 public class CachingStatistics {
 	
-	private long requests = 0;
-	private long hits = 0;
-	private long misses = 0;
+	// Recorded concurrently by many threads on hot paths (e.g. resource cache lookups), so no locking here.
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
 	
 	public long getRequests() {
-		return requests;
+		return requests.get();
 	}
 	
-	public synchronized void setRequests(long requests) {
-		this.requests = requests;
+	public void setRequests(long requests) {
+		this.requests.set(requests);
 	}
 	
-	public synchronized void recordRequest() {
-		this.requests++;
+	public void recordRequest() {
+		this.requests.incrementAndGet();
 	}
 	
 	public long getHits() {
-		return hits;
+		return hits.get();
 	}
 	
-	public synchronized void setHits(long hits) {
-		this.hits = hits;
+	public void setHits(long hits) {
+		this.hits.set(hits);
 	}
 	
-	public synchronized void recordHit() {
-		this.hits++;
+	public void recordHit() {
+		this.hits.incrementAndGet();
 	}
 	
 	public long getMisses() {
-		return misses;
+		return misses.get();
 	}
 	
-	public synchronized void setMisses(long misses) {
-		this.misses = misses;
+	public void setMisses(long misses) {
+		this.misses.set(misses);
 	}
 	
-	public synchronized void recordMiss() {
-		this.misses++;
+	public void recordMiss() {
+		this.misses.incrementAndGet();
 	}
 	
 	public CachingStatistics clone() {
 		CachingStatistics clone = new CachingStatistics();
-		clone.requests = this.requests;
-		clone.hits = this.hits;
-		clone.misses = this.misses;
+		clone.requests.set(this.requests.get());
+		clone.hits.set(this.hits.get());
+		clone.misses.set(this.misses.get());
 		return clone;
 	}
 
@@ -57,6 +57,10 @@ public enum InternalCounters {
 	
 	ROLE_EVALUATION_SKIP_COUNT("roleEvaluationSkipCount", "role evaluation skip count", null),
 	
+	ROLE_CACHE_HIT_COUNT("roleCacheHitCount", "role cache hit count", null),
+	
+	ROLE_CACHE_MISS_COUNT("roleCacheMissCount", "role cache miss count", null),
+	
 	PROJECTOR_RUN_COUNT("projectorRunCount", "projector run count", null);
 	
 	// Used as localization key
@@ -233,7 +233,28 @@ public class ObjectClassComplexTypeDefinitionImpl extends ComplexTypeDefinitionI
 	@NotNull
 	@Override
 	public ObjectClassComplexTypeDefinition deepClone(Map<QName, ComplexTypeDefinition> ctdMap) {
-		return (ObjectClassComplexTypeDefinition) super.deepClone(ctdMap);
+		boolean alreadyCloned = ctdMap != null && ctdMap.containsKey(getTypeName());
+		ObjectClassComplexTypeDefinitionImpl clone = (ObjectClassComplexTypeDefinitionImpl) super.deepClone(ctdMap);
+		if (!alreadyCloned) {
+			// identifiers and special attributes have to point to the cloned attribute definitions
+			clone.identifiers.clear();
+			this.identifiers.forEach(def -> clone.identifiers.add(clonedAttribute(clone, def)));
+			clone.secondaryIdentifiers.clear();
+			this.secondaryIdentifiers.forEach(def -> clone.secondaryIdentifiers.add(clonedAttribute(clone, def)));
+			clone.descriptionAttribute = clonedAttribute(clone, descriptionAttribute);
+			clone.displayNameAttribute = clonedAttribute(clone, displayNameAttribute);
+			clone.namingAttribute = clonedAttribute(clone, namingAttribute);
+		}
+		return clone;
+	}
+
+	private static <T> ResourceAttributeDefinition<T> clonedAttribute(ObjectClassComplexTypeDefinitionImpl clone,
+			ResourceAttributeDefinition<T> original) {
+		if (original == null) {
+			return null;
+		}
+		ResourceAttributeDefinition<T> cloned = clone.findAttributeDefinition(original.getName());
+		return cloned != null ? cloned : original;
 	}
 
 	protected void copyDefinitionData(ObjectClassComplexTypeDefinitionImpl clone) {
@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2016-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.schema.statistics;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import com.evolveum.midpoint.util.DebugDumpable;
+import com.evolveum.midpoint.util.DebugUtil;
+
+/**
+ * Snapshot of statistics of one type of connector operation (e.g. ICF_CREATE) executed by a connector instance.
+ */
+public class ConnectorOperationStatistics implements DebugDumpable, Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Upper bounds (exclusive, in milliseconds) of latency histogram buckets.
+	 * The last bucket (not listed here) contains operations that took longer than the last bound.
+	 */
+	public static final long[] LATENCY_BUCKET_BOUNDS = { 10, 100, 1000, 10000 };
+
+	private final ProvisioningOperation operation;
+	private final long count;
+	private final long errorCount;
+	private final long totalTime;
+	private final long maxTime;
+	private final long[] latencyHistogram;
+
+	public ConnectorOperationStatistics(ProvisioningOperation operation, long count, long errorCount, long totalTime,
+			long maxTime, long[] latencyHistogram) {
+		this.operation = operation;
+		this.count = count;
+		this.errorCount = errorCount;
+		this.totalTime = totalTime;
+		this.maxTime = maxTime;
+		this.latencyHistogram = latencyHistogram;
+	}
+
+	public ProvisioningOperation getOperation() {
+		return operation;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getErrorCount() {
+		return errorCount;
+	}
+
+	/**
+	 * Total time in milliseconds.
+	 */
+	public long getTotalTime() {
+		return totalTime;
+	}
+
+	public long getMaxTime() {
+		return maxTime;
+	}
+
+	public Long getAverageTime() {
+		return count > 0 ? totalTime / count : null;
+	}
+
+	/**
+	 * Number of operations in latency buckets; see {@link #LATENCY_BUCKET_BOUNDS}.
+	 */
+	public long[] getLatencyHistogram() {
+		return latencyHistogram;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((operation == null) ? 0 : operation.hashCode());
+		result = prime * result + (int) (count ^ (count >>> 32));
+		result = prime * result + (int) (errorCount ^ (errorCount >>> 32));
+		result = prime * result + (int) (totalTime ^ (totalTime >>> 32));
+		result = prime * result + (int) (maxTime ^ (maxTime >>> 32));
+		result = prime * result + Arrays.hashCode(latencyHistogram);
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		ConnectorOperationStatistics other = (ConnectorOperationStatistics) obj;
+		return operation == other.operation
+				&& count == other.count
+				&& errorCount == other.errorCount
+				&& totalTime == other.totalTime
+				&& maxTime == other.maxTime
+				&& Arrays.equals(latencyHistogram, other.latencyHistogram);
+	}
+
+	@Override
+	public String toString() {
+		return "ConnectorOperationStatistics(" + operation + ": " + count + " (" + errorCount + " errors), avg: "
+				+ getAverageTime() + " ms, max: " + maxTime + " ms)";
+	}
+
+	@Override
+	public String debugDump() {
+		return debugDump(0);
+	}
+
+	@Override
+	public String debugDump(int indent) {
+		StringBuilder sb = new StringBuilder();
+		DebugUtil.indentDebugDump(sb, indent);
+		sb.append("ConnectorOperationStatistics\n");
+		DebugUtil.debugDumpWithLabelLn(sb, "operation", String.valueOf(operation), indent + 1);
+		DebugUtil.debugDumpWithLabelLn(sb, "count", count, indent + 1);
+		DebugUtil.debugDumpWithLabelLn(sb, "errorCount", errorCount, indent + 1);
+		DebugUtil.debugDumpWithLabelLn(sb, "totalTime", totalTime, indent + 1);
+		DebugUtil.debugDumpWithLabelLn(sb, "maxTime", maxTime, indent + 1);
+		DebugUtil.debugDumpWithLabel(sb, "latencyHistogram", Arrays.toString(latencyHistogram), indent + 1);
+		return sb.toString();
+	}
+}
@@ -16,6 +16,9 @@
 package com.evolveum.midpoint.schema.statistics;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 
 import com.evolveum.midpoint.util.DebugDumpable;
 import com.evolveum.midpoint.util.DebugUtil;
@@ -37,6 +40,12 @@ public class ConnectorOperationalStatus implements DebugDumpable, Serializable {
 	public static final String F_POOL_CONFIG_MIN_EVICTABLE_IDLE_TIME = "poolConfigMinEvictableIdleTime";
 	public static final String F_POOL_STATUS_NUM_IDLE = "poolStatusNumIdle";
 	public static final String F_POOL_STATUS_NUM_ACTIVE = "poolStatusNumActive";
+	public static final String F_CONCURRENCY_LIMIT = "concurrencyLimit";
+	public static final String F_CONCURRENCY_LIMITER_WAIT_TIME = "concurrencyLimiterWaitTime";
+	public static final String F_RESOURCE_CACHE_READ_ONLY_HITS = "resourceCacheReadOnlyHits";
+	public static final String F_RESOURCE_CACHE_CLONES = "resourceCacheClones";
+	public static final String F_RESOURCE_CACHE_MISSES = "resourceCacheMisses";
+	public static final String F_RESOURCE_CACHE_CONFLICTING_PUTS = "resourceCacheConflictingPuts";
 	
 	private String connectorName;
 	private String connectorClassName;
@@ -52,6 +61,20 @@ public class ConnectorOperationalStatus implements DebugDumpable, Serializable {
 	// pool status
 	private Integer poolStatusNumIdle;
 	private Integer poolStatusNumActive;
+
+	// operation statistics (since the connector instance was created)
+	private final List<ConnectorOperationStatistics> operationStatistics = new ArrayList<>();
+
+	// adaptive concurrency limiting (null if not applied)
+	private Integer concurrencyLimit;
+	private Long concurrencyLimiterWaitTime;
+
+	// Statistics of the provisioning resource cache. These are kept per resource, not per connector,
+	// so they are the same for all connectors of the resource.
+	private Long resourceCacheReadOnlyHits;
+	private Long resourceCacheClones;
+	private Long resourceCacheMisses;
+	private Long resourceCacheConflictingPuts;
 	
 	public String getConnectorName() {
 		return connectorName;
@@ -133,6 +156,70 @@ public class ConnectorOperationalStatus implements DebugDumpable, Serializable {
 		this.poolStatusNumActive = poolStatusNumActive;
 	}
 
+	public List<ConnectorOperationStatistics> getOperationStatistics() {
+		return operationStatistics;
+	}
+
+	public Integer getConcurrencyLimit() {
+		return concurrencyLimit;
+	}
+
+	public void setConcurrencyLimit(Integer concurrencyLimit) {
+		this.concurrencyLimit = concurrencyLimit;
+	}
+
+	/**
+	 * Total time (in milliseconds) spent by operations waiting for the concurrency limiter.
+	 */
+	public Long getConcurrencyLimiterWaitTime() {
+		return concurrencyLimiterWaitTime;
+	}
+
+	public void setConcurrencyLimiterWaitTime(Long concurrencyLimiterWaitTime) {
+		this.concurrencyLimiterWaitTime = concurrencyLimiterWaitTime;
+	}
+
+	/**
+	 * Number of resource cache hits served without cloning the cached resource.
+	 */
+	public Long getResourceCacheReadOnlyHits() {
+		return resourceCacheReadOnlyHits;
+	}
+
+	public void setResourceCacheReadOnlyHits(Long resourceCacheReadOnlyHits) {
+		this.resourceCacheReadOnlyHits = resourceCacheReadOnlyHits;
+	}
+
+	/**
+	 * Number of resource cache hits that required cloning the cached resource.
+	 */
+	public Long getResourceCacheClones() {
+		return resourceCacheClones;
+	}
+
+	public void setResourceCacheClones(Long resourceCacheClones) {
+		this.resourceCacheClones = resourceCacheClones;
+	}
+
+	public Long getResourceCacheMisses() {
+		return resourceCacheMisses;
+	}
+
+	public void setResourceCacheMisses(Long resourceCacheMisses) {
+		this.resourceCacheMisses = resourceCacheMisses;
+	}
+
+	/**
+	 * Number of puts to the resource cache that found the entry concurrently replaced by another thread.
+	 */
+	public Long getResourceCacheConflictingPuts() {
+		return resourceCacheConflictingPuts;
+	}
+
+	public void setResourceCacheConflictingPuts(Long resourceCacheConflictingPuts) {
+		this.resourceCacheConflictingPuts = resourceCacheConflictingPuts;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -147,6 +234,7 @@ public class ConnectorOperationalStatus implements DebugDumpable, Serializable {
 		result = prime * result + ((poolConfigWaitTimeout == null) ? 0 : poolConfigWaitTimeout.hashCode());
 		result = prime * result + ((poolStatusNumActive == null) ? 0 : poolStatusNumActive.hashCode());
 		result = prime * result + ((poolStatusNumIdle == null) ? 0 : poolStatusNumIdle.hashCode());
+		result = prime * result + ((concurrencyLimit == null) ? 0 : concurrencyLimit.hashCode());
 		return result;
 	}
 
@@ -225,6 +313,21 @@ public class ConnectorOperationalStatus implements DebugDumpable, Serializable {
 		} else if (!poolStatusNumIdle.equals(other.poolStatusNumIdle)) {
 			return false;
 		}
+		if (!Objects.equals(concurrencyLimit, other.concurrencyLimit)) {
+			return false;
+		}
+		if (!Objects.equals(concurrencyLimiterWaitTime, other.concurrencyLimiterWaitTime)) {
+			return false;
+		}
+		if (!operationStatistics.equals(other.operationStatistics)) {
+			return false;
+		}
+		if (!Objects.equals(resourceCacheReadOnlyHits, other.resourceCacheReadOnlyHits)
+				|| !Objects.equals(resourceCacheClones, other.resourceCacheClones)
+				|| !Objects.equals(resourceCacheMisses, other.resourceCacheMisses)
+				|| !Objects.equals(resourceCacheConflictingPuts, other.resourceCacheConflictingPuts)) {
+			return false;
+		}
 		return true;
 	}
 
@@ -252,7 +355,14 @@ public class ConnectorOperationalStatus implements DebugDumpable, Serializable {
 		DebugUtil.debugDumpWithLabelLn(sb, "poolConfigWaitTimeout", poolConfigWaitTimeout, indent + 1);
 		DebugUtil.debugDumpWithLabelLn(sb, "poolConfigMinEvictableIdleTime", poolConfigMinEvictableIdleTime, indent + 1);
 		DebugUtil.debugDumpWithLabelLn(sb, "poolStatusNumIdle", poolStatusNumIdle, indent + 1);
-		DebugUtil.debugDumpWithLabel(sb, "poolStatusNumActive", poolStatusNumActive, indent + 1);
+		DebugUtil.debugDumpWithLabelLn(sb, "poolStatusNumActive", poolStatusNumActive, indent + 1);
+		DebugUtil.debugDumpWithLabelLn(sb, "concurrencyLimit", concurrencyLimit, indent + 1);
+		DebugUtil.debugDumpWithLabelLn(sb, "concurrencyLimiterWaitTime", concurrencyLimiterWaitTime, indent + 1);
+		DebugUtil.debugDumpWithLabelLn(sb, "resourceCacheReadOnlyHits", resourceCacheReadOnlyHits, indent + 1);
+		DebugUtil.debugDumpWithLabelLn(sb, "resourceCacheClones", resourceCacheClones, indent + 1);
+		DebugUtil.debugDumpWithLabelLn(sb, "resourceCacheMisses", resourceCacheMisses, indent + 1);
+		DebugUtil.debugDumpWithLabelLn(sb, "resourceCacheConflictingPuts", resourceCacheConflictingPuts, indent + 1);
+		DebugUtil.debugDumpWithLabel(sb, "operationStatistics", operationStatistics, indent + 1);
 		return sb.toString();
 		
 	}
@@ -18,6 +18,7 @@ package com.evolveum.midpoint.schema.statistics;
 
 import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
 import com.evolveum.midpoint.util.QNameUtil;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ClockworkStatisticsType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.EnvironmentalPerformanceInformationType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.MappingsStatisticsEntryType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.MappingsStatisticsType;
@@ -49,7 +50,13 @@ public class EnvironmentalPerformanceInformation {
 
     private Map<ProvisioningStatisticsKey,ProvisioningStatisticsData> provisioningData = new HashMap<>();
     private Map<NotificationsStatisticsKey,GenericStatisticsData> notificationsData = new HashMap<>();
-    private Map<MappingsStatisticsKey,GenericStatisticsData> mappingsData = new HashMap<>();
+    private Map<MappingsStatisticsKey,MappingsStatisticsData> mappingsData = new HashMap<>();
+
+    private int clockworkRuns;
+    private int clockworkRepositoryWrites;
+    private int maxClockworkRepositoryWrites;
+    private long clockworkProjectorTime;
+    private long clockworkExecutionTime;
 
 	private static final int AGGREGATION_THRESHOLD = 50;
 
@@ -83,6 +90,9 @@ public class EnvironmentalPerformanceInformation {
         rv.setProvisioningStatistics(toProvisioningStatisticsType());
         rv.setMappingsStatistics(toMappingsStatisticsType());
         rv.setNotificationsStatistics(toNotificationsStatisticsType());
+        if (clockworkRuns > 0) {
+            rv.setClockworkStatistics(toClockworkStatisticsType());
+        }
         if (lastMessage != null) {
             rv.setLastMessageTimestamp(XmlTypeConverter.createXMLGregorianCalendar(lastMessage.getDate()));
             rv.setLastMessage(lastMessage.getMessage());
@@ -110,6 +120,16 @@ public class EnvironmentalPerformanceInformation {
         return rv;
     }
 
+    private ClockworkStatisticsType toClockworkStatisticsType() {
+        ClockworkStatisticsType rv = new ClockworkStatisticsType();
+        rv.setCount(clockworkRuns);
+        rv.setRepositoryWrites(clockworkRepositoryWrites);
+        rv.setMaxRepositoryWrites(maxClockworkRepositoryWrites);
+        rv.setProjectorTime(clockworkProjectorTime);
+        rv.setExecutionTime(clockworkExecutionTime);
+        return rv;
+    }
+
     private MappingsStatisticsType toMappingsStatisticsType() {
         final MappingsStatisticsType rv = new MappingsStatisticsType();
         if (mappingsData == null) {
@@ -120,7 +140,7 @@ public class EnvironmentalPerformanceInformation {
 			Integer current = entriesPerType.get(key.getObjectType());
 			entriesPerType.put(key.getObjectType(), current != null ? current+1 : 1);
 		}
-        for (Map.Entry<MappingsStatisticsKey, GenericStatisticsData> entry : mappingsData.entrySet()) {
+        for (Map.Entry<MappingsStatisticsKey, MappingsStatisticsData> entry : mappingsData.entrySet()) {
             final MappingsStatisticsKey key = entry.getKey();
             final String targetEntryName;
 			if (entriesPerType.get(key.getObjectType()) < AGGREGATION_THRESHOLD) {
@@ -135,7 +155,8 @@ public class EnvironmentalPerformanceInformation {
                 rv.getEntry().add(entryType);
             }
             setValueMapping(entryType, entry.getValue().getCount(),
-                    entry.getValue().getMinDuration(), entry.getValue().getMaxDuration(), entry.getValue().getTotalDuration());
+                    entry.getValue().getMinDuration(), entry.getValue().getMaxDuration(), entry.getValue().getTotalDuration(),
+                    entry.getValue().getTotalCompileDuration(), entry.getValue().getTotalEvaluationDuration());
         }
         return rv;
     }
@@ -157,7 +178,8 @@ public class EnvironmentalPerformanceInformation {
                 rv.getEntry().add(entryType);
             }
             setValue(entryType, key.getOperation(), key.getStatusType(), entry.getValue().getCount(),
-                    entry.getValue().getMinDuration(), entry.getValue().getMaxDuration(), entry.getValue().getTotalDuration());
+                    entry.getValue().getMinDuration(), entry.getValue().getMaxDuration(), entry.getValue().getTotalDuration(),
+                    entry.getValue().getTotalLimiterWaitDuration());
         }
         return rv;
     }
@@ -171,7 +193,8 @@ public class EnvironmentalPerformanceInformation {
         return null;
     }
 
-    private void setValue(ProvisioningStatisticsEntryType e, ProvisioningOperation operation, ProvisioningStatusType statusType, int count, long min, long max, long totalDuration) {
+    private void setValue(ProvisioningStatisticsEntryType e, ProvisioningOperation operation, ProvisioningStatusType statusType, int count, long min, long max, long totalDuration,
+            long totalLimiterWaitDuration) {
         switch (operation) {
             case ICF_GET:
                 if (statusType == ProvisioningStatusType.SUCCESS) {
@@ -240,6 +263,9 @@ public class EnvironmentalPerformanceInformation {
             e.setMaxTime(max);
         }
         e.setTotalTime(e.getTotalTime() + totalDuration);
+        if (totalLimiterWaitDuration > 0) {
+            e.setConcurrencyLimiterWaitTime(sum(e.getConcurrencyLimiterWaitTime(), totalLimiterWaitDuration));
+        }
     }
 
     private void setValueNotifications(NotificationsStatisticsEntryType e, boolean success, int count, long min, long max, long totalDuration) {
@@ -258,7 +284,8 @@ public class EnvironmentalPerformanceInformation {
         e.setTotalTime(e.getTotalTime() + totalDuration);
     }
 
-    private void setValueMapping(MappingsStatisticsEntryType e, int count, long min, long max, long totalDuration) {
+    private void setValueMapping(MappingsStatisticsEntryType e, int count, long min, long max, long totalDuration,
+            long totalCompileDuration, long totalEvaluationDuration) {
         e.setCount(e.getCount() + count);
         if (e.getMinTime() == null || min < e.getMinTime()) {
             e.setMinTime(min);
@@ -267,6 +294,8 @@ public class EnvironmentalPerformanceInformation {
             e.setMaxTime(max);
         }
         e.setTotalTime(e.getTotalTime() + totalDuration);
+        e.setCompileTime(sum(e.getCompileTime(), totalCompileDuration));
+        e.setEvaluationTime(sum(e.getEvaluationTime(), totalEvaluationDuration));
     }
 
     private EnvironmentalPerformanceInformationType aggregate(EnvironmentalPerformanceInformationType startValue, EnvironmentalPerformanceInformationType delta) {
@@ -283,6 +312,7 @@ public class EnvironmentalPerformanceInformation {
         addProvisioningTo(rv, delta.getProvisioningStatistics());
         addMappingsTo(rv, delta.getMappingsStatistics());
         addNotificationsTo(rv, delta.getNotificationsStatistics());
+        addClockworkTo(rv, delta.getClockworkStatistics());
         if (delta.getLastMessageTimestamp() != null) {
             if (rv.getLastMessageTimestamp() == null || rv.getLastMessageTimestamp().compare(delta.getLastMessageTimestamp()) == DatatypeConstants.LESSER) {
                 rv.setLastMessageTimestamp(delta.getLastMessageTimestamp());
@@ -323,6 +353,26 @@ public class EnvironmentalPerformanceInformation {
         }
     }
 
+    private static void addClockworkTo(EnvironmentalPerformanceInformationType rv, ClockworkStatisticsType delta) {
+        if (delta == null) {
+            return;
+        }
+        if (rv.getClockworkStatistics() == null) {
+            rv.setClockworkStatistics(delta.clone());
+            return;
+        }
+        ClockworkStatisticsType e = rv.getClockworkStatistics();
+        e.setCount(e.getCount() + delta.getCount());
+        e.setRepositoryWrites(e.getRepositoryWrites() + delta.getRepositoryWrites());
+        e.setMaxRepositoryWrites(maxInt(e.getMaxRepositoryWrites(), delta.getMaxRepositoryWrites()));
+        if (delta.getProjectorTime() != null) {
+            e.setProjectorTime(sum(e.getProjectorTime(), delta.getProjectorTime()));
+        }
+        if (delta.getExecutionTime() != null) {
+            e.setExecutionTime(sum(e.getExecutionTime(), delta.getExecutionTime()));
+        }
+    }
+
     private static NotificationsStatisticsEntryType findNotificationsEntryType(List<NotificationsStatisticsEntryType> list, String transport) {
         for (NotificationsStatisticsEntryType entry : list) {
             if (StringUtils.equals(entry.getTransport(), transport)) {
@@ -355,6 +405,12 @@ public class EnvironmentalPerformanceInformation {
             e.setMinTime(min(e.getMinTime(), de.getMinTime()));
             e.setMaxTime(max(e.getMaxTime(), de.getMaxTime()));
             e.setTotalTime(e.getTotalTime() + de.getTotalTime());
+            if (de.getCompileTime() != null) {
+                e.setCompileTime(sum(e.getCompileTime(), de.getCompileTime()));
+            }
+            if (de.getEvaluationTime() != null) {
+                e.setEvaluationTime(sum(e.getEvaluationTime(), de.getEvaluationTime()));
+            }
             if (e.getCount() > 0) {
                 e.setAverageTime(e.getTotalTime() / e.getCount());
             } else {
@@ -422,6 +478,9 @@ public class EnvironmentalPerformanceInformation {
             e.setMinTime(min(e.getMinTime(), de.getMinTime()));
             e.setMaxTime(max(e.getMaxTime(), de.getMaxTime()));
             e.setTotalTime(e.getTotalTime() + de.getTotalTime());
+            if (de.getConcurrencyLimiterWaitTime() != null) {
+                e.setConcurrencyLimiterWaitTime(sum(e.getConcurrencyLimiterWaitTime(), de.getConcurrencyLimiterWaitTime()));
+            }
             if (totalCount > 0) {
                 e.setAverageTime(e.getTotalTime() / totalCount);
             } else {
@@ -450,14 +509,29 @@ public class EnvironmentalPerformanceInformation {
         return Math.max(a, b);
     }
 
-    public synchronized void recordProvisioningOperation(String resourceOid, String resourceName, QName objectClassName, ProvisioningOperation operation, boolean success, int count, long duration) {
+    private static Integer maxInt(Integer a, Integer b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        return Math.max(a, b);
+    }
+
+    private static long sum(Long a, long b) {
+        return a != null ? a + b : b;
+    }
+
+    public synchronized void recordProvisioningOperation(String resourceOid, String resourceName, QName objectClassName, ProvisioningOperation operation, boolean success, int count, long duration,
+            long limiterWaitDuration) {
         ProvisioningStatisticsKey key = new ProvisioningStatisticsKey(resourceOid, resourceName, objectClassName, operation, success);
         ProvisioningStatisticsData data = provisioningData.get(key);
         if (data == null) {
             data = new ProvisioningStatisticsData();
             provisioningData.put(key, data);
         }
-        data.recordOperation(duration, count);
+        data.recordOperation(duration, limiterWaitDuration, count);
     }
 
     public synchronized void recordNotificationOperation(String transportName, boolean success, long duration) {
@@ -470,15 +544,24 @@ public class EnvironmentalPerformanceInformation {
         data.recordOperation(duration, 1);
     }
 
-    public synchronized void recordMappingOperation(String objectOid, String objectName, String objectTypeName, String mappingName, long duration) {
+    public synchronized void recordMappingOperation(String objectOid, String objectName, String objectTypeName, String mappingName,
+            long duration, long compileDuration) {
         // ignoring mapping name for now
         MappingsStatisticsKey key = new MappingsStatisticsKey(objectOid, objectName, objectTypeName);
-        GenericStatisticsData data = mappingsData.get(key);
+        MappingsStatisticsData data = mappingsData.get(key);
         if (data == null) {
-            data = new GenericStatisticsData();
+            data = new MappingsStatisticsData();
             mappingsData.put(key, data);
         }
-        data.recordOperation(duration, 1);
+        data.recordOperation(duration, compileDuration, 1);
+    }
+
+    public synchronized void recordClockworkRun(int repositoryWrites, long projectorTime, long executionTime) {
+        clockworkRuns++;
+        clockworkRepositoryWrites += repositoryWrites;
+        maxClockworkRepositoryWrites = Math.max(maxClockworkRepositoryWrites, repositoryWrites);
+        clockworkProjectorTime += projectorTime;
+        clockworkExecutionTime += executionTime;
     }
 
     public synchronized StatusMessage getLastMessage() {
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.midpoint.schema.statistics;
+
+/**
+ * Mapping statistics: besides the total evaluation time, the time spent in compiling (parsing) the mappings
+ * is tracked. This shows whether the time is spent in the expressions themselves or in their preparation.
+ */
+public class MappingsStatisticsData extends GenericStatisticsData {
+
+    private long totalCompileDuration;
+
+    public long getTotalCompileDuration() {
+        return totalCompileDuration;
+    }
+
+    public long getTotalEvaluationDuration() {
+        return getTotalDuration() - totalCompileDuration;
+    }
+
+    public void recordOperation(long duration, long compileDuration, int count) {
+        recordOperation(duration, count);
+        totalCompileDuration += compileDuration;
+    }
+}
@@ -21,6 +21,17 @@ package com.evolveum.midpoint.schema.statistics;
  */
 public class ProvisioningStatisticsData extends GenericStatisticsData {
 
+    private long totalLimiterWaitDuration;
+
+    public long getTotalLimiterWaitDuration() {
+        return totalLimiterWaitDuration;
+    }
+
+    public void recordOperation(long duration, long limiterWaitDuration, int count) {
+        recordOperation(duration, count);
+        totalLimiterWaitDuration += limiterWaitDuration;
+    }
+
     //private Deque<ObjectProcessed> lastObjectsProcessed;
 
 //    public static class ObjectProcessed {
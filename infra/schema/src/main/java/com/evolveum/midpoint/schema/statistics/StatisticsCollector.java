@@ -54,11 +54,27 @@ public interface StatisticsCollector {
 
     void recordState(String message);
 
-    void recordProvisioningOperation(String resourceOid, String resourceName, QName objectClassName, ProvisioningOperation operation, boolean success, int count, long duration);
+    /**
+     * Records a connector operation. The limiter wait duration (time spent waiting for the connector concurrency limiter)
+     * is included in the duration.
+     */
+    void recordProvisioningOperation(String resourceOid, String resourceName, QName objectClassName, ProvisioningOperation operation, boolean success, int count, long duration,
+            long limiterWaitDuration);
 
     void recordNotificationOperation(String transportName, boolean success, long duration);
 
-    void recordMappingOperation(String objectOid, String objectName, String objectTypeName, String mappingName, long duration);
+    /**
+     * Records evaluation of a mapping. The compile duration (time spent in parsing the mapping) is included in the duration.
+     */
+    void recordMappingOperation(String objectOid, String objectName, String objectTypeName, String mappingName, long duration,
+            long compileDuration);
+
+    /**
+     * Records a finished clockwork run along with the number of repository writes it executed directly,
+     * and the time spent in processing its projections by the projector and by the change executor
+     * (in milliseconds, summed over the projections).
+     */
+    void recordClockworkRun(int repositoryWrites, long projectorTime, long executionTime);
 
     /**
      * Records information about iterative processing of objects.
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.schema.util;
+
+import com.evolveum.midpoint.util.ParallelBatchProcessor;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.CleanupPolicyType;
+import org.jetbrains.annotations.NotNull;
+
+import javax.xml.datatype.Duration;
+import java.util.Date;
+import java.util.function.BooleanSupplier;
+
+public class CleanupPolicyUtil {
+
+	/**
+	 * Returns the time up to which records should be deleted according to maxAge, or null if maxAge is not set.
+	 */
+	public static Date getDeleteUpTo(@NotNull CleanupPolicyType policy) {
+		Duration duration = policy.getMaxAge();
+		if (duration == null) {
+			return null;
+		}
+		if (duration.getSign() > 0) {
+			duration = duration.negate();
+		}
+		Date deleteUpTo = new Date();
+		duration.addTo(deleteUpTo);
+		return deleteUpTo;
+	}
+
+	/**
+	 * Creates a processor that deletes items in batches according to the batch size, number of threads,
+	 * time budget and pause set in the policy.
+	 */
+	public static <T> ParallelBatchProcessor<T> createBatchProcessor(@NotNull String name, @NotNull CleanupPolicyType policy,
+			int defaultBatchSize, @NotNull BooleanSupplier canContinue, @NotNull ParallelBatchProcessor.BatchAction<T> action) {
+		int batchSize = policy.getBatchSize() != null && policy.getBatchSize() > 0 ? policy.getBatchSize() : defaultBatchSize;
+		int threads = policy.getThreads() != null ? policy.getThreads() : 1;
+		return new ParallelBatchProcessor<>(name, batchSize, threads, toMillis(policy.getMaxDuration()),
+				toMillis(policy.getPauseAfterBatch()), canContinue, action);
+	}
+
+	private static long toMillis(Duration duration) {
+		return duration != null ? Math.abs(duration.getTimeInMillis(new Date())) : 0;
+	}
+}
@@ -16,9 +16,14 @@
 
 package com.evolveum.midpoint.schema.util;
 
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismContextImpl;
 import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.polystring.PolyStringNormalizer;
+import com.evolveum.midpoint.prism.polystring.PrismDefaultPolyStringNormalizer;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.InternalsConfigurationType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.PolyStringNormalizerConfigurationType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.SystemConfigurationType;
 
 /**
@@ -54,6 +59,13 @@ public class SystemConfigurationTypeUtil {
         return sysconfigObject.asObjectable().getInternals().getMaxModelClicks();
     }
 
+    public static Integer getParallelProjectionThreads(PrismObject<SystemConfigurationType> sysconfigObject) {
+        if (sysconfigObject == null || sysconfigObject.asObjectable().getInternals() == null) {
+            return null;
+        }
+        return sysconfigObject.asObjectable().getInternals().getParallelProjectionThreads();
+    }
+
     public static String getDefaultHostname(SystemConfigurationType sysconfig) {
         if (sysconfig == null) {
             return null;
@@ -69,4 +81,40 @@ public class SystemConfigurationTypeUtil {
         Integer value = config != null && config.getInternals() != null ? config.getInternals().getSubresultStripThreshold() : null;
         OperationResult.setSubresultStripThreshold(value);
     }
+
+    /**
+     * Replaces the default PolyString normalizer if its configuration differs from the current one.
+     * Custom (non-default) normalizers are left untouched.
+     */
+    public static void applyPolyStringNormalizerConfiguration(SystemConfigurationType config) {
+        if (config == null) {
+            return;
+        }
+        PrismContext prismContext = config.asPrismObject().getPrismContext();
+        if (!(prismContext instanceof PrismContextImpl)) {
+            return;
+        }
+        PolyStringNormalizerConfigurationType normalizerConfig = config.getInternals() != null ? config.getInternals().getPolyStringNormalizer() : null;
+        boolean trim = normalizerConfig == null || !Boolean.FALSE.equals(normalizerConfig.isTrim());
+        boolean nfkd = normalizerConfig == null || !Boolean.FALSE.equals(normalizerConfig.isNfkd());
+        boolean lowerCase = normalizerConfig == null || !Boolean.FALSE.equals(normalizerConfig.isLowercase());
+        int memoSize = normalizerConfig != null && normalizerConfig.getMemoSize() != null ? normalizerConfig.getMemoSize() : 0;
+
+        PolyStringNormalizer current = prismContext.getDefaultPolyStringNormalizer();
+        if (!(current instanceof PrismDefaultPolyStringNormalizer)) {
+            return;
+        }
+        PrismDefaultPolyStringNormalizer currentDefault = (PrismDefaultPolyStringNormalizer) current;
+        if (currentDefault.isTrim() == trim && currentDefault.isNfkd() == nfkd && currentDefault.isLowerCase() == lowerCase
+                && currentDefault.getMemoSize() == memoSize) {
+            return;
+        }
+        // a new instance, as the current one may be in use by other threads
+        PrismDefaultPolyStringNormalizer normalizer = new PrismDefaultPolyStringNormalizer();
+        normalizer.setTrim(trim);
+        normalizer.setNfkd(nfkd);
+        normalizer.setLowerCase(lowerCase);
+        normalizer.setMemoSize(memoSize);
+        ((PrismContextImpl) prismContext).setDefaultPolyStringNormalizer(normalizer);
+    }
 }
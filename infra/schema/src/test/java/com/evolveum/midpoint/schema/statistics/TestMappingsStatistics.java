@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.schema.statistics;
+
+import com.evolveum.midpoint.xml.ns._public.common.common_3.EnvironmentalPerformanceInformationType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.MappingsStatisticsEntryType;
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
+
+/**
+ * Tests recording and aggregation of mapping statistics, including the compile and evaluation time.
+ */
+public class TestMappingsStatistics {
+
+	private static final String ROLE_TYPE = "RoleType";
+
+	@Test
+	public void test100RecordCompileTime() throws Exception {
+		System.out.println("===[ test100RecordCompileTime ]===");
+
+		// GIVEN
+		EnvironmentalPerformanceInformation info = new EnvironmentalPerformanceInformation();
+
+		// WHEN
+		info.recordMappingOperation("oid1", "role1", ROLE_TYPE, "mapping1", 10, 3);
+		info.recordMappingOperation("oid1", "role1", ROLE_TYPE, "mapping2", 20, 4);
+		info.recordMappingOperation("oid2", "role2", ROLE_TYPE, "mapping1", 5, 0);
+
+		// THEN
+		EnvironmentalPerformanceInformationType value = info.getAggregatedValue();
+		MappingsStatisticsEntryType role1 = findEntry(value, "role1");
+		assertEquals("Wrong count", 2, role1.getCount());
+		assertEquals("Wrong total time", 30L, (long) role1.getTotalTime());
+		assertEquals("Wrong compile time", Long.valueOf(7L), role1.getCompileTime());
+		assertEquals("Wrong evaluation time", Long.valueOf(23L), role1.getEvaluationTime());
+		assertEquals("Wrong compile time", Long.valueOf(0L), findEntry(value, "role2").getCompileTime());
+		assertEquals("Wrong evaluation time", Long.valueOf(5L), findEntry(value, "role2").getEvaluationTime());
+	}
+
+	@Test
+	public void test110AggregateCompileTime() throws Exception {
+		System.out.println("===[ test110AggregateCompileTime ]===");
+
+		// GIVEN
+		EnvironmentalPerformanceInformation previous = new EnvironmentalPerformanceInformation();
+		previous.recordMappingOperation("oid1", "role1", ROLE_TYPE, "mapping1", 10, 3);
+		EnvironmentalPerformanceInformation info = new EnvironmentalPerformanceInformation(previous.getAggregatedValue());
+
+		// WHEN
+		info.recordMappingOperation("oid1", "role1", ROLE_TYPE, "mapping1", 10, 2);
+
+		// THEN
+		MappingsStatisticsEntryType role1 = findEntry(info.getAggregatedValue(), "role1");
+		assertEquals("Wrong count", 2, role1.getCount());
+		assertEquals("Wrong total time", 20L, (long) role1.getTotalTime());
+		assertEquals("Wrong compile time", Long.valueOf(5L), role1.getCompileTime());
+		assertEquals("Wrong evaluation time", Long.valueOf(15L), role1.getEvaluationTime());
+	}
+
+	private MappingsStatisticsEntryType findEntry(EnvironmentalPerformanceInformationType value, String objectName) {
+		assertNotNull("No mappings statistics", value.getMappingsStatistics());
+		for (MappingsStatisticsEntryType entry : value.getMappingsStatistics().getEntry()) {
+			if (objectName.equals(entry.getObject())) {
+				return entry;
+			}
+		}
+		throw new AssertionError("No mappings statistics entry for " + objectName);
+	}
+}
@@ -19,6 +19,7 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.annotation.XmlAnyElement;
@@ -43,9 +44,10 @@ public final class JAXBUtil {
 
 	private static final Trace LOGGER = TraceManager.getTrace(JAXBUtil.class);
 
-    private static final Map<Package, String> packageNamespaces = new HashMap<>();
-    private static final Map<QName, Class> classQNames = new HashMap<>();
-    private static final Set<String> scannedPackages = new HashSet<>();
+    // Used concurrently by all parsing threads; the maps are only read after the packages are scanned.
+    private static final Map<Package, String> packageNamespaces = new ConcurrentHashMap<>();
+    private static final Map<QName, Class> classQNames = new ConcurrentHashMap<>();
+    private static final Set<String> scannedPackages = ConcurrentHashMap.newKeySet();
 
     public static String getSchemaNamespace(Package pkg) {
 		XmlSchema xmlSchemaAnn = pkg.getAnnotation(XmlSchema.class);
@@ -237,13 +239,17 @@ public final class JAXBUtil {
 		}
 
         Class clazz = classQNames.get(typeName);
-        if (clazz != null && pkg.equals(clazz.getPackage())) {
+        if (clazz != null && isInPackage(clazz, pkg)) {
             return clazz;
         }
 
-        if (!scannedPackages.contains(pkg.getName())) {
-            scannedPackages.add(pkg.getName());
-
+        if (scannedPackages.contains(pkg.getName())) {
+            return null;
+        }
+        synchronized (scannedPackages) {
+            if (scannedPackages.contains(pkg.getName())) {
+                return findClassForType(typeName, pkg);
+            }
             Class foundClass = null;
             for (Class c : ClassPathUtil.listClasses(pkg)) {
                 QName foundTypeQName = getTypeQName(c);
@@ -254,10 +260,18 @@ public final class JAXBUtil {
                     foundClass = c;
                 }
             }
+            // marked as scanned only after all the classes are registered, so other threads never see a partial result
+            scannedPackages.add(pkg.getName());
             return foundClass;          // may be null but that's OK
         }
+	}
 
-		return null;
+	// Class.getPackage() is relatively expensive (it looks up the package in the class loader), so we compare the names.
+	private static boolean isInPackage(Class<?> clazz, Package pkg) {
+		String className = clazz.getName();
+		String packageName = pkg.getName();
+		return className.length() > packageName.length() && className.charAt(packageName.length()) == '.'
+				&& className.startsWith(packageName) && className.indexOf('.', packageName.length() + 1) < 0;
 	}
 	
 	public static boolean compareElementList(List<Object> aList, List<Object> bList, boolean considerNamespacePrefixes) {
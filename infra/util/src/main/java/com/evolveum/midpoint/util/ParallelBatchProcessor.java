@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.util;
+
+import com.evolveum.midpoint.util.logging.LoggingUtils;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Processes a stream of items (typically identifiers of records to be deleted) in batches, optionally in more threads.
+ *
+ * Items are added by a single (producer) thread, usually while iterating over search results. When a batch is full,
+ * it is given to the batch action: directly in the producer thread (if there is one thread) or in one of the worker
+ * threads. The producer is blocked when there are too many batches waiting, so the items are streamed and never
+ * all held in memory.
+ *
+ * The processing can be limited by a time budget and by an external condition (e.g. the task still being able to run),
+ * and throttled by a pause after each batch. When stopped, batches not started yet are discarded, and add() returns
+ * false, so the producer can stop reading.
+ *
+ * A failure of a batch is logged and counted; the processing continues with the next batch.
+ */
+public class ParallelBatchProcessor<T> {
+
+	private static final Trace LOGGER = TraceManager.getTrace(ParallelBatchProcessor.class);
+
+	private static final int MAX_WAITING_BATCHES_PER_THREAD = 2;
+
+	@FunctionalInterface
+	public interface BatchAction<T> {
+		/**
+		 * @return number of items actually processed (e.g. deleted)
+		 */
+		int process(List<T> batch) throws Exception;
+	}
+
+	public enum StopReason {
+		STOPPED_EXTERNALLY, TIME_BUDGET_EXCEEDED
+	}
+
+	@NotNull private final String name;
+	@NotNull private final BatchAction<T> action;
+	private final int batchSize;
+	private final int threads;
+	private final long deadline;			// 0 = none
+	private final long pauseAfterBatch;
+	@NotNull private final BooleanSupplier canContinue;
+
+	private final ExecutorService executor;
+	private List<T> currentBatch;
+
+	// guarded by this
+	private int waitingOrRunning;
+	private int processed;
+	private int batches;
+	private int failedBatches;
+	private int failedItems;
+	private Throwable lastFailure;
+	private StopReason stopReason;
+
+	private final long started = System.currentTimeMillis();
+
+	/**
+	 * @param name used for logging and thread names
+	 * @param batchSize maximal number of items in a batch
+	 * @param threads number of worker threads; 1 or less means processing in the producer thread
+	 * @param timeBudget time in milliseconds after which no new batches are started; 0 or less means no limit
+	 * @param pauseAfterBatch time in milliseconds the thread waits after processing a batch (throttling); 0 means no pause
+	 * @param canContinue checked before each batch; if false, the processing stops
+	 */
+	public ParallelBatchProcessor(@NotNull String name, int batchSize, int threads, long timeBudget, long pauseAfterBatch,
+			@NotNull BooleanSupplier canContinue, @NotNull BatchAction<T> action) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+		}
+		this.name = name;
+		this.batchSize = batchSize;
+		this.threads = Math.max(threads, 1);
+		this.deadline = timeBudget > 0 ? started + timeBudget : 0;
+		this.pauseAfterBatch = Math.max(pauseAfterBatch, 0);
+		this.canContinue = canContinue;
+		this.action = action;
+		this.currentBatch = new ArrayList<>(batchSize);
+		if (this.threads > 1) {
+			AtomicInteger threadNumber = new AtomicInteger();
+			executor = Executors.newFixedThreadPool(this.threads, runnable -> {
+				Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		} else {
+			executor = null;
+		}
+	}
+
+	/**
+	 * Adds an item. Returns false if the processing was stopped; the producer should then stop producing items.
+	 */
+	public boolean add(T item) throws InterruptedException {
+		if (!checkCanContinue()) {
+			return false;
+		}
+		currentBatch.add(item);
+		if (currentBatch.size() >= batchSize) {
+			submitCurrentBatch();
+		}
+		return true;
+	}
+
+	/**
+	 * Processes the remaining items and waits until all batches are done.
+	 */
+	public Statistics finish() throws InterruptedException {
+		try {
+			if (!currentBatch.isEmpty() && checkCanContinue()) {
+				submitCurrentBatch();
+			}
+			synchronized (this) {
+				while (waitingOrRunning > 0) {
+					wait();
+				}
+			}
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+		}
+		Statistics statistics = getStatistics();
+		LOGGER.debug("{} finished: {}", name, statistics);
+		return statistics;
+	}
+
+	private void submitCurrentBatch() throws InterruptedException {
+		List<T> batch = currentBatch;
+		currentBatch = new ArrayList<>(batchSize);
+		if (executor == null) {
+			synchronized (this) {
+				waitingOrRunning++;
+			}
+			processBatch(batch);
+		} else {
+			synchronized (this) {
+				while (waitingOrRunning >= threads * MAX_WAITING_BATCHES_PER_THREAD) {
+					wait();
+				}
+				waitingOrRunning++;
+			}
+			executor.execute(() -> processBatch(batch));
+		}
+	}
+
+	private void processBatch(List<T> batch) {
+		try {
+			if (!checkCanContinue()) {
+				LOGGER.trace("{}: skipping batch of {} items, processing was stopped", name, batch.size());
+				return;
+			}
+			long start = System.currentTimeMillis();
+			try {
+				int count = action.process(batch);
+				synchronized (this) {
+					processed += count;
+					batches++;
+				}
+				LOGGER.trace("{}: processed {} of {} items in {} ms", name, count, batch.size(), System.currentTimeMillis() - start);
+			} catch (Throwable t) {
+				LoggingUtils.logUnexpectedException(LOGGER, "{}: couldn't process batch of {} items", t, name, batch.size());
+				synchronized (this) {
+					failedBatches++;
+					failedItems += batch.size();
+					lastFailure = t;
+				}
+			}
+			if (pauseAfterBatch > 0) {
+				try {
+					Thread.sleep(pauseAfterBatch);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		} finally {
+			synchronized (this) {
+				waitingOrRunning--;
+				notifyAll();
+			}
+		}
+	}
+
+	private boolean checkCanContinue() {
+		synchronized (this) {
+			if (stopReason != null) {
+				return false;
+			}
+		}
+		StopReason reason = null;
+		if (deadline > 0 && System.currentTimeMillis() >= deadline) {
+			reason = StopReason.TIME_BUDGET_EXCEEDED;
+		} else if (!canContinue.getAsBoolean()) {
+			reason = StopReason.STOPPED_EXTERNALLY;
+		}
+		if (reason != null) {
+			synchronized (this) {
+				if (stopReason == null) {
+					stopReason = reason;
+					LOGGER.info("{}: stopping ({}) after processing {} items", name, reason, processed);
+				}
+			}
+			return false;
+		}
+		return true;
+	}
+
+	public synchronized Statistics getStatistics() {
+		return new Statistics(processed, batches, failedBatches, failedItems, lastFailure, stopReason,
+				System.currentTimeMillis() - started);
+	}
+
+	public static class Statistics {
+		private final int processed;
+		private final int batches;
+		private final int failedBatches;
+		private final int failedItems;
+		private final Throwable lastFailure;
+		private final StopReason stopReason;
+		private final long duration;
+
+		private Statistics(int processed, int batches, int failedBatches, int failedItems, Throwable lastFailure,
+				StopReason stopReason, long duration) {
+			this.processed = processed;
+			this.batches = batches;
+			this.failedBatches = failedBatches;
+			this.failedItems = failedItems;
+			this.lastFailure = lastFailure;
+			this.stopReason = stopReason;
+			this.duration = duration;
+		}
+
+		public int getProcessed() {
+			return processed;
+		}
+
+		public int getBatches() {
+			return batches;
+		}
+
+		public int getFailedBatches() {
+			return failedBatches;
+		}
+
+		public int getFailedItems() {
+			return failedItems;
+		}
+
+		public Throwable getLastFailure() {
+			return lastFailure;
+		}
+
+		/**
+		 * Null if all the items were processed (successfully or not).
+		 */
+		public StopReason getStopReason() {
+			return stopReason;
+		}
+
+		public long getDuration() {
+			return duration;
+		}
+
+		@Override
+		public String toString() {
+			return "processed " + processed + " item(s) in " + batches + " batch(es) in " + duration + " ms"
+					+ (failedBatches > 0 ? ", " + failedBatches + " batch(es) with " + failedItems + " item(s) failed" : "")
+					+ (stopReason != null ? ", stopped: " + stopReason : "");
+		}
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.midpoint.util.caching;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe map with a maximal size. When the size is exceeded, the least recently used entries are evicted,
+ * so a full cache keeps its most frequently used entries (unlike clearing the whole cache).
+ *
+ * Reads and writes do not lock: entries are kept in a ConcurrentHashMap and each of them remembers when it was
+ * last used. The LRU order is therefore approximate. The eviction is done by one thread at a time: when the size
+ * is exceeded, it removes the least recently used entries in a batch (1/16 of the maximal size, at least one),
+ * so the entries do not have to be sorted on each insertion. Meanwhile, the size can slightly exceed the maximum.
+ *
+ * Hits and misses of get() are counted, so the efficiency of the cache can be monitored.
+ */
+public class BoundedLruCache<K, V> {
+
+	private final int maxSize;
+	private final int evictionBatchSize;
+	private final ConcurrentHashMap<K, Node<V>> entries = new ConcurrentHashMap<>();
+
+	private final AtomicLong clock = new AtomicLong();
+	private final AtomicBoolean evicting = new AtomicBoolean();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	public BoundedLruCache(int maxSize) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("Maximal size must be positive: " + maxSize);
+		}
+		this.maxSize = maxSize;
+		this.evictionBatchSize = Math.max(1, maxSize / 16);
+	}
+
+	public V get(K key) {
+		Node<V> node = entries.get(key);
+		if (node != null) {
+			node.lastUsed = clock.incrementAndGet();
+			hits.increment();
+			return node.value;
+		} else {
+			misses.increment();
+			return null;
+		}
+	}
+
+	public void put(K key, V value) {
+		Objects.requireNonNull(value, "value");
+		entries.put(key, new Node<>(value, clock.incrementAndGet()));
+		if (entries.size() > maxSize) {
+			evict();
+		}
+	}
+
+	public V remove(K key) {
+		Node<V> node = entries.remove(key);
+		return node != null ? node.value : null;
+	}
+
+	/**
+	 * Removes the entry only if it is still mapped to the given value (i.e. was not replaced in the meanwhile).
+	 */
+	public boolean remove(K key, V value) {
+		Node<V> node = entries.get(key);
+		// nodes are compared by identity, so the entry is not removed if it was replaced after the get
+		return node != null && Objects.equals(node.value, value) && entries.remove(key, node);
+	}
+
+	public void clear() {
+		entries.clear();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	private void evict() {
+		if (!evicting.compareAndSet(false, true)) {
+			return;         // another thread is evicting right now
+		}
+		try {
+			int toEvict = entries.size() - maxSize;
+			if (toEvict <= 0) {
+				return;
+			}
+			toEvict = Math.max(toEvict, evictionBatchSize);
+			List<Map.Entry<K, Node<V>>> candidates = new ArrayList<>(entries.entrySet());
+			candidates.sort(Comparator.comparingLong(e -> e.getValue().lastUsed));
+			for (int i = 0; i < candidates.size() && toEvict > 0; i++) {
+				Map.Entry<K, Node<V>> candidate = candidates.get(i);
+				if (entries.remove(candidate.getKey(), candidate.getValue())) {
+					evictions.increment();
+					toEvict--;
+				}
+			}
+		} finally {
+			evicting.set(false);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "BoundedLruCache(" + entries.size() + "/" + maxSize + " entries, hits: " + getHits() + ", misses: " + getMisses()
+				+ ", evictions: " + getEvictions() + ")";
+	}
+
+	private static class Node<V> {
+		private final V value;
+		private volatile long lastUsed;
+
+		private Node(V value, long lastUsed) {
+			this.value = value;
+			this.lastUsed = lastUsed;
+		}
+	}
+}
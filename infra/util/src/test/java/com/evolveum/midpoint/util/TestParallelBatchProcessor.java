@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.util;
+
+import com.evolveum.midpoint.util.ParallelBatchProcessor.Statistics;
+import com.evolveum.midpoint.util.ParallelBatchProcessor.StopReason;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.AssertJUnit.*;
+
+public class TestParallelBatchProcessor {
+
+	@Test
+	public void test100Sequential() throws Exception {
+		Set<Integer> seen = new HashSet<>();
+		AtomicInteger batchCount = new AtomicInteger();
+		ParallelBatchProcessor<Integer> processor = new ParallelBatchProcessor<>("test", 10, 1, 0, 0, () -> true,
+				batch -> {
+					assertTrue("Batch too large: " + batch.size(), batch.size() <= 10);
+					batchCount.incrementAndGet();
+					seen.addAll(batch);
+					return batch.size();
+				});
+		for (int i = 0; i < 95; i++) {
+			assertTrue("Processor refused an item", processor.add(i));
+		}
+		Statistics statistics = processor.finish();
+		assertEquals("Wrong number of processed items", 95, statistics.getProcessed());
+		assertEquals("Wrong number of batches", 10, statistics.getBatches());
+		assertEquals("Wrong number of batches executed", 10, batchCount.get());
+		assertEquals("Wrong number of distinct items", 95, seen.size());
+		assertNull("Unexpected stop", statistics.getStopReason());
+	}
+
+	/**
+	 * The first two batches wait for each other, so they can complete only if they run concurrently.
+	 */
+	@Test
+	public void test110Parallel() throws Exception {
+		Set<Integer> seen = Collections.newSetFromMap(new ConcurrentHashMap<>());
+		Set<String> threads = Collections.newSetFromMap(new ConcurrentHashMap<>());
+		CountDownLatch firstBatches = new CountDownLatch(2);
+		AtomicInteger overlapping = new AtomicInteger();
+		ParallelBatchProcessor<Integer> processor = new ParallelBatchProcessor<>("test", 50, 4, 0, 0, () -> true,
+				batch -> {
+					threads.add(Thread.currentThread().getName());
+					firstBatches.countDown();
+					if (firstBatches.await(10, TimeUnit.SECONDS)) {
+						overlapping.incrementAndGet();
+					}
+					seen.addAll(batch);
+					return batch.size();
+				});
+		for (int i = 0; i < 2000; i++) {
+			processor.add(i);
+		}
+		Statistics statistics = processor.finish();
+		assertEquals("Wrong number of processed items", 2000, statistics.getProcessed());
+		assertEquals("Wrong number of distinct items", 2000, seen.size());
+		assertTrue("Batches were not processed in more threads: " + threads, threads.size() > 1);
+		assertEquals("Batches were not processed in parallel", 40, overlapping.get());
+		assertNull("Unexpected stop", statistics.getStopReason());
+	}
+
+	@Test
+	public void test120FailedBatch() throws Exception {
+		ParallelBatchProcessor<Integer> processor = new ParallelBatchProcessor<>("test", 10, 2, 0, 0, () -> true,
+				batch -> {
+					if (batch.contains(15)) {
+						throw new IllegalStateException("Simulated failure");
+					}
+					return batch.size();
+				});
+		for (int i = 0; i < 30; i++) {
+			processor.add(i);
+		}
+		Statistics statistics = processor.finish();
+		assertEquals("Wrong number of processed items", 20, statistics.getProcessed());
+		assertEquals("Wrong number of failed batches", 1, statistics.getFailedBatches());
+		assertEquals("Wrong number of failed items", 10, statistics.getFailedItems());
+		assertTrue("Wrong last failure", statistics.getLastFailure() instanceof IllegalStateException);
+	}
+
+	@Test
+	public void test130StoppedExternally() throws Exception {
+		AtomicInteger processedSoFar = new AtomicInteger();
+		ParallelBatchProcessor<Integer> processor = new ParallelBatchProcessor<>("test", 10, 1, 0, 0,
+				() -> processedSoFar.get() < 30,
+				batch -> {
+					processedSoFar.addAndGet(batch.size());
+					return batch.size();
+				});
+		int added = 0;
+		for (int i = 0; i < 100; i++) {
+			if (!processor.add(i)) {
+				break;
+			}
+			added++;
+		}
+		Statistics statistics = processor.finish();
+		assertEquals("Wrong number of processed items", 30, statistics.getProcessed());
+		assertEquals("Wrong number of added items", 30, added);
+		assertEquals("Wrong stop reason", StopReason.STOPPED_EXTERNALLY, statistics.getStopReason());
+	}
+
+	@Test
+	public void test140TimeBudgetAndThrottling() throws Exception {
+		List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+		// 100 batches with 100 ms pause after each cannot fit into 300 ms budget
+		ParallelBatchProcessor<Integer> processor = new ParallelBatchProcessor<>("test", 10, 1, 300, 100, () -> true,
+				batch -> {
+					processed.addAll(batch);
+					return batch.size();
+				});
+		int added = 0;
+		for (int i = 0; i < 1000; i++) {
+			if (!processor.add(i)) {
+				break;
+			}
+			added++;
+		}
+		Statistics statistics = processor.finish();
+		assertEquals("Wrong stop reason", StopReason.TIME_BUDGET_EXCEEDED, statistics.getStopReason());
+		assertTrue("Processing was not stopped: " + added + " items added", added < 1000);
+		assertEquals("Items were added after the processing was stopped", added, statistics.getProcessed());
+		assertEquals("Statistics do not match", processed.size(), statistics.getProcessed());
+		assertEquals("Only whole batches should be processed", 0, statistics.getProcessed() % 10);
+		for (int i = 0; i < processed.size(); i++) {
+			assertEquals("Items were processed out of order", Integer.valueOf(i), processed.get(i));
+		}
+	}
+}
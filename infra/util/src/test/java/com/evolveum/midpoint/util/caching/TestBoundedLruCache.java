@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.util.caching;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.AssertJUnit.*;
+
+public class TestBoundedLruCache {
+
+	@Test
+	public void test100EvictLeastRecentlyUsed() throws Exception {
+		BoundedLruCache<String, Integer> cache = new BoundedLruCache<>(3);
+		cache.put("a", 1);
+		cache.put("b", 2);
+		cache.put("c", 3);
+		assertEquals("Wrong value of a", Integer.valueOf(1), cache.get("a"));		// b is now the least recently used
+
+		cache.put("d", 4);
+
+		assertEquals("Wrong size", 3, cache.size());
+		assertNull("Least recently used entry was not evicted", cache.get("b"));
+		assertEquals("Wrong value of a", Integer.valueOf(1), cache.get("a"));
+		assertEquals("Wrong value of c", Integer.valueOf(3), cache.get("c"));
+		assertEquals("Wrong value of d", Integer.valueOf(4), cache.get("d"));
+		assertEquals("Wrong number of evictions", 1, cache.getEvictions());
+	}
+
+	@Test
+	public void test110Counters() throws Exception {
+		BoundedLruCache<String, Integer> cache = new BoundedLruCache<>(10);
+		cache.put("a", 1);
+
+		cache.get("a");
+		cache.get("a");
+		cache.get("x");
+
+		assertEquals("Wrong number of hits", 2, cache.getHits());
+		assertEquals("Wrong number of misses", 1, cache.getMisses());
+	}
+
+	@Test
+	public void test120ConditionalRemove() throws Exception {
+		BoundedLruCache<String, Integer> cache = new BoundedLruCache<>(10);
+		cache.put("a", 1);
+		cache.put("a", 2);
+
+		assertFalse("Replaced entry was removed", cache.remove("a", 1));
+		assertTrue("Current entry was not removed", cache.remove("a", 2));
+		assertEquals("Wrong size", 0, cache.size());
+	}
+
+	@Test
+	public void test130EvictInBatches() throws Exception {
+		BoundedLruCache<Integer, Integer> cache = new BoundedLruCache<>(160);
+		for (int i = 0; i < 160; i++) {
+			cache.put(i, i);
+		}
+		cache.get(0);		// 1 is now the least recently used
+
+		cache.put(160, 160);
+
+		assertEquals("Wrong number of evictions", 10, cache.getEvictions());
+		assertEquals("Wrong size", 151, cache.size());
+		assertEquals("Recently used entry was evicted", Integer.valueOf(0), cache.get(0));
+		for (int i = 1; i <= 10; i++) {
+			assertNull("Least recently used entry " + i + " was not evicted", cache.get(i));
+		}
+		assertEquals("Wrong value of 11", Integer.valueOf(11), cache.get(11));
+	}
+
+	@Test
+	public void test140ConcurrentAccess() throws Exception {
+		BoundedLruCache<Integer, Integer> cache = new BoundedLruCache<>(100);
+		int threads = 8;
+		int operations = 20000;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				int seed = t;
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < operations; i++) {
+						int key = (i * 31 + seed) % 1000;
+						Integer value = cache.get(key);
+						if (value == null) {
+							cache.put(key, key);
+						} else {
+							assertEquals("Wrong value of " + key, Integer.valueOf(key), value);
+						}
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		}
+
+		assertEquals("Wrong number of gets", threads * operations, cache.getHits() + cache.getMisses());
+		cache.put(-1, -1);		// the last eviction (if any) is finished, so this one brings the size within the limit
+		assertTrue("Size exceeds the maximum: " + cache.size(), cache.size() <= cache.getMaxSize());
+	}
+}
@@ -145,7 +145,18 @@ public class AccCertCaseOperationsHelper {
 
         final List<AccessCertificationCaseType> existingCases = queryHelper.searchCases(campaign.getOid(), null, null, result);
         if (!existingCases.isEmpty()) {
-            throw new IllegalStateException("Unexpected " + existingCases.size() + " certification case(s) in campaign object " + campaignShortName + ". At this time there should be none.");
+            // cases are written in batches (see AccCertUpdateHelper.applyStageOpenDeltas), so these can only be leftovers
+            // of an interrupted opening of the first stage; they are removed before the cases are created again
+            LOGGER.warn("Removing {} certification case(s) left in campaign {} by an interrupted opening of its first stage",
+                    existingCases.size(), campaignShortName);
+            ContainerDelta<AccessCertificationCaseType> deleteDelta = null;
+            for (AccessCertificationCaseType existingCase : existingCases) {
+                if (deleteDelta == null || deleteDelta.size() >= AccCertUpdateHelper.CASE_BATCH_SIZE) {
+                    deleteDelta = ContainerDelta.createDelta(F_CASE, AccessCertificationCampaignType.class, prismContext);
+                    rv.add(deleteDelta);
+                }
+                deleteDelta.addValueToDelete(existingCase.asPrismContainerValue().clone());
+            }
         }
 
         // create a query to find target objects from which certification cases will be created
@@ -195,14 +206,20 @@ public class AccCertCaseOperationsHelper {
         AccessCertificationReviewerSpecificationType reviewerSpec =
                 reviewersHelper.findReviewersSpecification(campaign, 1, task, result);
 
-        ContainerDelta<AccessCertificationCaseType> caseDelta = ContainerDelta.createDelta(F_CASE,
-                AccessCertificationCampaignType.class, prismContext);
+        // cases are split into several container deltas to allow applying them in batches (see AccCertUpdateHelper)
+        ReviewerLookupCache reviewerLookupCache = new ReviewerLookupCache();
+        ContainerDelta<AccessCertificationCaseType> caseDelta = null;
         for (AccessCertificationCaseType _case : caseList) {
+            if (caseDelta == null || caseDelta.size() >= AccCertUpdateHelper.CASE_BATCH_SIZE) {
+                caseDelta = ContainerDelta.createDelta(F_CASE, AccessCertificationCampaignType.class, prismContext);
+                rv.add(caseDelta);
+            }
             _case.setStageNumber(1);
             _case.setCurrentStageCreateTimestamp(stage.getStartTimestamp());
             _case.setCurrentStageDeadline(stage.getDeadline());
 
-			List<ObjectReferenceType> reviewers = reviewersHelper.getReviewersForCase(_case, campaign, reviewerSpec, task, result);
+			List<ObjectReferenceType> reviewers = reviewersHelper.getReviewersForCase(_case, campaign, reviewerSpec,
+					reviewerLookupCache, task, result);
 			_case.getWorkItem().addAll(createWorkItems(reviewers, 1));
 
             String currentStageOutcome = OutcomeUtils.toUri(computationHelper.computeOutcomeForStage(_case, campaign, 1));
@@ -214,9 +231,9 @@ public class AccCertCaseOperationsHelper {
             caseDelta.addValueToAdd(caseCVal);
 			LOGGER.trace("Adding certification case:\n{}", caseCVal.debugDumpLazily());
         }
-        rv.add(caseDelta);
 
-        LOGGER.trace("Created {} deltas to create {} cases for campaign {}", rv.size(), caseList.size(), campaignShortName);
+        LOGGER.debug("Created {} deltas to create {} cases for campaign {}; reviewer lookups: {}", rv.size(), caseList.size(),
+				campaignShortName, reviewerLookupCache);
         return rv;
     }
 
@@ -246,13 +263,19 @@ public class AccCertCaseOperationsHelper {
         AccessCertificationReviewerSpecificationType reviewerSpec =
                 reviewersHelper.findReviewersSpecification(campaign, stageToBe, task, result);
 
+        ReviewerLookupCache reviewerLookupCache = new ReviewerLookupCache();
         for (AccessCertificationCaseType _case : caseList) {
             if (!computationHelper.computeEnabled(campaign, _case, outcomesToStopOn)) {
                 continue;
             }
+            if (Objects.equals(_case.getStageNumber(), stageToBe)) {
+                // already advanced by an interrupted opening of this stage (see AccCertUpdateHelper.applyStageOpenDeltas)
+                continue;
+            }
             Long caseId = _case.asPrismContainerValue().getId();
             assert caseId != null;
-			List<ObjectReferenceType> reviewers = reviewersHelper.getReviewersForCase(_case, campaign, reviewerSpec, task, result);
+			List<ObjectReferenceType> reviewers = reviewersHelper.getReviewersForCase(_case, campaign, reviewerSpec,
+					reviewerLookupCache, task, result);
 			List<AccessCertificationWorkItemType> workItems = createWorkItems(reviewers, stageToBe);
 			_case.getWorkItem().addAll(CloneUtil.cloneCollectionMembers(workItems));
 			AccessCertificationResponseType currentOutcome = computationHelper.computeOutcomeForStage(_case, campaign, stageToBe);
@@ -267,7 +290,8 @@ public class AccCertCaseOperationsHelper {
 					.asItemDeltas());
         }
 
-        LOGGER.debug("Created {} deltas to advance {} cases for campaign {}", rv.size(), caseList.size(), toShortString(campaign));
+        LOGGER.debug("Created {} deltas to advance {} cases for campaign {}; reviewer lookups: {}", rv.size(), caseList.size(),
+				toShortString(campaign), reviewerLookupCache);
         return rv;
     }
 
@@ -192,4 +192,25 @@ public class AccCertQueryHelper {
         }
         return rv;
     }
+
+    /**
+     * Groups cases having open work items by their assignees, in a single pass over the case list.
+     * Cases are not cloned; a case assigned to several reviewers is present in each of their lists.
+     */
+    public Map<String, List<AccessCertificationCaseType>> groupOpenCasesByReviewer(List<AccessCertificationCaseType> caseList) {
+        Map<String, List<AccessCertificationCaseType>> rv = new LinkedHashMap<>();
+        for (AccessCertificationCaseType aCase : caseList) {
+            Set<String> reviewersOfCase = new HashSet<>();
+            for (AccessCertificationWorkItemType workItem : aCase.getWorkItem()) {
+                if (workItem.getCloseTimestamp() == null) {
+                    for (ObjectReferenceType reviewerRef : workItem.getAssigneeRef()) {
+                        if (reviewersOfCase.add(reviewerRef.getOid())) {
+                            rv.computeIfAbsent(reviewerRef.getOid(), oid -> new ArrayList<>()).add(aCase);
+                        }
+                    }
+                }
+            }
+        }
+        return rv;
+    }
 }
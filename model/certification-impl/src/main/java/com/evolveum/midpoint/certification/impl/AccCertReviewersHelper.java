@@ -71,25 +71,34 @@ public class AccCertReviewersHelper {
 
     public List<ObjectReferenceType> getReviewersForCase(AccessCertificationCaseType _case, AccessCertificationCampaignType campaign,
                                       AccessCertificationReviewerSpecificationType reviewerSpec, Task task, OperationResult result) throws SchemaException, ObjectNotFoundException {
+        return getReviewersForCase(_case, campaign, reviewerSpec, new ReviewerLookupCache(), task, result);
+    }
+
+    /**
+     * The same as above, but reusing objects and reviewer lists looked up for previous cases of the same stage.
+     */
+    List<ObjectReferenceType> getReviewersForCase(AccessCertificationCaseType _case, AccessCertificationCampaignType campaign,
+            AccessCertificationReviewerSpecificationType reviewerSpec, ReviewerLookupCache cache, Task task,
+            OperationResult result) throws SchemaException, ObjectNotFoundException {
         if (reviewerSpec == null) {
             return Collections.emptyList();     // TODO issue a warning here?
         }
 
 		List<ObjectReferenceType> reviewers = new ArrayList<>();
 		if (Boolean.TRUE.equals(reviewerSpec.isUseTargetOwner())) {
-            cloneAndMerge(reviewers, getTargetObjectOwners(_case, task, result));
+            cloneAndMerge(reviewers, getTargetObjectOwners(_case, cache, task, result));
         }
         if (Boolean.TRUE.equals(reviewerSpec.isUseTargetApprover())) {
-            cloneAndMerge(reviewers, getTargetObjectApprovers(_case, task, result));
+            cloneAndMerge(reviewers, getTargetObjectApprovers(_case, cache, task, result));
         }
         if (Boolean.TRUE.equals(reviewerSpec.isUseObjectOwner())) {
-            cloneAndMerge(reviewers, getObjectOwners(_case, task, result));
+            cloneAndMerge(reviewers, getObjectOwners(_case, cache, task, result));
         }
         if (Boolean.TRUE.equals(reviewerSpec.isUseObjectApprover())) {
-            cloneAndMerge(reviewers, getObjectApprovers(_case, task, result));
+            cloneAndMerge(reviewers, getObjectApprovers(_case, cache, task, result));
         }
         if (reviewerSpec.getUseObjectManager() != null) {
-            cloneAndMerge(reviewers, getObjectManagers(_case, reviewerSpec.getUseObjectManager(), task, result));
+            cloneAndMerge(reviewers, getObjectManagers(_case, reviewerSpec.getUseObjectManager(), cache, task, result));
         }
         for (ExpressionType reviewerExpression : reviewerSpec.getReviewerExpression()) {
 			ExpressionVariables variables = new ExpressionVariables();
@@ -100,17 +109,18 @@ public class AccCertReviewersHelper {
 					.evaluateRefExpressionChecked(reviewerExpression, variables, "reviewer expression", task, result);
 			cloneAndMerge(reviewers, refList);
 		}
-		resolveRoleReviewers(reviewers, task, result);
+		resolveRoleReviewers(reviewers, cache, task, result);
         if (reviewers.isEmpty()) {
             cloneAndMerge(reviewers, reviewerSpec.getDefaultReviewerRef());
         }
         cloneAndMerge(reviewers, reviewerSpec.getAdditionalReviewerRef());
-		resolveRoleReviewers(reviewers, task, result);
+		resolveRoleReviewers(reviewers, cache, task, result);
 
 		return reviewers;
     }
 
-	private void resolveRoleReviewers(List<ObjectReferenceType> reviewers, Task task, OperationResult result)
+	private void resolveRoleReviewers(List<ObjectReferenceType> reviewers, ReviewerLookupCache cache, Task task,
+			OperationResult result)
 			throws SchemaException {
     	List<ObjectReferenceType> resolved = new ArrayList<>();
 		for (Iterator<ObjectReferenceType> iterator = reviewers.iterator(); iterator.hasNext(); ) {
@@ -119,7 +129,7 @@ public class AccCertReviewersHelper {
 					QNameUtil.match(reviewer.getType(), OrgType.COMPLEX_TYPE) ||
 					QNameUtil.match(reviewer.getType(), ServiceType.COMPLEX_TYPE)) {
 				iterator.remove();
-				resolved.addAll(getMembers(reviewer, task, result));
+				resolved.addAll(getMembers(reviewer, cache, task, result));
 			}
 		}
 		for (ObjectReferenceType ref : resolved) {
@@ -129,14 +139,20 @@ public class AccCertReviewersHelper {
 		}
 	}
 
-	private List<ObjectReferenceType> getMembers(ObjectReferenceType abstractRoleRef, Task task, OperationResult result)
-			throws SchemaException {
+	private List<ObjectReferenceType> getMembers(ObjectReferenceType abstractRoleRef, ReviewerLookupCache cache, Task task,
+			OperationResult result) throws SchemaException {
+		List<ObjectReferenceType> cached = cache.getMembers(abstractRoleRef.getOid());
+		if (cached != null) {
+			return cached;
+		}
 		ObjectQuery query = QueryBuilder.queryFor(UserType.class, prismContext)
 				.item(UserType.F_ROLE_MEMBERSHIP_REF).ref(abstractRoleRef.getOid())
 				.build();
-		return repositoryService.searchObjects(UserType.class, query, null, result).stream()
+		List<ObjectReferenceType> members = repositoryService.searchObjects(UserType.class, query, null, result).stream()
 				.map(obj -> ObjectTypeUtil.createObjectRef(obj))
 				.collect(Collectors.toList());
+		cache.putMembers(abstractRoleRef.getOid(), members);
+		return members;
 	}
 
 	private void cloneAndMerge(List<ObjectReferenceType> reviewers, Collection<ObjectReferenceType> newReviewers) {
@@ -159,11 +175,12 @@ public class AccCertReviewersHelper {
         return false;
     }
 
-    private Collection<ObjectReferenceType> getObjectManagers(AccessCertificationCaseType _case, ManagerSearchType managerSearch, Task task, OperationResult result) throws ObjectNotFoundException, SchemaException {
+    private Collection<ObjectReferenceType> getObjectManagers(AccessCertificationCaseType _case, ManagerSearchType managerSearch,
+            ReviewerLookupCache cache, Task task, OperationResult result) throws ObjectNotFoundException, SchemaException {
         ModelExpressionThreadLocalHolder.pushExpressionEnvironment(new ExpressionEnvironment<>(task, result));
         try {
             ObjectReferenceType objectRef = _case.getObjectRef();
-            ObjectType object = resolveReference(objectRef, ObjectType.class, result);
+            ObjectType object = resolveReference(objectRef, ObjectType.class, cache, result);
 
             String orgType = managerSearch.getOrgType();
             boolean allowSelf = Boolean.TRUE.equals(managerSearch.isAllowSelf());
@@ -193,13 +210,14 @@ public class AccCertReviewersHelper {
         }
     }
 
-    protected List<ObjectReferenceType> getTargetObjectOwners(AccessCertificationCaseType _case, Task task, OperationResult result) throws SchemaException, ObjectNotFoundException {
+    protected List<ObjectReferenceType> getTargetObjectOwners(AccessCertificationCaseType _case, ReviewerLookupCache cache,
+            Task task, OperationResult result) throws SchemaException, ObjectNotFoundException {
         if (_case.getTargetRef() == null) {
             return null;
         }
-        ObjectType target = resolveReference(_case.getTargetRef(), ObjectType.class, result);
+        ObjectType target = resolveReference(_case.getTargetRef(), ObjectType.class, cache, result);
         if (target instanceof AbstractRoleType) {
-			return getAssignees((AbstractRoleType) target, SchemaConstants.ORG_OWNER, task, result);
+			return getAssignees((AbstractRoleType) target, SchemaConstants.ORG_OWNER, cache, task, result);
         } else if (target instanceof ResourceType) {
             return ResourceTypeUtil.getOwnerRef((ResourceType) target);
         } else {
@@ -207,8 +225,12 @@ public class AccCertReviewersHelper {
         }
     }
 
-	private List<ObjectReferenceType> getAssignees(AbstractRoleType role, QName relation, Task task, OperationResult result)
-			throws SchemaException {
+	private List<ObjectReferenceType> getAssignees(AbstractRoleType role, QName relation, ReviewerLookupCache cache,
+			Task task, OperationResult result) throws SchemaException {
+		List<ObjectReferenceType> cached = cache.getAssignees(role.getOid(), relation);
+		if (cached != null) {
+			return cached;
+		}
     	List<ObjectReferenceType> rv = new ArrayList<>();
 		if (SchemaConstants.ORG_OWNER.equals(relation)) {
 			CollectionUtils.addIgnoreNull(rv, role.getOwnerRef());
@@ -226,28 +248,31 @@ public class AccCertReviewersHelper {
 		List<PrismObject<FocusType>> assignees = repositoryService.searchObjects(FocusType.class, query, null, result);
 		LOGGER.trace("Looking for '{}' of {} using {}: found: {}", relation.getLocalPart(), role, query, assignees);
 		assignees.forEach(o -> rv.add(ObjectTypeUtil.createObjectRef(o)));
+		cache.putAssignees(role.getOid(), relation, rv);
 		return rv;
 	}
 
-	protected List<ObjectReferenceType> getObjectOwners(AccessCertificationCaseType _case, Task task, OperationResult result) throws SchemaException, ObjectNotFoundException {
+	protected List<ObjectReferenceType> getObjectOwners(AccessCertificationCaseType _case, ReviewerLookupCache cache,
+            Task task, OperationResult result) throws SchemaException, ObjectNotFoundException {
         if (_case.getObjectRef() == null) {
             return null;
         }
-        ObjectType object = resolveReference(_case.getObjectRef(), ObjectType.class, result);
+        ObjectType object = resolveReference(_case.getObjectRef(), ObjectType.class, cache, result);
         if (object instanceof AbstractRoleType) {
-			return getAssignees((AbstractRoleType) object, SchemaConstants.ORG_OWNER, task, result);
+			return getAssignees((AbstractRoleType) object, SchemaConstants.ORG_OWNER, cache, task, result);
         } else {
             return null;
         }
     }
 
-    private Collection<ObjectReferenceType> getTargetObjectApprovers(AccessCertificationCaseType _case, Task task, OperationResult result) throws SchemaException, ObjectNotFoundException {
+    private Collection<ObjectReferenceType> getTargetObjectApprovers(AccessCertificationCaseType _case, ReviewerLookupCache cache,
+            Task task, OperationResult result) throws SchemaException, ObjectNotFoundException {
         if (_case.getTargetRef() == null) {
             return null;
         }
-        ObjectType target = resolveReference(_case.getTargetRef(), ObjectType.class, result);
+        ObjectType target = resolveReference(_case.getTargetRef(), ObjectType.class, cache, result);
         if (target instanceof AbstractRoleType) {
-			return getAssignees((AbstractRoleType) target, SchemaConstants.ORG_APPROVER, task, result);
+			return getAssignees((AbstractRoleType) target, SchemaConstants.ORG_APPROVER, cache, task, result);
         } else if (target instanceof ResourceType) {
             return ResourceTypeUtil.getApproverRef((ResourceType) target);
         } else {
@@ -255,19 +280,25 @@ public class AccCertReviewersHelper {
         }
     }
 
-    private Collection<ObjectReferenceType> getObjectApprovers(AccessCertificationCaseType _case, Task task, OperationResult result) throws SchemaException, ObjectNotFoundException {
+    private Collection<ObjectReferenceType> getObjectApprovers(AccessCertificationCaseType _case, ReviewerLookupCache cache,
+            Task task, OperationResult result) throws SchemaException, ObjectNotFoundException {
         if (_case.getObjectRef() == null) {
             return null;
         }
-        ObjectType object = resolveReference(_case.getObjectRef(), ObjectType.class, result);
+        ObjectType object = resolveReference(_case.getObjectRef(), ObjectType.class, cache, result);
         if (object instanceof AbstractRoleType) {
-			return getAssignees((AbstractRoleType) object, SchemaConstants.ORG_APPROVER, task, result);
+			return getAssignees((AbstractRoleType) object, SchemaConstants.ORG_APPROVER, cache, task, result);
         } else {
             return null;
         }
     }
 
-    private ObjectType resolveReference(ObjectReferenceType objectRef, Class<? extends ObjectType> defaultObjectTypeClass, OperationResult result) throws SchemaException, ObjectNotFoundException {
+    private ObjectType resolveReference(ObjectReferenceType objectRef, Class<? extends ObjectType> defaultObjectTypeClass,
+            ReviewerLookupCache cache, OperationResult result) throws SchemaException, ObjectNotFoundException {
+        ObjectType cached = cache.getObject(objectRef.getOid());
+        if (cached != null) {
+            return cached;
+        }
         final Class<? extends ObjectType> objectTypeClass;
         if (objectRef.getType() != null) {
             objectTypeClass = (Class<? extends ObjectType>) prismContext.getSchemaRegistry().getCompileTimeClassForObjectType(objectRef.getType());
@@ -278,6 +309,10 @@ public class AccCertReviewersHelper {
             objectTypeClass = defaultObjectTypeClass;
         }
         PrismObject<? extends ObjectType> object = repositoryService.getObject(objectTypeClass, objectRef.getOid(), null, result);
+        if (!(object.asObjectable() instanceof UserType)) {
+            // users are typically objects of individual cases, so there is no point in keeping them
+            cache.putObject(objectRef.getOid(), object.asObjectable());
+        }
         return object.asObjectable();
     }
 
@@ -32,6 +32,8 @@ import com.evolveum.midpoint.prism.delta.ObjectDelta;
 import com.evolveum.midpoint.prism.delta.PropertyDelta;
 import com.evolveum.midpoint.prism.delta.builder.DeltaBuilder;
 import com.evolveum.midpoint.prism.marshaller.QueryConvertor;
+import com.evolveum.midpoint.prism.path.IdItemPathSegment;
+import com.evolveum.midpoint.prism.path.ItemPathSegment;
 import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.prism.query.ObjectFilter;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
@@ -212,6 +214,12 @@ public class AccCertUpdateHelper {
 
     //region ================================ Stage open ================================
 
+	/**
+	 * Approximate number of case-related values (cases being added or removed, work items and case properties
+	 * being changed) written to a campaign in a single modify operation when opening a stage.
+	 */
+	static final int CASE_BATCH_SIZE = 1000;
+
     public List<ItemDelta<?,?>> getDeltasForStageOpen(AccessCertificationCampaignType campaign, AccessCertificationStageType stage, CertificationHandler handler, final Task task, OperationResult result)
             throws SchemaException, ObjectNotFoundException, ObjectAlreadyExistsException {
         Validate.notNull(campaign, "certificationCampaign");
@@ -242,6 +250,55 @@ public class AccCertUpdateHelper {
         return rv;
     }
 
+	/**
+	 * Applies deltas computed by {@link #getDeltasForStageOpen}. Deltas related to cases are applied in batches
+	 * (see {@link #CASE_BATCH_SIZE}); deltas of a single case are never split between two batches. The remaining
+	 * deltas (stage, state, triggers) are applied together with the last batch, so the campaign moves to the new stage
+	 * only after all its cases have been created or advanced.
+	 *
+	 * If the operation is interrupted, the campaign stays in its original stage and the stage can be opened again:
+	 * cases left by an interrupted opening of the first stage are removed and created anew, and cases already
+	 * advanced to the new stage are skipped (see {@link AccCertCaseOperationsHelper}).
+	 *
+	 * The number of case-related deltas applied is reported as a transient progress of the task.
+	 */
+	void applyStageOpenDeltas(String campaignOid, List<ItemDelta<?,?>> deltas, Task task, OperationResult result)
+			throws SchemaException, ObjectNotFoundException, ObjectAlreadyExistsException {
+		List<ItemDelta<?,?>> stageDeltas = new ArrayList<>();
+		List<ItemDelta<?,?>> batch = new ArrayList<>();
+		int batchValues = 0;
+		Long lastCaseId = null;
+		int caseDeltasApplied = 0;
+		for (ItemDelta<?,?> delta : deltas) {
+			if (!delta.getPath().startsWithName(F_CASE)) {
+				stageDeltas.add(delta);
+				continue;
+			}
+			Long caseId = getCaseId(delta);
+			if (batchValues >= CASE_BATCH_SIZE && (caseId == null || !caseId.equals(lastCaseId))) {
+				modifyObjectViaModel(AccessCertificationCampaignType.class, campaignOid, batch, task, result);
+				caseDeltasApplied += batch.size();
+				task.setProgressTransient(caseDeltasApplied);
+				LOGGER.debug("Applied {} case-related deltas to campaign {}", caseDeltasApplied, campaignOid);
+				batch = new ArrayList<>();
+				batchValues = 0;
+			}
+			batch.add(delta);
+			batchValues += Math.max(delta.size(), 1);
+			lastCaseId = caseId;
+		}
+		stageDeltas.addAll(0, batch);
+		modifyObjectViaModel(AccessCertificationCampaignType.class, campaignOid, stageDeltas, task, result);
+		task.setProgressTransient(caseDeltasApplied + batch.size());
+	}
+
+	// ID of the case modified by the delta; null for deltas adding or removing whole cases
+	private Long getCaseId(ItemDelta<?,?> delta) {
+		List<ItemPathSegment> segments = delta.getPath().getSegments();
+		return segments.size() > 1 && segments.get(1) instanceof IdItemPathSegment
+				? ((IdItemPathSegment) segments.get(1)).getId() : null;
+	}
+
     // some bureaucracy... stage#, state, start time, triggers
     List<ItemDelta<?,?>> createDeltasToRecordStageOpen(AccessCertificationCampaignType campaign,
 			AccessCertificationStageType newStage) throws ObjectNotFoundException, SchemaException, ObjectAlreadyExistsException {
@@ -350,9 +407,11 @@ public class AccCertUpdateHelper {
 
 	private void notifyReviewers(AccessCertificationCampaignType campaign, boolean unansweredOnly, Task task, OperationResult result) throws SchemaException {
 		final List<AccessCertificationCaseType> caseList = queryHelper.searchCases(campaign.getOid(), null, null, result);
-		Collection<String> reviewers = eventHelper.getCurrentActiveReviewers(caseList);
-		for (String reviewerOid : reviewers) {
-			List<AccessCertificationCaseType> cases = queryHelper.getCasesForReviewer(campaign, reviewerOid, task, result);
+		// cases are grouped in memory instead of searching for them for each reviewer separately
+		Map<String, List<AccessCertificationCaseType>> casesByReviewer = queryHelper.groupOpenCasesByReviewer(caseList);
+		for (Map.Entry<String, List<AccessCertificationCaseType>> entry : casesByReviewer.entrySet()) {
+			String reviewerOid = entry.getKey();
+			List<AccessCertificationCaseType> cases = entry.getValue();
 			boolean notify = !unansweredOnly ||
 					cases.stream()
 							.flatMap(c -> c.getWorkItem().stream())
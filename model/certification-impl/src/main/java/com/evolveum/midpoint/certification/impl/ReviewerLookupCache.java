@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.midpoint.certification.impl;
+
+import com.evolveum.midpoint.prism.util.CloneUtil;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectReferenceType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+
+import javax.xml.namespace.QName;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Short-lived cache of objects and reviewer lists looked up while computing reviewers for many cases
+ * of a single campaign stage (e.g. the same target role, its owners/approvers or members of a reviewer role
+ * are typically needed for thousands of cases).
+ *
+ * Must not be shared across stages or campaigns: the cached data is not invalidated in any way.
+ * Not thread safe.
+ *
+ * Reference lists are copied when stored and when returned, because callers merge them into reviewer lists
+ * of individual cases (and may modify them afterwards).
+ */
+class ReviewerLookupCache {
+
+	private final Map<String, ObjectType> objects = new HashMap<>();
+	private final Map<String, List<ObjectReferenceType>> assignees = new HashMap<>();
+	private final Map<String, List<ObjectReferenceType>> members = new HashMap<>();
+
+	private int hits;
+	private int misses;
+
+	ObjectType getObject(String oid) {
+		return record(objects.get(oid));
+	}
+
+	void putObject(String oid, ObjectType object) {
+		objects.put(oid, object);
+	}
+
+	List<ObjectReferenceType> getAssignees(String roleOid, QName relation) {
+		return CloneUtil.cloneCollectionMembers(record(assignees.get(assigneesKey(roleOid, relation))));
+	}
+
+	void putAssignees(String roleOid, QName relation, List<ObjectReferenceType> refs) {
+		assignees.put(assigneesKey(roleOid, relation), CloneUtil.cloneCollectionMembers(refs));
+	}
+
+	List<ObjectReferenceType> getMembers(String abstractRoleOid) {
+		return CloneUtil.cloneCollectionMembers(record(members.get(abstractRoleOid)));
+	}
+
+	void putMembers(String abstractRoleOid, List<ObjectReferenceType> refs) {
+		members.put(abstractRoleOid, CloneUtil.cloneCollectionMembers(refs));
+	}
+
+	int getHits() {
+		return hits;
+	}
+
+	int getMisses() {
+		return misses;
+	}
+
+	private <T> T record(T value) {
+		if (value != null) {
+			hits++;
+		} else {
+			misses++;
+		}
+		return value;
+	}
+
+	private String assigneesKey(String roleOid, QName relation) {
+		return roleOid + ":" + relation;
+	}
+
+	@Override
+	public String toString() {
+		return "ReviewerLookupCache{objects=" + objects.size() + ", assignees=" + assignees.size()
+				+ ", members=" + members.size() + ", hits=" + hits + ", misses=" + misses + "}";
+	}
+}
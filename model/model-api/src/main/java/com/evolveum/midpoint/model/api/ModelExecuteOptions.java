@@ -135,6 +135,12 @@ public class ModelExecuteOptions extends AbstractOptions implements Serializable
 	 */
 	private PartialProcessingOptionsType initialPartialProcessing;
 
+	/**
+	 * Process and execute projections of the same wave concurrently.
+	 * EXPERIMENTAL
+	 */
+	private Boolean parallelProjections;
+
     public Boolean getForce() {
 		return force;
 	}
@@ -536,6 +542,35 @@ public class ModelExecuteOptions extends AbstractOptions implements Serializable
 		return opts;
 	}
 
+	public Boolean getParallelProjections() {
+		return parallelProjections;
+	}
+
+	public void setParallelProjections(Boolean parallelProjections) {
+		this.parallelProjections = parallelProjections;
+	}
+
+	public static boolean isParallelProjections(ModelExecuteOptions options) {
+		if (options == null) {
+			return false;
+		}
+		if (options.parallelProjections == null) {
+			return false;
+		}
+		return options.parallelProjections;
+	}
+
+	public static ModelExecuteOptions createParallelProjections() {
+		ModelExecuteOptions opts = new ModelExecuteOptions();
+		opts.setParallelProjections(true);
+		return opts;
+	}
+
+	public ModelExecuteOptions setParallelProjections() {
+		setParallelProjections(true);
+		return this;
+	}
+
 	public ModelExecuteOptionsType toModelExecutionOptionsType() {
         ModelExecuteOptionsType retval = new ModelExecuteOptionsType();
         retval.setForce(force);
@@ -551,6 +586,7 @@ public class ModelExecuteOptions extends AbstractOptions implements Serializable
 		// preAuthorized is purposefully omitted (security reasons)
 		retval.setRequestBusinessContext(requestBusinessContext);
 		retval.setPartialProcessing(partialProcessing);
+		retval.setParallelProjections(parallelProjections);
         return retval;
     }
 
@@ -572,6 +608,7 @@ public class ModelExecuteOptions extends AbstractOptions implements Serializable
 		// preAuthorized is purposefully omitted (security reasons)
 		retval.setRequestBusinessContext(type.getRequestBusinessContext());
 		retval.setPartialProcessing(type.getPartialProcessing());
+		retval.setParallelProjections(type.isParallelProjections());
         return retval;
     }
     
@@ -609,6 +646,9 @@ public class ModelExecuteOptions extends AbstractOptions implements Serializable
 			if (ModelExecuteOptionsType.F_REEVALUATE_SEARCH_FILTERS.getLocalPart().equals(option)){
 				retVal.setReevaluateSearchFilters(true);
 			}
+			if (ModelExecuteOptionsType.F_PARALLEL_PROJECTIONS.getLocalPart().equals(option)){
+				retVal.setParallelProjections(true);
+			}
 			// preAuthorized is purposefully omitted (security reasons)
     	}
     	
@@ -630,6 +670,7 @@ public class ModelExecuteOptions extends AbstractOptions implements Serializable
     	appendFlag(sb, "reconcileFocus", reconcileFocus);
     	appendFlag(sb, "reevaluateSearchFilters", reevaluateSearchFilters);
     	appendFlag(sb, "reconcileAffected", reconcileAffected);
+    	appendFlag(sb, "parallelProjections", parallelProjections);
     	appendFlag(sb, "requestBusinessContext", requestBusinessContext == null ? null : true);
     	appendVal(sb, "partialProcessing", format(partialProcessing));
     	appendVal(sb, "initialPartialProcessing", format(initialPartialProcessing));
@@ -30,6 +30,8 @@ import com.evolveum.midpoint.prism.delta.ObjectDelta;
 import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.query.ObjectPaging;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.schema.AggregationQuery;
+import com.evolveum.midpoint.schema.AggregationResult;
 import com.evolveum.midpoint.schema.GetOperationOptions;
 import com.evolveum.midpoint.schema.ObjectDeltaOperation;
 import com.evolveum.midpoint.schema.ResultHandler;
@@ -94,6 +96,7 @@ public interface ModelService {
 	static final String SEARCH_CONTAINERS = CLASS_NAME_WITH_DOT + "searchContainers";
 	static final String COUNT_CONTAINERS = CLASS_NAME_WITH_DOT + "countContainers";
 	static final String COUNT_OBJECTS = CLASS_NAME_WITH_DOT + "countObjects";
+	static final String AGGREGATE_OBJECTS = CLASS_NAME_WITH_DOT + "aggregateObjects";
 	static final String EXECUTE_CHANGES = CLASS_NAME_WITH_DOT + "executeChanges";
 	static final String EXECUTE_CHANGE = CLASS_NAME_WITH_DOT + "executeChange";
 	static final String RECOMPUTE = CLASS_NAME_WITH_DOT + "recompute";
@@ -558,6 +561,40 @@ public interface ModelService {
             Task task, OperationResult parentResult) 
             		throws SchemaException, ObjectNotFoundException, SecurityViolationException, ConfigurationException, CommunicationException, ExpressionEvaluationException;
 
+	/**
+	 * <p>
+	 * Aggregate objects.
+	 * </p>
+	 * <p>
+	 * Groups objects of a specified type that match the query and computes aggregate values (count, min, max)
+	 * for each group, e.g. number of users in each organizational unit or number of shadows in each synchronization
+	 * situation. The aggregation is done in the repository, so the objects are not retrieved. Therefore the data
+	 * stored in the repository are aggregated (e.g. for shadows, resources are not contacted). Only objects the
+	 * caller is authorized to read are taken into account.
+	 * </p>
+	 *
+	 * @param type
+	 *            (class) of an object to aggregate
+	 * @param query
+	 *            search query (selects objects to be aggregated); paging is applied to the groups
+	 * @param aggregation
+	 *            what to group by and what to compute
+	 * @param task
+	 * 			  Task instance. It gives context to the execution (e.g. security context)
+	 * @param parentResult
+	 *            parent OperationResult (in/out)
+	 * @return one result per group
+	 *
+	 * @throws SchemaException
+	 *             unknown property used in search or aggregation query
+	 * @throws SecurityViolationException
+	 * 				Security violation during operation execution.
+	 */
+	<T extends ObjectType> SearchResultList<AggregationResult> aggregateObjects(Class<T> type, ObjectQuery query,
+			@NotNull AggregationQuery aggregation, Task task, OperationResult parentResult)
+			throws SchemaException, SecurityViolationException, ObjectNotFoundException, ExpressionEvaluationException,
+			CommunicationException, ConfigurationException;
+
 	/**
 	 * <p>
 	 * Test the resource connection and basic resource connector functionality.
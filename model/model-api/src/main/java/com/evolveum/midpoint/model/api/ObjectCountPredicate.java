@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.model.api;
+
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.query.ObjectFilter;
+import com.evolveum.midpoint.prism.query.builder.QueryBuilder;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+
+/**
+ * Predicates for which object counts are maintained by {@link ObjectStatisticsService}.
+ *
+ * Each predicate can be evaluated both as a repository filter (when the count is computed from scratch)
+ * and in memory on a single object (when the count is updated according to a change of that object).
+ */
+public enum ObjectCountPredicate {
+
+	/**
+	 * All objects of given type.
+	 */
+	ALL(ObjectType.class) {
+		@Override
+		public ObjectFilter createFilter(Class<? extends ObjectType> type, PrismContext prismContext) {
+			return null;
+		}
+
+		@Override
+		public boolean matches(PrismObject<? extends ObjectType> object) {
+			return object != null;
+		}
+	},
+
+	/**
+	 * Focal objects with effective activation status of DISABLED.
+	 */
+	DISABLED(FocusType.class) {
+		@Override
+		public ObjectFilter createFilter(Class<? extends ObjectType> type, PrismContext prismContext) {
+			return createEffectiveStatusFilter(type, ActivationStatusType.DISABLED, prismContext);
+		}
+
+		@Override
+		public boolean matches(PrismObject<? extends ObjectType> object) {
+			return hasEffectiveStatus(object, ActivationStatusType.DISABLED);
+		}
+	},
+
+	/**
+	 * Focal objects with effective activation status of ARCHIVED.
+	 */
+	ARCHIVED(FocusType.class) {
+		@Override
+		public ObjectFilter createFilter(Class<? extends ObjectType> type, PrismContext prismContext) {
+			return createEffectiveStatusFilter(type, ActivationStatusType.ARCHIVED, prismContext);
+		}
+
+		@Override
+		public boolean matches(PrismObject<? extends ObjectType> object) {
+			return hasEffectiveStatus(object, ActivationStatusType.ARCHIVED);
+		}
+	},
+
+	/**
+	 * Resources that were UP when their availability was checked for the last time.
+	 */
+	RESOURCE_UP(ResourceType.class) {
+		@Override
+		public ObjectFilter createFilter(Class<? extends ObjectType> type, PrismContext prismContext) {
+			return QueryBuilder.queryFor(ResourceType.class, prismContext)
+					.item(ResourceType.F_OPERATIONAL_STATE, OperationalStateType.F_LAST_AVAILABILITY_STATUS).eq(AvailabilityStatusType.UP)
+					.buildFilter();
+		}
+
+		@Override
+		public boolean matches(PrismObject<? extends ObjectType> object) {
+			if (object == null || !(object.asObjectable() instanceof ResourceType)) {
+				return false;
+			}
+			OperationalStateType state = ((ResourceType) object.asObjectable()).getOperationalState();
+			return state != null && state.getLastAvailabilityStatus() == AvailabilityStatusType.UP;
+		}
+	},
+
+	/**
+	 * Tasks in the RUNNABLE execution status.
+	 */
+	TASK_RUNNABLE(TaskType.class) {
+		@Override
+		public ObjectFilter createFilter(Class<? extends ObjectType> type, PrismContext prismContext) {
+			return QueryBuilder.queryFor(TaskType.class, prismContext)
+					.item(TaskType.F_EXECUTION_STATUS).eq(TaskExecutionStatusType.RUNNABLE)
+					.buildFilter();
+		}
+
+		@Override
+		public boolean matches(PrismObject<? extends ObjectType> object) {
+			return object != null && object.asObjectable() instanceof TaskType
+					&& ((TaskType) object.asObjectable()).getExecutionStatus() == TaskExecutionStatusType.RUNNABLE;
+		}
+	};
+
+	private final Class<? extends ObjectType> applicableType;
+
+	ObjectCountPredicate(Class<? extends ObjectType> applicableType) {
+		this.applicableType = applicableType;
+	}
+
+	public boolean isApplicableTo(Class<? extends ObjectType> type) {
+		return applicableType.isAssignableFrom(type);
+	}
+
+	/**
+	 * Returns the filter selecting the objects counted, or null if all objects of the type are counted.
+	 */
+	public abstract ObjectFilter createFilter(Class<? extends ObjectType> type, PrismContext prismContext);
+
+	/**
+	 * Returns true if the object (that can be null, meaning "non-existent object") is to be counted.
+	 */
+	public abstract boolean matches(PrismObject<? extends ObjectType> object);
+
+	private static ObjectFilter createEffectiveStatusFilter(Class<? extends ObjectType> type, ActivationStatusType status,
+			PrismContext prismContext) {
+		return QueryBuilder.queryFor(type, prismContext)
+				.item(FocusType.F_ACTIVATION, ActivationType.F_EFFECTIVE_STATUS).eq(status)
+				.buildFilter();
+	}
+
+	private static boolean hasEffectiveStatus(PrismObject<? extends ObjectType> object, ActivationStatusType status) {
+		if (object == null || !(object.asObjectable() instanceof FocusType)) {
+			return false;
+		}
+		ActivationType activation = ((FocusType) object.asObjectable()).getActivation();
+		return activation != null && activation.getEffectiveStatus() == status;
+	}
+}
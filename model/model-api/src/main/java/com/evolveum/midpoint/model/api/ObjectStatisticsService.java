@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.model.api;
+
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.schema.GetOperationOptions;
+import com.evolveum.midpoint.schema.SelectorOptions;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.util.exception.*;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+
+import java.util.Collection;
+
+/**
+ * Provides (possibly approximate) object counts, e.g. for dashboards and paging of object lists.
+ *
+ * Counts for selected predicates are maintained in memory. They are updated according to changes executed
+ * by the model and periodically recomputed from the repository, so they can differ from the real state
+ * for a short time (e.g. after changes done by other cluster nodes or directly in the repository).
+ * Callers that need exact numbers should ask for them explicitly.
+ *
+ * Maintained counts are used only if the principal is authorized to read all objects of given type;
+ * otherwise the counting is always done by {@link ModelService#countObjects}.
+ */
+public interface ObjectStatisticsService {
+
+	/**
+	 * Returns the number of objects of given type matching given predicate.
+	 *
+	 * @param exact if true, the objects are always counted in the repository (and the maintained count is refreshed)
+	 */
+	<T extends ObjectType> int countObjects(Class<T> type, ObjectCountPredicate predicate, boolean exact, Task task,
+			OperationResult parentResult)
+			throws SchemaException, ObjectNotFoundException, SecurityViolationException, ConfigurationException,
+			CommunicationException, ExpressionEvaluationException;
+
+	/**
+	 * Counts objects like {@link ModelService#countObjects}. If exact count is not required and the query
+	 * corresponds to a maintained count, that count is returned instead of querying the repository.
+	 */
+	<T extends ObjectType> Integer countObjects(Class<T> type, ObjectQuery query,
+			Collection<SelectorOptions<GetOperationOptions>> options, boolean exact, Task task, OperationResult parentResult)
+			throws SchemaException, ObjectNotFoundException, SecurityViolationException, ConfigurationException,
+			CommunicationException, ExpressionEvaluationException;
+
+	/**
+	 * Recomputes all maintained counts from the repository.
+	 */
+	void reconcile(OperationResult parentResult);
+}
@@ -84,6 +84,7 @@ public class MappingTestEvaluator {
     
     private PrismContext prismContext;
     private MappingFactory mappingFactory;
+    private ExpressionFactory expressionFactory;
     ProtectorImpl protector;
     
     public PrismContext getPrismContext() {
@@ -97,7 +98,7 @@ public class MappingTestEvaluator {
     	prismContext = PrismTestUtil.createInitializedPrismContext();
     	ObjectResolver resolver = new DirectoryFileObjectResolver(MidPointTestConstants.OBJECTS_DIR);
     	protector = ExpressionTestUtil.createInitializedProtector(prismContext);
-    	ExpressionFactory expressionFactory = ExpressionTestUtil.createInitializedExpressionFactory(resolver, protector, prismContext, null);
+    	expressionFactory = ExpressionTestUtil.createInitializedExpressionFactory(resolver, protector, prismContext, null);
     	
         mappingFactory = new MappingFactory();
         mappingFactory.setExpressionFactory(expressionFactory);
@@ -108,6 +109,10 @@ public class MappingTestEvaluator {
         mappingFactory.setProtector(protector);
     }
 	
+	public ExpressionFactory getExpressionFactory() {
+		return expressionFactory;
+	}
+
 	public ProtectorImpl getProtector() {
 		return protector;
 	}
@@ -51,6 +51,7 @@ import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.prism.util.PrismAsserts;
 import com.evolveum.midpoint.prism.util.PrismTestUtil;
+import com.evolveum.midpoint.repo.common.expression.ExpressionFactory;
 import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
 import com.evolveum.midpoint.schema.constants.SchemaConstants;
 import com.evolveum.midpoint.schema.result.OperationResult;
@@ -433,6 +434,39 @@ public class TestMappingDynamicSimple {
     	PrismAsserts.assertTripleNoMinus(outputTriple);    	
     }
     
+    /**
+     * The expression of the second (equal) mapping should be taken from the expression factory cache.
+     */
+    @Test
+    public void testScriptSimpleGroovyCompileTime() throws Exception {
+    	final String TEST_NAME = "testScriptSimpleGroovyCompileTime";
+    	// GIVEN
+    	ExpressionFactory expressionFactory = evaluator.getExpressionFactory();
+    	expressionFactory.clearCache();
+    	ObjectDelta<UserType> userDelta = ObjectDelta.createModificationAddProperty(UserType.class,
+    			MappingTestEvaluator.USER_OLD_OID, UserType.F_EMPLOYEE_TYPE, evaluator.getPrismContext(), "CAPTAIN");
+    	Mapping<PrismPropertyValue<String>, PrismPropertyDefinition<String>> mapping1 = evaluator.createMapping(
+    			"mapping-script-simple-groovy.xml", TEST_NAME, "employeeType", userDelta);
+    	Mapping<PrismPropertyValue<String>, PrismPropertyDefinition<String>> mapping2 = evaluator.createMapping(
+    			"mapping-script-simple-groovy.xml", TEST_NAME, "employeeType", userDelta);
+
+    	// WHEN
+    	OperationResult result = new OperationResult(TEST_NAME);
+    	mapping1.evaluate(null, result);
+    	long missesAfterFirst = expressionFactory.getCacheMisses();
+    	long hitsAfterFirst = expressionFactory.getCacheHits();
+    	mapping2.evaluate(null, result);
+
+    	// THEN
+    	evaluator.assertResult(result);
+    	PrismAsserts.assertTripleZero(mapping2.getOutputTriple(), "fooBAR");
+    	assertTrue("No expression was parsed", missesAfterFirst > 0);
+    	assertEquals("Expression was parsed again", missesAfterFirst, expressionFactory.getCacheMisses());
+    	assertTrue("Parsed expression was not reused", expressionFactory.getCacheHits() > hitsAfterFirst);
+    	assertTrue("No compile time measured", mapping1.getCompileTimeNanos() > 0);
+    	assertTrue("Compile time exceeds evaluation time", mapping1.getCompileTime() <= mapping1.getEtime());
+    }
+
     @Test
     public void testScriptVariablesXPath() throws Exception {
     	// WHEN
@@ -18,33 +18,53 @@ package com.evolveum.midpoint.model.impl.cleanup;
 
 import com.evolveum.midpoint.audit.api.AuditService;
 import com.evolveum.midpoint.model.api.ModelPublicConstants;
+import com.evolveum.midpoint.prism.PrismContainerValue;
 import com.evolveum.midpoint.prism.PrismContext;
 import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.delta.ItemDelta;
+import com.evolveum.midpoint.prism.delta.builder.DeltaBuilder;
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.prism.query.builder.QueryBuilder;
+import com.evolveum.midpoint.prism.util.CloneUtil;
+import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
 import com.evolveum.midpoint.repo.api.RepositoryService;
 import com.evolveum.midpoint.report.api.ReportManager;
 import com.evolveum.midpoint.schema.constants.SchemaConstants;
 import com.evolveum.midpoint.schema.result.OperationConstants;
 import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.result.OperationResultStatus;
+import com.evolveum.midpoint.schema.util.CleanupPolicyUtil;
 import com.evolveum.midpoint.task.api.Task;
 import com.evolveum.midpoint.task.api.TaskCategory;
 import com.evolveum.midpoint.task.api.TaskHandler;
 import com.evolveum.midpoint.task.api.TaskManager;
 import com.evolveum.midpoint.task.api.TaskRunResult;
 import com.evolveum.midpoint.task.api.TaskRunResult.TaskRunResultStatus;
+import com.evolveum.midpoint.util.ParallelBatchProcessor;
+import com.evolveum.midpoint.util.exception.ObjectAlreadyExistsException;
 import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AccessCertificationCampaignStateType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AccessCertificationCampaignType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.CleanupPoliciesType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.CleanupPolicyType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.OperationExecutionType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.SystemConfigurationType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.SystemObjectsType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import javax.xml.datatype.XMLGregorianCalendar;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 @Component
 public class CleanUpTaskHandler implements TaskHandler {
@@ -61,6 +81,11 @@ public class CleanUpTaskHandler implements TaskHandler {
 	
 	private static final transient Trace LOGGER = TraceManager.getTrace(CleanUpTaskHandler.class);
 
+	private static final String CLEANUP_CLOSED_CAMPAIGNS = CleanUpTaskHandler.class.getName() + ".cleanupClosedCampaigns";
+	private static final String CLEANUP_OPERATION_EXECUTIONS = CleanUpTaskHandler.class.getName() + ".cleanupOperationExecutions";
+
+	private static final int DEFAULT_BATCH_SIZE = 100;
+
 	@PostConstruct
 	private void initialize() {
 		taskManager.registerHandler(HANDLER_URI, this);
@@ -120,7 +145,7 @@ public class CleanUpTaskHandler implements TaskHandler {
 		CleanupPolicyType auditCleanupPolicy = cleanupPolicies.getAuditRecords();
 		if (auditCleanupPolicy != null) {
 			try {
-				auditService.cleanupAudit(auditCleanupPolicy, opResult);
+				auditService.cleanupAudit(auditCleanupPolicy, task, opResult);
 			} catch (Exception ex) {
 				LOGGER.error("Cleanup: {}", ex.getMessage(), ex);
 				opResult.recordFatalError(ex.getMessage(), ex);
@@ -163,6 +188,34 @@ public class CleanUpTaskHandler implements TaskHandler {
 		} else{
 			LOGGER.trace("Cleanup: No clean up policy for report specified. Finishing clean up task.");
 		}
+		CleanupPolicyType closedCampaignsPolicy = cleanupPolicies.getClosedCertificationCampaigns();
+		if (closedCampaignsPolicy != null) {
+			try {
+				cleanupClosedCampaigns(closedCampaignsPolicy, task, opResult);
+			} catch (Exception ex) {
+				LOGGER.error("Cleanup: {}", ex.getMessage(), ex);
+				opResult.recordFatalError(ex.getMessage(), ex);
+				runResult.setRunResultStatus(TaskRunResultStatus.PERMANENT_ERROR);
+				runResult.setProgress(progress);
+			}
+		} else {
+			LOGGER.trace("Cleanup: No clean up policy for closed certification campaigns specified.");
+		}
+
+		CleanupPolicyType objectResultsPolicy = cleanupPolicies.getObjectResults();
+		if (objectResultsPolicy != null && objectResultsPolicy.getMaxAge() != null) {
+			try {
+				cleanupOperationExecutions(objectResultsPolicy, task, opResult);
+			} catch (Exception ex) {
+				LOGGER.error("Cleanup: {}", ex.getMessage(), ex);
+				opResult.recordFatalError(ex.getMessage(), ex);
+				runResult.setRunResultStatus(TaskRunResultStatus.PERMANENT_ERROR);
+				runResult.setProgress(progress);
+			}
+		} else {
+			LOGGER.trace("Cleanup: No max age for object results (operation executions) specified.");
+		}
+
 		opResult.computeStatus();
 		// This "run" is finished. But the task goes on ...
 		runResult.setRunResultStatus(TaskRunResultStatus.FINISHED);
@@ -171,6 +224,139 @@ public class CleanUpTaskHandler implements TaskHandler {
 		return runResult;
 	}
 
+	/**
+	 * Deletes closed campaigns (with their cases) that ended before maxAge. There are usually not many campaigns,
+	 * so only the state is used in the query and the end timestamp is checked here.
+	 */
+	private void cleanupClosedCampaigns(CleanupPolicyType policy, Task task, OperationResult parentResult)
+			throws SchemaException, InterruptedException {
+		OperationResult result = parentResult.createSubresult(CLEANUP_CLOSED_CAMPAIGNS);
+		Date deleteUpTo = CleanupPolicyUtil.getDeleteUpTo(policy);
+		if (deleteUpTo == null) {
+			result.recordNotApplicableIfUnknown();
+			return;
+		}
+		LOGGER.info("Starting cleanup of closed certification campaigns that ended before {}", deleteUpTo);
+		Queue<OperationResult> batchResults = new ConcurrentLinkedQueue<>();
+		ParallelBatchProcessor<String> processor = CleanupPolicyUtil.createBatchProcessor("CampaignCleanup", policy,
+				DEFAULT_BATCH_SIZE, task::canRun, oids -> {
+					OperationResult batchResult = new OperationResult(CLEANUP_CLOSED_CAMPAIGNS + ".batch");
+					int deleted = 0;
+					for (String oid : oids) {
+						try {
+							repositoryService.deleteObject(AccessCertificationCampaignType.class, oid, batchResult);
+							deleted++;
+						} catch (ObjectNotFoundException e) {
+							LOGGER.trace("Campaign {} was already deleted", oid);
+						}
+					}
+					batchResult.computeStatusIfUnknown();
+					batchResults.add(batchResult);
+					return deleted;
+				});
+		ObjectQuery query = QueryBuilder.queryFor(AccessCertificationCampaignType.class, prismContext)
+				.item(AccessCertificationCampaignType.F_STATE).eq(AccessCertificationCampaignStateType.CLOSED)
+				.build();
+		try {
+			repositoryService.searchObjectsIterative(AccessCertificationCampaignType.class, query, (campaign, searchResult) -> {
+				XMLGregorianCalendar end = campaign.asObjectable().getEndTimestamp();
+				return end == null || XmlTypeConverter.toMillis(end) >= deleteUpTo.getTime() || addToProcessor(processor, campaign.getOid());
+			}, null, true, result);
+		} finally {
+			ParallelBatchProcessor.Statistics statistics = processor.finish();
+			mergeBatchResults(batchResults, result);
+			recordStatistics(statistics, "closed certification campaign(s)", result);
+		}
+	}
+
+	/**
+	 * Deletes operation execution records older than maxAge from all objects. (Records are trimmed also when a new one
+	 * is stored, but objects that are not modified any more would keep their old records forever.)
+	 */
+	private void cleanupOperationExecutions(CleanupPolicyType policy, Task task, OperationResult parentResult)
+			throws SchemaException, InterruptedException {
+		OperationResult result = parentResult.createSubresult(CLEANUP_OPERATION_EXECUTIONS);
+		Date deleteUpTo = CleanupPolicyUtil.getDeleteUpTo(policy);
+		XMLGregorianCalendar deleteUpToXml = XmlTypeConverter.createXMLGregorianCalendar(deleteUpTo.getTime());
+		LOGGER.info("Starting cleanup of operation executions older than {}", deleteUpTo);
+		Queue<OperationResult> batchResults = new ConcurrentLinkedQueue<>();
+		ParallelBatchProcessor<PrismObject<ObjectType>> processor = CleanupPolicyUtil.createBatchProcessor(
+				"OperationExecutionCleanup", policy, DEFAULT_BATCH_SIZE, task::canRun, objects -> {
+					OperationResult batchResult = new OperationResult(CLEANUP_OPERATION_EXECUTIONS + ".batch");
+					int deleted = 0;
+					for (PrismObject<ObjectType> object : objects) {
+						deleted += deleteOperationExecutions(object, deleteUpTo.getTime(), batchResult);
+					}
+					batchResult.computeStatusIfUnknown();
+					batchResults.add(batchResult);
+					return deleted;
+				});
+		ObjectQuery query = QueryBuilder.queryFor(ObjectType.class, prismContext)
+				.item(ObjectType.F_OPERATION_EXECUTION, OperationExecutionType.F_TIMESTAMP).lt(deleteUpToXml)
+				.build();
+		try {
+			repositoryService.searchObjectsIterative(ObjectType.class, query,
+					(object, searchResult) -> addToProcessor(processor, object), null, true, result);
+		} finally {
+			ParallelBatchProcessor.Statistics statistics = processor.finish();
+			mergeBatchResults(batchResults, result);
+			recordStatistics(statistics, "operation execution record(s)", result);
+		}
+	}
+
+	private int deleteOperationExecutions(PrismObject<ObjectType> object, long deleteUpTo, OperationResult result)
+			throws SchemaException, ObjectAlreadyExistsException {
+		List<OperationExecutionType> executionsToDelete = new ArrayList<>();
+		for (OperationExecutionType execution : object.asObjectable().getOperationExecution()) {
+			if (execution.getTimestamp() != null && XmlTypeConverter.toMillis(execution.getTimestamp()) < deleteUpTo) {
+				executionsToDelete.add(execution);
+			}
+		}
+		if (executionsToDelete.isEmpty()) {
+			return 0;
+		}
+		List<ItemDelta<?, ?>> deltas = DeltaBuilder.deltaFor(object.getCompileTimeClass(), prismContext)
+				.item(ObjectType.F_OPERATION_EXECUTION)
+				.delete(PrismContainerValue.toPcvList(CloneUtil.cloneCollectionMembers(executionsToDelete)))
+				.asItemDeltas();
+		try {
+			repositoryService.modifyObject(object.getCompileTimeClass(), object.getOid(), deltas, result);
+		} catch (ObjectNotFoundException e) {
+			LOGGER.trace("Object {} was deleted in the meanwhile", object);
+			return 0;
+		}
+		return executionsToDelete.size();
+	}
+
+	private <T> boolean addToProcessor(ParallelBatchProcessor<T> processor, T item) {
+		try {
+			return processor.add(item);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	// called after the processor has finished, so no worker thread touches the results any more
+	private void mergeBatchResults(Queue<OperationResult> batchResults, OperationResult result) {
+		for (OperationResult batchResult : batchResults) {
+			result.addSubresult(batchResult);
+		}
+	}
+
+	private void recordStatistics(ParallelBatchProcessor.Statistics statistics, String what, OperationResult result) {
+		LOGGER.info("Cleanup of {}: {}", what, statistics);
+		if (statistics.getFailedBatches() > 0) {
+			result.recordPartialError("Deleted " + statistics.getProcessed() + " " + what + ", but "
+					+ statistics.getFailedItems() + " item(s) couldn't be processed", statistics.getLastFailure());
+		} else if (statistics.getStopReason() != null) {
+			result.recordWarning("Deleted " + statistics.getProcessed() + " " + what + "; interrupted ("
+					+ statistics.getStopReason() + ")");
+		} else {
+			result.recordStatus(OperationResultStatus.SUCCESS, "Deleted " + statistics.getProcessed() + " " + what);
+		}
+	}
+
 	@Override
 	public Long heartbeat(Task task) {
 		// TODO Auto-generated method stub
@@ -95,7 +95,7 @@ public class AuditController implements ModelAuditService {
 	@Override
 	public void cleanupAudit(CleanupPolicyType policy, OperationResult parentResult) throws SecurityViolationException, SchemaException {
 		authorize(ModelAuthorizationAction.AUDIT_MANAGE, parentResult);
-		auditService.cleanupAudit(policy, parentResult);
+		auditService.cleanupAudit(policy, null, parentResult);
 	}
 	
 	/* (non-Javadoc)
@@ -31,6 +31,7 @@ import com.evolveum.midpoint.model.impl.lens.*;
 import com.evolveum.midpoint.model.impl.lens.projector.Projector;
 import com.evolveum.midpoint.model.impl.scripting.ExecutionContext;
 import com.evolveum.midpoint.model.impl.scripting.ScriptingExpressionEvaluator;
+import com.evolveum.midpoint.model.impl.trigger.TriggerTimer;
 import com.evolveum.midpoint.model.impl.util.Utils;
 import com.evolveum.midpoint.prism.*;
 import com.evolveum.midpoint.prism.crypto.Protector;
@@ -38,9 +39,6 @@ import com.evolveum.midpoint.prism.delta.ChangeType;
 import com.evolveum.midpoint.prism.delta.DiffUtil;
 import com.evolveum.midpoint.prism.delta.ObjectDelta;
 import com.evolveum.midpoint.prism.path.ItemPath;
-import com.evolveum.midpoint.prism.path.ItemPathSegment;
-import com.evolveum.midpoint.prism.path.NameItemPathSegment;
-import com.evolveum.midpoint.prism.path.ParentPathSegment;
 import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.prism.query.*;
 import com.evolveum.midpoint.prism.query.builder.QueryBuilder;
@@ -60,6 +58,7 @@ import com.evolveum.midpoint.schema.util.ObjectQueryUtil;
 import com.evolveum.midpoint.schema.util.ObjectTypeUtil;
 import com.evolveum.midpoint.schema.util.ShadowUtil;
 import com.evolveum.midpoint.security.api.AuthorizationConstants;
+import com.evolveum.midpoint.security.api.ObjectSecurityConstraints;
 import com.evolveum.midpoint.security.api.SecurityEnforcer;
 import com.evolveum.midpoint.security.api.SecurityUtil;
 import com.evolveum.midpoint.security.api.UserProfileService;
@@ -184,11 +183,17 @@ public class ModelController implements ModelService, TaskService, WorkflowServi
 	@Autowired(required = true)
 	private ModelDiagController modelDiagController;
 
+	@Autowired(required = true)
+	private TriggerTimer triggerTimer;
+
 	@Autowired(required = true)
 	private ContextFactory contextFactory;
 
 	@Autowired(required = true)
 	private SchemaTransformer schemaTransformer;
+
+	@Autowired(required = true)
+	private ReferenceResolver referenceResolver;
 	
 	@Autowired(required = true)
 	private ObjectMerger objectMerger;
@@ -253,7 +258,7 @@ public class ModelController implements ModelService, TaskService, WorkflowServi
 
             object = object.cloneIfImmutable();
             schemaTransformer.applySchemasAndSecurity(object, rootOptions, options, null, task, result);
-			resolve(object, options, task, result);
+			referenceResolver.resolve(object, options, task, result);
 
 		} catch (SchemaException | CommunicationException | ConfigurationException | SecurityViolationException | ExpressionEvaluationException | RuntimeException | Error e) {
 			ModelUtils.recordFatalError(result, e);
@@ -275,90 +280,6 @@ public class ModelController implements ModelService, TaskService, WorkflowServi
 		return object;
 	}
 
-	private void resolve(PrismObject<?> object, Collection<SelectorOptions<GetOperationOptions>> options,
-			Task task, OperationResult result) throws SchemaException, ObjectNotFoundException, SecurityViolationException, ConfigurationException {
-		if (object == null) {
-			return;
-		}
-		resolve(object.asObjectable(), options, task, result);
-	}
-
-	private void resolve(Containerable containerable, Collection<SelectorOptions<GetOperationOptions>> options,
-			Task task, OperationResult result) throws SchemaException, ObjectNotFoundException, SecurityViolationException, ConfigurationException {
-		if (containerable == null || options == null) {
-			return;
-		}
-		for (SelectorOptions<GetOperationOptions> option: options) {
-			try {
-				resolve(containerable, option, task, result);
-			} catch (ObjectNotFoundException ex) {
-				result.recordWarning(ex.getMessage(), ex);
-			}
-		}
-	}
-
-    private void resolve(Containerable object, SelectorOptions<GetOperationOptions> option, Task task, OperationResult result) throws SchemaException, ObjectNotFoundException, SecurityViolationException, ConfigurationException {
-		if (!GetOperationOptions.isResolve(option.getOptions())) {
-			return;
-		}
-		ObjectSelector selector = option.getSelector();
-		if (selector == null) {
-			return;
-		}
-		ItemPath path = selector.getPath();
-		ItemPath.checkNoSpecialSymbolsExceptParent(path);
-		resolve(object, path, option, task, result);
-	}
-
-	// TODO clean this mess
-	private <O extends ObjectType> void resolve(Containerable containerable, ItemPath path, SelectorOptions<GetOperationOptions> option, Task task, OperationResult result) throws SchemaException, ObjectNotFoundException, SecurityViolationException, ConfigurationException {
-		if (path == null || path.isEmpty()) {
-			return;
-		}
-		ItemPathSegment first = path.first();
-		ItemPath rest = path.rest();
-		PrismContainerValue<?> containerValue = containerable.asPrismContainerValue();
-		if (first instanceof NameItemPathSegment) {
-			QName refName = ItemPath.getName(first);
-			PrismReference reference = containerValue.findReferenceByCompositeObjectElementName(refName);
-			if (reference == null) {
-				reference = containerValue.findReference(refName);	// alternatively look up by reference name (e.g. linkRef)
-			}
-			if (reference != null) {
-				for (PrismReferenceValue refVal : reference.getValues()) {
-					PrismObject<O> refObject = refVal.getObject();
-					if (refObject == null) {
-						refObject = objectResolver.resolve(refVal, containerable.toString(), option.getOptions(), task, result);
-						refObject = refObject.cloneIfImmutable();
-						schemaTransformer.applySchemasAndSecurity(refObject, option.getOptions(), SelectorOptions.createCollection(option.getOptions()), null, task, result);
-						refVal.setObject(refObject);
-					}
-					if (!rest.isEmpty()) {
-						resolve(refObject.asObjectable(), rest, option, task, result);
-					}
-				}
-				return;
-			}
-		}
-		if (rest.isEmpty()) {
-			return;
-		}
-		if (first instanceof ParentPathSegment) {
-			PrismContainerValue<?> parent = containerValue.getParentContainerValue();
-			if (parent != null) {
-				resolve(parent.asContainerable(), rest, option, task, result);
-			}
-		} else {
-			QName nextName = ItemPath.getName(first);
-			PrismContainer<?> nextContainer = containerValue.findContainer(nextName);
-			if (nextContainer != null) {
-				for (PrismContainerValue<?> pcv : nextContainer.getValues()) {
-					resolve(pcv.asContainerable(), rest, option, task, result);
-				}
-			}
-		}
-	}
-
     @Override
     public Collection<ObjectDeltaOperation<? extends ObjectType>> executeChanges(final Collection<ObjectDelta<? extends ObjectType>> deltas, ModelExecuteOptions options,
 		    Task task, OperationResult parentResult) throws ObjectAlreadyExistsException, ObjectNotFoundException,
@@ -831,14 +752,14 @@ public class ModelController implements ModelService, TaskService, WorkflowServi
 				list = new SearchResultList<>(new ArrayList<PrismObject<T>>());
 			}
 
-            for (PrismObject<T> object : list) {
-                if (hookRegistry != null) {
+            if (hookRegistry != null) {
+                for (PrismObject<T> object : list) {
                     for (ReadHook hook : hookRegistry.getAllReadHooks()) {
                         hook.invoke(object, options, task, result);
                     }
                 }
-				resolve(object, options, task, result);
             }
+            referenceResolver.resolveInObjects(list, options, task, result);
 
 			// postprocessing objects that weren't handled by their correct provider (e.g. searching for ObjectType, and retrieving tasks, resources, shadows)
 			// currently only resources and shadows are handled in this way
@@ -943,10 +864,8 @@ public class ModelController implements ModelService, TaskService, WorkflowServi
 				list = new SearchResultList<>(new ArrayList<>());
 			}
 
-			for (T object : list) {
-				// TODO implement read hook, if necessary
-				resolve(object, options, task, result);
-			}
+			// TODO implement read hook, if necessary
+			referenceResolver.resolve(list, options, task, result);
 		} finally {
 			RepositoryCache.exit();
 		}
@@ -1106,7 +1025,7 @@ public class ModelController implements ModelService, TaskService, WorkflowServi
 				if (workflowManager != null && TaskType.class.isAssignableFrom(type) && !GetOperationOptions.isRaw(rootOptions) && !GetOperationOptions.isNoFetch(rootOptions)) {
 					workflowManager.augmentTaskObject(object, options, task, result);
 				}
-				resolve(object, options, task, result);
+				referenceResolver.resolve(object, options, task, result);
 				schemaTransformer.applySchemasAndSecurity(object, rootOptions, options, null, task, parentResult1);
 			} catch (SchemaException | ObjectNotFoundException | SecurityViolationException
 					| CommunicationException | ConfigurationException ex) {
@@ -1203,6 +1122,41 @@ public class ModelController implements ModelService, TaskService, WorkflowServi
 		return count;
         
 	}
+
+	@Override
+	public <T extends ObjectType> SearchResultList<AggregationResult> aggregateObjects(Class<T> type, ObjectQuery query,
+			@NotNull AggregationQuery aggregation, Task task, OperationResult parentResult)
+			throws SchemaException, SecurityViolationException, ObjectNotFoundException, ExpressionEvaluationException,
+			CommunicationException, ConfigurationException {
+
+		OperationResult result = parentResult.createMinorSubresult(AGGREGATE_OBJECTS);
+		result.addParam(OperationResult.PARAM_QUERY, query);
+		result.addParam("aggregation", aggregation.toString());
+
+		try {
+			authorizeAggregatedItems(type, aggregation);
+		} catch (SchemaException | SecurityViolationException | RuntimeException e) {
+			ModelUtils.recordFatalError(result, e);
+			throw e;
+		}
+		query = preProcessQuerySecurity(type, query);
+		if (isFilterNone(query, result)) {
+			return new SearchResultList<>(new ArrayList<>());
+		}
+
+		SearchResultList<AggregationResult> rv;
+		try {
+			// always from the repository, regardless of the object manager: resources are not contacted here
+			rv = cacheRepositoryService.aggregateObjects(type, query, aggregation, result);
+		} catch (SchemaException | RuntimeException | Error e) {
+			ModelUtils.recordFatalError(result, e);
+			throw e;
+		}
+
+		result.computeStatus();
+		result.cleanupResult();
+		return rv;
+	}
 	
 	@Override
 	@Deprecated
@@ -1604,6 +1558,9 @@ public class ModelController implements ModelService, TaskService, WorkflowServi
 		// Initialize provisioning
 		provisioning.postInit(result);
 
+		// triggers are fired under the owner of the trigger scanner task, so the tasks must be ready
+		triggerTimer.start();
+
         if (result.isUnknown()) {
 		    result.computeStatus();
         }
@@ -1766,6 +1723,45 @@ public class ModelController implements ModelService, TaskService, WorkflowServi
 		return updateObjectQuery(origQuery, secFilter);
 	}
 
+	/**
+	 * Aggregated values are returned without any object to apply the read constraints to, so all the items used
+	 * for grouping and aggregation have to be readable. Object-specific authorizations (e.g. ones with a filter)
+	 * are not applicable to the object type in general, so they do not grant access to the items here.
+	 */
+	private <O extends ObjectType> void authorizeAggregatedItems(Class<O> objectType, AggregationQuery aggregation)
+			throws SchemaException, SecurityViolationException {
+		Set<ItemPath> paths = new LinkedHashSet<>();
+		for (AggregationQuery.AggregationItem groupBy : aggregation.getGroupBy()) {
+			paths.add(groupBy.getPath());
+		}
+		List<AggregationQuery.Aggregate> aggregates = new ArrayList<>(aggregation.getAggregates());
+		aggregation.getHaving().forEach(having -> aggregates.add(having.getAggregate()));
+		aggregation.getOrdering().forEach(ordering -> aggregates.add(ordering.getAggregate()));
+		for (AggregationQuery.Aggregate aggregate : aggregates) {
+			if (aggregate.getItem() != null) {
+				paths.add(aggregate.getItem().getPath());
+			}
+		}
+		if (paths.isEmpty()) {
+			return;
+		}
+		PrismObject<O> object = prismContext.getSchemaRegistry().findObjectDefinitionByCompileTimeClass(objectType).instantiate();
+		ObjectSecurityConstraints securityConstraints = securityEnforcer.compileSecurityConstraints(object, null);
+		AuthorizationDecisionType objectDecision = securityConstraints.getActionDecision(ModelAuthorizationAction.READ.getUrl(),
+				AuthorizationPhaseType.REQUEST);
+		for (ItemPath path : paths) {
+			AuthorizationDecisionType decision = securityConstraints.findItemDecision(path,
+					ModelAuthorizationAction.READ.getUrl(), AuthorizationPhaseType.REQUEST);
+			if (decision == null) {
+				decision = objectDecision;
+			}
+			if (decision != AuthorizationDecisionType.ALLOW) {
+				throw new SecurityViolationException("Not authorized to read " + path + " of " + objectType.getSimpleName()
+						+ " (needed for aggregation)");
+			}
+		}
+	}
+
 	// we expect that objectType is a direct parent of containerType
 	private <C extends Containerable, O extends ObjectType>
 	ObjectQuery preProcessSubobjectQuerySecurity(Class<C> containerType, Class<O> objectType, ObjectQuery origQuery) throws SchemaException {
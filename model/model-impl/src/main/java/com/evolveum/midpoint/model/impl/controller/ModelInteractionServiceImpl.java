@@ -122,6 +122,7 @@ public class ModelInteractionServiceImpl implements ModelInteractionService {
 	@Qualifier("cacheRepositoryService")
 	private transient RepositoryService cacheRepositoryService;
 	@Autowired private SystemObjectCache systemObjectCache;
+	@Autowired private RoleCache roleCache;
 	@Autowired private ValuePolicyProcessor policyProcessor;
 	@Autowired private Protector protector;
 	@Autowired private PrismContext prismContext;
@@ -1265,6 +1266,7 @@ public class ModelInteractionServiceImpl implements ModelInteractionService {
 						.channel(null)
 						.objectResolver(objectResolver)
 						.systemObjectCache(systemObjectCache)
+						.roleCache(roleCache)
 						.prismContext(prismContext)
 						.mappingFactory(mappingFactory)
 						.mappingEvaluator(mappingEvaluator)
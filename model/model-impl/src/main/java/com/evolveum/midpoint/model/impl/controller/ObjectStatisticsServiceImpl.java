@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.model.impl.controller;
+
+import com.evolveum.midpoint.model.api.ModelAuthorizationAction;
+import com.evolveum.midpoint.model.api.ModelService;
+import com.evolveum.midpoint.model.api.ObjectCountPredicate;
+import com.evolveum.midpoint.model.api.ObjectStatisticsService;
+import com.evolveum.midpoint.model.api.context.ModelContext;
+import com.evolveum.midpoint.model.api.context.ModelElementContext;
+import com.evolveum.midpoint.model.api.context.ModelState;
+import com.evolveum.midpoint.model.api.hooks.ChangeHook;
+import com.evolveum.midpoint.model.api.hooks.HookOperationMode;
+import com.evolveum.midpoint.model.api.hooks.HookRegistry;
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.query.AllFilter;
+import com.evolveum.midpoint.prism.query.ObjectFilter;
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.repo.api.RepositoryService;
+import com.evolveum.midpoint.schema.GetOperationOptions;
+import com.evolveum.midpoint.schema.SelectorOptions;
+import com.evolveum.midpoint.schema.constants.ObjectTypes;
+import com.evolveum.midpoint.schema.constants.SchemaConstants;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.security.api.SecurityEnforcer;
+import com.evolveum.midpoint.task.api.ClusterEvent;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.task.api.TaskManager;
+import com.evolveum.midpoint.util.exception.*;
+import com.evolveum.midpoint.util.logging.LoggingUtils;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.TaskType;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.xml.namespace.QName;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Maintains object counts for dashboards and object lists.
+ *
+ * A count is computed from the repository when it is first requested. Then it is updated incrementally
+ * according to focus changes executed by the clockwork (this class is a change hook) and recomputed
+ * when it gets older than the maximal age. Changes executed by the clockwork on other nodes are announced
+ * by cluster events; the counts of the changed type are then dropped, so they are recomputed on the next
+ * request. Changes done outside of the clockwork (raw changes, task state changes done by the task manager,
+ * resource availability updates done by the provisioning) are reflected only after the recomputation;
+ * that is why the counts related to tasks and resource availability are recomputed more often.
+ *
+ * Concurrent updates during the recomputation can be lost or counted twice. This is acceptable, as
+ * the counts are approximate by definition and the error is corrected by the next recomputation.
+ */
+@Component("objectStatisticsService")
+public class ObjectStatisticsServiceImpl implements ObjectStatisticsService, ChangeHook {
+
+	private static final Trace LOGGER = TraceManager.getTrace(ObjectStatisticsServiceImpl.class);
+
+	private static final String DOT_CLASS = ObjectStatisticsServiceImpl.class.getName() + ".";
+	private static final String OPERATION_COUNT_OBJECTS = DOT_CLASS + "countObjects";
+	private static final String OPERATION_RECONCILE = DOT_CLASS + "reconcile";
+
+	public static final String HOOK_URI = "http://midpoint.evolveum.com/model/object-statistics-hook-1";
+
+	private static final long DEFAULT_MAX_AGE = 300000L;			// 5 minutes
+	private static final long VOLATILE_MAX_AGE = 30000L;			// for counts that change mostly outside the clockwork
+
+	@Autowired private HookRegistry hookRegistry;
+	@Autowired private ModelService modelService;
+	@Autowired private SecurityEnforcer securityEnforcer;
+	@Autowired private PrismContext prismContext;
+	@Autowired private TaskManager taskManager;
+
+	@Autowired
+	@Qualifier("cacheRepositoryService")
+	private RepositoryService repositoryService;
+
+	private final Map<CounterKey, Counter> counters = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	public void init() {
+		hookRegistry.registerChangeHook(HOOK_URI, this);
+		taskManager.registerClusterEventListener(this::onClusterEvent);
+	}
+
+	@Override
+	public <T extends ObjectType> int countObjects(Class<T> type, ObjectCountPredicate predicate, boolean exact, Task task,
+			OperationResult parentResult)
+			throws SchemaException, ObjectNotFoundException, SecurityViolationException, ConfigurationException,
+			CommunicationException, ExpressionEvaluationException {
+		if (!predicate.isApplicableTo(type)) {
+			throw new IllegalArgumentException("Predicate " + predicate + " is not applicable to " + type.getSimpleName());
+		}
+		if (!isMaintained(type) || !canReadAll(type)) {
+			ObjectQuery query = ObjectQuery.createObjectQuery(predicate.createFilter(type, prismContext));
+			Integer count = modelService.countObjects(type, query, null, task, parentResult);
+			return count != null ? count : 0;
+		}
+		OperationResult result = parentResult.createMinorSubresult(OPERATION_COUNT_OBJECTS);
+		result.addParam("type", type.getSimpleName());
+		result.addParam("predicate", predicate.toString());
+		try {
+			return getCount(new CounterKey(type, predicate), exact, result);
+		} catch (Throwable t) {
+			result.recordFatalError(t);
+			throw t;
+		} finally {
+			result.computeStatusIfUnknown();
+		}
+	}
+
+	@Override
+	public <T extends ObjectType> Integer countObjects(Class<T> type, ObjectQuery query,
+			Collection<SelectorOptions<GetOperationOptions>> options, boolean exact, Task task, OperationResult parentResult)
+			throws SchemaException, ObjectNotFoundException, SecurityViolationException, ConfigurationException,
+			CommunicationException, ExpressionEvaluationException {
+		if (!exact && !GetOperationOptions.isRaw(SelectorOptions.findRootOptions(options))) {
+			ObjectCountPredicate predicate = findPredicate(type, query);
+			if (predicate != null) {
+				return countObjects(type, predicate, false, task, parentResult);
+			}
+		}
+		return modelService.countObjects(type, query, options, task, parentResult);
+	}
+
+	@Override
+	public void reconcile(OperationResult parentResult) {
+		OperationResult result = parentResult.createSubresult(OPERATION_RECONCILE);
+		try {
+			for (CounterKey key : counters.keySet()) {
+				try {
+					recompute(key, result);
+				} catch (SchemaException | RuntimeException e) {
+					LoggingUtils.logUnexpectedException(LOGGER, "Couldn't recompute object count for {}", e, key);
+					result.recordPartialError("Couldn't recompute object count for " + key + ": " + e.getMessage(), e);
+				}
+			}
+		} finally {
+			result.computeStatusIfUnknown();
+		}
+	}
+
+	private <T extends ObjectType> ObjectCountPredicate findPredicate(Class<T> type, ObjectQuery query) {
+		ObjectFilter filter = query != null ? query.getFilter() : null;
+		if (filter == null) {
+			return ObjectCountPredicate.ALL;
+		}
+		for (ObjectCountPredicate predicate : ObjectCountPredicate.values()) {
+			if (predicate.isApplicableTo(type) && filter.equals(predicate.createFilter(type, prismContext))) {
+				return predicate;
+			}
+		}
+		return null;
+	}
+
+	private boolean isMaintained(Class<? extends ObjectType> type) {
+		// shadows are counted by the provisioning (it can go to the resource), generic object counts are not worth it
+		return type != ObjectType.class && !ShadowType.class.isAssignableFrom(type);
+	}
+
+	private boolean canReadAll(Class<? extends ObjectType> type) throws SchemaException {
+		ObjectFilter securityFilter = securityEnforcer.preProcessObjectFilter(ModelAuthorizationAction.READ.getUrl(), null,
+				type, null, null);
+		return securityFilter == null || securityFilter instanceof AllFilter;
+	}
+
+	private int getCount(CounterKey key, boolean exact, OperationResult result) throws SchemaException {
+		Counter counter = counters.get(key);
+		if (!exact && counter != null && System.currentTimeMillis() - counter.computedAt <= getMaxAge(key)) {
+			return counter.value.get();
+		} else {
+			return recompute(key, result);
+		}
+	}
+
+	private int recompute(CounterKey key, OperationResult result) throws SchemaException {
+		long start = System.currentTimeMillis();
+		ObjectQuery query = ObjectQuery.createObjectQuery(key.predicate.createFilter(key.type, prismContext));
+		int count = repositoryService.countObjects(key.type, query, result);
+		counters.put(key, new Counter(count, start));
+		LOGGER.trace("Recomputed object count for {}: {} (in {} ms)", key, count, System.currentTimeMillis() - start);
+		return count;
+	}
+
+	private long getMaxAge(CounterKey key) {
+		if (TaskType.class.isAssignableFrom(key.type) || key.predicate == ObjectCountPredicate.RESOURCE_UP) {
+			return VOLATILE_MAX_AGE;
+		} else {
+			return DEFAULT_MAX_AGE;
+		}
+	}
+
+	@Override
+	public <O extends ObjectType> HookOperationMode invoke(@NotNull ModelContext<O> context, @NotNull Task task,
+			@NotNull OperationResult result) {
+		if (context.getState() != ModelState.FINAL) {
+			return HookOperationMode.FOREGROUND;
+		}
+		ModelElementContext<O> focusContext = context.getFocusContext();
+		if (focusContext != null) {
+			if (!counters.isEmpty()) {
+				update(focusContext.getObjectOld(), focusContext.getObjectNew());
+			}
+			publishIfCountsChanged(focusContext.getObjectOld(), focusContext.getObjectNew());
+		}
+		return HookOperationMode.FOREGROUND;
+	}
+
+	/**
+	 * Other nodes maintain their own counters (possibly for other predicates), so they are notified
+	 * whenever any count could change, regardless of the counters present here.
+	 */
+	private void publishIfCountsChanged(PrismObject<? extends ObjectType> objectOld, PrismObject<? extends ObjectType> objectNew) {
+		PrismObject<? extends ObjectType> object = objectNew != null ? objectNew : objectOld;
+		if (object == null || object.getCompileTimeClass() == null || !isMaintained(object.getCompileTimeClass())) {
+			return;
+		}
+		Class<? extends ObjectType> objectClass = object.getCompileTimeClass();
+		for (ObjectCountPredicate predicate : ObjectCountPredicate.values()) {
+			if (predicate.isApplicableTo(objectClass) && predicate.matches(objectNew) != predicate.matches(objectOld)) {
+				taskManager.publishClusterEvent(ClusterEvent.objectChanged(objectClass, object.getOid(), null));
+				return;
+			}
+		}
+	}
+
+	/**
+	 * An object was changed on another node: the counts of its type (and supertypes) are dropped and recomputed
+	 * on the next request.
+	 */
+	void onClusterEvent(ClusterEvent event) {
+		if (event.getType() != ClusterEvent.Type.OBJECT_CHANGED || event.getObjectType() == null || counters.isEmpty()) {
+			return;
+		}
+		Class<? extends ObjectType> objectClass;
+		try {
+			ObjectTypes objectType = ObjectTypes.getObjectTypeFromTypeQName(new QName(SchemaConstants.NS_C, event.getObjectType()));
+			objectClass = objectType.getClassDefinition();
+		} catch (IllegalArgumentException e) {
+			return;		// not an object type, e.g. a cache name
+		}
+		if (counters.keySet().removeIf(key -> key.type.isAssignableFrom(objectClass))) {
+			LOGGER.trace("Dropped object counts for {} because of {}", objectClass.getSimpleName(), event);
+		}
+	}
+
+	private void update(PrismObject<? extends ObjectType> objectOld, PrismObject<? extends ObjectType> objectNew) {
+		PrismObject<? extends ObjectType> object = objectNew != null ? objectNew : objectOld;
+		if (object == null || object.getCompileTimeClass() == null) {
+			return;
+		}
+		Class<? extends ObjectType> objectClass = object.getCompileTimeClass();
+		for (Map.Entry<CounterKey, Counter> entry : counters.entrySet()) {
+			CounterKey key = entry.getKey();
+			if (!key.type.isAssignableFrom(objectClass)) {
+				continue;
+			}
+			int delta = (key.predicate.matches(objectNew) ? 1 : 0) - (key.predicate.matches(objectOld) ? 1 : 0);
+			if (delta != 0) {
+				entry.getValue().value.addAndGet(delta);
+			}
+		}
+	}
+
+	@Override
+	public void invokeOnException(@NotNull ModelContext context, @NotNull Throwable throwable, @NotNull Task task,
+			@NotNull OperationResult result) {
+		// do nothing
+	}
+
+	private static class CounterKey {
+		private final Class<? extends ObjectType> type;
+		private final ObjectCountPredicate predicate;
+
+		private CounterKey(Class<? extends ObjectType> type, ObjectCountPredicate predicate) {
+			this.type = type;
+			this.predicate = predicate;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (!(o instanceof CounterKey))
+				return false;
+			CounterKey that = (CounterKey) o;
+			return type == that.type && predicate == that.predicate;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(type, predicate);
+		}
+
+		@Override
+		public String toString() {
+			return type.getSimpleName() + "/" + predicate;
+		}
+	}
+
+	private static class Counter {
+		private final AtomicInteger value;
+		private final long computedAt;
+
+		private Counter(int value, long computedAt) {
+			this.value = new AtomicInteger(value);
+			this.computedAt = computedAt;
+		}
+	}
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.model.impl.controller;
+
+import com.evolveum.midpoint.model.api.hooks.HookRegistry;
+import com.evolveum.midpoint.model.api.hooks.ReadHook;
+import com.evolveum.midpoint.model.impl.ModelObjectResolver;
+import com.evolveum.midpoint.prism.*;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.path.ItemPathSegment;
+import com.evolveum.midpoint.prism.path.NameItemPathSegment;
+import com.evolveum.midpoint.prism.path.ParentPathSegment;
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.prism.query.builder.QueryBuilder;
+import com.evolveum.midpoint.repo.api.RepositoryService;
+import com.evolveum.midpoint.schema.GetOperationOptions;
+import com.evolveum.midpoint.schema.ObjectSelector;
+import com.evolveum.midpoint.schema.SelectorOptions;
+import com.evolveum.midpoint.schema.constants.ObjectTypes;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.util.exception.ConfigurationException;
+import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.exception.SecurityViolationException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import javax.xml.namespace.QName;
+import java.util.*;
+
+/**
+ * Resolves references as requested by "resolve" get operation options.
+ *
+ * References are processed for all the objects (or containers) at once, level by level along the option path.
+ * Targets of the same type that are stored in the repository are fetched by a single search (per type and batch),
+ * so the number of repository round-trips depends on the number of target types rather than on the number
+ * of references. Targets shared by more references are fetched only once (each reference gets its own copy).
+ * Other targets (e.g. shadows or tasks) are resolved one by one, as before.
+ */
+@Component
+public class ReferenceResolver {
+
+	private static final Trace LOGGER = TraceManager.getTrace(ReferenceResolver.class);
+
+	private static final int MAX_OIDS_IN_QUERY = 100;
+
+	@Autowired private PrismContext prismContext;
+	@Autowired private ModelObjectResolver objectResolver;
+	@Autowired private SchemaTransformer schemaTransformer;
+	@Autowired(required = false) private HookRegistry hookRegistry;
+
+	@Autowired
+	@Qualifier("cacheRepositoryService")
+	private RepositoryService cacheRepositoryService;
+
+	public void resolve(PrismObject<?> object, Collection<SelectorOptions<GetOperationOptions>> options,
+			Task task, OperationResult result) throws SchemaException, SecurityViolationException, ConfigurationException {
+		if (object == null) {
+			return;
+		}
+		resolve(Collections.singletonList(object.asObjectable()), options, task, result);
+	}
+
+	public void resolveInObjects(List<? extends PrismObject<?>> objects, Collection<SelectorOptions<GetOperationOptions>> options,
+			Task task, OperationResult result) throws SchemaException, SecurityViolationException, ConfigurationException {
+		List<Containerable> containerables = new ArrayList<>(objects.size());
+		for (PrismObject<?> object : objects) {
+			containerables.add(object.asObjectable());
+		}
+		resolve(containerables, options, task, result);
+	}
+
+	public void resolve(Collection<? extends Containerable> containerables, Collection<SelectorOptions<GetOperationOptions>> options,
+			Task task, OperationResult result) throws SchemaException, SecurityViolationException, ConfigurationException {
+		if (containerables.isEmpty() || options == null) {
+			return;
+		}
+		for (SelectorOptions<GetOperationOptions> option : options) {
+			if (!GetOperationOptions.isResolve(option.getOptions())) {
+				continue;
+			}
+			ObjectSelector selector = option.getSelector();
+			if (selector == null) {
+				continue;
+			}
+			ItemPath path = selector.getPath();
+			ItemPath.checkNoSpecialSymbolsExceptParent(path);
+			resolve(containerables, path, option, task, result);
+		}
+	}
+
+	private void resolve(Collection<? extends Containerable> containerables, ItemPath path, SelectorOptions<GetOperationOptions> option,
+			Task task, OperationResult result) throws SchemaException, SecurityViolationException, ConfigurationException {
+		if (containerables.isEmpty() || path == null || path.isEmpty()) {
+			return;
+		}
+		ItemPathSegment first = path.first();
+		ItemPath rest = path.rest();
+		List<PrismReferenceValue> referenceValues = new ArrayList<>();
+		List<Containerable> nextContainerables = new ArrayList<>();
+		for (Containerable containerable : containerables) {
+			PrismContainerValue<?> containerValue = containerable.asPrismContainerValue();
+			if (first instanceof NameItemPathSegment) {
+				QName refName = ItemPath.getName(first);
+				PrismReference reference = containerValue.findReferenceByCompositeObjectElementName(refName);
+				if (reference == null) {
+					reference = containerValue.findReference(refName);	// alternatively look up by reference name (e.g. linkRef)
+				}
+				if (reference != null) {
+					referenceValues.addAll(reference.getValues());
+					continue;
+				}
+			}
+			if (rest.isEmpty()) {
+				continue;
+			}
+			if (first instanceof ParentPathSegment) {
+				PrismContainerValue<?> parent = containerValue.getParentContainerValue();
+				if (parent != null) {
+					nextContainerables.add(parent.asContainerable());
+				}
+			} else {
+				QName nextName = ItemPath.getName(first);
+				PrismContainer<?> nextContainer = containerValue.findContainer(nextName);
+				if (nextContainer != null) {
+					for (PrismContainerValue<?> pcv : nextContainer.getValues()) {
+						nextContainerables.add(pcv.asContainerable());
+					}
+				}
+			}
+		}
+
+		resolveReferenceValues(referenceValues, option, task, result);
+
+		if (!rest.isEmpty()) {
+			for (PrismReferenceValue referenceValue : referenceValues) {
+				if (referenceValue.getObject() != null) {
+					nextContainerables.add(referenceValue.getObject().asObjectable());
+				}
+			}
+			resolve(nextContainerables, rest, option, task, result);
+		}
+	}
+
+	private void resolveReferenceValues(List<PrismReferenceValue> referenceValues, SelectorOptions<GetOperationOptions> option,
+			Task task, OperationResult result) throws SchemaException, SecurityViolationException, ConfigurationException {
+		Map<Class<? extends ObjectType>, Map<String, List<PrismReferenceValue>>> valuesToSearchFor = new LinkedHashMap<>();
+		for (PrismReferenceValue referenceValue : referenceValues) {
+			if (referenceValue.getObject() != null) {
+				continue;
+			}
+			Class<? extends ObjectType> targetClass = getTargetClass(referenceValue);
+			if (referenceValue.getOid() != null && isSearchableInRepository(targetClass)) {
+				valuesToSearchFor
+						.computeIfAbsent(targetClass, k -> new HashMap<>())
+						.computeIfAbsent(referenceValue.getOid(), k -> new ArrayList<>())
+						.add(referenceValue);
+			} else {
+				resolveIndividually(referenceValue, option, task, result);
+			}
+		}
+		for (Map.Entry<Class<? extends ObjectType>, Map<String, List<PrismReferenceValue>>> entry : valuesToSearchFor.entrySet()) {
+			resolveBySearch(entry.getKey(), entry.getValue(), option, task, result);
+		}
+	}
+
+	private <O extends ObjectType> void resolveIndividually(PrismReferenceValue referenceValue, SelectorOptions<GetOperationOptions> option,
+			Task task, OperationResult result) throws SchemaException, SecurityViolationException, ConfigurationException {
+		PrismObject<O> refObject;
+		try {
+			refObject = objectResolver.resolve(referenceValue, "reference " + referenceValue, option.getOptions(), task, result);
+		} catch (ObjectNotFoundException e) {
+			result.recordWarning(e.getMessage(), e);
+			return;
+		}
+		setObject(referenceValue, refObject, option, task, result);
+	}
+
+	private <O extends ObjectType> void resolveBySearch(Class<O> targetClass, Map<String, List<PrismReferenceValue>> valuesByOid,
+			SelectorOptions<GetOperationOptions> option, Task task, OperationResult result)
+			throws SchemaException, SecurityViolationException, ConfigurationException {
+		Collection<SelectorOptions<GetOperationOptions>> searchOptions = SelectorOptions.createCollection(option.getOptions());
+		List<String> oids = new ArrayList<>(valuesByOid.keySet());
+		LOGGER.trace("Resolving references to {} distinct {} objects", oids.size(), targetClass.getSimpleName());
+		for (int from = 0; from < oids.size(); from += MAX_OIDS_IN_QUERY) {
+			List<String> batch = oids.subList(from, Math.min(from + MAX_OIDS_IN_QUERY, oids.size()));
+			ObjectQuery query = QueryBuilder.queryFor(targetClass, prismContext)
+					.id(batch.toArray(new String[batch.size()]))
+					.build();
+			List<PrismObject<O>> objects = cacheRepositoryService.searchObjects(targetClass, query, searchOptions, result);
+			for (PrismObject<O> object : objects) {
+				List<PrismReferenceValue> valuesForObject = valuesByOid.remove(object.getOid());
+				if (valuesForObject == null) {
+					continue;
+				}
+				object = object.cloneIfImmutable();
+				if (hookRegistry != null) {
+					for (ReadHook hook : hookRegistry.getAllReadHooks()) {
+						hook.invoke(object, searchOptions, task, result);
+					}
+				}
+				PrismObject<O> resolved = setObject(valuesForObject.get(0), object, option, task, result);
+				for (int i = 1; resolved != null && i < valuesForObject.size(); i++) {
+					valuesForObject.get(i).setObject(resolved.clone());
+				}
+			}
+		}
+		for (String missingOid : valuesByOid.keySet()) {
+			result.recordWarning("Object of type " + targetClass.getSimpleName() + " with OID " + missingOid
+					+ " referenced from " + valuesByOid.get(missingOid).size() + " reference value(s) was not found");
+		}
+	}
+
+	/**
+	 * @return the object set (or null if it could not be set)
+	 */
+	private <O extends ObjectType> PrismObject<O> setObject(PrismReferenceValue referenceValue, PrismObject<O> refObject,
+			SelectorOptions<GetOperationOptions> option, Task task, OperationResult result)
+			throws SchemaException, SecurityViolationException, ConfigurationException {
+		refObject = refObject.cloneIfImmutable();
+		try {
+			schemaTransformer.applySchemasAndSecurity(refObject, option.getOptions(),
+					SelectorOptions.createCollection(option.getOptions()), null, task, result);
+		} catch (ObjectNotFoundException e) {
+			result.recordWarning(e.getMessage(), e);
+			return null;
+		}
+		referenceValue.setObject(refObject);
+		return refObject;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Class<? extends ObjectType> getTargetClass(PrismReferenceValue referenceValue) {
+		QName typeQName = referenceValue.getTargetType();
+		if (typeQName == null && referenceValue.getParent() != null && referenceValue.getParent().getDefinition() != null) {
+			PrismReferenceDefinition refDef = (PrismReferenceDefinition) referenceValue.getParent().getDefinition();
+			typeQName = refDef.getTargetTypeName();
+		}
+		if (typeQName == null) {
+			return ObjectType.class;
+		}
+		return (Class<? extends ObjectType>) prismContext.getSchemaRegistry().determineCompileTimeClass(typeQName);
+	}
+
+	/**
+	 * Objects of these types are fetched directly from the repository (i.e. there is no provisioning or task manager
+	 * post-processing), so a search returns the same objects as individual getObject calls. Generic ObjectType
+	 * is excluded, as the targets could be e.g. shadows.
+	 */
+	private boolean isSearchableInRepository(Class<? extends ObjectType> targetClass) {
+		if (targetClass == null || targetClass == ObjectType.class) {
+			return false;
+		}
+		ObjectTypes.ObjectManager manager = ObjectTypes.getObjectManagerForClass(targetClass);
+		return manager == ObjectTypes.ObjectManager.MODEL || manager == ObjectTypes.ObjectManager.REPOSITORY;
+	}
+}
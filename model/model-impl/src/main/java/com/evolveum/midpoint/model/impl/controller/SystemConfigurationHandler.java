@@ -29,7 +29,9 @@ import com.evolveum.midpoint.repo.api.RepositoryService;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.util.SystemConfigurationTypeUtil;
 import com.evolveum.midpoint.security.api.SecurityUtil;
+import com.evolveum.midpoint.task.api.ClusterEvent;
 import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.task.api.TaskManager;
 import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.util.logging.LoggingUtils;
@@ -65,7 +67,10 @@ public class SystemConfigurationHandler implements ChangeHook {
     @Autowired
     @Qualifier("cacheRepositoryService")
     private transient RepositoryService cacheRepositoryService;
-    
+
+    @Autowired
+    private TaskManager taskManager;
+
     @PostConstruct
     public void init() {
         hookRegistry.registerChangeHook(HOOK_URI, this);
@@ -115,6 +120,7 @@ public class SystemConfigurationHandler implements ChangeHook {
         try {
             if (isDeletion) {
                 LoggingConfigurationManager.resetCurrentlyUsedVersion();        // because the new config (if any) will have version number probably starting at 1 - so to be sure to read it when it comes
+                taskManager.publishClusterEvent(ClusterEvent.objectChanged(SystemConfigurationType.class, focusContext.getOid(), null));
                 LOGGER.trace("invoke() EXITING because operation is DELETION");
                 return HookOperationMode.FOREGROUND;
             }
@@ -136,6 +142,10 @@ public class SystemConfigurationHandler implements ChangeHook {
 
 			cacheRepositoryService.applyFullTextSearchConfiguration(config.asObjectable().getFullTextSearch());
             SystemConfigurationTypeUtil.applyOperationResultHandling(config.asObjectable());
+            SystemConfigurationTypeUtil.applyPolyStringNormalizerConfiguration(config.asObjectable());
+
+            // other nodes would otherwise find out only in their next cluster manager cycle
+            taskManager.publishClusterEvent(ClusterEvent.objectChanged(SystemConfigurationType.class, config.getOid(), config.getVersion()));
 
             result.recordSuccessIfUnknown();
 
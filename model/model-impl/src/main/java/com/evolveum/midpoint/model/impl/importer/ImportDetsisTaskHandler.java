@@ -128,6 +128,10 @@ public class ImportDetsisTaskHandler  implements TaskHandler{
         impOps = MiscSchemaUtil.getDefaultImportOptions();
         //impOps.setKeepOid(false);
         impOps.setOverwrite(true);
+        PrismProperty<Integer> workerThreads = task.getExtensionProperty(SchemaConstants.MODEL_EXTENSION_WORKER_THREADS);
+        if (workerThreads != null && workerThreads.getRealValue() != null) {
+            impOps.setThreads(workerThreads.getRealValue());
+        }
 		try  {
 			InputStreamReader reader = new InputStreamReader(new FileInputStream(file), "utf-8");
             stream = new ReaderInputStream(reader, reader.getEncoding());
@@ -160,7 +164,7 @@ public class ImportDetsisTaskHandler  implements TaskHandler{
     		  RepositoryCache.enter();
     		  OperationResult result = parentResult.createSubresult(IMPORT_OBJECTS_FROM_STREAM);
     	//	  result.addParam("options", options);
-    	//	 objectImporter.importObjectsNotRaw(input, options, task, result);
+    		  objectImporter.importObjectsNotRaw(input, PrismContext.LANG_XML, options, task, result);
     		  if (LOGGER.isTraceEnabled()) {
     		   LOGGER.trace("Import result:\n{}", result.debugDump());
     		  }
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.model.impl.importer;
+
+import com.evolveum.midpoint.util.logging.LoggingUtils;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes imports of objects in parallel, respecting dependencies among them.
+ *
+ * Objects are submitted by a single (reader) thread, in the order they appear in the input. An object is started
+ * only after all the objects it references by OID that were submitted before it are finished: e.g. a child org
+ * waits for its parent org (parentOrgRef), a user waits for the roles it has assigned (targetRef). References
+ * to objects submitted later are not waited for, so there can be no cycles. This is the same ordering guarantee
+ * as the sequential import gives. References without OID (resolved by a filter during the import) are not
+ * considered.
+ *
+ * The number of submitted but not finished objects is limited, so the reader cannot read the whole input
+ * into memory if the import is slower.
+ */
+class ImportPipeline {
+
+	private static final Trace LOGGER = TraceManager.getTrace(ImportPipeline.class);
+
+	private static final int MAX_IN_FLIGHT_PER_THREAD = 50;
+
+	private final int threads;
+	private final int maxInFlight;
+	private final ExecutorService executor;
+
+	// guarded by this
+	private final Map<String, Item> unfinishedByOid = new HashMap<>();
+	private int inFlight;
+	private long submitted;
+	private long finished;
+
+	// statistics
+	private final long startNanos = System.nanoTime();
+	private long readNanos;								// accessed only by the reader thread
+	private long lastSubmitNanos = startNanos;			// accessed only by the reader thread
+	private final AtomicLong waitNanos = new AtomicLong();
+	private final AtomicLong importNanos = new AtomicLong();
+	private final AtomicLong dependentObjects = new AtomicLong();
+
+	ImportPipeline(int threads) {
+		this.threads = threads;
+		this.maxInFlight = threads * MAX_IN_FLIGHT_PER_THREAD;
+		AtomicInteger threadNumber = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "import-worker-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Submits an object for import. Blocks if there are too many objects waiting.
+	 *
+	 * @param oid OID of the object (if known)
+	 * @param referencedOids OIDs of objects referenced by this object
+	 * @param action the import itself; it should record its outcome on its own, as exceptions are only logged
+	 */
+	void submit(String oid, Collection<String> referencedOids, Runnable action) throws InterruptedException {
+		long now = System.nanoTime();
+		readNanos += now - lastSubmitNanos;
+		Item item = new Item(oid, action, now);
+		synchronized (this) {
+			while (inFlight >= maxInFlight) {
+				wait();
+			}
+			inFlight++;
+			submitted++;
+			for (String referencedOid : referencedOids) {
+				addDependency(item, unfinishedByOid.get(referencedOid));
+			}
+			if (oid != null) {
+				// the same object can be present more times in the input: the last one should win
+				addDependency(item, unfinishedByOid.put(oid, item));
+			}
+			if (item.unresolved == 0) {
+				execute(item);
+			} else {
+				dependentObjects.incrementAndGet();
+				LOGGER.trace("Object {} waits for {} other object(s)", oid, item.unresolved);
+			}
+		}
+		lastSubmitNanos = System.nanoTime();
+	}
+
+	private void addDependency(Item item, Item dependency) {
+		if (dependency != null && dependency != item && dependency.dependents.add(item)) {
+			item.unresolved++;
+		}
+	}
+
+	private void execute(Item item) {
+		executor.execute(() -> run(item));
+	}
+
+	private void run(Item item) {
+		long start = System.nanoTime();
+		waitNanos.addAndGet(start - item.submittedNanos);
+		try {
+			item.action.run();
+		} catch (Throwable t) {
+			LoggingUtils.logUnexpectedException(LOGGER, "Couldn't import object {}", t, item.oid);
+		} finally {
+			importNanos.addAndGet(System.nanoTime() - start);
+			onFinished(item);
+		}
+	}
+
+	private synchronized void onFinished(Item item) {
+		if (item.oid != null && unfinishedByOid.get(item.oid) == item) {
+			unfinishedByOid.remove(item.oid);
+		}
+		for (Item dependent : item.dependents) {
+			if (--dependent.unresolved == 0) {
+				execute(dependent);
+			}
+		}
+		inFlight--;
+		finished++;
+		notifyAll();
+	}
+
+	/**
+	 * Waits until all submitted objects are imported, and stops the worker threads.
+	 */
+	void finish() throws InterruptedException {
+		try {
+			synchronized (this) {
+				while (finished < submitted) {
+					wait();
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		executor.awaitTermination(1, TimeUnit.MINUTES);
+	}
+
+	synchronized long getFinished() {
+		return finished;
+	}
+
+	/**
+	 * Throughput of the individual stages: reading (parsing and validating the input), waiting (for dependencies
+	 * and for a free thread) and importing. Reading is done by one thread, importing by all the workers.
+	 */
+	String getStatistics() {
+		long objects = getFinished();
+		long wallMillis = toMillis(System.nanoTime() - startNanos);
+		long readMillis = toMillis(readNanos);
+		long importMillis = toMillis(importNanos.get());
+		return String.format("%d objects in %d ms (%s objects/s) using %d threads; "
+						+ "reading: %d ms (%s objects/s); "
+						+ "waiting: %s ms per object, %d objects waited for objects they depend on; "
+						+ "importing: %s ms per object, %s objects/s in all threads",
+				objects, wallMillis, perSecond(objects, wallMillis), threads,
+				readMillis, perSecond(objects, readMillis),
+				average(toMillis(waitNanos.get()), objects), dependentObjects.get(),
+				average(importMillis, objects), perSecond(objects * threads, importMillis));
+	}
+
+	private static long toMillis(long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+
+	private static String perSecond(long count, long millis) {
+		return millis > 0 ? String.format(Locale.US, "%.1f", count * 1000.0 / millis) : "-";
+	}
+
+	private static String average(long millis, long count) {
+		return count > 0 ? String.format(Locale.US, "%.1f", (double) millis / count) : "-";
+	}
+
+	private static class Item {
+		private final String oid;
+		private final Runnable action;
+		private final long submittedNanos;
+		private final Set<Item> dependents = new HashSet<>();		// guarded by the pipeline
+		private int unresolved;										// guarded by the pipeline
+
+		private Item(String oid, Runnable action, long submittedNanos) {
+			this.oid = oid;
+			this.action = action;
+			this.submittedNanos = submittedNanos;
+		}
+	}
+}
@@ -28,10 +28,12 @@ import com.evolveum.midpoint.prism.*;
 import com.evolveum.midpoint.prism.crypto.EncryptionException;
 import com.evolveum.midpoint.prism.crypto.Protector;
 import com.evolveum.midpoint.prism.delta.ObjectDelta;
+import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.prism.schema.PrismSchema;
 import com.evolveum.midpoint.prism.schema.PrismSchemaImpl;
 import com.evolveum.midpoint.repo.api.RepositoryService;
+import com.evolveum.midpoint.repo.cache.RepositoryCache;
 import com.evolveum.midpoint.schema.constants.SchemaConstants;
 import com.evolveum.midpoint.schema.result.OperationConstants;
 import com.evolveum.midpoint.schema.result.OperationResult;
@@ -52,6 +54,8 @@ import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -60,7 +64,9 @@ import javax.xml.namespace.QName;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -79,6 +85,8 @@ public class ObjectImporter {
 //            + ".resolveReference";
     private static final String OPERATION_VALIDATE_DYN_SCHEMA = ObjectImporter.class.getName()
             + ".validateDynamicSchema";
+    private static final String OPERATION_PARSE_OBJECTS = ObjectImporter.class.getName() + ".parseObjects";
+    private static final String OPERATION_PARSE_OBJECT = ObjectImporter.class.getName() + ".parseObject";
 
 
     @Autowired(required = true)
@@ -105,9 +113,9 @@ public class ObjectImporter {
     }
 
     // TODO provide "noRaw" option in ImportOptionsType?
-//    public void importObjectsNotRaw(InputStream input, final ImportOptionsType options, final Task task, final OperationResult parentResult) {
-//        importObjectsInternal(input, options, false, task, parentResult);
-//    }
+    public void importObjectsNotRaw(InputStream input, String language, ImportOptionsType options, Task task, OperationResult parentResult) {
+        importObjectsInternal(input, language, options, false, task, parentResult);
+    }
 
     private void importObjectsInternal(InputStream input, String language, final ImportOptionsType options,
 		    final boolean raw, final Task task, final OperationResult parentResult) {
@@ -124,6 +132,11 @@ public class ObjectImporter {
 	    int stopAfterErrors = options != null && options.getStopAfterErrors() != null ?
 			    options.getStopAfterErrors() : 0;
 
+	    if (options != null && options.getThreads() != null && options.getThreads() > 1) {
+		    importObjectsInParallel(input, language, options, options.getThreads(), stopAfterErrors, raw, task, parentResult);
+		    return;
+	    }
+
 	    if (!PrismContext.LANG_XML.equals(language)) {
 		    AtomicInteger index = new AtomicInteger(0);
 		    AtomicInteger errors = new AtomicInteger(0);
@@ -195,6 +208,163 @@ public class ObjectImporter {
 	    }
     }
 
+	/**
+	 * Objects are read by the current thread and imported by worker threads, see {@link ImportPipeline}.
+	 * Operation results of the objects are created by the current thread in the order of the objects;
+	 * each worker then works only with the result of its object. Parent result is summarized at the end.
+	 *
+	 * Each worker thread has its own subtask, as the import writes into the task (e.g. the requestee); iterative
+	 * task statistics are recorded into the (parent) task.
+	 */
+	private void importObjectsInParallel(InputStream input, String language, ImportOptionsType options, int threads,
+			int stopAfterErrors, boolean raw, Task task, OperationResult parentResult) {
+
+		ImportPipeline pipeline = new ImportPipeline(threads);
+		SecurityContext securityContext = SecurityContextHolder.getContext();
+		AtomicInteger index = new AtomicInteger(0);
+		AtomicInteger errors = new AtomicInteger(0);
+		AtomicInteger successes = new AtomicInteger(0);
+		AtomicInteger workers = new AtomicInteger(0);
+		ThreadLocal<Task> workerTasks = ThreadLocal.withInitial(() -> createWorkerTask(task, workers.incrementAndGet(), threads));
+
+		ParsedObjectHandler handler = (object, objectElement) -> {
+			OperationResult objectResult = parentResult.createSubresult(OperationConstants.IMPORT_OBJECT);
+			objectResult.addContext("objectNumber", index.incrementAndGet());
+			String name = PolyString.getOrig(object.getName());
+			QName typeName = object.getDefinition() != null ? object.getDefinition().getTypeName() : null;
+			Runnable action = () -> {
+				SecurityContextHolder.setContext(securityContext);
+				RepositoryCache.enter();
+				long started = System.currentTimeMillis();
+				task.recordIterativeOperationStart(name, null, typeName, object.getOid());
+				try {
+					importParsedObject(object, objectElement, objectResult, options, workerTasks.get(), raw);
+					objectResult.computeStatusIfUnknown();
+					objectResult.cleanupResult();
+				} finally {
+					task.recordIterativeOperationEnd(name, null, typeName, object.getOid(), started,
+							objectResult.isAcceptable() ? null : new SystemException(objectResult.getMessage()));
+					RepositoryCache.exit();
+					SecurityContextHolder.clearContext();
+				}
+				if (objectResult.isAcceptable()) {
+					successes.incrementAndGet();
+				} else {
+					errors.incrementAndGet();
+				}
+			};
+			try {
+				pipeline.submit(object.getOid(), getReferencedOids(object), action);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				objectResult.recordFatalError("Interrupted while waiting for the import", e);
+				return false;
+			}
+			return stopAfterErrors == 0 || errors.get() < stopAfterErrors;
+		};
+
+		try {
+			if (!PrismContext.LANG_XML.equals(language)) {
+				readObjects(input, language, handler, errors, stopAfterErrors, parentResult);
+			} else {
+				validateObjects(input, options, handler, stopAfterErrors, parentResult);
+			}
+		} finally {
+			try {
+				pipeline.finish();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				parentResult.recordFatalError("Interrupted while waiting for the import to finish", e);
+			}
+		}
+
+		String statistics = pipeline.getStatistics();
+		LOGGER.info("Import finished: {}", statistics);
+		parentResult.addReturn("statistics", statistics);
+		parentResult.summarize();
+		if (parentResult.isUnknown()) {
+			parentResult.computeStatus(errors.get() + " errors, " + successes.get() + " passed");
+		}
+	}
+
+	private Task createWorkerTask(Task parentTask, int number, int threads) {
+		Task subtask = parentTask.createSubtask();
+		subtask.setCategory(parentTask.getCategory());
+		subtask.setName("Import worker " + number + " of " + threads + " (" + Thread.currentThread().getName() + ")");
+		LOGGER.trace("Import worker subtask {} created", subtask);
+		return subtask;
+	}
+
+	@FunctionalInterface
+	private interface ParsedObjectHandler {
+		/**
+		 * @return false if the processing should stop
+		 */
+		boolean handle(PrismObject<?> object, Element objectElement);
+	}
+
+	private void readObjects(InputStream input, String language, ParsedObjectHandler handler, AtomicInteger errors,
+			int stopAfterErrors, OperationResult parentResult) {
+		PrismParser.ObjectHandler objectHandler = new PrismParser.ObjectHandler() {
+			@Override
+			public boolean handleData(PrismObject<?> object) {
+				return handler.handle(object, null);
+			}
+
+			@Override
+			public boolean handleError(Throwable t) {
+				OperationResult objectResult = parentResult.createSubresult(OperationConstants.IMPORT_OBJECT);
+				objectResult.recordFatalError("Couldn't parse object", t);
+				return stopAfterErrors == 0 || errors.incrementAndGet() < stopAfterErrors;
+			}
+		};
+		try {
+			prismContext.parserFor(input).language(language).parseObjectsIteratively(objectHandler);
+		} catch (SchemaException|IOException e) {
+			parentResult.recordFatalError("Couldn't parse objects to be imported: " + e.getMessage(), e);
+			LoggingUtils.logUnexpectedException(LOGGER, "Couldn't parse objects to be imported", e);
+		}
+	}
+
+	// The validator summarizes its result after each object, so it gets its own one (not touched by the workers).
+	private void validateObjects(InputStream input, ImportOptionsType options, ParsedObjectHandler handler, int stopAfterErrors,
+			OperationResult parentResult) {
+		OperationResult parseResult = parentResult.createSubresult(OPERATION_PARSE_OBJECTS);
+		parseResult.setSummarizeSuccesses(true);
+		EventHandler eventHandler = new EventHandler() {
+			@Override
+			public EventResult preMarshall(Element objectElement, Node postValidationTree, OperationResult objectResult) {
+				return EventResult.cont();
+			}
+
+			@Override
+			public <T extends Objectable> EventResult postMarshall(PrismObject<T> object, Element objectElement,
+					OperationResult objectResult) {
+				return handler.handle(object, objectElement) ? EventResult.cont() : EventResult.stop("Too many errors");
+			}
+
+			@Override
+			public void handleGlobalError(OperationResult currentResult) {
+				// No reaction
+			}
+		};
+		Validator validator = new Validator(prismContext, eventHandler);
+		validator.setVerbose(true);
+		validator.setValidateSchema(BooleanUtils.isTrue(options.isValidateStaticSchema()));
+		validator.setStopAfterErrors(stopAfterErrors);
+		validator.validate(input, parseResult, OPERATION_PARSE_OBJECT);
+	}
+
+	private Collection<String> getReferencedOids(PrismObject<?> object) {
+		Set<String> oids = new HashSet<>();
+		object.accept(visitable -> {
+			if (visitable instanceof PrismReferenceValue && ((PrismReferenceValue) visitable).getOid() != null) {
+				oids.add(((PrismReferenceValue) visitable).getOid());
+			}
+		});
+		return oids;
+	}
+
 	@NotNull
 	private <T extends Objectable> EventResult importParsedObject(PrismObject<T> prismObjectObjectable, Element objectElement,
 			OperationResult objectResult, ImportOptionsType options, Task task, boolean raw) {
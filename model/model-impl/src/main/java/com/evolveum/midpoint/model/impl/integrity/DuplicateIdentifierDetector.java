@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.midpoint.model.impl.integrity;
+
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowKindType;
+import org.jetbrains.annotations.NotNull;
+
+import javax.xml.namespace.QName;
+import java.io.*;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Detects shadows sharing the same identifier value without keeping all the values in memory.
+ *
+ * Each (identifier value, shadow OID) pair is appended to one of the bucket files on disk, selected by the hash
+ * of the identifier value. Any duplicates therefore end up in the same bucket. When the scan is over, buckets are
+ * read one by one, so only the values of a single bucket are held in memory at any time. With the default number
+ * of buckets, 5 million shadows with two identifiers need a few tens of megabytes of heap per bucket.
+ *
+ * Values can be added from more threads concurrently.
+ */
+class DuplicateIdentifierDetector implements Closeable {
+
+    private static final Trace LOGGER = TraceManager.getTrace(DuplicateIdentifierDetector.class);
+
+    static final int DEFAULT_BUCKETS = 64;
+
+    private static final int BUFFER_SIZE = 65536;
+
+    private final int buckets;
+    private final File directory;
+    private final File[] files;
+    private final DataOutputStream[] outputs;
+    private long records;
+    private boolean writingFinished;
+
+    DuplicateIdentifierDetector(int buckets) throws IOException {
+        this.buckets = buckets;
+        this.directory = Files.createTempDirectory("midpoint-shadow-integrity-").toFile();
+        this.directory.deleteOnExit();
+        this.files = new File[buckets];
+        this.outputs = new DataOutputStream[buckets];
+    }
+
+    synchronized void add(@NotNull IdentifierValue identifierValue, @NotNull String shadowOid) throws IOException {
+        if (writingFinished) {
+            throw new IllegalStateException("Values can no longer be added");
+        }
+        int bucket = (identifierValue.hashCode() & Integer.MAX_VALUE) % buckets;
+        DataOutputStream output = outputs[bucket];
+        if (output == null) {
+            files[bucket] = new File(directory, "bucket-" + bucket);
+            files[bucket].deleteOnExit();
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(files[bucket]), BUFFER_SIZE));
+            outputs[bucket] = output;
+        }
+        identifierValue.write(output);
+        output.writeUTF(shadowOid);
+        records++;
+    }
+
+    synchronized long getRecords() {
+        return records;
+    }
+
+    /**
+     * Calls the consumer for each identifier value that is shared by more than one shadow, along with the OIDs
+     * of these shadows. Values in the same bucket are reported in their natural order.
+     */
+    void forEachDuplicate(@NotNull BiConsumer<IdentifierValue, List<String>> consumer) throws IOException {
+        finishWriting();
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            if (files[bucket] == null) {
+                continue;
+            }
+            Map<IdentifierValue, List<String>> values = new HashMap<>();
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(files[bucket]), BUFFER_SIZE))) {
+                for (;;) {
+                    IdentifierValue identifierValue;
+                    try {
+                        identifierValue = IdentifierValue.read(input);
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    String shadowOid = input.readUTF();
+                    values.computeIfAbsent(identifierValue, k -> new ArrayList<>(1)).add(shadowOid);
+                }
+            }
+            LOGGER.trace("Bucket {}: {} distinct identifier values", bucket, values.size());
+            values.entrySet().stream()
+                    .filter(e -> e.getValue().size() > 1)
+                    .sorted(Map.Entry.comparingByKey())
+                    .forEach(e -> consumer.accept(e.getKey(), e.getValue()));
+        }
+    }
+
+    private synchronized void finishWriting() throws IOException {
+        if (!writingFinished) {
+            writingFinished = true;
+            for (DataOutputStream output : outputs) {
+                if (output != null) {
+                    output.close();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            finishWriting();
+        } catch (IOException e) {
+            LOGGER.warn("Couldn't close bucket file: {}", e.getMessage(), e);
+        }
+        for (File file : files) {
+            if (file != null && !file.delete()) {
+                LOGGER.warn("Couldn't delete bucket file {}", file);
+            }
+        }
+        if (!directory.delete()) {
+            LOGGER.warn("Couldn't delete directory {}", directory);
+        }
+    }
+
+    /**
+     * Value of an identifier of a shadow of given resource and kind.
+     */
+    static class IdentifierValue implements Comparable<IdentifierValue> {
+
+        private static final Comparator<IdentifierValue> COMPARATOR = Comparator
+                .comparing((IdentifierValue v) -> v.resourceOid)
+                .thenComparing(v -> v.kind)
+                .thenComparing(v -> v.identifierName.getNamespaceURI())
+                .thenComparing(v -> v.identifierName.getLocalPart())
+                .thenComparing(v -> v.value);
+
+        @NotNull private final String resourceOid;
+        @NotNull private final ShadowKindType kind;
+        @NotNull private final QName identifierName;
+        @NotNull private final String value;
+
+        IdentifierValue(@NotNull String resourceOid, @NotNull ShadowKindType kind, @NotNull QName identifierName,
+                @NotNull String value) {
+            this.resourceOid = resourceOid;
+            this.kind = kind;
+            this.identifierName = identifierName;
+            this.value = value;
+        }
+
+        @NotNull
+        String getResourceOid() {
+            return resourceOid;
+        }
+
+        @NotNull
+        ShadowKindType getKind() {
+            return kind;
+        }
+
+        @NotNull
+        QName getIdentifierName() {
+            return identifierName;
+        }
+
+        @NotNull
+        String getValue() {
+            return value;
+        }
+
+        private void write(DataOutputStream output) throws IOException {
+            output.writeUTF(resourceOid);
+            output.writeByte(kind.ordinal());
+            output.writeUTF(identifierName.getNamespaceURI());
+            output.writeUTF(identifierName.getLocalPart());
+            output.writeUTF(value);
+        }
+
+        private static IdentifierValue read(DataInputStream input) throws IOException {
+            String resourceOid = input.readUTF();
+            ShadowKindType kind = ShadowKindType.values()[input.readByte()];
+            QName identifierName = new QName(input.readUTF(), input.readUTF());
+            return new IdentifierValue(resourceOid, kind, identifierName, input.readUTF());
+        }
+
+        @Override
+        public int compareTo(@NotNull IdentifierValue o) {
+            return COMPARATOR.compare(this, o);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof IdentifierValue))
+                return false;
+            IdentifierValue that = (IdentifierValue) o;
+            return resourceOid.equals(that.resourceOid) && kind == that.kind
+                    && identifierName.equals(that.identifierName) && value.equals(that.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(resourceOid, kind, identifierName, value);
+        }
+
+        @Override
+        public String toString() {
+            return resourceOid + "/" + kind + "/" + identifierName.getLocalPart() + "=" + value;
+        }
+    }
+}
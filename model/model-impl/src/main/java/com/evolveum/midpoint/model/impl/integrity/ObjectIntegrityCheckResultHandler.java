@@ -59,11 +59,6 @@ public class ObjectIntegrityCheckResultHandler extends AbstractSearchIterativeRe
         setStopOnError(false);
         setLogErrors(false);            // we do log errors ourselves
 
-        Integer tasks = getWorkerThreadsCount(coordinatorTask);
-        if (tasks != null && tasks != 0) {
-            throw new UnsupportedOperationException("Unsupported number of worker threads: " + tasks + ". This task cannot be run with worker threads. Please remove workerThreads extension property or set its value to 0.");
-        }
-
         logConfiguration("Object integrity check is starting");
     }
 
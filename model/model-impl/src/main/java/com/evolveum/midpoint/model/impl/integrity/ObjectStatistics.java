@@ -34,17 +34,17 @@ public class ObjectStatistics {
 		return statisticsMap;
 	}
 
-	public int getErrors() {
+	public synchronized int getErrors() {
 		return errors;
 	}
 
-	public void record(PrismObject<ObjectType> object) {
+	public synchronized void record(PrismObject<ObjectType> object) {
 		String key = object.asObjectable().getClass().getName();
 		ObjectTypeStatistics typeStatistics = statisticsMap.computeIfAbsent(key, (k) -> new ObjectTypeStatistics());
 		typeStatistics.register(object);
 	}
 
-	public void incrementObjectsWithErrors() {
+	public synchronized void incrementObjectsWithErrors() {
 		errors++;
 	}
 }
@@ -20,11 +20,6 @@ import com.evolveum.midpoint.common.refinery.RefinedObjectClassDefinition;
 import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ResourceType;
 
-import javax.xml.namespace.QName;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
-
 /**
  * Checker context related to one object type (resource + kind).
  *
@@ -34,7 +29,6 @@ class ObjectTypeContext {
 
     private PrismObject<ResourceType> resource;
     private RefinedObjectClassDefinition objectClassDefinition;
-    private Map<QName, Map<String, Set<String>>> identifierValueMap = new HashMap<>();
 
     public PrismObject<ResourceType> getResource() {
         return resource;
@@ -51,8 +45,4 @@ class ObjectTypeContext {
     public void setObjectClassDefinition(RefinedObjectClassDefinition objectClassDefinition) {
         this.objectClassDefinition = objectClassDefinition;
     }
-
-    public Map<QName, Map<String, Set<String>>> getIdentifierValueMap() {
-        return identifierValueMap;
-    }
 }
@@ -52,7 +52,9 @@ import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 
 import javax.xml.namespace.QName;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author mederly
@@ -102,14 +104,18 @@ public class ShadowIntegrityCheckResultHandler extends AbstractSearchIterativeRe
 
     // resource oid + kind -> ROCD
     // we silently assume that all intents for a given kind share a common attribute definition
-    private Map<Pair<String,ShadowKindType>, ObjectTypeContext> contextMap = new HashMap<>();
+    // (the maps are accessed by worker threads concurrently)
+    private Map<Pair<String,ShadowKindType>, ObjectTypeContext> contextMap = new ConcurrentHashMap<>();
 
-    private Map<String,PrismObject<ResourceType>> resources = new HashMap<>();
+    private Map<String,PrismObject<ResourceType>> resources = new ConcurrentHashMap<>();
 
     private PrismObject<SystemConfigurationType> configuration;
 
     private ShadowStatistics statistics = new ShadowStatistics();
 
+    // identifier values are spooled to disk, as they would not fit into memory for large numbers of shadows
+    private DuplicateIdentifierDetector duplicateIdentifierDetector;
+
     private DuplicateShadowsResolver duplicateShadowsResolver;
     private Set<String> duplicateShadowsDetected = new HashSet<>();
     private Set<String> duplicateShadowsDeleted = new HashSet<>();
@@ -130,11 +136,6 @@ public class ShadowIntegrityCheckResultHandler extends AbstractSearchIterativeRe
         setStopOnError(false);
         setLogErrors(false);            // we do log errors ourselves
 
-        Integer tasks = getWorkerThreadsCount(coordinatorTask);
-        if (tasks != null && tasks != 0) {
-            throw new UnsupportedOperationException("Unsupported number of worker threads: " + tasks + ". This task cannot be run with worker threads. Please remove workerThreads extension property or set its value to 0.");
-        }
-
         PrismProperty<String> diagnosePrismProperty = coordinatorTask.getExtensionProperty(SchemaConstants.MODEL_EXTENSION_DIAGNOSE);
         if (diagnosePrismProperty == null || diagnosePrismProperty.isEmpty()) {
             checkIntents = true;
@@ -213,6 +214,14 @@ public class ShadowIntegrityCheckResultHandler extends AbstractSearchIterativeRe
             throw new SystemException("Couldn't get dryRun flag from task " + coordinatorTask);
         }
 
+        if (checkUniqueness) {
+            try {
+                duplicateIdentifierDetector = new DuplicateIdentifierDetector(DuplicateIdentifierDetector.DEFAULT_BUCKETS);
+            } catch (IOException e) {
+                throw new SystemException("Couldn't create temporary files for checking identifier uniqueness: " + e.getMessage(), e);
+            }
+        }
+
         logConfiguration("Shadow integrity check is starting with the configuration:");
     }
 
@@ -313,7 +322,6 @@ public class ShadowIntegrityCheckResultHandler extends AbstractSearchIterativeRe
         }
         PrismObject<ResourceType> resource = resources.get(resourceOid);
         if (resource == null) {
-            statistics.incrementResources();
             try {
                 resource = provisioningService.getObject(ResourceType.class, resourceOid, null, workerTask, result);
             } catch (ObjectNotFoundException e) {
@@ -330,7 +338,9 @@ public class ShadowIntegrityCheckResultHandler extends AbstractSearchIterativeRe
                 checkResult.recordError(ShadowStatistics.CANNOT_GET_RESOURCE, new SystemException("Resource object cannot be fetched for some reason: " + e.getMessage(), e));
                 return;
             }
-            resources.put(resourceOid, resource);
+            if (resources.putIfAbsent(resourceOid, resource) == null) {
+                statistics.incrementResources();
+            }
         }
         checkResult.setResource(resource);
 
@@ -445,7 +455,7 @@ public class ShadowIntegrityCheckResultHandler extends AbstractSearchIterativeRe
             }
             if (checkUniqueness) {
                 if (!checkDuplicatesOnPrimaryIdentifiersOnly || primaryIdentifiers.contains(identifier)) {
-                    addIdentifierValue(checkResult, context, identifier.getName(), value, shadow);
+                    addIdentifierValue(checkResult, resourceOid, kind, identifier.getName(), value, shadow);
                 }
             }
             if (checkNormalization) {
@@ -604,22 +614,15 @@ public class ShadowIntegrityCheckResultHandler extends AbstractSearchIterativeRe
         }
     }
 
-    private void addIdentifierValue(ShadowCheckResult checkResult, ObjectTypeContext context, QName identifierName, String identifierValue, PrismObject<ShadowType> shadow) {
-
-        Map<String, Set<String>> valueMap = context.getIdentifierValueMap()
-                .computeIfAbsent(identifierName, k -> new HashMap<>());
-        Set<String> existingShadowOids = valueMap.get(identifierValue);
-        if (existingShadowOids == null) {
-            // all is well
-            existingShadowOids = new HashSet<>();
-            existingShadowOids.add(shadow.getOid());
-            valueMap.put(identifierValue, existingShadowOids);
-        } else {
-            // duplicate shadows statistics are collected in a special way
-            duplicateShadowsDetected.add(shadow.getOid());
-            LOGGER.error("Multiple shadows with the value of identifier attribute {} = {}: existing one(s): {}, duplicate: {}",
-                    identifierName, identifierValue, existingShadowOids, ObjectTypeUtil.toShortString(shadow.asObjectable()));
-            existingShadowOids.add(shadow.getOid());
+    private void addIdentifierValue(ShadowCheckResult checkResult, String resourceOid, ShadowKindType kind,
+            QName identifierName, String identifierValue, PrismObject<ShadowType> shadow) {
+        try {
+            duplicateIdentifierDetector.add(
+                    new DuplicateIdentifierDetector.IdentifierValue(resourceOid, kind, identifierName, identifierValue),
+                    shadow.getOid());
+        } catch (IOException e) {
+            checkResult.recordError(ShadowStatistics.OTHER_FAILURE,
+                    new SystemException("Couldn't record value of identifier " + identifierName + ": " + e.getMessage(), e));
         }
     }
 
@@ -642,74 +645,20 @@ public class ShadowIntegrityCheckResultHandler extends AbstractSearchIterativeRe
         return statistics;
     }
 
+    /**
+     * Duplicates are reported (logged) one by one as they are found, so the report need not fit into memory.
+     */
     private String reportOrFixUniqueness(Task task, OperationResult result) {
+        LOGGER.info("Looking for duplicate shadows among {} identifier values", duplicateIdentifierDetector.getRecords());
+        try {
+            duplicateIdentifierDetector.forEachDuplicate((identifierValue, shadowsOids) ->
+                    reportOrFixDuplicates(identifierValue, shadowsOids, task, result));
+        } catch (IOException e) {
+            LoggingUtils.logUnexpectedException(LOGGER, "Couldn't read identifier values from temporary files", e);
+            result.recordPartialError("Couldn't read identifier values from temporary files: " + e.getMessage(), e);
+        }
 
-        StringBuilder details = new StringBuilder();
         StringBuilder stat = new StringBuilder();
-
-        for (Map.Entry<Pair<String,ShadowKindType>, ObjectTypeContext> entry : contextMap.entrySet()) {
-            String resourceOid = entry.getKey().getLeft();
-            ShadowKindType kind = entry.getKey().getRight();
-            ObjectTypeContext ctx = entry.getValue();
-            PrismObject<ResourceType> resource = resources.get(resourceOid);
-            if (resource == null) {
-                LOGGER.error("No resource for {}", resourceOid);        // should not happen
-                continue;
-            }
-            for (Map.Entry<QName, Map<String, Set<String>>> idValEntry : ctx.getIdentifierValueMap().entrySet()) {
-                QName identifier = idValEntry.getKey();
-                boolean first = true;
-                for (Map.Entry<String, Set<String>> valListEntry : idValEntry.getValue().entrySet()) {
-					Set<String> shadowsOids = valListEntry.getValue();
-                    if (shadowsOids.size() <= 1) {
-                        continue;
-                    }
-                    if (first) {
-                        details.append("Duplicates for ").append(ObjectTypeUtil.toShortString(resource));
-                        details.append(", kind = ").append(kind);
-                        details.append(", identifier = ").append(identifier).append(":\n");
-                        first = false;
-                    }
-                    details.append(" - value: ").append(valListEntry.getKey()).append(", shadows: ").append(shadowsOids.size()).append("\n");
-                    List<PrismObject<ShadowType>> shadowsToConsider = new ArrayList<>();
-                    for (String shadowOid : shadowsOids) {
-						PrismObject<ShadowType> shadow = null;
-						try {
-							shadow = repositoryService.getObject(ShadowType.class, shadowOid, null, result);
-						} catch (ObjectNotFoundException e) {
-							LOGGER.debug("Couldn't fetch shadow with OID {}, it was probably already deleted", shadowOid, e);
-						} catch (SchemaException e) {
-							LoggingUtils.logUnexpectedException(LOGGER, "Couldn't fetch shadow with OID {} from the repository", e, shadowOid);
-							continue;
-						}
-						details.append("   - ").append(shadow != null ? ObjectTypeUtil.toShortString(shadow) : shadowOid);
-						if (shadow != null) {
-							details.append("; sync situation = ").append(shadow.asObjectable().getSynchronizationSituation()).append("\n");
-							PrismContainer<ShadowAttributesType> attributesContainer = shadow.findContainer(ShadowType.F_ATTRIBUTES);
-							if (attributesContainer != null && !attributesContainer.isEmpty()) {
-								for (Item item : attributesContainer.getValue().getItems()) {
-									details.append("     - ").append(item.getElementName().getLocalPart()).append(" = ");
-									details.append(item.getRealValues());
-									details.append("\n");
-								}
-							}
-						}
-                        if (duplicateShadowsDeleted.contains(shadowOid)) {
-							details.append("     (already deleted)\n");
-						} else if (shadow == null) {
-							details.append("     (inaccessible)\n");
-						} else {
-                            shadowsToConsider.add(shadow);
-                        }
-                    }
-
-                    if (fixUniqueness && shadowsToConsider.size() > 1) {
-                        DuplicateShadowsTreatmentInstruction instruction = duplicateShadowsResolver.determineDuplicateShadowsTreatment(shadowsToConsider);
-                        deleteShadows(instruction, details, task, result);
-                    }
-                }
-            }
-        }
         stat.append("Duplicate shadows detected: ").append(duplicateShadowsDetected.size());
         if (fixUniqueness) {
             stat.append(", deleted: ").append(duplicateShadowsDeleted.size());
@@ -718,7 +667,61 @@ public class ShadowIntegrityCheckResultHandler extends AbstractSearchIterativeRe
 
         result.summarize();         // there can be many 'search owner' subresults
 
-        return stat.toString() + "\n" + details.toString();
+        return stat.toString();
+    }
+
+    private void reportOrFixDuplicates(DuplicateIdentifierDetector.IdentifierValue identifierValue, List<String> shadowsOids,
+            Task task, OperationResult result) {
+        PrismObject<ResourceType> resource = resources.get(identifierValue.getResourceOid());
+        if (resource == null) {
+            LOGGER.error("No resource for {}", identifierValue.getResourceOid());        // should not happen
+            return;
+        }
+        // all but the first shadow are counted as duplicates
+        duplicateShadowsDetected.addAll(shadowsOids.subList(1, shadowsOids.size()));
+
+        StringBuilder details = new StringBuilder();
+        details.append("Duplicates for ").append(ObjectTypeUtil.toShortString(resource));
+        details.append(", kind = ").append(identifierValue.getKind());
+        details.append(", identifier = ").append(identifierValue.getIdentifierName()).append(":\n");
+        details.append(" - value: ").append(identifierValue.getValue()).append(", shadows: ").append(shadowsOids.size()).append("\n");
+        List<PrismObject<ShadowType>> shadowsToConsider = new ArrayList<>();
+        for (String shadowOid : shadowsOids) {
+            PrismObject<ShadowType> shadow = null;
+            try {
+                shadow = repositoryService.getObject(ShadowType.class, shadowOid, null, result);
+            } catch (ObjectNotFoundException e) {
+                LOGGER.debug("Couldn't fetch shadow with OID {}, it was probably already deleted", shadowOid, e);
+            } catch (SchemaException e) {
+                LoggingUtils.logUnexpectedException(LOGGER, "Couldn't fetch shadow with OID {} from the repository", e, shadowOid);
+                continue;
+            }
+            details.append("   - ").append(shadow != null ? ObjectTypeUtil.toShortString(shadow) : shadowOid);
+            if (shadow != null) {
+                details.append("; sync situation = ").append(shadow.asObjectable().getSynchronizationSituation()).append("\n");
+                PrismContainer<ShadowAttributesType> attributesContainer = shadow.findContainer(ShadowType.F_ATTRIBUTES);
+                if (attributesContainer != null && !attributesContainer.isEmpty()) {
+                    for (Item item : attributesContainer.getValue().getItems()) {
+                        details.append("     - ").append(item.getElementName().getLocalPart()).append(" = ");
+                        details.append(item.getRealValues());
+                        details.append("\n");
+                    }
+                }
+            }
+            if (duplicateShadowsDeleted.contains(shadowOid)) {
+                details.append("     (already deleted)\n");
+            } else if (shadow == null) {
+                details.append("     (inaccessible)\n");
+            } else {
+                shadowsToConsider.add(shadow);
+            }
+        }
+
+        if (fixUniqueness && shadowsToConsider.size() > 1) {
+            DuplicateShadowsTreatmentInstruction instruction = duplicateShadowsResolver.determineDuplicateShadowsTreatment(shadowsToConsider);
+            deleteShadows(instruction, details, task, result);
+        }
+        LOGGER.info("Uniqueness report:\n{}", details);
     }
 
     // shadowsToDelete do not contain 'already deleted shadows'
@@ -736,12 +739,8 @@ public class ShadowIntegrityCheckResultHandler extends AbstractSearchIterativeRe
             sb.append("   --> deleted redundant shadow").append(skippedForDryRun()).append(" ").append(ObjectTypeUtil.toShortString(shadowToDelete)).append("\n");
             String oid = shadowToDelete.getOid();
 
-            List<PrismObject<FocusType>> owners;
-            if (checkOwners) {
-                owners = (List) shadowToDelete.getUserData(KEY_OWNERS);
-            } else {
-                owners = searchOwners(shadowToDelete, result);
-            }
+            // shadows are re-read from the repository, so owners from the scan (KEY_OWNERS) are not available here
+            List<PrismObject<FocusType>> owners = searchOwners(shadowToDelete, result);
 
             if (!dryRun) {
                 try {
@@ -796,7 +795,11 @@ public class ShadowIntegrityCheckResultHandler extends AbstractSearchIterativeRe
 
         String uniquenessReport = null;
         if (checkUniqueness) {
-            uniquenessReport = reportOrFixUniqueness(task, result);
+            try {
+                uniquenessReport = reportOrFixUniqueness(task, result);
+            } finally {
+                duplicateIdentifierDetector.close();
+            }
         }
 
         logConfiguration("Shadow integrity check finished. It was run with the configuration:");
@@ -812,7 +815,7 @@ public class ShadowIntegrityCheckResultHandler extends AbstractSearchIterativeRe
                 statistics.getDetailsFormatted(dryRun));
 
         if (uniquenessReport != null) {
-            LOGGER.info("Uniqueness report:\n{}", uniquenessReport);
+            LOGGER.info("Uniqueness summary: {}", uniquenessReport);
         }
     }
 
@@ -25,6 +25,7 @@ import java.util.Set;
 
 /**
  * Summary report from shadow checking task run.
+ * Updated by worker threads concurrently, hence the synchronization.
  *
  * @author Pavol Mederly
  */
@@ -80,27 +81,27 @@ public class ShadowStatistics {
     private Map<String,Counts> problemCount = new HashMap<>();
 
 
-    public void incrementResources() {
+    public synchronized void incrementResources() {
         resources++;
     }
 
-    public void incrementShadows() {
+    public synchronized void incrementShadows() {
         shadows++;
     }
 
-    public void incrementShadowsWithErrors() {
+    public synchronized void incrementShadowsWithErrors() {
         shadowsWithErrors++;
     }
 
-    public void incrementShadowsWithWarnings() {
+    public synchronized void incrementShadowsWithWarnings() {
         shadowsWithWarnings++;
     }
 
-    public void incrementUnfinishedShadows() {
+    public synchronized void incrementUnfinishedShadows() {
         unfinishedShadows++;
     }
 
-    public int getResources() {
+    public synchronized int getResources() {
         return resources;
     }
 
@@ -108,7 +109,7 @@ public class ShadowStatistics {
         this.resources = resources;
     }
 
-    public int getShadows() {
+    public synchronized int getShadows() {
         return shadows;
     }
 
@@ -116,7 +117,7 @@ public class ShadowStatistics {
         this.shadows = shadows;
     }
 
-    public int getShadowsWithErrors() {
+    public synchronized int getShadowsWithErrors() {
         return shadowsWithErrors;
     }
 
@@ -124,7 +125,7 @@ public class ShadowStatistics {
         this.shadowsWithErrors = shadowsWithErrors;
     }
 
-    public int getShadowsWithWarnings() {
+    public synchronized int getShadowsWithWarnings() {
         return shadowsWithWarnings;
     }
 
@@ -132,7 +133,7 @@ public class ShadowStatistics {
         this.shadowsWithWarnings = shadowsWithWarnings;
     }
 
-    public int getUnfinishedShadows() {
+    public synchronized int getUnfinishedShadows() {
         return unfinishedShadows;
     }
 
@@ -140,7 +141,7 @@ public class ShadowStatistics {
         this.unfinishedShadows = unfinishedShadows;
     }
 
-    public void registerProblemCodeOccurrences(List<String> problemCodes) {
+    public synchronized void registerProblemCodeOccurrences(List<String> problemCodes) {
         Set<String> alreadySeen = new HashSet<>();
         for (String code : problemCodes) {
             Counts value = problemCount.computeIfAbsent(code, k -> new Counts());
@@ -151,7 +152,7 @@ public class ShadowStatistics {
         }
     }
 
-    public void registerProblemsFixes(List<String> problemCodesFixed) {
+    public synchronized void registerProblemsFixes(List<String> problemCodesFixed) {
         Set<String> alreadySeen = new HashSet<>();
         for (String code : problemCodesFixed) {
             // shouldn't occur
@@ -163,7 +164,7 @@ public class ShadowStatistics {
         }
     }
 
-    public String getDetailsFormatted(boolean dryRun) {
+    public synchronized String getDetailsFormatted(boolean dryRun) {
         StringBuilder sb = new StringBuilder();
         for (String code : codeList) {
             Counts counts = problemCount.get(code);
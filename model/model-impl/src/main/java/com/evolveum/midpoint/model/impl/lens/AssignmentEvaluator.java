@@ -97,6 +97,7 @@ public class AssignmentEvaluator<F extends FocusType> {
 	private final PrismObject<SystemConfigurationType> systemConfiguration;
 	private final MappingEvaluator mappingEvaluator;
 	private final EvaluatedAssignmentTargetCache evaluatedAssignmentTargetCache;
+	private final RoleCache roleCache;
 
 	private AssignmentEvaluator(Builder<F> builder) {
 		repository = builder.repository;
@@ -112,6 +113,7 @@ public class AssignmentEvaluator<F extends FocusType> {
 		loginMode = builder.loginMode;
 		systemConfiguration = builder.systemConfiguration;
 		mappingEvaluator = builder.mappingEvaluator;
+		roleCache = builder.roleCache;
 		evaluatedAssignmentTargetCache = new EvaluatedAssignmentTargetCache();
 	}
 
@@ -610,7 +612,11 @@ public class AssignmentEvaluator<F extends FocusType> {
 			LOGGER.trace("Resolving target {}:{} from repository", targetClass.getSimpleName(), oid);
 			PrismObject<O> target;
 			try {
-				target = repository.getObject(targetClass, oid, null, ctx.result);
+				if (roleCache != null) {
+					target = roleCache.getObject(targetClass, oid, repository, ctx.result);
+				} else {
+					target = repository.getObject(targetClass, oid, null, ctx.result);
+				}
 	        } catch (SchemaException e) {
 	        	throw new SchemaException(e.getMessage() + " in " + segment.sourceDescription, e);
 	        }
@@ -719,8 +725,12 @@ public class AssignmentEvaluator<F extends FocusType> {
 				isValid);
 		ctx.evalAssignment.addRole(evalAssignmentTarget, relativeMode);
 
+		// focus-independent part of the role evaluation, shared via the role cache
+		RoleCache.Expansion expansion = roleCache != null && targetType instanceof AbstractRoleType
+				? roleCache.getExpansion((AbstractRoleType) targetType) : null;
+
 		// we need to evaluate assignments also for disabled targets, because of target policy rules
-		for (AssignmentType roleAssignment : targetType.getAssignment()) {
+		for (AssignmentType roleAssignment : expansion != null ? expansion.getAssignments() : targetType.getAssignment()) {
 			evaluateAssignment(segment, relativeMode, isValid, ctx, targetType, relation, roleAssignment);
 		}
 
@@ -739,17 +749,25 @@ public class AssignmentEvaluator<F extends FocusType> {
 		// Computation of isMatchingOrder will ensure that we won't collect any unwanted content.
 		
 		if (targetType instanceof AbstractRoleType) {
-			for (AssignmentType roleInducement : ((AbstractRoleType)targetType).getInducement()) {
+			for (AssignmentType roleInducement : expansion != null ? expansion.getInducements() : ((AbstractRoleType)targetType).getInducement()) {
 				evaluateInducement(segment, relativeMode, isValid, ctx, targetType, roleInducement);
 			}
 		}
 
 		//boolean matchesOrder = AssignmentPathSegmentImpl.computeMatchingOrder(segment.getEvaluationOrder(), 1, Collections.emptyList());
 		if (segment.isMatchingOrder() && targetType instanceof AbstractRoleType && isNonNegative(relativeMode)) {
-			for (AuthorizationType authorizationType: ((AbstractRoleType)targetType).getAuthorization()) {
-				Authorization authorization = createAuthorization(authorizationType, targetType.toString());
-				if (!ctx.evalAssignment.getAuthorizations().contains(authorization)) {
-					ctx.evalAssignment.addAuthorization(authorization);
+			if (expansion != null) {
+				for (Authorization authorization : expansion.getAuthorizations()) {
+					if (!ctx.evalAssignment.getAuthorizations().contains(authorization)) {
+						ctx.evalAssignment.addAuthorization(authorization);
+					}
+				}
+			} else {
+				for (AuthorizationType authorizationType : ((AbstractRoleType) targetType).getAuthorization()) {
+					Authorization authorization = createAuthorization(authorizationType, targetType.toString());
+					if (!ctx.evalAssignment.getAuthorizations().contains(authorization)) {
+						ctx.evalAssignment.addAuthorization(authorization);
+					}
 				}
 			}
 			AdminGuiConfigurationType adminGuiConfiguration = ((AbstractRoleType) targetType).getAdminGuiConfiguration();
@@ -1204,6 +1222,7 @@ public class AssignmentEvaluator<F extends FocusType> {
 		private boolean loginMode = false;
 		private PrismObject<SystemConfigurationType> systemConfiguration;
 		private MappingEvaluator mappingEvaluator;
+		private RoleCache roleCache;
 
 		public Builder() {
 		}
@@ -1273,6 +1292,11 @@ public class AssignmentEvaluator<F extends FocusType> {
 			return this;
 		}
 
+		public Builder<F> roleCache(RoleCache val) {
+			roleCache = val;
+			return this;
+		}
+
 		public AssignmentEvaluator<F> build() {
 			return new AssignmentEvaluator<>(this);
 		}
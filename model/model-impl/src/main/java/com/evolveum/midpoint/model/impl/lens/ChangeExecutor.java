@@ -85,9 +85,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.PostConstruct;
 import javax.xml.bind.JAXBElement;
@@ -107,6 +111,7 @@ public class ChangeExecutor {
 	private static final String OPERATION_EXECUTE_PROJECTION = OPERATION_EXECUTE + ".projection";
 	private static final String OPERATION_LINK_ACCOUNT = ChangeExecutor.class.getName() + ".linkShadow";
 	private static final String OPERATION_UNLINK_ACCOUNT = ChangeExecutor.class.getName() + ".unlinkShadow";
+	private static final String OPERATION_EXECUTE_LINK_CHANGES = ChangeExecutor.class.getName() + ".executeLinkChanges";
 	private static final String OPERATION_UPDATE_SITUATION_ACCOUNT = ChangeExecutor.class.getName()
 			+ ".updateSituationInShadow";
 
@@ -144,6 +149,9 @@ public class ChangeExecutor {
 	@Autowired
 	private CredentialsProcessor credentialsProcessor;
 
+	@Autowired
+	private ParallelProjectionExecutor parallelProjectionExecutor;
+
 	private PrismObjectDefinition<UserType> userDefinition = null;
 	private PrismObjectDefinition<ShadowType> shadowDefinition = null;
 
@@ -224,6 +232,10 @@ public class ChangeExecutor {
 
 		boolean restartRequested = false;
 
+		// link changes are written to the focus at once, after all projections of the wave are processed
+		List<LinkChange> linkChanges = new ArrayList<>();
+
+		List<LensProjectionContext> projectionContexts = new ArrayList<>();
 		for (LensProjectionContext projCtx : context.getProjectionContexts()) {
 			if (projCtx.getWave() != context.getExecutionWave()) {
 				continue;
@@ -238,156 +250,213 @@ public class ChangeExecutor {
 				LOGGER.trace("Skipping ignored projection context {}", projCtx.toHumanReadableString());
 				continue;
 			}
+			projectionContexts.add(projCtx);
+		}
 
-			OperationResult subResult = result.createSubresult(
-					OPERATION_EXECUTE_PROJECTION + "." + projCtx.getObjectTypeClass().getSimpleName());
-			subResult.addArbitraryObjectAsContext("discriminator", projCtx.getResourceShadowDiscriminator());
-			if (projCtx.getResource() != null) {
-				subResult.addParam("resource", projCtx.getResource());
+		if (parallelProjectionExecutor.isParallel(context)) {
+			restartRequested = executeProjectionsInParallel(context, projectionContexts, linkChanges, task, result);
+		} else {
+			for (LensProjectionContext projCtx : projectionContexts) {
+				OperationResult subResult = createProjectionResult(projCtx, result);
+				if (executeProjection(context, projCtx, linkChanges, task, subResult)) {
+					restartRequested = true;
+					break; // we will process remaining projections when retrying
+							// the wave
+				}
 			}
-			try {
-
-				context.checkAbortRequested();
+		}
 
-				context.reportProgress(new ProgressInformation(RESOURCE_OBJECT_OPERATION,
-						projCtx.getResourceShadowDiscriminator(), ENTERING));
+		executeLinkChanges(focusContext, linkChanges, task, result);
 
-				executeReconciliationScript(projCtx, context, BeforeAfterType.BEFORE, task, subResult);
+		// Result computation here needs to be slightly different
+		result.computeStatusComposite();
+		return restartRequested;
 
-				ObjectDelta<ShadowType> projDelta = projCtx.getExecutableDelta();
+	}
 
-				if (shouldBeDeleted(projDelta, projCtx)) {
-					projDelta = ObjectDelta.createDeleteDelta(projCtx.getObjectTypeClass(), projCtx.getOid(),
-							prismContext);
+	/**
+	 * Projections of the current wave do not depend on each other, so they can be executed concurrently.
+	 * Operation results and link changes are collected per projection and merged in the order of projections.
+	 * Unlike in sequential processing, all projections are executed even if some of them request the restart.
+	 */
+	private <O extends ObjectType> boolean executeProjectionsInParallel(LensContext<O> context,
+			List<LensProjectionContext> projectionContexts, List<LinkChange> linkChanges, Task task, OperationResult result) {
+		Map<LensProjectionContext, OperationResult> subResults = new IdentityHashMap<>();
+		Map<LensProjectionContext, List<LinkChange>> projectionLinkChanges = new IdentityHashMap<>();
+		for (LensProjectionContext projCtx : projectionContexts) {
+			subResults.put(projCtx, createProjectionResult(projCtx, result));
+			projectionLinkChanges.put(projCtx, new ArrayList<>());
+		}
+		AtomicBoolean restartRequested = new AtomicBoolean();
+		try {
+			parallelProjectionExecutor.executeAll(context, projectionContexts, projCtx -> {
+				if (executeProjection(context, projCtx, projectionLinkChanges.get(projCtx), task, subResults.get(projCtx))) {
+					restartRequested.set(true);
 				}
+			});
+		} catch (CommonException e) {
+			// executeProjection records all checked exceptions into the projection result
+			throw new SystemException("Unexpected exception when executing projections: " + e.getMessage(), e);
+		}
+		for (LensProjectionContext projCtx : projectionContexts) {
+			linkChanges.addAll(projectionLinkChanges.get(projCtx));
+		}
+		return restartRequested.get();
+	}
 
-				if (projCtx.getSynchronizationPolicyDecision() == SynchronizationPolicyDecision.BROKEN) {
-					if (context.getFocusContext() != null
-							&& context.getFocusContext().getDelta() != null
-							&& context.getFocusContext().getDelta().isDelete()
-							&& context.getOptions() != null
-							&& ModelExecuteOptions.isForce(context.getOptions())) {
-						if (projDelta == null) {
-							projDelta = ObjectDelta.createDeleteDelta(projCtx.getObjectTypeClass(),
-									projCtx.getOid(), prismContext);
-						}
-					}
-					if (projDelta != null && projDelta.isDelete()) {
+	private OperationResult createProjectionResult(LensProjectionContext projCtx, OperationResult result) {
+		OperationResult subResult = result.createSubresult(
+				OPERATION_EXECUTE_PROJECTION + "." + projCtx.getObjectTypeClass().getSimpleName());
+		subResult.addArbitraryObjectAsContext("discriminator", projCtx.getResourceShadowDiscriminator());
+		if (projCtx.getResource() != null) {
+			subResult.addParam("resource", projCtx.getResource());
+		}
+		return subResult;
+	}
 
-						executeDelta(projDelta, projCtx, context, null, projCtx.getResource(), task,
-								subResult);
+	// returns true if current operation has to be restarted (see executeChanges)
+	private <O extends ObjectType> boolean executeProjection(LensContext<O> context, LensProjectionContext projCtx,
+			List<LinkChange> linkChanges, Task task, OperationResult subResult) {
+		LensFocusContext<O> focusContext = context.getFocusContext();
+		long start = System.currentTimeMillis();
+		try {
 
-					}
-				} else {
+			context.checkAbortRequested();
 
-					if (projDelta == null || projDelta.isEmpty()) {
-						if (LOGGER.isTraceEnabled()) {
-							LOGGER.trace("No change for " + projCtx.getResourceShadowDiscriminator());
-						}
-						if (focusContext != null) {
-							updateLinks(focusContext, projCtx, task, subResult);
-						}
+			context.reportProgress(new ProgressInformation(RESOURCE_OBJECT_OPERATION,
+					projCtx.getResourceShadowDiscriminator(), ENTERING));
 
-						// Make sure post-reconcile delta is always executed,
-						// even if there is no change
-						executeReconciliationScript(projCtx, context, BeforeAfterType.AFTER, task,
-								subResult);
+			executeReconciliationScript(projCtx, context, BeforeAfterType.BEFORE, task, subResult);
 
-						subResult.computeStatus();
-						subResult.recordNotApplicableIfUnknown();
-						continue;
+			ObjectDelta<ShadowType> projDelta = projCtx.getExecutableDelta();
 
-					} else if (projDelta.isDelete() && projCtx.getResourceShadowDiscriminator() != null
-							&& projCtx.getResourceShadowDiscriminator().getOrder() > 0) {
-						// HACK ... for higher-order context check if this was
-						// already deleted
-						LensProjectionContext lowerOrderContext = LensUtil.findLowerOrderContext(context,
-								projCtx);
-						if (lowerOrderContext != null && lowerOrderContext.isDelete()) {
-							// We assume that this was already executed
-							subResult.setStatus(OperationResultStatus.NOT_APPLICABLE);
-							continue;
-						}
+			if (shouldBeDeleted(projDelta, projCtx)) {
+				projDelta = ObjectDelta.createDeleteDelta(projCtx.getObjectTypeClass(), projCtx.getOid(),
+						prismContext);
+			}
+
+			if (projCtx.getSynchronizationPolicyDecision() == SynchronizationPolicyDecision.BROKEN) {
+				if (context.getFocusContext() != null
+						&& context.getFocusContext().getDelta() != null
+						&& context.getFocusContext().getDelta().isDelete()
+						&& context.getOptions() != null
+						&& ModelExecuteOptions.isForce(context.getOptions())) {
+					if (projDelta == null) {
+						projDelta = ObjectDelta.createDeleteDelta(projCtx.getObjectTypeClass(),
+								projCtx.getOid(), prismContext);
 					}
+				}
+				if (projDelta != null && projDelta.isDelete()) {
 
-					executeDelta(projDelta, projCtx, context, null, projCtx.getResource(), task, subResult);
+					executeDelta(projDelta, projCtx, context, null, projCtx.getResource(), task,
+							subResult);
 
 				}
+			} else {
+
+				if (projDelta == null || projDelta.isEmpty()) {
+					if (LOGGER.isTraceEnabled()) {
+						LOGGER.trace("No change for " + projCtx.getResourceShadowDiscriminator());
+					}
+					if (focusContext != null) {
+						updateLinks(focusContext, projCtx, linkChanges, task, subResult);
+					}
 
-				subResult.computeStatus();
-				if (focusContext != null) {
-					updateLinks(focusContext, projCtx, task, subResult);
+					// Make sure post-reconcile delta is always executed,
+					// even if there is no change
+					executeReconciliationScript(projCtx, context, BeforeAfterType.AFTER, task,
+							subResult);
+
+					subResult.computeStatus();
+					subResult.recordNotApplicableIfUnknown();
+					return false;
+
+				} else if (projDelta.isDelete() && projCtx.getResourceShadowDiscriminator() != null
+						&& projCtx.getResourceShadowDiscriminator().getOrder() > 0) {
+					// HACK ... for higher-order context check if this was
+					// already deleted
+					LensProjectionContext lowerOrderContext = LensUtil.findLowerOrderContext(context,
+							projCtx);
+					if (lowerOrderContext != null && lowerOrderContext.isDelete()) {
+						// We assume that this was already executed
+						subResult.setStatus(OperationResultStatus.NOT_APPLICABLE);
+						return false;
+					}
 				}
 
-				executeReconciliationScript(projCtx, context, BeforeAfterType.AFTER, task, subResult);
+				executeDelta(projDelta, projCtx, context, null, projCtx.getResource(), task, subResult);
 
-				subResult.computeStatus();
-				subResult.recordNotApplicableIfUnknown();
+			}
 
-			} catch (SchemaException e) {
-				recordProjectionExecutionException(e, projCtx, subResult,
-						SynchronizationPolicyDecision.BROKEN);
-				continue;
-			} catch (ObjectNotFoundException e) {
-				recordProjectionExecutionException(e, projCtx, subResult,
-						SynchronizationPolicyDecision.BROKEN);
-				continue;
-			} catch (ObjectAlreadyExistsException e) {
+			subResult.computeStatus();
+			if (focusContext != null) {
+				updateLinks(focusContext, projCtx, linkChanges, task, subResult);
+			}
 
-				// check if this is a repeated attempt - OAEE was not handled
-				// correctly, e.g. if creating "Users" user in AD, whereas
-				// "Users" is SAM Account Name which is used by a built-in group
-				// - in such case, mark the context as broken
+			executeReconciliationScript(projCtx, context, BeforeAfterType.AFTER, task, subResult);
 
-				if (isRepeatedAlreadyExistsException(projCtx)) {
-					recordProjectionExecutionException(e, projCtx, subResult,
-							SynchronizationPolicyDecision.BROKEN);
-					continue;
-				}
+			subResult.computeStatus();
+			subResult.recordNotApplicableIfUnknown();
 
-				// in his case we do not need to set account context as
-				// broken, instead we need to restart projector for this
-				// context to recompute new account or find out if the
-				// account was already linked..
-				// and also do not set fatal error to the operation result, this
-				// is a special case
-				// if it is fatal, it will be set later
-				// but we need to set some result
-				subResult.recordSuccess();
-				subResult.muteLastSubresultError();
-				restartRequested = true;
-				break; // we will process remaining projections when retrying
-						// the wave
-			} catch (CommunicationException e) {
-				recordProjectionExecutionException(e, projCtx, subResult,
-						SynchronizationPolicyDecision.BROKEN);
-				continue;
-			} catch (ConfigurationException e) {
-				recordProjectionExecutionException(e, projCtx, subResult,
-						SynchronizationPolicyDecision.BROKEN);
-				continue;
-			} catch (SecurityViolationException e) {
-				recordProjectionExecutionException(e, projCtx, subResult,
-						SynchronizationPolicyDecision.BROKEN);
-				continue;
-			} catch (ExpressionEvaluationException e) {
-				recordProjectionExecutionException(e, projCtx, subResult,
-						SynchronizationPolicyDecision.BROKEN);
-				continue;
-			} catch (RuntimeException e) {
+		} catch (SchemaException e) {
+			recordProjectionExecutionException(e, projCtx, subResult,
+					SynchronizationPolicyDecision.BROKEN);
+			return false;
+		} catch (ObjectNotFoundException e) {
+			recordProjectionExecutionException(e, projCtx, subResult,
+					SynchronizationPolicyDecision.BROKEN);
+			return false;
+		} catch (ObjectAlreadyExistsException e) {
+
+			// check if this is a repeated attempt - OAEE was not handled
+			// correctly, e.g. if creating "Users" user in AD, whereas
+			// "Users" is SAM Account Name which is used by a built-in group
+			// - in such case, mark the context as broken
+
+			if (isRepeatedAlreadyExistsException(projCtx)) {
 				recordProjectionExecutionException(e, projCtx, subResult,
 						SynchronizationPolicyDecision.BROKEN);
-				continue;
-			} finally {
-				context.reportProgress(new ProgressInformation(RESOURCE_OBJECT_OPERATION,
-						projCtx.getResourceShadowDiscriminator(), subResult));
+				return false;
 			}
-		}
-
-		// Result computation here needs to be slightly different
-		result.computeStatusComposite();
-		return restartRequested;
 
+			// in his case we do not need to set account context as
+			// broken, instead we need to restart projector for this
+			// context to recompute new account or find out if the
+			// account was already linked..
+			// and also do not set fatal error to the operation result, this
+			// is a special case
+			// if it is fatal, it will be set later
+			// but we need to set some result
+			subResult.recordSuccess();
+			subResult.muteLastSubresultError();
+			return true; // we will process remaining projections when retrying
+						// the wave
+		} catch (CommunicationException e) {
+			recordProjectionExecutionException(e, projCtx, subResult,
+					SynchronizationPolicyDecision.BROKEN);
+			return false;
+		} catch (ConfigurationException e) {
+			recordProjectionExecutionException(e, projCtx, subResult,
+					SynchronizationPolicyDecision.BROKEN);
+			return false;
+		} catch (SecurityViolationException e) {
+			recordProjectionExecutionException(e, projCtx, subResult,
+					SynchronizationPolicyDecision.BROKEN);
+			return false;
+		} catch (ExpressionEvaluationException e) {
+			recordProjectionExecutionException(e, projCtx, subResult,
+					SynchronizationPolicyDecision.BROKEN);
+			return false;
+		} catch (RuntimeException e) {
+			recordProjectionExecutionException(e, projCtx, subResult,
+					SynchronizationPolicyDecision.BROKEN);
+			return false;
+		} finally {
+			context.reportProgress(new ProgressInformation(RESOURCE_OBJECT_OPERATION,
+					projCtx.getResourceShadowDiscriminator(), subResult));
+			projCtx.addExecutionTime(System.currentTimeMillis() - start);
+		}
+		return false;
 	}
 
 	private boolean shouldBeDeleted(ObjectDelta<ShadowType> accDelta, LensProjectionContext accCtx) {
@@ -492,10 +561,14 @@ public class ChangeExecutor {
 
 	/**
 	 * Make sure that the account is linked (or unlinked) as needed.
+	 *
+	 * The link change is only collected here. It is written to the focus by executeLinkChanges after all projections
+	 * of the wave are executed, i.e. also after the AFTER reconciliation script of this projection has run. The script
+	 * is executed on the resource and does not depend on the linkRef of the focus, so the ordering does not matter to it.
 	 */
 	private <O extends ObjectType, F extends FocusType> void updateLinks(
-			LensFocusContext<O> focusObjectContext, LensProjectionContext projCtx, Task task,
-			OperationResult result) throws ObjectNotFoundException, SchemaException {
+			LensFocusContext<O> focusObjectContext, LensProjectionContext projCtx, List<LinkChange> linkChanges,
+			Task task, OperationResult result) throws ObjectNotFoundException, SchemaException {
 		if (focusObjectContext == null) {
 			return;
 		}
@@ -539,12 +612,8 @@ public class ChangeExecutor {
 								}
 							}
 						}
-						// Not linked, need to link
-						linkShadow(focusContext.getOid(), projOid, focusObjectContext, projCtx, task, result);
-						// be sure, that the situation is set correctly
-						LOGGER.trace("Updating situation after shadow was linked.");
-						updateSituationInShadow(task, SynchronizationSituationType.LINKED, focusObjectContext, projCtx,
-								result);
+						// Not linked, need to link. The situation is updated after the link is written (see executeLinkChanges).
+						linkShadow(focusContext.getOid(), projOid, focusObjectContext, projCtx, linkChanges, result);
 		} else {		
 			// Link should NOT exist
 
@@ -559,7 +628,7 @@ public class ChangeExecutor {
 							if (linkRefVal.getOid().equals(projOid)) {
 								// Linked, need to unlink
 								unlinkShadow(focusContext.getOid(), linkRefVal, focusObjectContext, projCtx,
-										task, result);
+										linkChanges, result);
 							}
 						}
 					}
@@ -623,45 +692,21 @@ public class ChangeExecutor {
 	}
 
 	private <F extends ObjectType> void linkShadow(String userOid, String shadowOid,
-			LensElementContext<F> focusContext, LensProjectionContext projCtx, Task task,
-			OperationResult parentResult) throws ObjectNotFoundException, SchemaException {
+			LensElementContext<F> focusContext, LensProjectionContext projCtx, List<LinkChange> linkChanges,
+			OperationResult parentResult) {
 
 		Class<F> typeClass = focusContext.getObjectTypeClass();
 		if (!FocusType.class.isAssignableFrom(typeClass)) {
 			return;
 		}
 
-		String channel = focusContext.getLensContext().getChannel();
-
 		LOGGER.debug("Linking shadow " + shadowOid + " to focus " + userOid);
-		OperationResult result = parentResult.createSubresult(OPERATION_LINK_ACCOUNT);
 		PrismReferenceValue linkRef = new PrismReferenceValue();
 		linkRef.setOid(shadowOid);
 		linkRef.setTargetType(ShadowType.COMPLEX_TYPE);
 		Collection<? extends ItemDelta> linkRefDeltas = ReferenceDelta
 				.createModificationAddCollection(FocusType.F_LINK_REF, getUserDefinition(), linkRef);
-
-		try {
-			cacheRepositoryService.modifyObject(typeClass, userOid, linkRefDeltas, result);
-			task.recordObjectActionExecuted(focusContext.getObjectAny(), typeClass, userOid,
-					ChangeType.MODIFY, channel, null);
-		} catch (ObjectAlreadyExistsException ex) {
-			task.recordObjectActionExecuted(focusContext.getObjectAny(), typeClass, userOid,
-					ChangeType.MODIFY, channel, ex);
-			throw new SystemException(ex);
-		} catch (Throwable t) {
-			task.recordObjectActionExecuted(focusContext.getObjectAny(), typeClass, userOid,
-					ChangeType.MODIFY, channel, t);
-			throw t;
-		} finally {
-			result.computeStatus();
-			ObjectDelta<F> userDelta = ObjectDelta.createModifyDelta(userOid, linkRefDeltas, typeClass,
-					prismContext);
-			LensObjectDeltaOperation<F> userDeltaOp = LensUtil.createObjectDeltaOperation(userDelta, result,
-					focusContext, projCtx);
-			focusContext.addToExecutedDeltas(userDeltaOp);
-		}
-
+		linkChanges.add(new LinkChange(OPERATION_LINK_ACCOUNT, true, userOid, linkRefDeltas, projCtx, parentResult));
 	}
 
 	private PrismObjectDefinition<UserType> getUserDefinition() {
@@ -669,43 +714,145 @@ public class ChangeExecutor {
 	}
 
 	private <F extends ObjectType> void unlinkShadow(String focusOid, PrismReferenceValue accountRef,
-			LensElementContext<F> focusContext, LensProjectionContext projCtx, Task task,
-			OperationResult parentResult) throws ObjectNotFoundException, SchemaException {
+			LensElementContext<F> focusContext, LensProjectionContext projCtx, List<LinkChange> linkChanges,
+			OperationResult parentResult) {
 
 		Class<F> typeClass = focusContext.getObjectTypeClass();
 		if (!FocusType.class.isAssignableFrom(typeClass)) {
 			return;
 		}
 
-		String channel = focusContext.getLensContext().getChannel();
-
 		LOGGER.debug("Unlinking shadow " + accountRef.getOid() + " from focus " + focusOid);
-		OperationResult result = parentResult.createSubresult(OPERATION_UNLINK_ACCOUNT);
 		Collection<? extends ItemDelta> accountRefDeltas = ReferenceDelta.createModificationDeleteCollection(
 				FocusType.F_LINK_REF, getUserDefinition(), accountRef.clone());
+		linkChanges.add(new LinkChange(OPERATION_UNLINK_ACCOUNT, false, focusOid, accountRefDeltas, projCtx, parentResult));
+	}
 
+	/**
+	 * Writes link changes collected while executing projections of the current wave. They are written
+	 * using a single modifyObject call, so the focus is updated (and its version incremented) only once
+	 * regardless of the number of projections. If that fails, the changes are written one by one, so the
+	 * failure can be attributed to the respective projection(s), just like when writing them immediately.
+	 *
+	 * Other focus-level modifications of the wave (metadata, triggers, assignment situation) are parts of the focus
+	 * delta and are written with it in a single call, too. The focus delta itself has to be written before the projections
+	 * are executed: if it fails, no resource objects are to be touched. Operation execution records are written
+	 * at the end of the clockwork, as they summarize results of all waves.
+	 *
+	 * The LINKED situation is set in a shadow only after its link is successfully written. If the link cannot
+	 * be written, the projection is marked as broken and the failure is recorded in its result.
+	 */
+	private <O extends ObjectType> void executeLinkChanges(LensFocusContext<O> focusContext,
+			List<LinkChange> linkChanges, Task task, OperationResult parentResult) {
+		if (linkChanges.isEmpty()) {
+			return;
+		}
+		if (linkChanges.size() > 1) {
+			OperationResult result = parentResult.createMinorSubresult(OPERATION_EXECUTE_LINK_CHANGES);
+			result.addParam("count", linkChanges.size());
+			List<ItemDelta> allDeltas = new ArrayList<>();
+			for (LinkChange linkChange : linkChanges) {
+				allDeltas.addAll(linkChange.deltas);
+			}
+			try {
+				focusContext.getLensContext().recordRepositoryWrite();
+				cacheRepositoryService.modifyObject(focusContext.getObjectTypeClass(), linkChanges.get(0).focusOid,
+						allDeltas, result);
+				result.recordSuccess();
+			} catch (ObjectNotFoundException | SchemaException | ObjectAlreadyExistsException | RuntimeException e) {
+				// not recorded in task statistics; the changes are re-executed individually below
+				LOGGER.debug("Couldn't execute {} link changes at once, executing them one by one: {}",
+						linkChanges.size(), e.getMessage(), e);
+				result.recordHandledError(e);
+			}
+			if (result.isSuccess()) {
+				task.recordObjectActionExecuted(focusContext.getObjectAny(), focusContext.getObjectTypeClass(),
+						linkChanges.get(0).focusOid, ChangeType.MODIFY, focusContext.getLensContext().getChannel(), null);
+				for (LinkChange linkChange : linkChanges) {
+					OperationResult linkResult = linkChange.projectionResult.createSubresult(linkChange.operation);
+					linkResult.recordSuccess();
+					recordExecutedLinkChange(focusContext, linkChange, linkResult);
+					updateSituationAfterLinkChange(focusContext, linkChange, task);
+				}
+				return;
+			}
+		}
+		for (LinkChange linkChange : linkChanges) {
+			executeLinkChange(focusContext, linkChange, task);
+		}
+	}
+
+	private <F extends ObjectType> void executeLinkChange(LensFocusContext<F> focusContext, LinkChange linkChange,
+			Task task) {
+		Class<F> typeClass = focusContext.getObjectTypeClass();
+		String channel = focusContext.getLensContext().getChannel();
+		OperationResult result = linkChange.projectionResult.createSubresult(linkChange.operation);
+		boolean written = false;
 		try {
-			cacheRepositoryService.modifyObject(typeClass, focusOid, accountRefDeltas, result);
-			task.recordObjectActionExecuted(focusContext.getObjectAny(), typeClass, focusOid,
+			focusContext.getLensContext().recordRepositoryWrite();
+			cacheRepositoryService.modifyObject(typeClass, linkChange.focusOid, linkChange.deltas, result);
+			task.recordObjectActionExecuted(focusContext.getObjectAny(), typeClass, linkChange.focusOid,
 					ChangeType.MODIFY, channel, null);
-		} catch (ObjectAlreadyExistsException ex) {
-			task.recordObjectActionExecuted(focusContext.getObjectAny(), typeClass, focusOid,
-					ChangeType.MODIFY, channel, ex);
-			result.recordFatalError(ex);
-			throw new SystemException(ex);
-		} catch (Throwable t) {
-			task.recordObjectActionExecuted(focusContext.getObjectAny(), typeClass, focusOid,
-					ChangeType.MODIFY, channel, t);
-			throw t;
+			written = true;
+		} catch (ObjectNotFoundException | SchemaException | ObjectAlreadyExistsException | RuntimeException e) {
+			task.recordObjectActionExecuted(focusContext.getObjectAny(), typeClass, linkChange.focusOid,
+					ChangeType.MODIFY, channel, e);
+			result.recordFatalError(e);
+			recordProjectionExecutionException(e, linkChange.projCtx, linkChange.projectionResult,
+					SynchronizationPolicyDecision.BROKEN);
 		} finally {
 			result.computeStatus();
-			ObjectDelta<F> userDelta = ObjectDelta.createModifyDelta(focusOid, accountRefDeltas, typeClass,
-					prismContext);
-			LensObjectDeltaOperation<F> userDeltaOp = LensUtil.createObjectDeltaOperation(userDelta, result,
-					focusContext, projCtx);
-			focusContext.addToExecutedDeltas(userDeltaOp);
+			recordExecutedLinkChange(focusContext, linkChange, result);
+		}
+		if (written) {
+			updateSituationAfterLinkChange(focusContext, linkChange, task);
+		}
+	}
+
+	private <F extends ObjectType> void updateSituationAfterLinkChange(LensFocusContext<F> focusContext,
+			LinkChange linkChange, Task task) {
+		if (!linkChange.link) {
+			return;		// situation after unlink is set when the unlink is requested
 		}
+		LOGGER.trace("Updating situation after shadow was linked.");
+		try {
+			updateSituationInShadow(task, SynchronizationSituationType.LINKED, focusContext, linkChange.projCtx,
+					linkChange.projectionResult);
+		} catch (ObjectNotFoundException | SchemaException | RuntimeException e) {
+			recordProjectionExecutionException(e, linkChange.projCtx, linkChange.projectionResult,
+					SynchronizationPolicyDecision.BROKEN);
+		}
+	}
+
+	private <F extends ObjectType> void recordExecutedLinkChange(LensFocusContext<F> focusContext,
+			LinkChange linkChange, OperationResult result) {
+		ObjectDelta<F> userDelta = ObjectDelta.createModifyDelta(linkChange.focusOid, linkChange.deltas,
+				focusContext.getObjectTypeClass(), prismContext);
+		LensObjectDeltaOperation<F> userDeltaOp = LensUtil.createObjectDeltaOperation(userDelta, result,
+				focusContext, linkChange.projCtx);
+		focusContext.addToExecutedDeltas(userDeltaOp);
+	}
 
+	/**
+	 * Link or unlink of a projection, waiting to be written to the focus.
+	 */
+	private static class LinkChange {
+		private final String operation;
+		private final boolean link;				// false means unlink
+		private final String focusOid;
+		private final Collection<? extends ItemDelta> deltas;
+		private final LensProjectionContext projCtx;
+		private final OperationResult projectionResult;
+
+		private LinkChange(String operation, boolean link, String focusOid, Collection<? extends ItemDelta> deltas,
+				LensProjectionContext projCtx, OperationResult projectionResult) {
+			this.operation = operation;
+			this.link = link;
+			this.focusOid = focusOid;
+			this.deltas = deltas;
+			this.projCtx = projCtx;
+			this.projectionResult = projectionResult;
+		}
 	}
 
 	private <F extends ObjectType> void updateSituationInShadow(Task task,
@@ -1176,6 +1323,7 @@ public class ChangeExecutor {
 				if (ModelExecuteOptions.isNoCrypt(options)) {
 					addOpt.setAllowUnencryptedValues(true);
 				}
+				context.recordRepositoryWrite();
 				oid = cacheRepositoryService.addObject(objectToAdd, addOpt, result);
 				if (oid == null) {
 					throw new SystemException(
@@ -1227,6 +1375,7 @@ public class ChangeExecutor {
 				}
 			} else {
 				try {
+					context.recordRepositoryWrite();
 					cacheRepositoryService.deleteObject(objectTypeClass, oid, result);
 				} catch (ObjectNotFoundException e) {
 					// Object that we wanted to delete is already gone. This can
@@ -1282,6 +1431,7 @@ public class ChangeExecutor {
 				}
 			} else {
 				FocusConstraintsChecker.clearCacheForDelta(change.getModifications());
+				context.recordRepositoryWrite();
 				cacheRepositoryService.modifyObject(objectTypeClass, change.getOid(),
 						change.getModifications(), result);
 			}
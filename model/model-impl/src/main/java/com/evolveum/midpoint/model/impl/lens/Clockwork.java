@@ -210,6 +210,7 @@ public class Clockwork {
 			exitAssociationSearchExpressionEvaluatorCache();
 			provisioningService.exitConstraintsCheckerCache();
 			context.reportProgress(new ProgressInformation(CLOCKWORK, EXITING));
+			recordClockworkRun(context, task);
 		}
 
 		// intentionally outside the "try-finally" block to start with clean caches
@@ -324,6 +325,16 @@ public class Clockwork {
 		changeNotificationDispatcher.registerNotificationListener((ResourceOperationListener) invalidator);
 	}
 
+	private <F extends ObjectType> void recordClockworkRun(LensContext<F> context, Task task) {
+		long projectorTime = 0;
+		long executionTime = 0;
+		for (LensProjectionContext projectionContext : context.getProjectionContexts()) {
+			projectorTime += projectionContext.getProjectorTime();
+			executionTime += projectionContext.getExecutionTime();
+		}
+		task.recordClockworkRun(context.getRepositoryWrites(), projectorTime, executionTime);
+	}
+
 	private void exitAssociationSearchExpressionEvaluatorCache() {
 		AssociationSearchExpressionEvaluatorCache cache = AssociationSearchExpressionEvaluatorCache.exitCache();
 		if (cache == null) {
@@ -738,7 +749,7 @@ public class Clockwork {
 			executedDeltas.add(odo);
 		}
 		LOGGER.trace("recordFocusOperationExecution: executedDeltas: {}", executedDeltas.size());
-		recordOperationExecution(objectNew, false, executedDeltas, now, context.getChannel(), task, result);
+		recordOperationExecution(context, objectNew, false, executedDeltas, now, task, result);
 	}
 
 	private <F extends ObjectType> void recordProjectionOperationExecution(LensContext<F> context,
@@ -748,13 +759,12 @@ public class Clockwork {
 		if (object == null) {
 			return;			// this can happen
 		}
-		recordOperationExecution(object, true, projectionContext.getExecutedDeltas(), now,
-				context.getChannel(), task, result);
+		recordOperationExecution(context, object, true, projectionContext.getExecutedDeltas(), now, task, result);
 	}
 
-	private <F extends ObjectType> void recordOperationExecution(PrismObject<F> object, boolean deletedOk,
-			List<LensObjectDeltaOperation<F>> executedDeltas, XMLGregorianCalendar now,
-			String channel, Task task, OperationResult result)
+	private <F extends ObjectType> void recordOperationExecution(LensContext<?> context, PrismObject<F> object,
+			boolean deletedOk, List<LensObjectDeltaOperation<F>> executedDeltas, XMLGregorianCalendar now,
+			Task task, OperationResult result)
 			throws ObjectAlreadyExistsException, ObjectNotFoundException, SchemaException {
 		OperationExecutionType operation = new OperationExecutionType(prismContext);
 		OperationResult summaryResult = new OperationResult("dummy");
@@ -774,11 +784,12 @@ public class Clockwork {
 		}
 		summaryResult.computeStatus();
 		OperationResultStatusType overallStatus = summaryResult.getStatus().createStatusType();
-		setOperationContext(operation, overallStatus, now, channel, task);
-		storeOperationExecution(object, oid, operation, deletedOk, result);
+		setOperationContext(operation, overallStatus, now, context.getChannel(), task);
+		storeOperationExecution(context, object, oid, operation, deletedOk, result);
 	}
 
-	private <F extends ObjectType> void storeOperationExecution(@NotNull PrismObject<F> object, @NotNull String oid,
+	private <F extends ObjectType> void storeOperationExecution(@NotNull LensContext<?> context,
+			@NotNull PrismObject<F> object, @NotNull String oid,
 			@NotNull OperationExecutionType executionToAdd, boolean deletedOk, OperationResult result)
 			throws SchemaException, ObjectAlreadyExistsException, ObjectNotFoundException {
 		Integer recordsToKeep;
@@ -843,6 +854,7 @@ public class Clockwork {
 		LOGGER.trace("Operation execution delta:\n{}", DebugUtil.debugDumpLazily(deltas));
 		try {
 			if (!deltas.isEmpty()) {
+				context.recordRepositoryWrite();
 				repositoryService.modifyObject(objectClass, oid, deltas, result);
 			}
 		} catch (ObjectNotFoundException e) {
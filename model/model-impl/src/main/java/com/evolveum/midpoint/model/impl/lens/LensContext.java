@@ -47,6 +47,7 @@ import javax.xml.namespace.QName;
 
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -183,6 +184,12 @@ public class LensContext<F extends ObjectType> implements ModelContext<F> {
 
 	transient private Map<String,Collection<Containerable>> hookPreviewResultsMap;
 
+	/**
+	 * Number of repository writes (add, modify, delete) executed directly by the clockwork in this run.
+	 * Reported to the task statistics when the clockwork run ends.
+	 */
+	transient private int repositoryWrites;
+
 	public LensContext(Class<F> focusClass, PrismContext prismContext,
 			ProvisioningService provisioningService) {
 		Validate.notNull(prismContext, "No prismContext");
@@ -515,6 +522,14 @@ public class LensContext<F extends ObjectType> implements ModelContext<F> {
 		this.executionAudited = executionAudited;
 	}
 
+	public int getRepositoryWrites() {
+		return repositoryWrites;
+	}
+
+	public void recordRepositoryWrite() {
+		repositoryWrites++;
+	}
+
 	public LensContextStatsType getStats() {
 		return stats;
 	}
@@ -706,9 +721,10 @@ public class LensContext<F extends ObjectType> implements ModelContext<F> {
 		return projCtx;
 	}
 
-	private Map<String, ResourceType> getResourceCache() {
+	private synchronized Map<String, ResourceType> getResourceCache() {
 		if (resourceCache == null) {
-			resourceCache = new HashMap<>();
+			// concurrent because projections can be processed in parallel
+			resourceCache = new ConcurrentHashMap<>();
 		}
 		return resourceCache;
 	}
@@ -1203,7 +1219,7 @@ public class LensContext<F extends ObjectType> implements ModelContext<F> {
 	}
 
 	@Override
-	public void reportProgress(ProgressInformation progress) {
+	public synchronized void reportProgress(ProgressInformation progress) {
 		if (progressListeners == null) {
 			return;
 		}
@@ -1248,7 +1264,7 @@ public class LensContext<F extends ObjectType> implements ModelContext<F> {
 		return conflictingProjectionContexts;
 	}
 
-	public void addConflictingProjectionContext(LensProjectionContext conflictingContext) {
+	public synchronized void addConflictingProjectionContext(LensProjectionContext conflictingContext) {
 		conflictingProjectionContexts.add(conflictingContext);
 	}
 
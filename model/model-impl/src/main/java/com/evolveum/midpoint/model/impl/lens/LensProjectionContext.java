@@ -201,6 +201,14 @@ public class LensProjectionContext extends LensElementContext<ShadowType> implem
 	
 	transient private String humanReadableName;
 
+	/**
+	 * Time spent in processing this projection by the projector and by the change executor (in milliseconds,
+	 * summed over all waves and clockwork steps). Useful to see which projections slow down the operation,
+	 * especially when they are processed in parallel.
+	 */
+	transient private long projectorTime;
+	transient private long executionTime;
+
 	LensProjectionContext(LensContext<? extends ObjectType> lensContext, ResourceShadowDiscriminator resourceAccountType) {
     	super(ShadowType.class, lensContext);
         this.resourceShadowDiscriminator = resourceAccountType;
@@ -1405,4 +1413,20 @@ public class LensProjectionContext extends LensElementContext<ShadowType> implem
 		}
 		return !current.asObjectable().getPendingOperation().isEmpty();
 	}
+
+	public long getProjectorTime() {
+		return projectorTime;
+	}
+
+	public void addProjectorTime(long millis) {
+		projectorTime += millis;
+	}
+
+	public long getExecutionTime() {
+		return executionTime;
+	}
+
+	public void addExecutionTime(long millis) {
+		executionTime += millis;
+	}
 }
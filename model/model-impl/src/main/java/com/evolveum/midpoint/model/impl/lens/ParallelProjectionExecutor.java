@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.model.impl.lens;
+
+import com.evolveum.midpoint.model.api.ModelExecuteOptions;
+import com.evolveum.midpoint.repo.cache.RepositoryCache;
+import com.evolveum.midpoint.schema.util.SystemConfigurationTypeUtil;
+import com.evolveum.midpoint.util.exception.*;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs processing of projections in parallel, if requested by the parallelProjections model execute option.
+ * Used by the projector and by the change executor for projections of the current wave, as these do not
+ * depend on each other (see DependencyProcessor).
+ *
+ * Workers run with the security context of the caller, and with their own repository cache. The caller is
+ * responsible for preparing everything that is not thread-safe, namely the operation results: each worker
+ * has to get its own one, created in the calling thread in the order of the projections. So the
+ * resulting operation result tree does not depend on the timing of the workers.
+ *
+ * Projections processed within a worker thread (e.g. by a clockwork invoked from an expression) are processed
+ * sequentially, so the workers cannot block each other by waiting for a free thread.
+ *
+ * The number of worker threads is taken from system configuration (internals/parallelProjectionThreads)
+ * each time projections are to be processed, so it can be changed without restart.
+ *
+ * EXPERIMENTAL
+ */
+@Component
+public class ParallelProjectionExecutor {
+
+	private static final Trace LOGGER = TraceManager.getTrace(ParallelProjectionExecutor.class);
+
+	private static final int DEFAULT_THREADS = 10;
+
+	private static final ThreadLocal<Boolean> IN_WORKER = new ThreadLocal<>();
+
+	private ThreadPoolExecutor executor;
+
+	@FunctionalInterface
+	public interface ProjectionAction {
+		void run(LensProjectionContext projectionContext) throws SchemaException, ObjectNotFoundException,
+				CommunicationException, ConfigurationException, SecurityViolationException, PolicyViolationException,
+				ExpressionEvaluationException, ObjectAlreadyExistsException;
+	}
+
+	@PostConstruct
+	public void init() {
+		AtomicInteger threadNumber = new AtomicInteger();
+		executor = new ThreadPoolExecutor(DEFAULT_THREADS, DEFAULT_THREADS, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<>(), runnable -> {
+					Thread thread = new Thread(runnable, "projection-worker-" + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	public boolean isParallel(LensContext<?> context) {
+		return ModelExecuteOptions.isParallelProjections(context.getOptions()) && IN_WORKER.get() == null;
+	}
+
+	/**
+	 * Executes the action for all projection contexts in parallel and waits until all of them finish.
+	 * If some of the actions fail, the exception of the first one (in the order of the contexts) is thrown.
+	 */
+	public void executeAll(LensContext<?> context, List<LensProjectionContext> projectionContexts, ProjectionAction action)
+			throws SchemaException, ObjectNotFoundException, CommunicationException, ConfigurationException,
+			SecurityViolationException, PolicyViolationException, ExpressionEvaluationException,
+			ObjectAlreadyExistsException {
+		if (projectionContexts.size() <= 1) {
+			for (LensProjectionContext projectionContext : projectionContexts) {
+				action.run(projectionContext);
+			}
+			return;
+		}
+		configureThreads(context);
+		SecurityContext securityContext = SecurityContextHolder.getContext();
+		List<Future<?>> futures = new ArrayList<>(projectionContexts.size());
+		for (LensProjectionContext projectionContext : projectionContexts) {
+			futures.add(executor.submit(() -> {
+				IN_WORKER.set(true);
+				SecurityContextHolder.setContext(securityContext);
+				RepositoryCache.enter();
+				try {
+					action.run(projectionContext);
+					return null;
+				} finally {
+					RepositoryCache.exit();
+					SecurityContextHolder.clearContext();
+					IN_WORKER.remove();
+				}
+			}));
+		}
+		Throwable firstFailure = null;
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				futures.get(i).get();
+			} catch (ExecutionException e) {
+				if (firstFailure == null) {
+					firstFailure = e.getCause();
+				} else {
+					LOGGER.debug("Additional failure while processing {}: {}",
+							projectionContexts.get(i).getHumanReadableName(), e.getCause().getMessage(), e.getCause());
+				}
+			} catch (InterruptedException e) {
+				futures.forEach(future -> future.cancel(true));
+				Thread.currentThread().interrupt();
+				throw new SystemException("Interrupted while waiting for projections to be processed", e);
+			}
+		}
+		if (firstFailure != null) {
+			throwException(firstFailure);
+		}
+	}
+
+	private synchronized void configureThreads(LensContext<?> context) {
+		Integer configured = SystemConfigurationTypeUtil.getParallelProjectionThreads(context.getSystemConfiguration());
+		int threads = configured != null && configured > 0 ? configured : DEFAULT_THREADS;
+		int current = executor.getMaximumPoolSize();
+		if (threads == current) {
+			return;
+		}
+		LOGGER.info("Changing the number of parallel projection threads from {} to {}", current, threads);
+		// core pool size must not exceed the maximum pool size at any time
+		if (threads > current) {
+			executor.setMaximumPoolSize(threads);
+			executor.setCorePoolSize(threads);
+		} else {
+			executor.setCorePoolSize(threads);
+			executor.setMaximumPoolSize(threads);
+		}
+	}
+
+	private void throwException(Throwable t) throws SchemaException, ObjectNotFoundException, CommunicationException,
+			ConfigurationException, SecurityViolationException, PolicyViolationException, ExpressionEvaluationException,
+			ObjectAlreadyExistsException {
+		if (t instanceof SchemaException) {
+			throw (SchemaException) t;
+		} else if (t instanceof ObjectNotFoundException) {
+			throw (ObjectNotFoundException) t;
+		} else if (t instanceof CommunicationException) {
+			throw (CommunicationException) t;
+		} else if (t instanceof ConfigurationException) {
+			throw (ConfigurationException) t;
+		} else if (t instanceof SecurityViolationException) {
+			throw (SecurityViolationException) t;
+		} else if (t instanceof PolicyViolationException) {
+			throw (PolicyViolationException) t;
+		} else if (t instanceof ExpressionEvaluationException) {
+			throw (ExpressionEvaluationException) t;
+		} else if (t instanceof ObjectAlreadyExistsException) {
+			throw (ObjectAlreadyExistsException) t;
+		} else if (t instanceof RuntimeException) {
+			throw (RuntimeException) t;
+		} else if (t instanceof Error) {
+			throw (Error) t;
+		} else {
+			throw new SystemException(t.getMessage(), t);
+		}
+	}
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.model.impl.lens;
+
+import com.evolveum.midpoint.model.api.context.ModelContext;
+import com.evolveum.midpoint.model.api.context.ModelElementContext;
+import com.evolveum.midpoint.model.api.context.ModelState;
+import com.evolveum.midpoint.model.api.hooks.ChangeHook;
+import com.evolveum.midpoint.model.api.hooks.HookOperationMode;
+import com.evolveum.midpoint.model.api.hooks.HookRegistry;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.repo.api.RepositoryService;
+import com.evolveum.midpoint.schema.internals.InternalCounters;
+import com.evolveum.midpoint.schema.internals.InternalMonitor;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.security.api.Authorization;
+import com.evolveum.midpoint.task.api.ClusterEvent;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.task.api.TaskManager;
+import com.evolveum.midpoint.util.caching.BoundedLruCache;
+import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AbstractRoleType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AssignmentType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AuthorizationType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Global cache of abstract roles (roles, orgs, services) used as assignment targets. When recomputing
+ * many users, the same roles (and their meta-roles) are resolved again and again by the assignment
+ * evaluator; this cache avoids reading and parsing them from the repository each time.
+ *
+ * Like the SystemObjectCache, the cached role is revalidated using the getVersion() method when it gets
+ * older than the expiration time. Roles changed via the model on this node are invalidated immediately
+ * (this class is a change hook) and other nodes in the cluster are notified using cluster events,
+ * so they can invalidate their copies without waiting for the expiration. The cached roles are immutable and shared
+ * by all callers; a caller that needs to modify the role has to clone it. When the cache is full, the least recently
+ * used roles are evicted.
+ *
+ * Along with each role, the focus-independent part of its expansion is cached (see {@link Expansion}): the assignments
+ * and inducements to be followed and the authorizations granted by the role. The rest of the evaluation depends on the focus
+ * (conditions, assignment path variables, evaluation order), so it is done by the assignment evaluator each time.
+ *
+ * Hits and misses are counted both here and in the internal monitor (roleCacheHitCount, roleCacheMissCount).
+ * Expansions reused from the cache and expansions computed anew are counted separately.
+ */
+@Component
+public class RoleCache implements ChangeHook {
+
+	private static final Trace LOGGER = TraceManager.getTrace(RoleCache.class);
+
+	public static final String HOOK_URI = "http://midpoint.evolveum.com/model/role-cache-hook-1";
+	public static final String CACHE_NAME = RoleCache.class.getSimpleName();
+
+	private static final long DEFAULT_EXPIRATION_MILLIS = 1000L;
+	private static final int MAX_SIZE = 10000;
+
+	@Autowired private HookRegistry hookRegistry;
+	@Autowired private TaskManager taskManager;
+
+	private final BoundedLruCache<String, Entry> entries = new BoundedLruCache<>(MAX_SIZE);
+	private volatile long expirationMillis = DEFAULT_EXPIRATION_MILLIS;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong expansionHits = new AtomicLong();
+	private final AtomicLong expansionMisses = new AtomicLong();
+
+	@PostConstruct
+	public void init() {
+		hookRegistry.registerChangeHook(HOOK_URI, this);
+		taskManager.registerClusterEventListener(this::onClusterEvent);
+	}
+
+	/**
+	 * Returns the object using the cache if it is an abstract role; other objects are simply read from the repository.
+	 * The repository is provided by the caller, so the per-operation RepositoryCache (if any) is used for reading
+	 * and checking the version. Abstract roles are returned as immutable objects.
+	 */
+	public <O extends ObjectType> PrismObject<O> getObject(Class<O> type, String oid, RepositoryService repository,
+			OperationResult result) throws ObjectNotFoundException, SchemaException {
+		if (!AbstractRoleType.class.isAssignableFrom(type)) {
+			return repository.getObject(type, oid, null, result);
+		}
+		Entry entry = entries.get(oid);
+		if (entry != null && type.isAssignableFrom(entry.object.getCompileTimeClass()) && isValid(entry, type, repository, result)) {
+			hits.incrementAndGet();
+			InternalMonitor.recordCount(InternalCounters.ROLE_CACHE_HIT_COUNT);
+			LOGGER.trace("Cache HIT: reusing cached {}, version {}", entry.object, entry.object.getVersion());
+			//noinspection unchecked
+			return (PrismObject<O>) entry.object;
+		}
+		misses.incrementAndGet();
+		InternalMonitor.recordCount(InternalCounters.ROLE_CACHE_MISS_COUNT);
+		PrismObject<O> object;
+		try {
+			object = repository.getObject(type, oid, null, result);
+		} catch (ObjectNotFoundException e) {
+			entries.remove(oid);
+			throw e;
+		}
+		if (object != null && object.getVersion() != null) {
+			LOGGER.trace("Cache MISS: read {} from the repository, version {}", object, object.getVersion());
+			object.setImmutable(true);
+			entries.put(oid, new Entry(object));
+		}
+		return object;
+	}
+
+	/**
+	 * Returns the focus-independent expansion of the role. If the role was obtained from this cache (and was not
+	 * invalidated since), the expansion is computed only once for its version and then reused.
+	 */
+	public Expansion getExpansion(AbstractRoleType role) {
+		PrismObject<? extends ObjectType> object = role.asPrismObject();
+		Entry entry = object.getOid() != null ? entries.get(object.getOid()) : null;
+		if (entry == null || entry.object != object) {
+			expansionMisses.incrementAndGet();
+			return new Expansion(role);
+		}
+		Expansion expansion = entry.expansion;
+		if (expansion != null) {
+			expansionHits.incrementAndGet();
+			return expansion;
+		}
+		expansionMisses.incrementAndGet();
+		expansion = new Expansion(role);
+		entry.expansion = expansion;		// computing it twice concurrently is harmless
+		return expansion;
+	}
+
+	private <O extends ObjectType> boolean isValid(Entry entry, Class<O> type, RepositoryService repository,
+			OperationResult result) throws ObjectNotFoundException, SchemaException {
+		if (System.currentTimeMillis() < entry.checkTimestamp + expirationMillis) {
+			return true;
+		}
+		String repoVersion = repository.getVersion(type, entry.object.getOid(), result);
+		if (entry.object.getVersion().equals(repoVersion)) {
+			entry.checkTimestamp = System.currentTimeMillis();
+			return true;
+		}
+		return false;
+	}
+
+	// for tests
+	void setExpirationMillis(long expirationMillis) {
+		this.expirationMillis = expirationMillis;
+	}
+
+	public void invalidate(String oid) {
+		entries.remove(oid);
+	}
+
+	public void invalidateAll() {
+		entries.clear();
+	}
+
+	/**
+	 * Number of role resolutions served from the cache.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Number of role resolutions that had to read the role from the repository.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Number of role expansions reused from the cache.
+	 */
+	public long getExpansionHits() {
+		return expansionHits.get();
+	}
+
+	/**
+	 * Number of role expansions that had to be computed.
+	 */
+	public long getExpansionMisses() {
+		return expansionMisses.get();
+	}
+
+	@Override
+	public <O extends ObjectType> HookOperationMode invoke(@NotNull ModelContext<O> context, @NotNull Task task,
+			@NotNull OperationResult result) {
+		if (context.getState() == ModelState.FINAL) {
+			invalidate(context);
+		}
+		return HookOperationMode.FOREGROUND;
+	}
+
+	@Override
+	public void invokeOnException(@NotNull ModelContext context, @NotNull Throwable throwable, @NotNull Task task,
+			@NotNull OperationResult result) {
+		// the role could be changed partially
+		invalidate(context);
+	}
+
+	private void invalidate(ModelContext<?> context) {
+		ModelElementContext<?> focusContext = context.getFocusContext();
+		if (focusContext != null && focusContext.getOid() != null && focusContext.getObjectTypeClass() != null
+				&& AbstractRoleType.class.isAssignableFrom(focusContext.getObjectTypeClass())) {
+			invalidate(focusContext.getOid());
+			taskManager.publishClusterEvent(ClusterEvent.cacheInvalidation(CACHE_NAME, focusContext.getOid()));
+		}
+	}
+
+	private void onClusterEvent(ClusterEvent event) {
+		if (event.getType() == ClusterEvent.Type.CACHE_INVALIDATION && CACHE_NAME.equals(event.getObjectType())) {
+			if (event.getOid() != null) {
+				LOGGER.trace("Invalidating {} because of a change on another node", event.getOid());
+				invalidate(event.getOid());
+			} else {
+				invalidateAll();
+			}
+		}
+	}
+
+	/**
+	 * The part of the role evaluation that does not depend on the focus: the assignments and inducements
+	 * (to be evaluated, including their conditions, by the assignment evaluator) and authorizations of the role.
+	 * It is immutable, as it is shared by all evaluations of the role.
+	 */
+	public static class Expansion {
+		private final List<AssignmentType> assignments;
+		private final List<AssignmentType> inducements;
+		private final List<Authorization> authorizations;
+
+		private Expansion(AbstractRoleType role) {
+			assignments = Collections.unmodifiableList(new ArrayList<>(role.getAssignment()));
+			inducements = Collections.unmodifiableList(new ArrayList<>(role.getInducement()));
+			List<Authorization> authorizationList = new ArrayList<>(role.getAuthorization().size());
+			for (AuthorizationType authorizationType : role.getAuthorization()) {
+				Authorization authorization = new Authorization(authorizationType);
+				authorization.setSourceDescription(role.toString());
+				authorizationList.add(authorization);
+			}
+			authorizations = Collections.unmodifiableList(authorizationList);
+		}
+
+		public List<AssignmentType> getAssignments() {
+			return assignments;
+		}
+
+		public List<AssignmentType> getInducements() {
+			return inducements;
+		}
+
+		public List<Authorization> getAuthorizations() {
+			return authorizations;
+		}
+	}
+
+	private static class Entry {
+		private final PrismObject<? extends ObjectType> object;
+		private volatile long checkTimestamp;
+		private volatile Expansion expansion;
+
+		private Entry(PrismObject<? extends ObjectType> object) {
+			this.object = object;
+			this.checkTimestamp = System.currentTimeMillis();
+		}
+	}
+}
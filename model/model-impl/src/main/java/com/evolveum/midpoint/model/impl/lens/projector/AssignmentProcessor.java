@@ -46,6 +46,7 @@ import com.evolveum.midpoint.model.impl.lens.LensContext;
 import com.evolveum.midpoint.model.impl.lens.LensFocusContext;
 import com.evolveum.midpoint.model.impl.lens.LensProjectionContext;
 import com.evolveum.midpoint.model.impl.lens.LensUtil;
+import com.evolveum.midpoint.model.impl.lens.RoleCache;
 import com.evolveum.midpoint.prism.ItemDefinition;
 import com.evolveum.midpoint.prism.PrismContainerDefinition;
 import com.evolveum.midpoint.prism.PrismContext;
@@ -116,6 +117,9 @@ public class AssignmentProcessor {
     @Autowired
 	private SystemObjectCache systemObjectCache;
 
+    @Autowired
+	private RoleCache roleCache;
+
     @Autowired
     private PrismContext prismContext;
 
@@ -983,6 +987,7 @@ public class AssignmentProcessor {
 				.channel(context.getChannel())
 				.objectResolver(objectResolver)
 				.systemObjectCache(systemObjectCache)
+				.roleCache(roleCache)
 				.prismContext(prismContext)
 				.mappingFactory(mappingFactory)
 				.mappingEvaluator(mappingEvaluator)
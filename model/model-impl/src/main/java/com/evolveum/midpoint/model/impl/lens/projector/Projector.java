@@ -19,7 +19,10 @@ import static com.evolveum.midpoint.model.api.ProgressInformation.ActivityType.P
 import static com.evolveum.midpoint.model.api.ProgressInformation.StateType.ENTERING;
 import static com.evolveum.midpoint.schema.internals.InternalsConfig.consistencyChecks;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.xml.datatype.XMLGregorianCalendar;
 
@@ -34,6 +37,7 @@ import com.evolveum.midpoint.model.api.context.SynchronizationPolicyDecision;
 import com.evolveum.midpoint.model.impl.lens.LensContext;
 import com.evolveum.midpoint.model.impl.lens.LensProjectionContext;
 import com.evolveum.midpoint.model.impl.lens.LensUtil;
+import com.evolveum.midpoint.model.impl.lens.ParallelProjectionExecutor;
 import com.evolveum.midpoint.model.impl.lens.projector.credentials.ProjectionCredentialsProcessor;
 import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
 import com.evolveum.midpoint.schema.ResourceShadowDiscriminator;
@@ -98,6 +102,9 @@ public class Projector {
     @Autowired
     private DependencyProcessor dependencyProcessor;
     
+    @Autowired
+    private ParallelProjectionExecutor parallelProjectionExecutor;
+
     @Autowired
     private Clock clock;
 	
@@ -259,15 +266,22 @@ public class Projector {
 					maxWaves = dependencyProcessor.computeMaxWaves(context);
 					LOGGER.trace("Continuing wave {}, maxWaves={}", context.getProjectionWave(), maxWaves);
 
-					for (LensProjectionContext projectionContext : context.getProjectionContexts()) {
-
-						LensUtil.partialExecute("projection " + projectionContext.getHumanReadableName(),
-								() -> projectProjection(context, projectionContext,
-										partialProcessingOptions, now, activityDescription, task, result),
+					if (parallelProjectionExecutor.isParallel(context)) {
+						LensUtil.partialExecute("projections",
+								() -> projectProjectionsInParallel(context, partialProcessingOptions, now,
+										activityDescription, task, result),
 								partialProcessingOptions::getProjection);
-						// TODO: make this condition more complex in the future. We may want the ability
-						// to select only some projections to process
+					} else {
+						for (LensProjectionContext projectionContext : context.getProjectionContexts()) {
+
+							LensUtil.partialExecute("projection " + projectionContext.getHumanReadableName(),
+									() -> projectProjection(context, projectionContext,
+											partialProcessingOptions, now, activityDescription, task, result),
+									partialProcessingOptions::getProjection);
+							// TODO: make this condition more complex in the future. We may want the ability
+							// to select only some projections to process
 
+						}
 					}
 
 					// if there exists some conflicting projection contexts, add them to the context so they will be recomputed in the next wave..
@@ -308,6 +322,28 @@ public class Projector {
 		
 	}
 
+	/**
+	 * Projections of the current wave do not depend on each other, so they can be processed concurrently.
+	 * Operation results are created here, in the order of the projections; each worker then uses its own one.
+	 */
+	private <F extends ObjectType> void projectProjectionsInParallel(LensContext<F> context,
+			PartialProcessingOptionsType partialProcessingOptions, XMLGregorianCalendar now, String activityDescription,
+			Task task, OperationResult parentResult) throws ObjectNotFoundException, CommunicationException, SchemaException, ConfigurationException, SecurityViolationException, PolicyViolationException, ExpressionEvaluationException, ObjectAlreadyExistsException {
+		List<LensProjectionContext> projectionContexts = new ArrayList<>();
+		Map<LensProjectionContext, OperationResult> results = new IdentityHashMap<>();
+		for (LensProjectionContext projectionContext : context.getProjectionContexts()) {
+			if (projectionContext.getWave() == context.getProjectionWave()) {
+				projectionContexts.add(projectionContext);
+				results.put(projectionContext, createProjectionResult(projectionContext, parentResult));
+			}
+		}
+		LOGGER.trace("Processing {} projection(s) in parallel", projectionContexts.size());
+		parallelProjectionExecutor.executeAll(context, projectionContexts,
+				projectionContext -> projectProjection(context, projectionContext, partialProcessingOptions, now,
+						activityDescription, true, task, results.get(projectionContext)));
+		if (consistencyChecks) context.checkConsistence();
+	}
+
 	private <F extends ObjectType> void projectProjection(LensContext<F> context, LensProjectionContext projectionContext,
 			PartialProcessingOptionsType partialProcessingOptions,
 			XMLGregorianCalendar now, String activityDescription, Task task, OperationResult parentResult) throws ObjectNotFoundException, CommunicationException, SchemaException, ConfigurationException, SecurityViolationException, PolicyViolationException, ExpressionEvaluationException, ObjectAlreadyExistsException {
@@ -317,10 +353,26 @@ public class Projector {
     		return;
     	}
 		
-		String projectionDesc = getProjectionDesc(projectionContext);
-		
+		OperationResult result = createProjectionResult(projectionContext, parentResult);
+		projectProjection(context, projectionContext, partialProcessingOptions, now, activityDescription, false, task, result);
+	}
+
+	private OperationResult createProjectionResult(LensProjectionContext projectionContext, OperationResult parentResult) {
 		OperationResult result = parentResult.createMinorSubresult(OPERATION_PROJECT_PROJECTION);
-		result.addParam(OperationResult.PARAM_PROJECTION, projectionDesc);
+		result.addParam(OperationResult.PARAM_PROJECTION, getProjectionDesc(projectionContext));
+		return result;
+	}
+
+	/**
+	 * If running in parallel with other projections, only this projection context can be checked and traced,
+	 * as the other ones are being modified concurrently.
+	 */
+	private <F extends ObjectType> void projectProjection(LensContext<F> context, LensProjectionContext projectionContext,
+			PartialProcessingOptionsType partialProcessingOptions, XMLGregorianCalendar now, String activityDescription,
+			boolean parallel, Task task, OperationResult result) throws ObjectNotFoundException, CommunicationException, SchemaException, ConfigurationException, SecurityViolationException, PolicyViolationException, ExpressionEvaluationException, ObjectAlreadyExistsException {
+
+		String projectionDesc = getProjectionDesc(projectionContext);
+		long start = System.currentTimeMillis();
 		
 		try {
 		
@@ -344,7 +396,7 @@ public class Projector {
 	    	// Some projections may not be loaded at this point, e.g. high-order dependency projections
 	    	contextLoader.makeSureProjectionIsLoaded(context, projectionContext, task, result);
 	    	
-	    	if (consistencyChecks) context.checkConsistence();
+	    	checkConsistence(context, projectionContext, parallel);
 	    	
 	    	if (!dependencyProcessor.checkDependencies(context, projectionContext, result)) {
 	    		result.recordStatus(OperationResultStatus.NOT_APPLICABLE, "Skipping projection because it has unsatisfied dependencies");
@@ -357,10 +409,10 @@ public class Projector {
 					() -> {
 						// This is a "composite" processor. it contains several more processor invocations inside
 						projectionValuesProcessor.process(context, projectionContext, activityDescription, task, result);
-				    	if (consistencyChecks) context.checkConsistence();
+				    	checkConsistence(context, projectionContext, parallel);
 				    	
 				    	projectionContext.recompute();
-				    	if (consistencyChecks) context.checkConsistence();
+				    	checkConsistence(context, projectionContext, parallel);
 					},
 					partialProcessingOptions::getProjectionValues);
 	    	
@@ -368,11 +420,13 @@ public class Projector {
 	    	LensUtil.partialExecute("projectionCredentials",
 					() -> {
 						projectionCredentialsProcessor.processProjectionCredentials(context, projectionContext, now, task, result);
-				    	if (consistencyChecks) context.checkConsistence();
+				    	checkConsistence(context, projectionContext, parallel);
 				        
 				    	projectionContext.recompute();
-				    	LensUtil.traceContext(LOGGER, activityDescription, "projection values and credentials of "+projectionDesc, false, context, true);
-				        if (consistencyChecks) context.checkConsistence();
+				    	if (!parallel) {
+				    		LensUtil.traceContext(LOGGER, activityDescription, "projection values and credentials of "+projectionDesc, false, context, true);
+				    	}
+				        checkConsistence(context, projectionContext, parallel);
 					},
 					partialProcessingOptions::getProjectionCredentials);
 	    	
@@ -381,8 +435,10 @@ public class Projector {
 					() -> {
 						reconciliationProcessor.processReconciliation(context, projectionContext, task, result);
 						projectionContext.recompute();
-				        LensUtil.traceContext(LOGGER, activityDescription, "projection reconciliation of "+projectionDesc, false, context, false);
-				        if (consistencyChecks) context.checkConsistence();
+				        if (!parallel) {
+				        	LensUtil.traceContext(LOGGER, activityDescription, "projection reconciliation of "+projectionDesc, false, context, false);
+				        }
+				        checkConsistence(context, projectionContext, parallel);
 					},
 					partialProcessingOptions::getProjectionReconciliation);
 	        
@@ -390,11 +446,11 @@ public class Projector {
 	        LensUtil.partialExecute("projectionLifecycle",
 					() -> {
 						activationProcessor.processLifecycle(context, projectionContext, now, task, result);
-				    	if (consistencyChecks) context.checkConsistence();
+				    	checkConsistence(context, projectionContext, parallel);
 				    	
 				    	projectionContext.recompute();
 //				    	LensUtil.traceContext(LOGGER, activityDescription, "projection lifecycle of "+projectionDesc, false, context, false);
-				    	if (consistencyChecks) context.checkConsistence();
+				    	checkConsistence(context, projectionContext, parallel);
 					},
 					partialProcessingOptions::getProjectionLifecycle);
 	        
@@ -430,9 +486,20 @@ public class Projector {
 					}
 				}
 			}
-    	}
-	        
+    	} finally {
+			projectionContext.addProjectorTime(System.currentTimeMillis() - start);
+		}
+	}
 
+	private <F extends ObjectType> void checkConsistence(LensContext<F> context, LensProjectionContext projectionContext,
+			boolean parallel) {
+		if (consistencyChecks) {
+			if (parallel) {
+				projectionContext.checkConsistence();
+			} else {
+				context.checkConsistence();
+			}
+		}
 	}
 
 	private String getProjectionDesc(LensProjectionContext projectionContext) {
@@ -31,6 +31,7 @@ import com.evolveum.midpoint.model.impl.lens.AssignmentEvaluator;
 import com.evolveum.midpoint.model.impl.lens.LensContext;
 import com.evolveum.midpoint.model.impl.lens.LensContextPlaceholder;
 import com.evolveum.midpoint.model.impl.lens.LensUtil;
+import com.evolveum.midpoint.model.impl.lens.RoleCache;
 import com.evolveum.midpoint.model.impl.lens.projector.MappingEvaluator;
 import com.evolveum.midpoint.prism.PrismContainerDefinition;
 import com.evolveum.midpoint.prism.PrismContainerValue;
@@ -94,6 +95,7 @@ public class UserProfileServiceImpl implements UserProfileService, UserDetailsSe
 
 	@Autowired private ObjectResolver objectResolver;
 	@Autowired private SystemObjectCache systemObjectCache;
+	@Autowired private RoleCache roleCache;
 	@Autowired private MappingFactory mappingFactory;
 	@Autowired private MappingEvaluator mappingEvaluator;
 	@Autowired private SecurityHelper securityHelper;
@@ -188,6 +190,7 @@ public class UserProfileServiceImpl implements UserProfileService, UserDetailsSe
 							.channel(null)
 							.objectResolver(objectResolver)
 							.systemObjectCache(systemObjectCache)
+							.roleCache(roleCache)
 							.prismContext(prismContext)
 							.mappingFactory(mappingFactory)
 							.mappingEvaluator(mappingEvaluator)
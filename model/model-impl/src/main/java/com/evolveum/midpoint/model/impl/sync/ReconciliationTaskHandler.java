@@ -24,6 +24,8 @@ import com.evolveum.midpoint.common.refinery.RefinedObjectClassDefinition;
 import com.evolveum.midpoint.common.refinery.RefinedResourceSchema;
 import com.evolveum.midpoint.common.refinery.RefinedResourceSchemaImpl;
 import com.evolveum.midpoint.model.impl.ModelConstants;
+import com.evolveum.midpoint.model.impl.util.AbstractSearchIterativeResultHandler;
+import com.evolveum.midpoint.model.impl.util.CompactOidSet;
 import com.evolveum.midpoint.model.impl.util.Utils;
 import com.evolveum.midpoint.prism.PrismContext;
 import com.evolveum.midpoint.prism.PrismObject;
@@ -39,9 +41,7 @@ import com.evolveum.midpoint.provisioning.api.ProvisioningOperationOptions;
 import com.evolveum.midpoint.provisioning.api.ProvisioningService;
 import com.evolveum.midpoint.provisioning.api.ResourceObjectShadowChangeDescription;
 import com.evolveum.midpoint.repo.api.RepositoryService;
-import com.evolveum.midpoint.repo.cache.RepositoryCache;
 import com.evolveum.midpoint.schema.GetOperationOptions;
-import com.evolveum.midpoint.schema.ResultHandler;
 import com.evolveum.midpoint.schema.SelectorOptions;
 import com.evolveum.midpoint.schema.constants.SchemaConstants;
 import com.evolveum.midpoint.schema.processor.ObjectClassComplexTypeDefinition;
@@ -52,7 +52,6 @@ import com.evolveum.midpoint.schema.util.ObjectTypeUtil;
 import com.evolveum.midpoint.schema.util.ShadowUtil;
 import com.evolveum.midpoint.task.api.*;
 import com.evolveum.midpoint.task.api.TaskRunResult.TaskRunResultStatus;
-import com.evolveum.midpoint.util.Holder;
 import com.evolveum.midpoint.util.QNameUtil;
 import com.evolveum.midpoint.util.exception.*;
 import com.evolveum.midpoint.util.logging.LoggingUtils;
@@ -71,6 +70,7 @@ import javax.annotation.PostConstruct;
 import javax.xml.namespace.QName;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The task hander for reconciliation.
@@ -267,13 +267,14 @@ public class ReconciliationTaskHandler implements TaskHandler {
 		long beforeResourceReconTimestamp = clock.currentTimeMillis();
 		long afterResourceReconTimestamp;
 		long afterShadowReconTimestamp;
+		CompactOidSet seenOids = new CompactOidSet();		// shadows found on the resource; these need not be checked for existence
 		try {			
-			if (!finishOperationsOnly && !performResourceReconciliation(resource, objectclassDef, reconResult, coordinatorTask, opResult)) {
+			if (!finishOperationsOnly && !performResourceReconciliation(resource, objectclassDef, seenOids, reconResult, coordinatorTask, opResult)) {
                 processInterruption(runResult, resource, coordinatorTask, opResult);
                 return runResult;
             }
 			afterResourceReconTimestamp = clock.currentTimeMillis();
-			if (!finishOperationsOnly && !performShadowReconciliation(resource, objectclassDef, reconStartTimestamp, afterResourceReconTimestamp, reconResult, coordinatorTask, opResult)) {
+			if (!finishOperationsOnly && !performShadowReconciliation(resource, objectclassDef, seenOids, reconStartTimestamp, afterResourceReconTimestamp, reconResult, coordinatorTask, opResult)) {
                 processInterruption(runResult, resource, coordinatorTask, opResult);
                 return runResult;
             }
@@ -406,11 +407,6 @@ public class ReconciliationTaskHandler implements TaskHandler {
         }
     }
 
-	// TODO do this only each N seconds (as in AbstractSearchIterativeResultHandler)
-    private void incrementAndRecordProgress(Task task, OperationResult opResult) {
-        recordProgress(task, task.getProgress() + 1, opResult);
-    }
-
     private void processInterruption(TaskRunResult runResult, PrismObject<ResourceType> resource, Task task, OperationResult opResult) {
         opResult.recordWarning("Interrupted");
         if (LOGGER.isWarnEnabled()) {
@@ -452,7 +448,8 @@ public class ReconciliationTaskHandler implements TaskHandler {
 	}
 
     // returns false in case of execution interruption
-	private boolean performResourceReconciliation(PrismObject<ResourceType> resource, ObjectClassComplexTypeDefinition objectclassDef, ReconciliationTaskResult reconResult, Task coordinatorTask, OperationResult result)
+	private boolean performResourceReconciliation(PrismObject<ResourceType> resource, ObjectClassComplexTypeDefinition objectclassDef,
+			CompactOidSet seenOids, ReconciliationTaskResult reconResult, Task coordinatorTask, OperationResult result)
 			throws ObjectNotFoundException, SchemaException, CommunicationException, ConfigurationException,
 			SecurityViolationException, ExpressionEvaluationException {
 
@@ -466,6 +463,7 @@ public class ReconciliationTaskHandler implements TaskHandler {
 				objectclassDef, "reconciliation", coordinatorTask, changeNotificationDispatcher, taskManager);
 		handler.setSourceChannel(SchemaConstants.CHANGE_CHANNEL_RECON);
 		handler.setStopOnError(false);
+		handler.setSeenOids(seenOids);
 
 		coordinatorTask.setExpectedTotal(null);
 
@@ -508,9 +506,17 @@ public class ReconciliationTaskHandler implements TaskHandler {
         return !interrupted;
 	}
 
-    // returns false in case of execution interruption
+	/**
+	 * Checks the existence of shadows that were not updated by the resource reconciliation. Shadows seen during
+	 * the resource reconciliation are skipped without asking the resource (e.g. protected ones, or those whose
+	 * synchronization failed), so only the shadows that really disappeared from the resource are fetched.
+	 * Shadows are processed by worker threads, if configured.
+	 *
+	 * Returns false in case of execution interruption.
+	 */
 	private boolean performShadowReconciliation(final PrismObject<ResourceType> resource, final ObjectClassComplexTypeDefinition objectclassDef,
-			long startTimestamp, long endTimestamp, ReconciliationTaskResult reconResult, final Task task, OperationResult result) throws SchemaException {
+			CompactOidSet seenOids, long startTimestamp, long endTimestamp, ReconciliationTaskResult reconResult, final Task coordinatorTask,
+			OperationResult result) throws SchemaException {
         boolean interrupted;
 
 		// find accounts
@@ -531,58 +537,58 @@ public class ReconciliationTaskHandler implements TaskHandler {
 		}
 
 		long started = System.currentTimeMillis();
-		
-		final Holder<Long> countHolder = new Holder<Long>(0L);
 
-		ResultHandler<ShadowType> handler = new ResultHandler<ShadowType>() {
+		final AtomicLong count = new AtomicLong();
+		final AtomicLong skipped = new AtomicLong();
+
+		AbstractSearchIterativeResultHandler<ShadowType> handler = new AbstractSearchIterativeResultHandler<ShadowType>(
+				coordinatorTask, ReconciliationTaskHandler.class.getName(), "shadow reconciliation", "from " + resource, taskManager) {
+
 			@Override
 			public boolean handle(PrismObject<ShadowType> shadow, OperationResult parentResult) {
 				if ((objectclassDef instanceof RefinedObjectClassDefinition) && !((RefinedObjectClassDefinition)objectclassDef).matches(shadow.asObjectable())) {
 					return true;
 				}
-				
+				if (seenOids.contains(shadow.getOid())) {
+					LOGGER.trace("Skipping shadow reconciliation of {} because it was seen on the resource", shadow);
+					skipped.incrementAndGet();
+					return coordinatorTask.canRun();
+				}
+				return super.handle(shadow, parentResult);
+			}
+
+			@Override
+			protected boolean handleObject(PrismObject<ShadowType> shadow, Task workerTask, OperationResult result) {
 				if (LOGGER.isTraceEnabled()) {
 					LOGGER.trace("Shadow reconciliation of {}, fullSynchronizationTimestamp={}", shadow, shadow.asObjectable().getFullSynchronizationTimestamp());
 				}
-				long started = System.currentTimeMillis();
-				PrismObject<ShadowType> resourceShadow = null;
-				try {
-					task.recordIterativeOperationStart(shadow.asObjectable());
-					resourceShadow = reconcileShadow(shadow, resource, task);
-					task.recordIterativeOperationEnd(shadow.asObjectable(), started, null);
-				} catch (Throwable t) {
-					task.recordIterativeOperationEnd(shadow.asObjectable(), started, t);
-					throw t;
-				}
-				
+				PrismObject<ShadowType> resourceShadow = reconcileShadow(shadow, resource, workerTask);
 				if (ShadowUtil.isProtected(resourceShadow)) {
 					if (LOGGER.isTraceEnabled()) {
 						LOGGER.trace("Skipping recording counter for {} because it is protected", shadow);
 					}
-					return task.canRun();
+				} else {
+					count.incrementAndGet();
 				}
-				
-				countHolder.setValue(countHolder.getValue() + 1);
-                incrementAndRecordProgress(task, new OperationResult("dummy"));     // reconcileShadow writes to its own dummy OperationResult, so we do the same here
-                return task.canRun();
+				return workerTask.canRun();
 			}
 		};
+		handler.setStopOnError(false);
+		handler.setInitialProgress(coordinatorTask.getProgress());
 
+		handler.createWorkerThreads(coordinatorTask, opResult);
 		repositoryService.searchObjectsIterative(ShadowType.class, query, handler, null, true, opResult);
-        interrupted = !task.canRun();
-		
-		// for each try the operation again
-		
-		opResult.computeStatus();
+		handler.completeProcessing(coordinatorTask, opResult);
+        interrupted = !coordinatorTask.canRun();
 		
-		LOGGER.trace("Shadow reconciliation finished, processed {} shadows for {}, result: {}", 
-				new Object[]{countHolder.getValue(), resource, opResult.getStatus()});
+		LOGGER.trace("Shadow reconciliation finished, processed {} shadows for {} ({} skipped as seen on the resource), result: {}",
+				count.get(), resource, skipped.get(), opResult.getStatus());
 		
-		reconResult.setShadowReconCount(countHolder.getValue());
+		reconResult.setShadowReconCount(count.get());
 
         result.createSubresult(OperationConstants.RECONCILIATION+".shadowReconciliation.statistics")
-                .recordStatus(OperationResultStatus.SUCCESS, "Processed " + countHolder.getValue() + " shadow(s) in "
-						+ (System.currentTimeMillis() - started) + " ms."
+                .recordStatus(OperationResultStatus.SUCCESS, "Processed " + count.get() + " shadow(s) in "
+						+ (System.currentTimeMillis() - started) + " ms, skipped " + skipped.get() + " shadow(s) seen on the resource."
                     + (interrupted ? " Was interrupted during processing." : ""));
 
         return !interrupted;
@@ -658,51 +664,29 @@ public class ReconciliationTaskHandler implements TaskHandler {
 		reconResult.setUnOpsCount(shadows.size());
 
 		long startedAll = System.currentTimeMillis();
-		int processedSuccess = 0, processedFailure = 0;
-		
-		for (PrismObject<ShadowType> shadow : shadows) {
 
-			long started = System.currentTimeMillis();
-			task.recordIterativeOperationStart(shadow.asObjectable());
-
-			OperationResult provisioningResult = new OperationResult(OperationConstants.RECONCILIATION+".finishOperation");
-			try {
-				RepositoryCache.enter();
-
-				ProvisioningOperationOptions options = ProvisioningOperationOptions.createCompletePostponed(false);
-                Utils.clearRequestee(task);
-				provisioningService.refreshShadow(shadow, options, task, provisioningResult);
-//				retryFailedOperation(shadow.asObjectable(), opResult);
-
-				task.recordIterativeOperationEnd(shadow.asObjectable(), started, null);
-				processedSuccess++;
-			} catch (Throwable ex) {
-				task.recordIterativeOperationEnd(shadow.asObjectable(), started, ex);
-				processedFailure++;
-				opResult.recordFatalError("Failed to finish operation with shadow: " + ObjectTypeUtil.toShortString(shadow.asObjectable()) +". Reason: " + ex.getMessage(), ex);
-				Collection<? extends ItemDelta> modifications = PropertyDelta
-						.createModificationReplacePropertyCollection(ShadowType.F_ATTEMPT_NUMBER,
-								shadow.getDefinition(), shadow.asObjectable().getAttemptNumber() + 1);
-				try {
-                    repositoryService.modifyObject(ShadowType.class, shadow.getOid(), modifications,
-							provisioningResult);
-					task.recordObjectActionExecuted(shadow, null, null, ChangeType.MODIFY, SchemaConstants.CHANGE_CHANNEL_RECON_URI, null);
-				} catch(Exception e) {
-					task.recordObjectActionExecuted(shadow, null, null, ChangeType.MODIFY, SchemaConstants.CHANGE_CHANNEL_RECON_URI, e);
-                    LoggingUtils.logException(LOGGER, "Failed to record finish operation failure with shadow: " + ObjectTypeUtil.toShortString(shadow.asObjectable()), e);
-				}
-			} finally {
-				task.markObjectActionExecutedBoundary();
-				RepositoryCache.exit();
+		// shadows are processed by worker threads, if configured (statistics and repository cache are handled by the handler)
+		AbstractSearchIterativeResultHandler<ShadowType> handler = new AbstractSearchIterativeResultHandler<ShadowType>(
+				task, ReconciliationTaskHandler.class.getName(), "finishing operations", "on resource " + resourceOid, taskManager) {
+			@Override
+			protected boolean handleObject(PrismObject<ShadowType> shadow, Task workerTask, OperationResult result) {
+				finishOperation(shadow, workerTask, result);
+				return workerTask.canRun();
 			}
+		};
+		handler.setStopOnError(false);
+		handler.setLogErrors(false);			// errors are logged by finishOperation
 
-			// TODO record statistics as well
-            incrementAndRecordProgress(task, opResult);
-
-            if (!task.canRun()) {
-                break;
-            }
+		handler.createWorkerThreads(task, opResult);
+		for (PrismObject<ShadowType> shadow : shadows) {
+			if (!handler.handle(shadow, opResult)) {
+				break;
+			}
 		}
+		handler.completeProcessing(task, opResult);
+
+		long processedFailure = handler.getErrors();
+		long processedSuccess = handler.getProgress() - processedFailure;
 
 		task.setExpectedTotal(null);		// for next phases, it looks strangely to see progress e.g. 2/1
 
@@ -712,14 +696,37 @@ public class ReconciliationTaskHandler implements TaskHandler {
 				+ processedSuccess + " were processed successfully and processing of " + processedFailure + " resulted in failure. " +
 				"Total time spent: " + (System.currentTimeMillis() - startedAll) + " ms. " +
 				(!task.canRun() ? "Was interrupted during processing." : "");
-
-		opResult.computeStatus();
 		result.createSubresult(opResult.getOperation()+".statistics").recordStatus(opResult.getStatus(), message);
 
 		LOGGER.debug("{}. Result: {}", message, opResult.getStatus());
         return task.canRun();
 	}
 
+	private void finishOperation(PrismObject<ShadowType> shadow, Task task, OperationResult result) {
+		OperationResult provisioningResult = result.createSubresult(OperationConstants.RECONCILIATION+".finishOperation");
+		try {
+			ProvisioningOperationOptions options = ProvisioningOperationOptions.createCompletePostponed(false);
+			Utils.clearRequestee(task);
+			provisioningService.refreshShadow(shadow, options, task, provisioningResult);
+			provisioningResult.computeStatus();
+		} catch (Throwable ex) {
+			LoggingUtils.logUnexpectedException(LOGGER, "Failed to finish operation with shadow: {}", ex, ObjectTypeUtil.toShortString(shadow.asObjectable()));
+			provisioningResult.recordFatalError("Failed to finish operation with shadow: " + ObjectTypeUtil.toShortString(shadow.asObjectable()) +". Reason: " + ex.getMessage(), ex);
+			Collection<? extends ItemDelta> modifications = PropertyDelta
+					.createModificationReplacePropertyCollection(ShadowType.F_ATTEMPT_NUMBER,
+							shadow.getDefinition(), shadow.asObjectable().getAttemptNumber() + 1);
+			try {
+				repositoryService.modifyObject(ShadowType.class, shadow.getOid(), modifications, result);
+				task.recordObjectActionExecuted(shadow, null, null, ChangeType.MODIFY, SchemaConstants.CHANGE_CHANNEL_RECON_URI, null);
+			} catch(Exception e) {
+				task.recordObjectActionExecuted(shadow, null, null, ChangeType.MODIFY, SchemaConstants.CHANGE_CHANNEL_RECON_URI, e);
+				LoggingUtils.logException(LOGGER, "Failed to record finish operation failure with shadow: " + ObjectTypeUtil.toShortString(shadow.asObjectable()), e);
+			}
+		} finally {
+			task.markObjectActionExecutedBoundary();
+		}
+	}
+
 	@Override
 	public Long heartbeat(Task task) {
 		// TODO Auto-generated method stub
@@ -20,6 +20,7 @@ import javax.xml.namespace.QName;
 import com.evolveum.midpoint.common.refinery.RefinedObjectClassDefinition;
 import com.evolveum.midpoint.model.impl.importer.ImportAccountsFromResourceTaskHandler;
 import com.evolveum.midpoint.model.impl.util.AbstractSearchIterativeResultHandler;
+import com.evolveum.midpoint.model.impl.util.CompactOidSet;
 import com.evolveum.midpoint.model.impl.util.Utils;
 import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.prism.delta.ChangeType;
@@ -62,6 +63,7 @@ public class SynchronizeAccountResultHandler extends AbstractSearchIterativeResu
 	private ObjectClassComplexTypeDefinition objectClassDef;
 	private QName sourceChannel;
 	private boolean forceAdd;
+	private CompactOidSet seenOids;				// if not null, OIDs of all shadows found are recorded here
 
 	public SynchronizeAccountResultHandler(ResourceType resource, ObjectClassComplexTypeDefinition objectClassDef,
 			String processShortName, Task coordinatorTask, ResourceObjectChangeListener objectChangeListener,
@@ -92,6 +94,14 @@ public class SynchronizeAccountResultHandler extends AbstractSearchIterativeResu
 		this.sourceChannel = sourceChannel;
 	}
 	
+	public CompactOidSet getSeenOids() {
+		return seenOids;
+	}
+
+	public void setSeenOids(CompactOidSet seenOids) {
+		this.seenOids = seenOids;
+	}
+
 	public String getResourceOid() {
 		return resourceOid;
 	}
@@ -109,6 +119,15 @@ public class SynchronizeAccountResultHandler extends AbstractSearchIterativeResu
 		return objectClassDef;
 	}
 
+	@Override
+	public boolean handle(PrismObject<ShadowType> object, OperationResult parentResult) {
+		// recorded here (in the thread that executes the search), regardless of the processing result
+		if (seenOids != null && object.getOid() != null) {
+			seenOids.add(object.getOid());
+		}
+		return super.handle(object, parentResult);
+	}
+
 	/*
 	 * This methods will be called for each search result. It means it will be
 	 * called for each account on a resource. We will pretend that the account
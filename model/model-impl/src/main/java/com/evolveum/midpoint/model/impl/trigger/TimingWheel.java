@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.model.impl.trigger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Hierarchical timing wheel: keeps items that are due at given times, and returns them when the time comes.
+ * Adding, removing and advancing by one tick are (amortized) constant-time operations, regardless of the
+ * number of items.
+ *
+ * Level 0 has a slot for each tick; a slot on level N covers wheelSize^N ticks. An item is placed on the
+ * lowest level that can hold it; when the time reaches the beginning of a slot on a higher level, the items
+ * from that slot are moved to the lower levels. Items that are farther than the horizon (wheelSize^levels ticks)
+ * are rejected: the caller has to add them later.
+ *
+ * Each key can be present at most once; adding it again reschedules it.
+ *
+ * Not thread-safe.
+ */
+public class TimingWheel<K> {
+
+	private final long tickMillis;
+	private final int wheelSize;
+	private final int levels;
+	private final long horizonTicks;
+
+	private final List<List<Map<K, Long>>> wheels = new ArrayList<>();	// level -> slot -> key -> due tick
+	private final Map<K, Map<K, Long>> slotOfKey = new HashMap<>();
+	private final Map<K, Long> overdue = new LinkedHashMap<>();
+
+	private long currentTick;		// the first tick not processed yet
+
+	public TimingWheel(long tickMillis, int wheelSize, int levels, long nowMillis) {
+		if (tickMillis <= 0 || wheelSize < 2 || levels < 1) {
+			throw new IllegalArgumentException("Wrong timing wheel parameters: " + tickMillis + ", " + wheelSize + ", " + levels);
+		}
+		this.tickMillis = tickMillis;
+		this.wheelSize = wheelSize;
+		this.levels = levels;
+		long horizon = 1;
+		for (int level = 0; level < levels; level++) {
+			horizon *= wheelSize;
+			List<Map<K, Long>> slots = new ArrayList<>(wheelSize);
+			for (int i = 0; i < wheelSize; i++) {
+				slots.add(new HashMap<>());
+			}
+			wheels.add(slots);
+		}
+		this.horizonTicks = horizon;
+		this.currentTick = nowMillis / tickMillis;
+	}
+
+	/**
+	 * Time (exclusive) up to which items can be added.
+	 */
+	public long getHorizon() {
+		return (currentTick + horizonTicks) * tickMillis;
+	}
+
+	/**
+	 * Schedules the key at the given time, replacing its previous schedule (if any). Keys that are already due
+	 * are returned by the next call to {@link #advance(long)}.
+	 *
+	 * @return false if the time is beyond the horizon (the key is then not scheduled at all)
+	 */
+	public boolean add(@NotNull K key, long dueMillis) {
+		remove(key);
+		return place(key, dueMillis / tickMillis);
+	}
+
+	public boolean remove(@NotNull K key) {
+		Map<K, Long> slot = slotOfKey.remove(key);
+		if (slot != null) {
+			slot.remove(key);
+			return true;
+		} else {
+			return overdue.remove(key) != null;
+		}
+	}
+
+	public boolean contains(@NotNull K key) {
+		return slotOfKey.containsKey(key) || overdue.containsKey(key);
+	}
+
+	public int size() {
+		return slotOfKey.size() + overdue.size();
+	}
+
+	/**
+	 * Moves the time forward, and returns all items that are due (in the order of their due times).
+	 */
+	public List<K> advance(long nowMillis) {
+		long targetTick = nowMillis / tickMillis;
+		List<K> due = new ArrayList<>(overdue.keySet());
+		overdue.clear();
+		if (targetTick - currentTick > horizonTicks) {
+			// a long jump (e.g. the clock was moved): it's cheaper to re-insert everything
+			Map<K, Long> all = new HashMap<>();
+			for (Map.Entry<K, Map<K, Long>> entry : slotOfKey.entrySet()) {
+				all.put(entry.getKey(), entry.getValue().get(entry.getKey()));
+			}
+			clearSlots();
+			currentTick = targetTick + 1;
+			all.entrySet().stream()
+					.sorted(Comparator.comparing(Map.Entry::getValue))
+					.forEach(e -> {
+						if (e.getValue() < currentTick) {
+							due.add(e.getKey());
+						} else {
+							place(e.getKey(), e.getValue());
+						}
+					});
+			return due;
+		}
+		while (currentTick <= targetTick) {
+			cascade();
+			Map<K, Long> slot = wheels.get(0).get(slotIndex(currentTick, 0));
+			for (Iterator<Map.Entry<K, Long>> iterator = slot.entrySet().iterator(); iterator.hasNext(); ) {
+				Map.Entry<K, Long> entry = iterator.next();
+				if (entry.getValue() <= currentTick) {
+					due.add(entry.getKey());
+					slotOfKey.remove(entry.getKey());
+					iterator.remove();
+				}
+			}
+			currentTick++;
+		}
+		return due;
+	}
+
+	// moves items from the higher-level slots starting at the current tick to lower levels
+	private void cascade() {
+		for (int level = levels - 1; level > 0; level--) {
+			if (currentTick % ticksPerSlot(level) == 0) {
+				Map<K, Long> slot = wheels.get(level).get(slotIndex(currentTick, level));
+				if (!slot.isEmpty()) {
+					Map<K, Long> items = new HashMap<>(slot);
+					slot.clear();
+					for (Map.Entry<K, Long> item : items.entrySet()) {
+						slotOfKey.remove(item.getKey());
+						place(item.getKey(), item.getValue());
+					}
+				}
+			}
+		}
+	}
+
+	private boolean place(K key, long dueTick) {
+		if (dueTick < currentTick) {
+			overdue.put(key, dueTick);
+			return true;
+		}
+		long delta = dueTick - currentTick;
+		long span = wheelSize;
+		for (int level = 0; level < levels; level++, span *= wheelSize) {
+			if (delta < span) {
+				Map<K, Long> slot = wheels.get(level).get(slotIndex(dueTick, level));
+				slot.put(key, dueTick);
+				slotOfKey.put(key, slot);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private int slotIndex(long tick, int level) {
+		return (int) ((tick / ticksPerSlot(level)) % wheelSize);
+	}
+
+	private long ticksPerSlot(int level) {
+		long ticks = 1;
+		for (int i = 0; i < level; i++) {
+			ticks *= wheelSize;
+		}
+		return ticks;
+	}
+
+	private void clearSlots() {
+		wheels.forEach(slots -> slots.forEach(Map::clear));
+		slotOfKey.clear();
+	}
+}
@@ -0,0 +1,509 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.model.impl.trigger;
+
+import com.evolveum.midpoint.common.Clock;
+import com.evolveum.midpoint.common.configuration.api.MidpointConfiguration;
+import com.evolveum.midpoint.model.api.context.ModelContext;
+import com.evolveum.midpoint.model.api.context.ModelElementContext;
+import com.evolveum.midpoint.model.api.context.ModelState;
+import com.evolveum.midpoint.model.api.hooks.ChangeHook;
+import com.evolveum.midpoint.model.api.hooks.HookOperationMode;
+import com.evolveum.midpoint.model.api.hooks.HookRegistry;
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.delta.ItemDelta;
+import com.evolveum.midpoint.prism.delta.builder.DeltaBuilder;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.prism.query.builder.QueryBuilder;
+import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
+import com.evolveum.midpoint.repo.api.ConflictWatcher;
+import com.evolveum.midpoint.repo.api.RepositoryService;
+import com.evolveum.midpoint.repo.cache.RepositoryCache;
+import com.evolveum.midpoint.schema.ResultHandler;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.security.api.SecurityEnforcer;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.task.api.TaskManager;
+import com.evolveum.midpoint.util.exception.ObjectAlreadyExistsException;
+import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.exception.SystemException;
+import com.evolveum.midpoint.util.logging.LoggingUtils;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ScheduleType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.SystemObjectsType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.TriggerType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+import org.apache.commons.configuration.Configuration;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType.F_TRIGGER;
+import static com.evolveum.midpoint.xml.ns._public.common.common_3.TriggerType.F_TIMESTAMP;
+
+/**
+ * Fires triggers at their timestamps, without waiting for the next run of the trigger scanner task.
+ *
+ * Triggers due within the horizon are kept in a timing wheel. They are loaded from the repository periodically,
+ * and triggers added or removed by model operations on this node are put into (or taken from) the wheel immediately
+ * (this class is a change hook). When a trigger becomes due, it is fired in one of the worker threads.
+ *
+ * Before firing, the trigger is claimed by moving its timestamp into the near future (a lease); the modification
+ * is checked by a conflict watcher, so if more nodes (or the scanner) try to claim the same trigger, only one
+ * of them fires it. The others abort their claims: nothing is written if the object was changed in the meanwhile. The trigger is removed after the handler finishes. If the node crashes in between, the trigger
+ * is fired again after the lease expires: triggers are fired at least once, as they were before.
+ *
+ * Triggers added directly to the repository (not via the model) are found by the periodic reload. The reload
+ * iterates over the objects instead of loading them all at once, and keeps only the keys and timestamps of the
+ * triggers. (The repository stores whole objects, so there is no cheaper way of reading the triggers.)
+ *
+ * The trigger scanner task remains as a safety net, so it can be run much less frequently: when the timer starts,
+ * it raises the interval of the scanner task to midpoint/model/triggerTimerScannerInterval seconds (default
+ * one hour; zero means to leave the interval as it is). The interval is never lowered.
+ *
+ * The timer is switched off by default; it is enabled by midpoint/model/triggerTimerEnabled in config.xml.
+ */
+@Component
+public class TriggerTimer implements ChangeHook {
+
+	private static final Trace LOGGER = TraceManager.getTrace(TriggerTimer.class);
+
+	public static final String HOOK_URI = "http://midpoint.evolveum.com/model/trigger-timer-hook-1";
+
+	private static final String CONFIGURATION_SECTION = "midpoint.model";
+	private static final String CONFIGURATION_ENABLED = "triggerTimerEnabled";
+	private static final String CONFIGURATION_THREADS = "triggerTimerThreads";
+	private static final String CONFIGURATION_SCANNER_INTERVAL = "triggerTimerScannerInterval";
+
+	private static final String OP_FIRE_TRIGGER = TriggerTimer.class.getName() + ".fireTrigger";
+	private static final String OP_RELOAD = TriggerTimer.class.getName() + ".reload";
+	private static final String OP_RAISE_SCANNER_INTERVAL = TriggerTimer.class.getName() + ".raiseScannerInterval";
+
+	private static final long TICK = 1000L;
+	private static final int WHEEL_SIZE = 64;
+	private static final int WHEEL_LEVELS = 3;
+	private static final long HORIZON = 3600 * 1000L;
+	private static final long RELOAD_INTERVAL = 1800 * 1000L;
+	private static final long LEASE = 300 * 1000L;
+	private static final int DEFAULT_THREADS = 4;
+	private static final int DEFAULT_SCANNER_INTERVAL = 3600;
+
+	@Autowired private HookRegistry hookRegistry;
+	@Autowired private MidpointConfiguration midpointConfiguration;
+	@Autowired private TriggerHandlerRegistry triggerHandlerRegistry;
+	@Autowired private TaskManager taskManager;
+	@Autowired private SecurityEnforcer securityEnforcer;
+	@Autowired private PrismContext prismContext;
+	@Autowired private Clock clock;
+	@Autowired
+	@Qualifier("cacheRepositoryService")
+	private RepositoryService repositoryService;
+
+	private volatile boolean enabled;
+	private int threads;
+	private int scannerInterval;
+
+	// guarded by this
+	private TimingWheel<TriggerKey> wheel;
+	private long loadedUntil;
+
+	private volatile Thread timerThread;
+	private ExecutorService workers;
+	private volatile boolean running;
+	private volatile boolean reloadRequested = true;
+
+	@PostConstruct
+	public void init() {
+		Configuration configuration = midpointConfiguration.getConfiguration(CONFIGURATION_SECTION);
+		enabled = configuration != null && configuration.getBoolean(CONFIGURATION_ENABLED, false);
+		threads = configuration != null ? configuration.getInt(CONFIGURATION_THREADS, DEFAULT_THREADS) : DEFAULT_THREADS;
+		scannerInterval = configuration != null ?
+				configuration.getInt(CONFIGURATION_SCANNER_INTERVAL, DEFAULT_SCANNER_INTERVAL) : DEFAULT_SCANNER_INTERVAL;
+		// the hook does nothing while the timer is not running
+		hookRegistry.registerChangeHook(HOOK_URI, this);
+	}
+
+	/**
+	 * Switches the timer on or off at runtime (overriding the configuration), e.g. in tests.
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		if (enabled) {
+			start();
+		} else {
+			stop();
+		}
+	}
+
+	/**
+	 * Starts the timer (if enabled). Called after the task manager is initialized, as we need the trigger scanner task.
+	 */
+	public synchronized void start() {
+		if (!enabled || running) {
+			return;
+		}
+		wheel = new TimingWheel<>(TICK, WHEEL_SIZE, WHEEL_LEVELS, clock.currentTimeMillis());
+		loadedUntil = 0;
+		reloadRequested = true;
+		AtomicInteger threadNumber = new AtomicInteger();
+		workers = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "TriggerTimerWorker-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		running = true;
+		timerThread = new Thread(this::run, "TriggerTimer");
+		timerThread.setDaemon(true);
+		timerThread.start();
+		LOGGER.info("Trigger timer started with {} worker thread(s)", threads);
+		raiseScannerInterval();
+	}
+
+	private void raiseScannerInterval() {
+		if (scannerInterval <= 0) {
+			return;
+		}
+		OperationResult result = new OperationResult(OP_RAISE_SCANNER_INTERVAL);
+		try {
+			Task scanner = taskManager.getTask(SystemObjectsType.TASK_TRIGGER_SCANNER.value(), result);
+			ScheduleType schedule = scanner.getSchedule();
+			if (!scanner.isCycle() || schedule == null || schedule.getInterval() == null
+					|| schedule.getInterval() >= scannerInterval) {
+				return;
+			}
+			LOGGER.info("Raising the interval of the trigger scanner task from {} to {} seconds", schedule.getInterval(),
+					scannerInterval);
+			ScheduleType newSchedule = schedule.clone();
+			newSchedule.setInterval(scannerInterval);
+			scanner.makeRecurring(newSchedule);
+			scanner.savePendingModifications(result);
+		} catch (ObjectNotFoundException e) {
+			LOGGER.debug("No trigger scanner task, its interval is not changed");
+		} catch (Throwable t) {
+			LoggingUtils.logUnexpectedException(LOGGER, "Couldn't raise the interval of the trigger scanner task", t);
+		}
+	}
+
+	@PreDestroy
+	public synchronized void stop() {
+		if (!running) {
+			return;
+		}
+		running = false;
+		timerThread.interrupt();
+		workers.shutdownNow();
+		LOGGER.info("Trigger timer stopped");
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	private void run() {
+		long lastReload = 0;
+		// after stop() and start(), the old timer thread could still be here; it must not continue
+		while (running && Thread.currentThread() == timerThread) {
+			try {
+				long now = clock.currentTimeMillis();
+				if (reloadRequested || now >= lastReload + RELOAD_INTERVAL || now < lastReload) {
+					reloadRequested = false;
+					lastReload = now;
+					reload(now);
+				}
+				List<TriggerKey> due;
+				synchronized (this) {
+					due = wheel.advance(now);
+				}
+				for (TriggerKey key : due) {
+					workers.execute(() -> fire(key));
+				}
+				Thread.sleep(TICK);
+			} catch (InterruptedException e) {
+				LOGGER.trace("Trigger timer interrupted");
+			} catch (Throwable t) {
+				LoggingUtils.logUnexpectedException(LOGGER, "Unexpected exception in trigger timer", t);
+				reloadRequested = true;
+			}
+		}
+	}
+
+	/**
+	 * Puts all the triggers due within the horizon into the wheel.
+	 */
+	private void reload(long now) throws SchemaException {
+		OperationResult result = new OperationResult(OP_RELOAD);
+		long until = now + HORIZON;
+		ObjectQuery query = QueryBuilder.queryFor(ObjectType.class, prismContext)
+				.item(F_TRIGGER, F_TIMESTAMP).le(XmlTypeConverter.createXMLGregorianCalendar(until))
+				.build();
+		synchronized (this) {
+			loadedUntil = until;
+		}
+		AtomicInteger objects = new AtomicInteger();
+		AtomicInteger count = new AtomicInteger();
+		ResultHandler<ObjectType> handler = (object, parentResult) -> {
+			objects.incrementAndGet();
+			synchronized (this) {
+				for (TriggerType trigger : object.asObjectable().getTrigger()) {
+					if (schedule(object.getCompileTimeClass(), object.getOid(), trigger)) {
+						count.incrementAndGet();
+					}
+				}
+			}
+			return running;
+		};
+		repositoryService.searchObjectsIterative(ObjectType.class, query, handler, null, false, result);
+		LOGGER.debug("Loaded {} trigger(s) due until {} from {} object(s); {} trigger(s) scheduled in total", count,
+				XmlTypeConverter.createXMLGregorianCalendar(until), objects, getScheduledCount());
+	}
+
+	// must be called under the lock
+	private boolean schedule(Class<? extends ObjectType> type, String oid, TriggerType trigger) {
+		if (trigger.getId() == null || trigger.getTimestamp() == null || trigger.getHandlerUri() == null) {
+			return false;
+		}
+		long timestamp = XmlTypeConverter.toMillis(trigger.getTimestamp());
+		return timestamp <= loadedUntil && wheel.add(new TriggerKey(type, oid, trigger.getId()), timestamp);
+	}
+
+	public synchronized int getScheduledCount() {
+		return wheel != null ? wheel.size() : 0;
+	}
+
+	//region Hook
+	@Override
+	public <O extends ObjectType> HookOperationMode invoke(@NotNull ModelContext<O> context, @NotNull Task task,
+			@NotNull OperationResult result) {
+		if (running && context.getState() == ModelState.FINAL) {
+			ModelElementContext<O> focusContext = context.getFocusContext();
+			if (focusContext != null && focusContext.getOid() != null) {
+				update(focusContext.getObjectTypeClass(), focusContext.getOid(), focusContext.getObjectOld(),
+						focusContext.getObjectNew());
+			}
+		}
+		return HookOperationMode.FOREGROUND;
+	}
+
+	@Override
+	public void invokeOnException(@NotNull ModelContext context, @NotNull Throwable throwable, @NotNull Task task,
+			@NotNull OperationResult result) {
+		// nothing to do: triggers that were not committed are not in the wheel, and removed ones are skipped when fired
+	}
+
+	private synchronized <O extends ObjectType> void update(Class<O> type, String oid, PrismObject<O> objectOld,
+			PrismObject<O> objectNew) {
+		Map<Long, TriggerType> newTriggers = getTriggers(objectNew);
+		for (Long oldId : getTriggers(objectOld).keySet()) {
+			if (!newTriggers.containsKey(oldId)) {
+				wheel.remove(new TriggerKey(type, oid, oldId));
+			}
+		}
+		for (TriggerType trigger : newTriggers.values()) {
+			if (schedule(type, oid, trigger)) {
+				LOGGER.trace("Scheduled trigger {} in {} at {}", trigger.getId(), oid, trigger.getTimestamp());
+			}
+		}
+	}
+
+	private Map<Long, TriggerType> getTriggers(PrismObject<? extends ObjectType> object) {
+		Map<Long, TriggerType> rv = new HashMap<>();
+		if (object != null) {
+			for (TriggerType trigger : object.asObjectable().getTrigger()) {
+				if (trigger.getId() != null) {
+					rv.put(trigger.getId(), trigger);
+				}
+			}
+		}
+		return rv;
+	}
+	//endregion
+
+	//region Firing
+	private void fire(TriggerKey key) {
+		OperationResult result = new OperationResult(OP_FIRE_TRIGGER);
+		result.addParam("oid", key.oid);
+		result.addParam("triggerId", key.triggerId);
+		RepositoryCache.enter();
+		try {
+			Task task = createTask(result);
+			fire(key, task, result);
+		} catch (Throwable t) {
+			LoggingUtils.logUnexpectedException(LOGGER, "Couldn't fire trigger {} in {}", t, key.triggerId, key.oid);
+		} finally {
+			RepositoryCache.exit();
+			SecurityContextHolder.clearContext();
+		}
+	}
+
+	private void fire(TriggerKey key, Task task, OperationResult result) throws SchemaException {
+		PrismObject<? extends ObjectType> object;
+		try {
+			object = repositoryService.getObject(key.type, key.oid, null, result);
+		} catch (ObjectNotFoundException e) {
+			LOGGER.trace("Object {} with trigger {} is gone", key.oid, key.triggerId);
+			return;
+		}
+		TriggerType trigger = getTriggers(object).get(key.triggerId);
+		if (trigger == null) {
+			LOGGER.trace("Trigger {} in {} is gone (fired or removed in the meanwhile)", key.triggerId, object);
+			return;
+		}
+		long now = clock.currentTimeMillis();
+		long timestamp = XmlTypeConverter.toMillis(trigger.getTimestamp());
+		if (timestamp > now) {
+			// rescheduled (or claimed by another node)
+			synchronized (this) {
+				schedule(key.type, key.oid, trigger);
+			}
+			return;
+		}
+		TriggerHandler handler = triggerHandlerRegistry.getHandler(trigger.getHandlerUri());
+		if (handler == null) {
+			LOGGER.warn("No registered trigger handler for URI {} in {}; leaving it for the trigger scanner", trigger.getHandlerUri(), object);
+			return;
+		}
+		TriggerType claimed = claim(object, trigger, now + LEASE, result);
+		if (claimed == null) {
+			LOGGER.debug("Trigger {} in {} was claimed by someone else", key.triggerId, object);
+			synchronized (this) {
+				wheel.add(key, now + LEASE);
+			}
+			return;
+		}
+		LOGGER.debug("Firing trigger {} in {}: id={}", trigger.getHandlerUri(), object, trigger.getId());
+		try {
+			//noinspection unchecked
+			handler.handle((PrismObject<ObjectType>) object, trigger, task, result);
+		} catch (Throwable t) {
+			// the same as in the trigger scanner: the trigger is removed even if the handler fails
+			LOGGER.error("Trigger handler {} executed on {} thrown an error: {}", handler, object, t.getMessage(), t);
+			result.recordPartialError(t);
+		}
+		removeTrigger(object, claimed, result);
+	}
+
+	/**
+	 * Moves the timestamp of the trigger to the end of the lease. Returns the trigger as it is in the repository
+	 * after the modification, or null if the object was modified by someone else since we have read it. In that case
+	 * the claim is aborted, i.e. the modification is not carried out, so the lease of the winner is kept.
+	 */
+	private TriggerType claim(PrismObject<? extends ObjectType> object, TriggerType trigger, long leaseEnd,
+			OperationResult result) throws SchemaException {
+		TriggerType claimed = trigger.clone();
+		claimed.setTimestamp(XmlTypeConverter.createXMLGregorianCalendar(leaseEnd));
+		List<ItemDelta<?, ?>> modifications = DeltaBuilder.deltaFor(ObjectType.class, prismContext)
+				.item(new ItemPath(F_TRIGGER, trigger.getId(), F_TIMESTAMP)).replace(claimed.getTimestamp())
+				.asItemDeltas();
+		ConflictWatcher watcher = repositoryService.createAndRegisterConflictWatcher(object.getOid());
+		try {
+			watcher.setExpectedVersion(object.getVersion());
+			watcher.setSkipModificationOnConflict(true);
+			repositoryService.modifyObject(object.getCompileTimeClass(), object.getOid(), modifications, result);
+			return watcher.hasConflict() ? null : claimed;
+		} catch (ObjectNotFoundException e) {
+			return null;
+		} catch (ObjectAlreadyExistsException e) {
+			throw new SystemException("Unexpected exception when claiming trigger: " + e.getMessage(), e);
+		} finally {
+			repositoryService.unregisterConflictWatcher(watcher);
+		}
+	}
+
+	private void removeTrigger(PrismObject<? extends ObjectType> object, TriggerType claimed, OperationResult result) {
+		try {
+			List<ItemDelta<?, ?>> modifications = DeltaBuilder.deltaFor(ObjectType.class, prismContext)
+					.item(F_TRIGGER).delete(claimed.asPrismContainerValue().clone())
+					.asItemDeltas();
+			repositoryService.modifyObject(object.getCompileTimeClass(), object.getOid(), modifications, result);
+		} catch (ObjectNotFoundException e) {
+			LOGGER.trace("Unable to remove trigger from {}: {} (but this is probably OK)", object, e.getMessage(), e);
+		} catch (Throwable t) {
+			LoggingUtils.logUnexpectedException(LOGGER, "Unable to remove trigger from {}", t, object);
+		}
+	}
+
+	/**
+	 * Triggers are fired under the owner of the trigger scanner task, as if they were fired by the scanner.
+	 */
+	private Task createTask(OperationResult result) throws SchemaException {
+		PrismObject<UserType> owner;
+		try {
+			owner = taskManager.getTask(SystemObjectsType.TASK_TRIGGER_SCANNER.value(), result).getOwner();
+		} catch (ObjectNotFoundException e) {
+			owner = null;
+		}
+		if (owner == null) {
+			try {
+				owner = repositoryService.getObject(UserType.class, SystemObjectsType.USER_ADMINISTRATOR.value(), null, result);
+			} catch (ObjectNotFoundException e) {
+				throw new SystemException("Neither trigger scanner task owner nor administrator exist", e);
+			}
+		}
+		securityEnforcer.setupPreAuthenticatedSecurityContext(owner);
+		Task task = taskManager.createTaskInstance(OP_FIRE_TRIGGER);
+		task.setOwner(owner);
+		return task;
+	}
+	//endregion
+
+	private static class TriggerKey {
+		@NotNull private final Class<? extends ObjectType> type;
+		@NotNull private final String oid;
+		private final long triggerId;
+
+		private TriggerKey(@NotNull Class<? extends ObjectType> type, @NotNull String oid, long triggerId) {
+			this.type = type;
+			this.oid = oid;
+			this.triggerId = triggerId;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof TriggerKey)) {
+				return false;
+			}
+			TriggerKey that = (TriggerKey) o;
+			return triggerId == that.triggerId && oid.equals(that.oid);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(oid, triggerId);
+		}
+
+		@Override
+		public String toString() {
+			return oid + ":" + triggerId;
+		}
+	}
+}
@@ -73,6 +73,7 @@ public abstract class AbstractSearchIterativeResultHandler<O extends ObjectType>
 	private AtomicBoolean stopRequestedByAnyWorker = new AtomicBoolean(false);
 	private final long startTime;
 	private AtomicLong progressLastUpdated = new AtomicLong();
+	private long initialProgress = 0;				// progress of the coordinator task before this handler was started (e.g. in previous stages)
 
 	private static final transient Trace LOGGER = TraceManager.getTrace(AbstractSearchIterativeResultHandler.class);
 	private volatile boolean allItemsSubmitted = false;
@@ -130,6 +131,14 @@ public abstract class AbstractSearchIterativeResultHandler<O extends ObjectType>
 		this.logObjectProgress = logObjectProgress;
 	}
 
+	public long getInitialProgress() {
+		return initialProgress;
+	}
+
+	public void setInitialProgress(long initialProgress) {
+		this.initialProgress = initialProgress;
+	}
+
 	public boolean isRecordIterationStatistics() {
 		return recordIterationStatistics;
 	}
@@ -373,7 +382,7 @@ public abstract class AbstractSearchIterativeResultHandler<O extends ObjectType>
 			parentResult.summarize();
 
 			synchronized (coordinatorTask) {
-				coordinatorTask.setProgress(progress);
+				coordinatorTask.setProgress(initialProgress + progress);
 				if (requestQueue != null) {
 					workerTask.setProgress(workerTask.getProgress()+1);
 				}
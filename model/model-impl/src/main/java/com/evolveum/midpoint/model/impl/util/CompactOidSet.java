@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.model.impl.util;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Memory-efficient set of object OIDs, intended for remembering large numbers of objects seen during
+ * an iterative processing (e.g. all shadows found on a resource during reconciliation).
+ *
+ * OIDs in the canonical UUID form (as generated by midPoint) are stored as two longs in an open-addressing
+ * hash table, i.e. 16 bytes per OID instead of about 100 bytes for a String in a HashSet. Other OIDs are
+ * stored as strings.
+ *
+ * The set is thread-safe.
+ */
+public class CompactOidSet {
+
+	private static final int INITIAL_CAPACITY = 1024;			// must be a power of 2
+	private static final float MAX_LOAD = 0.5f;
+
+	// pairs of (most significant bits, least significant bits); (0,0) denotes an empty slot
+	private long[] table = new long[2 * INITIAL_CAPACITY];
+	private int uuidCount;
+	private boolean containsNilUuid;
+	private final Set<String> otherOids = new HashSet<>();
+
+	public synchronized boolean add(String oid) {
+		long[] uuid = parseUuid(oid);
+		if (uuid == null) {
+			return otherOids.add(oid);
+		} else if (uuid[0] == 0 && uuid[1] == 0) {
+			boolean added = !containsNilUuid;
+			containsNilUuid = true;
+			return added;
+		}
+		if (uuidCount + 1 > MAX_LOAD * capacity()) {
+			resize();
+		}
+		if (insert(table, uuid[0], uuid[1])) {
+			uuidCount++;
+			return true;
+		} else {
+			return false;
+		}
+	}
+
+	public synchronized boolean contains(String oid) {
+		long[] uuid = parseUuid(oid);
+		if (uuid == null) {
+			return otherOids.contains(oid);
+		} else if (uuid[0] == 0 && uuid[1] == 0) {
+			return containsNilUuid;
+		}
+		int mask = capacity() - 1;
+		for (int i = hash(uuid[0], uuid[1]) & mask; ; i = (i + 1) & mask) {
+			long msb = table[2 * i], lsb = table[2 * i + 1];
+			if (msb == 0 && lsb == 0) {
+				return false;
+			} else if (msb == uuid[0] && lsb == uuid[1]) {
+				return true;
+			}
+		}
+	}
+
+	public synchronized int size() {
+		return uuidCount + (containsNilUuid ? 1 : 0) + otherOids.size();
+	}
+
+	private int capacity() {
+		return table.length / 2;
+	}
+
+	private void resize() {
+		long[] newTable = new long[table.length * 2];
+		for (int i = 0; i < table.length; i += 2) {
+			if (table[i] != 0 || table[i + 1] != 0) {
+				insert(newTable, table[i], table[i + 1]);
+			}
+		}
+		table = newTable;
+	}
+
+	private static boolean insert(long[] table, long msb, long lsb) {
+		int mask = table.length / 2 - 1;
+		for (int i = hash(msb, lsb) & mask; ; i = (i + 1) & mask) {
+			long currentMsb = table[2 * i], currentLsb = table[2 * i + 1];
+			if (currentMsb == 0 && currentLsb == 0) {
+				table[2 * i] = msb;
+				table[2 * i + 1] = lsb;
+				return true;
+			} else if (currentMsb == msb && currentLsb == lsb) {
+				return false;
+			}
+		}
+	}
+
+	private static int hash(long msb, long lsb) {
+		long h = msb * 0x9E3779B97F4A7C15L ^ lsb;
+		h ^= h >>> 32;
+		h *= 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 29));
+	}
+
+	/**
+	 * Returns the UUID as two longs, or null if the OID is not a UUID in the canonical (lowercase) form.
+	 * Non-canonical forms cannot be converted, as e.g. "ABC..." and "abc..." are different OIDs.
+	 */
+	static long[] parseUuid(String oid) {
+		if (oid == null || oid.length() != 36) {
+			return null;
+		}
+		long msb = 0, lsb = 0;
+		int digits = 0;
+		for (int i = 0; i < 36; i++) {
+			char c = oid.charAt(i);
+			if (i == 8 || i == 13 || i == 18 || i == 23) {
+				if (c != '-') {
+					return null;
+				}
+				continue;
+			}
+			int value;
+			if (c >= '0' && c <= '9') {
+				value = c - '0';
+			} else if (c >= 'a' && c <= 'f') {
+				value = c - 'a' + 10;
+			} else {
+				return null;
+			}
+			if (digits < 16) {
+				msb = (msb << 4) | value;
+			} else {
+				lsb = (lsb << 4) | value;
+			}
+			digits++;
+		}
+		return new long[] { msb, lsb };
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.model.impl.controller;
+
+import com.evolveum.midpoint.model.api.ObjectCountPredicate;
+import com.evolveum.midpoint.model.api.ObjectStatisticsService;
+import com.evolveum.midpoint.model.impl.AbstractInternalModelIntegrationTest;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.task.api.ClusterEvent;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.test.util.TestUtil;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ActivationStatusType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ActivationType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.RoleType;
+import com.evolveum.prism.xml.ns._public.types_3.PolyStringType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ContextConfiguration;
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+/**
+ * Tests maintenance of the approximate object counts by the FINAL-state change hook.
+ * Changes done directly in the repository are reflected only by exact counting (or by recomputation).
+ */
+@ContextConfiguration(locations = {"classpath:ctx-model-test-main.xml"})
+@DirtiesContext(classMode = ClassMode.AFTER_CLASS)
+public class TestObjectStatisticsService extends AbstractInternalModelIntegrationTest {
+
+	@Autowired private ObjectStatisticsService objectStatisticsService;
+
+	private int rolesBefore;
+	private int disabledRolesBefore;
+	private String roleCaptainOid;
+
+	@Test
+	public void test100AddRoleViaModel() throws Exception {
+		final String TEST_NAME = "test100AddRoleViaModel";
+		TestUtil.displayTestTile(this, TEST_NAME);
+
+		// GIVEN
+		Task task = createTask(TestObjectStatisticsService.class.getName() + "." + TEST_NAME);
+		OperationResult result = task.getResult();
+		rolesBefore = countRoles(ObjectCountPredicate.ALL, task, result);
+		disabledRolesBefore = countRoles(ObjectCountPredicate.DISABLED, task, result);
+		PrismObject<RoleType> role = createRole("captain");
+
+		// WHEN
+		TestUtil.displayWhen(TEST_NAME);
+		addObject(role, task, result);
+		roleCaptainOid = role.getOid();
+
+		// THEN
+		TestUtil.displayThen(TEST_NAME);
+		result.computeStatus();
+		TestUtil.assertSuccess(result);
+		assertEquals("Wrong maintained count of roles", rolesBefore + 1, countRoles(ObjectCountPredicate.ALL, task, result));
+		assertEquals("Wrong maintained count of disabled roles", disabledRolesBefore,
+				countRoles(ObjectCountPredicate.DISABLED, task, result));
+	}
+
+	/**
+	 * The change bypasses the clockwork, so the hook does not see it.
+	 */
+	@Test
+	public void test110AddRoleToRepository() throws Exception {
+		final String TEST_NAME = "test110AddRoleToRepository";
+		TestUtil.displayTestTile(this, TEST_NAME);
+
+		// GIVEN
+		Task task = createTask(TestObjectStatisticsService.class.getName() + "." + TEST_NAME);
+		OperationResult result = task.getResult();
+
+		// WHEN
+		TestUtil.displayWhen(TEST_NAME);
+		repositoryService.addObject(createRole("first mate"), null, result);
+
+		// THEN
+		TestUtil.displayThen(TEST_NAME);
+		result.computeStatus();
+		TestUtil.assertSuccess(result);
+		assertEquals("Maintained count was updated", rolesBefore + 1, countRoles(ObjectCountPredicate.ALL, task, result));
+		assertEquals("Wrong exact count of roles", rolesBefore + 2,
+				objectStatisticsService.countObjects(RoleType.class, ObjectCountPredicate.ALL, true, task, result));
+		assertEquals("Maintained count was not refreshed by exact counting", rolesBefore + 2,
+				countRoles(ObjectCountPredicate.ALL, task, result));
+		rolesBefore++;
+	}
+
+	@Test
+	public void test120DisableRoleViaModel() throws Exception {
+		final String TEST_NAME = "test120DisableRoleViaModel";
+		TestUtil.displayTestTile(this, TEST_NAME);
+
+		// GIVEN
+		Task task = createTask(TestObjectStatisticsService.class.getName() + "." + TEST_NAME);
+		OperationResult result = task.getResult();
+
+		// WHEN
+		TestUtil.displayWhen(TEST_NAME);
+		modifyObjectReplaceProperty(RoleType.class, roleCaptainOid,
+				new ItemPath(RoleType.F_ACTIVATION, ActivationType.F_ADMINISTRATIVE_STATUS), task, result,
+				ActivationStatusType.DISABLED);
+
+		// THEN
+		TestUtil.displayThen(TEST_NAME);
+		result.computeStatus();
+		TestUtil.assertSuccess(result);
+		assertEquals("Wrong maintained count of disabled roles", disabledRolesBefore + 1,
+				countRoles(ObjectCountPredicate.DISABLED, task, result));
+		assertEquals("Wrong maintained count of roles", rolesBefore + 1, countRoles(ObjectCountPredicate.ALL, task, result));
+	}
+
+	@Test
+	public void test130DeleteRoleViaModel() throws Exception {
+		final String TEST_NAME = "test130DeleteRoleViaModel";
+		TestUtil.displayTestTile(this, TEST_NAME);
+
+		// GIVEN
+		Task task = createTask(TestObjectStatisticsService.class.getName() + "." + TEST_NAME);
+		OperationResult result = task.getResult();
+
+		// WHEN
+		TestUtil.displayWhen(TEST_NAME);
+		deleteObject(RoleType.class, roleCaptainOid, task, result);
+
+		// THEN
+		TestUtil.displayThen(TEST_NAME);
+		result.computeStatus();
+		TestUtil.assertSuccess(result);
+		assertEquals("Wrong maintained count of roles", rolesBefore, countRoles(ObjectCountPredicate.ALL, task, result));
+		assertEquals("Wrong maintained count of disabled roles", disabledRolesBefore,
+				countRoles(ObjectCountPredicate.DISABLED, task, result));
+		assertEquals("Maintained count differs from the exact one", rolesBefore,
+				objectStatisticsService.countObjects(RoleType.class, ObjectCountPredicate.ALL, true, task, result));
+	}
+
+	/**
+	 * A change done on another node is announced by a cluster event (simulated here by a change made directly
+	 * in the repository). The maintained count is recomputed then.
+	 */
+	@Test
+	public void test140RoleChangedOnAnotherNode() throws Exception {
+		final String TEST_NAME = "test140RoleChangedOnAnotherNode";
+		TestUtil.displayTestTile(this, TEST_NAME);
+
+		// GIVEN
+		Task task = createTask(TestObjectStatisticsService.class.getName() + "." + TEST_NAME);
+		OperationResult result = task.getResult();
+		PrismObject<RoleType> role = createRole("boatswain");
+		String oid = repositoryService.addObject(role, null, result);
+		assertEquals("Maintained count was updated", rolesBefore, countRoles(ObjectCountPredicate.ALL, task, result));
+
+		// WHEN
+		TestUtil.displayWhen(TEST_NAME);
+		((ObjectStatisticsServiceImpl) objectStatisticsService).onClusterEvent(
+				ClusterEvent.objectChanged(RoleType.class, oid, null));
+
+		// THEN
+		TestUtil.displayThen(TEST_NAME);
+		result.computeStatus();
+		TestUtil.assertSuccess(result);
+		assertEquals("Maintained count was not recomputed", rolesBefore + 1, countRoles(ObjectCountPredicate.ALL, task, result));
+	}
+
+	private int countRoles(ObjectCountPredicate predicate, Task task, OperationResult result) throws Exception {
+		return objectStatisticsService.countObjects(RoleType.class, predicate, false, task, result);
+	}
+
+	private PrismObject<RoleType> createRole(String name) {
+		RoleType role = new RoleType(prismContext);
+		role.setName(PolyStringType.fromOrig(name));
+		return role.asPrismObject();
+	}
+}
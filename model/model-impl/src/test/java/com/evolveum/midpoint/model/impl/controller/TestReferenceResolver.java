@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.model.impl.controller;
+
+import com.evolveum.midpoint.model.impl.AbstractInternalModelIntegrationTest;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.schema.GetOperationOptions;
+import com.evolveum.midpoint.schema.SelectorOptions;
+import com.evolveum.midpoint.schema.constants.ObjectTypes;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.result.OperationResultStatus;
+import com.evolveum.midpoint.schema.util.ObjectTypeUtil;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.test.util.TestUtil;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AssignmentType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.RoleType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ContextConfiguration;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+
+/**
+ * Tests resolution of references for more objects at once: shared targets and targets that do not exist.
+ */
+@ContextConfiguration(locations = {"classpath:ctx-model-test-main.xml"})
+@DirtiesContext(classMode = ClassMode.AFTER_CLASS)
+public class TestReferenceResolver extends AbstractInternalModelIntegrationTest {
+
+	private static final String ROLE_NONEXISTENT_OID = "f0b4e0b2-7e3c-11e7-bd4e-2f2c5d0d5b8a";
+
+	@Autowired private ReferenceResolver referenceResolver;
+
+	@Test
+	public void test100ResolveSharedTarget() throws Exception {
+		final String TEST_NAME = "test100ResolveSharedTarget";
+		TestUtil.displayTestTile(this, TEST_NAME);
+
+		// GIVEN
+		Task task = createTask(TestReferenceResolver.class.getName() + "." + TEST_NAME);
+		OperationResult result = task.getResult();
+		PrismObject<UserType> jack = repositoryService.getObject(UserType.class, USER_JACK_OID, null, result);
+		jack.asObjectable().getAssignment().add(createAssignment(ROLE_SUPERUSER_OID));
+		PrismObject<UserType> administrator = repositoryService.getObject(UserType.class, USER_ADMINISTRATOR_OID, null, result);
+
+		// WHEN
+		TestUtil.displayWhen(TEST_NAME);
+		referenceResolver.resolveInObjects(Arrays.asList(jack, administrator), createResolveTargetRefOptions(), task, result);
+
+		// THEN
+		TestUtil.displayThen(TEST_NAME);
+		result.computeStatus();
+		TestUtil.assertSuccess(result);
+		PrismObject<?> jackRole = getResolvedTarget(jack, 0);
+		PrismObject<?> administratorRole = getResolvedTarget(administrator, 0);
+		assertNotNull("Jack's role was not resolved", jackRole);
+		assertNotNull("Administrator's role was not resolved", administratorRole);
+		assertEquals("Wrong role resolved", ROLE_SUPERUSER_OID, jackRole.getOid());
+		assertEquals("Wrong role resolved", ROLE_SUPERUSER_OID, administratorRole.getOid());
+		assertEquals("Wrong role type", RoleType.class, jackRole.getCompileTimeClass());
+		assertFalse("Shared target was not copied", jackRole == administratorRole);
+	}
+
+	/**
+	 * Missing target is reported as a warning; other references are still resolved.
+	 */
+	@Test
+	public void test110ResolveMissingTarget() throws Exception {
+		final String TEST_NAME = "test110ResolveMissingTarget";
+		TestUtil.displayTestTile(this, TEST_NAME);
+
+		// GIVEN
+		Task task = createTask(TestReferenceResolver.class.getName() + "." + TEST_NAME);
+		OperationResult result = task.getResult();
+		PrismObject<UserType> jack = repositoryService.getObject(UserType.class, USER_JACK_OID, null, result);
+		jack.asObjectable().getAssignment().add(createAssignment(ROLE_NONEXISTENT_OID));
+		jack.asObjectable().getAssignment().add(createAssignment(ROLE_SUPERUSER_OID));
+
+		// WHEN
+		TestUtil.displayWhen(TEST_NAME);
+		referenceResolver.resolveInObjects(Arrays.asList(jack), createResolveTargetRefOptions(), task, result);
+
+		// THEN
+		TestUtil.displayThen(TEST_NAME);
+		display(result.debugDump());
+		assertEquals("Wrong result status", OperationResultStatus.WARNING, result.getStatus());
+		assertNull("Nonexistent role was resolved", getResolvedTarget(jack, 0));
+		PrismObject<?> role = getResolvedTarget(jack, 1);
+		assertNotNull("Existing role was not resolved", role);
+		assertEquals("Wrong role resolved", ROLE_SUPERUSER_OID, role.getOid());
+	}
+
+	private Collection<SelectorOptions<GetOperationOptions>> createResolveTargetRefOptions() {
+		return SelectorOptions.createCollection(new ItemPath(UserType.F_ASSIGNMENT, AssignmentType.F_TARGET_REF),
+				GetOperationOptions.createResolve());
+	}
+
+	private AssignmentType createAssignment(String roleOid) {
+		AssignmentType assignment = new AssignmentType();
+		assignment.setTargetRef(ObjectTypeUtil.createObjectRef(roleOid, ObjectTypes.ROLE));
+		return assignment;
+	}
+
+	private PrismObject<?> getResolvedTarget(PrismObject<UserType> user, int assignmentIndex) {
+		return user.asObjectable().getAssignment().get(assignmentIndex).getTargetRef().asReferenceValue().getObject();
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.model.impl.importer;
+
+import org.testng.annotations.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class TestImportPipeline {
+
+	@Test
+	public void test100ParentsBeforeChildren() throws Exception {
+		ImportPipeline pipeline = new ImportPipeline(8);
+		Map<String, Integer> finishedAt = new ConcurrentHashMap<>();
+		AtomicInteger clock = new AtomicInteger();
+		Random random = new Random(42);
+
+		// a tree: org i has parent (i-1)/3, the root has no parent
+		int count = 500;
+		for (int i = 0; i < count; i++) {
+			String oid = "org-" + i;
+			List<String> refs = i > 0 ? Collections.singletonList("org-" + (i - 1) / 3) : Collections.emptyList();
+			int sleep = random.nextInt(3);
+			pipeline.submit(oid, refs, () -> {
+				sleep(sleep);
+				finishedAt.put(oid, clock.incrementAndGet());
+			});
+		}
+		pipeline.finish();
+
+		assertEquals("Wrong number of imported objects", count, finishedAt.size());
+		for (int i = 1; i < count; i++) {
+			int parent = (i - 1) / 3;
+			assertTrue("org-" + i + " imported before its parent", finishedAt.get("org-" + i) > finishedAt.get("org-" + parent));
+		}
+	}
+
+	@Test
+	public void test110IndependentObjectsInParallel() throws Exception {
+		ImportPipeline pipeline = new ImportPipeline(4);
+		// each object waits until all of them are started, which is possible only if they run in parallel
+		CountDownLatch started = new CountDownLatch(4);
+		AtomicInteger runConcurrently = new AtomicInteger();
+		for (int i = 0; i < 4; i++) {
+			pipeline.submit("user-" + i, Collections.emptyList(), () -> {
+				started.countDown();
+				try {
+					if (started.await(10, TimeUnit.SECONDS)) {
+						runConcurrently.incrementAndGet();
+					}
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+			});
+		}
+		pipeline.finish();
+		assertEquals("Objects were not imported in parallel", 4, runConcurrently.get());
+	}
+
+	@Test
+	public void test120ForwardReferencesAreNotWaitedFor() throws Exception {
+		ImportPipeline pipeline = new ImportPipeline(2);
+		List<String> finished = new CopyOnWriteArrayList<>();
+		// user references a role that comes later (or not at all); role references the user back
+		pipeline.submit("user", Arrays.asList("role", "unknown"), () -> finished.add("user"));
+		pipeline.submit("role", Collections.singletonList("user"), () -> finished.add("role"));
+		pipeline.finish();
+		assertEquals("Wrong order", Arrays.asList("user", "role"), finished);
+	}
+
+	@Test
+	public void test130FailureDoesNotBlockDependents() throws Exception {
+		ImportPipeline pipeline = new ImportPipeline(2);
+		List<String> finished = new CopyOnWriteArrayList<>();
+		pipeline.submit("role", Collections.emptyList(), () -> {
+			throw new IllegalStateException("Simulated failure");
+		});
+		pipeline.submit("user", Collections.singletonList("role"), () -> finished.add("user"));
+		pipeline.finish();
+		assertEquals("Dependent object not imported", Collections.singletonList("user"), finished);
+		assertEquals("Wrong number of finished objects", 2, pipeline.getFinished());
+	}
+
+	@Test
+	public void test140SameObjectTwice() throws Exception {
+		ImportPipeline pipeline = new ImportPipeline(4);
+		List<String> finished = new CopyOnWriteArrayList<>();
+		pipeline.submit("role", Collections.emptyList(), () -> {
+			sleep(100);
+			finished.add("role-v1");
+		});
+		pipeline.submit("role", Collections.emptyList(), () -> finished.add("role-v2"));
+		pipeline.submit("user", Collections.singletonList("role"), () -> finished.add("user"));
+		pipeline.finish();
+		assertEquals("Wrong order", Arrays.asList("role-v1", "role-v2", "user"), finished);
+	}
+
+	@Test
+	public void test200ManyObjects() throws Exception {
+		// more objects than can be in flight, to check that the reader is throttled and nothing gets stuck
+		ImportPipeline pipeline = new ImportPipeline(3);
+		AtomicInteger imported = new AtomicInteger();
+		int count = 10000;
+		for (int i = 0; i < count; i++) {
+			List<String> refs = i % 10 != 0 ? Collections.singletonList("o-" + (i - i % 10)) : Collections.emptyList();
+			pipeline.submit("o-" + i, refs, imported::incrementAndGet);
+		}
+		pipeline.finish();
+		assertEquals("Wrong number of imported objects", count, imported.get());
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.model.impl.integrity;
+
+import com.evolveum.midpoint.model.impl.integrity.DuplicateIdentifierDetector.IdentifierValue;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowKindType;
+import org.testng.annotations.Test;
+
+import javax.xml.namespace.QName;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class TestDuplicateIdentifierDetector {
+
+	private static final String RESOURCE_OID = "10000000-0000-0000-0000-000000000004";
+	private static final QName UID = new QName("http://midpoint.evolveum.com/xml/ns/public/connector/icf-1/resource-schema-3", "uid");
+	private static final QName NAME = new QName("http://midpoint.evolveum.com/xml/ns/public/connector/icf-1/resource-schema-3", "name");
+
+	@Test
+	public void test100NoDuplicates() throws Exception {
+		try (DuplicateIdentifierDetector detector = new DuplicateIdentifierDetector(4)) {
+			for (int i = 0; i < 1000; i++) {
+				detector.add(value(ShadowKindType.ACCOUNT, UID, "u" + i), "oid" + i);
+				// the same value of a different identifier or kind is not a duplicate
+				detector.add(value(ShadowKindType.ACCOUNT, NAME, "u" + i), "oid" + i);
+				detector.add(value(ShadowKindType.ENTITLEMENT, UID, "u" + i), "group" + i);
+			}
+			assertEquals("Wrong number of records", 3000, detector.getRecords());
+			List<IdentifierValue> duplicates = new ArrayList<>();
+			detector.forEachDuplicate((value, oids) -> duplicates.add(value));
+			assertEquals("Unexpected duplicates: " + duplicates, 0, duplicates.size());
+		}
+	}
+
+	@Test
+	public void test110Duplicates() throws Exception {
+		try (DuplicateIdentifierDetector detector = new DuplicateIdentifierDetector(4)) {
+			for (int i = 0; i < 1000; i++) {
+				detector.add(value(ShadowKindType.ACCOUNT, UID, "u" + i), "oid" + i);
+			}
+			detector.add(value(ShadowKindType.ACCOUNT, UID, "u10"), "dup10a");
+			detector.add(value(ShadowKindType.ACCOUNT, UID, "u10"), "dup10b");
+			detector.add(value(ShadowKindType.ACCOUNT, UID, "u500"), "dup500");
+
+			Map<IdentifierValue, List<String>> duplicates = new HashMap<>();
+			detector.forEachDuplicate(duplicates::put);
+			assertEquals("Wrong duplicates: " + duplicates, 2, duplicates.size());
+			assertEquals("Wrong shadows for u10", Arrays.asList("oid10", "dup10a", "dup10b"),
+					duplicates.get(value(ShadowKindType.ACCOUNT, UID, "u10")));
+			assertEquals("Wrong shadows for u500", Arrays.asList("oid500", "dup500"),
+					duplicates.get(value(ShadowKindType.ACCOUNT, UID, "u500")));
+		}
+	}
+
+	@Test
+	public void test120ConcurrentAdd() throws Exception {
+		try (DuplicateIdentifierDetector detector = new DuplicateIdentifierDetector(DuplicateIdentifierDetector.DEFAULT_BUCKETS)) {
+			ExecutorService executor = Executors.newFixedThreadPool(4);
+			for (int t = 0; t < 4; t++) {
+				int thread = t;
+				executor.execute(() -> {
+					try {
+						for (int i = 0; i < 5000; i++) {
+							// each value is added by two threads
+							detector.add(value(ShadowKindType.ACCOUNT, UID, "u" + (i + (thread % 2) * 5000)), "oid-" + thread + "-" + i);
+						}
+					} catch (Exception e) {
+						throw new AssertionError(e);
+					}
+				});
+			}
+			executor.shutdown();
+			assertTrue("Threads did not finish", executor.awaitTermination(1, TimeUnit.MINUTES));
+			assertEquals("Wrong number of records", 20000, detector.getRecords());
+
+			Set<IdentifierValue> duplicates = new HashSet<>();
+			detector.forEachDuplicate((value, oids) -> {
+				assertEquals("Wrong number of shadows for " + value, 2, oids.size());
+				duplicates.add(value);
+			});
+			assertEquals("Wrong number of duplicate values", 10000, duplicates.size());
+		}
+	}
+
+	private IdentifierValue value(ShadowKindType kind, QName identifier, String value) {
+		return new IdentifierValue(RESOURCE_OID, kind, identifier, value);
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.model.impl.lens;
+
+import com.evolveum.midpoint.model.api.context.SynchronizationPolicyDecision;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.test.util.TestUtil;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectReferenceType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.SynchronizationSituationType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ContextConfiguration;
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests writing of links collected during execution of projections, and the synchronization situation
+ * that has to be set only after the link is written.
+ */
+@ContextConfiguration(locations = {"classpath:ctx-model-test-main.xml"})
+@DirtiesContext(classMode = ClassMode.AFTER_CLASS)
+public class TestChangeExecutorLinks extends AbstractLensTest {
+
+	@Autowired private ChangeExecutor changeExecutor;
+
+	@Test
+	public void test100LinkShadow() throws Exception {
+		final String TEST_NAME = "test100LinkShadow";
+		TestUtil.displayTestTile(this, TEST_NAME);
+
+		// GIVEN
+		Task task = taskManager.createTaskInstance(TestChangeExecutorLinks.class.getName() + "." + TEST_NAME);
+		OperationResult result = task.getResult();
+		LensContext<UserType> context = createUserLensContext();
+		fillContextWithUser(context, USER_JACK_OID, result);
+		LensProjectionContext projectionContext = fillContextWithAccount(context, ACCOUNT_SHADOW_GUYBRUSH_OID, task, result);
+		context.recompute();
+		display("Input context", context);
+
+		// WHEN
+		TestUtil.displayWhen(TEST_NAME);
+		changeExecutor.executeChanges(context, task, result);
+
+		// THEN
+		TestUtil.displayThen(TEST_NAME);
+		result.computeStatus();
+		TestUtil.assertSuccess(result);
+		assertFalse("Projection is broken", projectionContext.getSynchronizationPolicyDecision() == SynchronizationPolicyDecision.BROKEN);
+		PrismObject<UserType> userJack = repositoryService.getObject(UserType.class, USER_JACK_OID, null, result);
+		assertTrue("Shadow was not linked", isLinked(userJack, ACCOUNT_SHADOW_GUYBRUSH_OID));
+		assertSituation(ACCOUNT_SHADOW_GUYBRUSH_OID, SynchronizationSituationType.LINKED, result);
+		assertEquals("Wrong number of repository writes", 1, context.getRepositoryWrites());
+	}
+
+	/**
+	 * The focus disappears before the link is written, so the link cannot be written.
+	 * The situation must not be set to LINKED and the projection must be marked as broken.
+	 */
+	@Test
+	public void test110LinkShadowToDeletedFocus() throws Exception {
+		final String TEST_NAME = "test110LinkShadowToDeletedFocus";
+		TestUtil.displayTestTile(this, TEST_NAME);
+
+		// GIVEN
+		Task task = taskManager.createTaskInstance(TestChangeExecutorLinks.class.getName() + "." + TEST_NAME);
+		OperationResult result = task.getResult();
+		LensContext<UserType> context = createUserLensContext();
+		fillContextWithUser(context, USER_BARBOSSA_OID, result);
+		LensProjectionContext projectionContext = fillContextWithAccount(context, ACCOUNT_SHADOW_ELAINE_DUMMY_OID, task, result);
+		context.recompute();
+		SynchronizationSituationType situationBefore = getSituation(ACCOUNT_SHADOW_ELAINE_DUMMY_OID, result);
+		repositoryService.deleteObject(UserType.class, USER_BARBOSSA_OID, result);
+
+		// WHEN
+		TestUtil.displayWhen(TEST_NAME);
+		changeExecutor.executeChanges(context, task, result);
+
+		// THEN
+		TestUtil.displayThen(TEST_NAME);
+		result.computeStatus();
+		display("Result", result);
+		TestUtil.assertFailure(result);
+		assertEquals("Projection is not broken", SynchronizationPolicyDecision.BROKEN,
+				projectionContext.getSynchronizationPolicyDecision());
+		assertSituation(ACCOUNT_SHADOW_ELAINE_DUMMY_OID, situationBefore, result);
+	}
+
+	private boolean isLinked(PrismObject<UserType> user, String shadowOid) {
+		for (ObjectReferenceType linkRef : user.asObjectable().getLinkRef()) {
+			if (shadowOid.equals(linkRef.getOid())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private SynchronizationSituationType getSituation(String shadowOid, OperationResult result) throws Exception {
+		return repositoryService.getObject(ShadowType.class, shadowOid, null, result).asObjectable().getSynchronizationSituation();
+	}
+
+	private void assertSituation(String shadowOid, SynchronizationSituationType expected, OperationResult result) throws Exception {
+		assertEquals("Wrong situation in shadow " + shadowOid, expected, getSituation(shadowOid, result));
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.model.impl.lens;
+
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.delta.ItemDelta;
+import com.evolveum.midpoint.prism.delta.builder.DeltaBuilder;
+import com.evolveum.midpoint.schema.internals.InternalCounters;
+import com.evolveum.midpoint.schema.internals.InternalMonitor;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.test.util.TestUtil;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.RoleType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ContextConfiguration;
+import org.testng.annotations.Test;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests the global role cache: hits, revalidation of expired entries, invalidation by changes via the model
+ * and reuse of role expansions.
+ */
+@ContextConfiguration(locations = {"classpath:ctx-model-test-main.xml"})
+@DirtiesContext(classMode = ClassMode.AFTER_CLASS)
+public class TestRoleCache extends AbstractLensTest {
+
+	@Autowired private RoleCache roleCache;
+
+	@Test
+	public void test100HitAndMiss() throws Exception {
+		final String TEST_NAME = "test100HitAndMiss";
+		TestUtil.displayTestTile(this, TEST_NAME);
+
+		// GIVEN
+		Task task = taskManager.createTaskInstance(TestRoleCache.class.getName() + "." + TEST_NAME);
+		OperationResult result = task.getResult();
+		roleCache.setExpirationMillis(TimeUnit.HOURS.toMillis(1));
+		roleCache.invalidateAll();
+		long hitsBefore = roleCache.getHits();
+		long missesBefore = roleCache.getMisses();
+		long monitorHitsBefore = InternalMonitor.getCount(InternalCounters.ROLE_CACHE_HIT_COUNT);
+
+		// WHEN
+		TestUtil.displayWhen(TEST_NAME);
+		PrismObject<RoleType> role1 = roleCache.getObject(RoleType.class, ROLE_SUPERUSER_OID, repositoryService, result);
+		PrismObject<RoleType> role2 = roleCache.getObject(RoleType.class, ROLE_SUPERUSER_OID, repositoryService, result);
+
+		// THEN
+		TestUtil.displayThen(TEST_NAME);
+		result.computeStatus();
+		TestUtil.assertSuccess(result);
+		assertEquals("Wrong number of misses", 1, roleCache.getMisses() - missesBefore);
+		assertEquals("Wrong number of hits", 1, roleCache.getHits() - hitsBefore);
+		assertEquals("Wrong number of hits in internal monitor", 1,
+				InternalMonitor.getCount(InternalCounters.ROLE_CACHE_HIT_COUNT) - monitorHitsBefore);
+		assertSame("Cached role was not shared", role1, role2);
+		assertTrue("Cached role is not immutable", role1.isImmutable());
+	}
+
+	/**
+	 * The role is changed in the repository directly, so the cache is not invalidated. After the expiration,
+	 * the version is checked and the role is read again.
+	 */
+	@Test
+	public void test110RevalidateChangedRole() throws Exception {
+		final String TEST_NAME = "test110RevalidateChangedRole";
+		TestUtil.displayTestTile(this, TEST_NAME);
+
+		// GIVEN
+		Task task = taskManager.createTaskInstance(TestRoleCache.class.getName() + "." + TEST_NAME);
+		OperationResult result = task.getResult();
+		roleCache.setExpirationMillis(0);
+		roleCache.getObject(RoleType.class, ROLE_SUPERUSER_OID, repositoryService, result);
+		PrismObject<RoleType> unchanged = roleCache.getObject(RoleType.class, ROLE_SUPERUSER_OID, repositoryService, result);
+		Collection<? extends ItemDelta<?, ?>> modifications = DeltaBuilder.deltaFor(RoleType.class, prismContext)
+				.item(RoleType.F_DESCRIPTION).replace("changed in repository")
+				.asItemDeltas();
+		repositoryService.modifyObject(RoleType.class, ROLE_SUPERUSER_OID, modifications, result);
+		long missesBefore = roleCache.getMisses();
+
+		// WHEN
+		TestUtil.displayWhen(TEST_NAME);
+		PrismObject<RoleType> changed = roleCache.getObject(RoleType.class, ROLE_SUPERUSER_OID, repositoryService, result);
+
+		// THEN
+		TestUtil.displayThen(TEST_NAME);
+		result.computeStatus();
+		TestUtil.assertSuccess(result);
+		assertEquals("Changed role was not read from the repository", 1, roleCache.getMisses() - missesBefore);
+		assertEquals("Wrong description", "changed in repository", changed.asObjectable().getDescription());
+		assertFalse("Version was not changed", unchanged.getVersion().equals(changed.getVersion()));
+	}
+
+	/**
+	 * The role is changed via the model, so it is invalidated immediately, even if the entry is not expired.
+	 */
+	@Test
+	public void test120InvalidateOnModelChange() throws Exception {
+		final String TEST_NAME = "test120InvalidateOnModelChange";
+		TestUtil.displayTestTile(this, TEST_NAME);
+
+		// GIVEN
+		Task task = taskManager.createTaskInstance(TestRoleCache.class.getName() + "." + TEST_NAME);
+		OperationResult result = task.getResult();
+		roleCache.setExpirationMillis(TimeUnit.HOURS.toMillis(1));
+		roleCache.getObject(RoleType.class, ROLE_SUPERUSER_OID, repositoryService, result);
+		modifyObjectReplaceProperty(RoleType.class, ROLE_SUPERUSER_OID, RoleType.F_DESCRIPTION, task, result, "changed by model");
+		long missesBefore = roleCache.getMisses();
+
+		// WHEN
+		TestUtil.displayWhen(TEST_NAME);
+		PrismObject<RoleType> changed = roleCache.getObject(RoleType.class, ROLE_SUPERUSER_OID, repositoryService, result);
+
+		// THEN
+		TestUtil.displayThen(TEST_NAME);
+		result.computeStatus();
+		TestUtil.assertSuccess(result);
+		assertEquals("Changed role was not read from the repository", 1, roleCache.getMisses() - missesBefore);
+		assertEquals("Wrong description", "changed by model", changed.asObjectable().getDescription());
+	}
+
+	@Test
+	public void test130ReuseExpansion() throws Exception {
+		final String TEST_NAME = "test130ReuseExpansion";
+		TestUtil.displayTestTile(this, TEST_NAME);
+
+		// GIVEN
+		Task task = taskManager.createTaskInstance(TestRoleCache.class.getName() + "." + TEST_NAME);
+		OperationResult result = task.getResult();
+		roleCache.setExpirationMillis(TimeUnit.HOURS.toMillis(1));
+		roleCache.invalidateAll();
+		PrismObject<RoleType> role = roleCache.getObject(RoleType.class, ROLE_SUPERUSER_OID, repositoryService, result);
+		long hitsBefore = roleCache.getExpansionHits();
+		long missesBefore = roleCache.getExpansionMisses();
+
+		// WHEN
+		TestUtil.displayWhen(TEST_NAME);
+		RoleCache.Expansion expansion1 = roleCache.getExpansion(role.asObjectable());
+		RoleCache.Expansion expansion2 = roleCache.getExpansion(
+				roleCache.getObject(RoleType.class, ROLE_SUPERUSER_OID, repositoryService, result).asObjectable());
+
+		// THEN
+		TestUtil.displayThen(TEST_NAME);
+		assertSame("Expansion was not reused", expansion1, expansion2);
+		assertEquals("Wrong number of computed expansions", 1, roleCache.getExpansionMisses() - missesBefore);
+		assertEquals("Wrong number of reused expansions", 1, roleCache.getExpansionHits() - hitsBefore);
+		assertEquals("Wrong number of authorizations", role.asObjectable().getAuthorization().size(),
+				expansion1.getAuthorizations().size());
+		assertEquals("Wrong number of inducements", role.asObjectable().getInducement().size(),
+				expansion1.getInducements().size());
+	}
+}
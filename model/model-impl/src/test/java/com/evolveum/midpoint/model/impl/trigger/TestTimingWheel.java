@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.model.impl.trigger;
+
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class TestTimingWheel {
+
+	private static final long TICK = 1000L;
+	private static final long START = 1500000000000L;
+
+	@Test
+	public void test100FireInOrder() throws Exception {
+		TimingWheel<String> wheel = new TimingWheel<>(TICK, 8, 3, START);
+		wheel.add("c", START + 30 * TICK);
+		wheel.add("a", START + 2 * TICK);
+		wheel.add("b", START + 5 * TICK);
+
+		assertEquals("Wrong items at start", Collections.emptyList(), wheel.advance(START + TICK));
+		assertEquals("Wrong items at 2", Collections.singletonList("a"), wheel.advance(START + 2 * TICK));
+		assertEquals("Wrong items at 10", Collections.singletonList("b"), wheel.advance(START + 10 * TICK));
+		assertEquals("Wrong items at 29", Collections.emptyList(), wheel.advance(START + 29 * TICK));
+		assertEquals("Wrong items at 30", Collections.singletonList("c"), wheel.advance(START + 30 * TICK));
+		assertEquals("Wrong size", 0, wheel.size());
+	}
+
+	@Test
+	public void test110EveryItemExactlyOnceAndOnTime() throws Exception {
+		TimingWheel<Integer> wheel = new TimingWheel<>(TICK, 8, 3, START);
+		Random random = new Random(42);
+		Map<Integer, Long> dueTimes = new HashMap<>();
+		for (int i = 0; i < 1000; i++) {
+			long due = START + random.nextInt(500) * TICK + random.nextInt((int) TICK);
+			assertTrue("Item was not accepted", wheel.add(i, due));
+			dueTimes.put(i, due);
+		}
+		Set<Integer> fired = new HashSet<>();
+		for (long now = START; now <= START + 600 * TICK; now += TICK) {
+			for (Integer item : wheel.advance(now)) {
+				assertTrue("Item " + item + " fired twice", fired.add(item));
+				long due = dueTimes.get(item);
+				assertEquals("Item " + item + " fired at a wrong time", due / TICK, now / TICK);
+			}
+		}
+		assertEquals("Not all items fired", dueTimes.keySet(), fired);
+	}
+
+	@Test
+	public void test120RescheduleAndRemove() throws Exception {
+		TimingWheel<String> wheel = new TimingWheel<>(TICK, 8, 3, START);
+		wheel.add("moved", START + 100 * TICK);
+		wheel.add("removed", START + 10 * TICK);
+		wheel.add("moved", START + 20 * TICK);
+		assertTrue("Item is not there", wheel.remove("removed"));
+		assertFalse("Item was removed twice", wheel.remove("removed"));
+		assertEquals("Wrong size", 1, wheel.size());
+
+		assertEquals("Wrong items at 19", Collections.emptyList(), wheel.advance(START + 19 * TICK));
+		assertEquals("Wrong items at 20", Collections.singletonList("moved"), wheel.advance(START + 20 * TICK));
+		assertEquals("Wrong items at 200", Collections.emptyList(), wheel.advance(START + 200 * TICK));
+	}
+
+	@Test
+	public void test130Overdue() throws Exception {
+		TimingWheel<String> wheel = new TimingWheel<>(TICK, 8, 3, START);
+		wheel.advance(START + 10 * TICK);
+		wheel.add("late", START);
+		assertTrue("Overdue item is not there", wheel.contains("late"));
+		assertEquals("Overdue item was not returned", Collections.singletonList("late"), wheel.advance(START + 10 * TICK));
+	}
+
+	@Test
+	public void test140BeyondHorizon() throws Exception {
+		TimingWheel<String> wheel = new TimingWheel<>(TICK, 8, 3, START);		// horizon = 512 ticks
+		assertTrue("Item before horizon was rejected", wheel.add("near", wheel.getHorizon() - TICK));
+		assertFalse("Item beyond horizon was accepted", wheel.add("far", wheel.getHorizon()));
+		assertFalse("Rejected item is there", wheel.contains("far"));
+	}
+
+	@Test
+	public void test150LongJump() throws Exception {
+		TimingWheel<String> wheel = new TimingWheel<>(TICK, 8, 3, START);
+		wheel.add("a", START + 100 * TICK);
+		wheel.add("b", START + 400 * TICK);
+		wheel.advance(START + 50 * TICK);
+		wheel.add("c", START + 500 * TICK);
+		// the clock jumps far beyond the horizon
+		assertEquals("Wrong items after the jump", Arrays.asList("a", "b", "c"), wheel.advance(START + 5000 * TICK));
+		wheel.add("d", START + 5001 * TICK);
+		assertEquals("Wrong items after the jump", Collections.singletonList("d"), wheel.advance(START + 5001 * TICK));
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.model.impl.util;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class TestCompactOidSet {
+
+	@Test
+	public void test100ParseUuid() {
+		UUID uuid = UUID.randomUUID();
+		long[] parsed = CompactOidSet.parseUuid(uuid.toString());
+		assertNotNull("canonical UUID not parsed", parsed);
+		assertEquals(uuid.getMostSignificantBits(), parsed[0]);
+		assertEquals(uuid.getLeastSignificantBits(), parsed[1]);
+
+		assertNull(CompactOidSet.parseUuid(uuid.toString().toUpperCase()));
+		assertNull(CompactOidSet.parseUuid("c0c010c0-d34d-b33f-f00d-11111111111"));
+		assertNull(CompactOidSet.parseUuid("c0c010c0xd34d-b33f-f00d-111111111111"));
+		assertNull(CompactOidSet.parseUuid("00000000-0000-0000-0000-000000000002-x"));
+	}
+
+	@Test
+	public void test200AddAndContains() {
+		CompactOidSet set = new CompactOidSet();
+		List<String> oids = new ArrayList<>();
+		for (int i = 0; i < 10000; i++) {
+			oids.add(UUID.randomUUID().toString());
+		}
+		for (String oid : oids) {
+			assertTrue(set.add(oid));
+		}
+		assertTrue(set.add("00000000-0000-0000-0000-000000000000"));
+		assertTrue(set.add("C0C010C0-D34D-B33F-F00D-111111111111"));
+		assertTrue(set.add("my-oid"));
+
+		assertEquals(10003, set.size());
+		for (String oid : oids) {
+			assertTrue("Missing " + oid, set.contains(oid));
+			assertFalse(set.add(oid));
+		}
+		assertTrue(set.contains("00000000-0000-0000-0000-000000000000"));
+		assertTrue(set.contains("C0C010C0-D34D-B33F-F00D-111111111111"));
+		assertFalse(set.contains("c0c010c0-d34d-b33f-f00d-111111111111"));
+		assertTrue(set.contains("my-oid"));
+		assertFalse(set.contains(UUID.randomUUID().toString()));
+		assertEquals(10003, set.size());
+	}
+}
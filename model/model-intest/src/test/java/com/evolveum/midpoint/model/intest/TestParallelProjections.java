@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.model.intest;
+
+import com.evolveum.icf.dummy.resource.BreakMode;
+import com.evolveum.midpoint.model.api.ModelExecuteOptions;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.delta.ItemDelta;
+import com.evolveum.midpoint.prism.delta.ObjectDelta;
+import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.test.util.TestUtil;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AssignmentPolicyEnforcementType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowKindType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ContextConfiguration;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import static com.evolveum.midpoint.test.IntegrationTestTools.display;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests processing of projections in parallel (parallelProjections model execute option), on several dummy resources.
+ */
+@ContextConfiguration(locations = {"classpath:ctx-model-intest-test-main.xml"})
+@DirtiesContext(classMode = ClassMode.AFTER_CLASS)
+public class TestParallelProjections extends AbstractInitializedModelIntegrationTest {
+
+	private static final String USER_PARALLEL_NAME = "parallel";
+	private static final String USER_PARALLEL_FULL_NAME = "Parallel Pirate";
+	private static final String USER_PARALLEL_FULL_NAME_MODIFIED = "Parallel Captain";
+
+	private static final String USER_BROKEN_NAME = "halfbroken";
+	private static final String USER_BROKEN_FULL_NAME = "Halfbroken Pirate";
+
+	private static final String WORKER_THREAD_PREFIX = "projection-worker-";
+
+	private String userParallelOid;
+	private String userBrokenOid;
+
+	@Test
+	public void test100AssignAccountsInParallel() throws Exception {
+		final String TEST_NAME = "test100AssignAccountsInParallel";
+		TestUtil.displayTestTile(this, TEST_NAME);
+
+		// GIVEN
+		Task task = createTask(TestParallelProjections.class.getName() + "." + TEST_NAME);
+		OperationResult result = task.getResult();
+		assumeAssignmentPolicy(AssignmentPolicyEnforcementType.FULL);
+		PrismObject<UserType> user = createUser(USER_PARALLEL_NAME, USER_PARALLEL_FULL_NAME, true);
+		addObject(user, task, result);
+		userParallelOid = user.getOid();
+
+		// WHEN
+		TestUtil.displayWhen(TEST_NAME);
+		executeChanges(createAccountAssignmentsDelta(userParallelOid), ModelExecuteOptions.createParallelProjections(),
+				task, result);
+
+		// THEN
+		TestUtil.displayThen(TEST_NAME);
+		result.computeStatus();
+		TestUtil.assertSuccess(result);
+		assertTrue("Projections were not processed by worker threads", getWorkerThreadCount() >= 3);
+		assertLinks(getUser(userParallelOid), 3);
+		assertDummyAccount(null, USER_PARALLEL_NAME, USER_PARALLEL_FULL_NAME, true);
+		assertDummyAccount(RESOURCE_DUMMY_RED_NAME, USER_PARALLEL_NAME, USER_PARALLEL_FULL_NAME, true);
+		assertDummyAccount(RESOURCE_DUMMY_BLUE_NAME, USER_PARALLEL_NAME, USER_PARALLEL_FULL_NAME, true);
+	}
+
+	/**
+	 * Existing accounts are loaded and modified in parallel.
+	 * Fullname mapping on the blue resource is weak, so the blue account is not changed.
+	 */
+	@Test
+	public void test110ModifyUserInParallel() throws Exception {
+		final String TEST_NAME = "test110ModifyUserInParallel";
+		TestUtil.displayTestTile(this, TEST_NAME);
+
+		// GIVEN
+		Task task = createTask(TestParallelProjections.class.getName() + "." + TEST_NAME);
+		OperationResult result = task.getResult();
+
+		// WHEN
+		TestUtil.displayWhen(TEST_NAME);
+		modifyUserReplace(userParallelOid, UserType.F_FULL_NAME, ModelExecuteOptions.createParallelProjections(),
+				task, result, new PolyString(USER_PARALLEL_FULL_NAME_MODIFIED));
+
+		// THEN
+		TestUtil.displayThen(TEST_NAME);
+		result.computeStatus();
+		TestUtil.assertSuccess(result);
+		assertLinks(getUser(userParallelOid), 3);
+		assertDummyAccount(null, USER_PARALLEL_NAME, USER_PARALLEL_FULL_NAME_MODIFIED, true);
+		assertDummyAccount(RESOURCE_DUMMY_RED_NAME, USER_PARALLEL_NAME, USER_PARALLEL_FULL_NAME_MODIFIED, true);
+		assertDummyAccount(RESOURCE_DUMMY_BLUE_NAME, USER_PARALLEL_NAME, USER_PARALLEL_FULL_NAME, true);
+	}
+
+	/**
+	 * Creation of the blue account fails. The other accounts have to be created and linked nevertheless,
+	 * and the failure has to be reported as a partial error.
+	 */
+	@Test
+	public void test120AssignAccountsInParallelOneFails() throws Exception {
+		final String TEST_NAME = "test120AssignAccountsInParallelOneFails";
+		TestUtil.displayTestTile(this, TEST_NAME);
+
+		// GIVEN
+		Task task = createTask(TestParallelProjections.class.getName() + "." + TEST_NAME);
+		OperationResult result = task.getResult();
+		PrismObject<UserType> user = createUser(USER_BROKEN_NAME, USER_BROKEN_FULL_NAME, true);
+		addObject(user, task, result);
+		userBrokenOid = user.getOid();
+		getDummyResource(RESOURCE_DUMMY_BLUE_NAME).setAddBreakMode(BreakMode.GENERIC);
+
+		try {
+			// WHEN
+			TestUtil.displayWhen(TEST_NAME);
+			executeChanges(createAccountAssignmentsDelta(userBrokenOid), ModelExecuteOptions.createParallelProjections(),
+					task, result);
+		} finally {
+			getDummyResource(RESOURCE_DUMMY_BLUE_NAME).resetBreakMode();
+		}
+
+		// THEN
+		TestUtil.displayThen(TEST_NAME);
+		result.computeStatus();
+		display("Result", result);
+		TestUtil.assertPartialError(result);
+		PrismObject<UserType> userAfter = getUser(userBrokenOid);
+		assertAssignments(userAfter, 3);
+		assertDummyAccount(null, USER_BROKEN_NAME, USER_BROKEN_FULL_NAME, true);
+		assertDummyAccount(RESOURCE_DUMMY_RED_NAME, USER_BROKEN_NAME, USER_BROKEN_FULL_NAME, true);
+		assertNoDummyAccount(RESOURCE_DUMMY_BLUE_NAME, USER_BROKEN_NAME);
+	}
+
+	/**
+	 * The blue resource is fixed now, so the missing account is created by the recompute.
+	 */
+	@Test
+	public void test130RecomputeInParallel() throws Exception {
+		final String TEST_NAME = "test130RecomputeInParallel";
+		TestUtil.displayTestTile(this, TEST_NAME);
+
+		// GIVEN
+		Task task = createTask(TestParallelProjections.class.getName() + "." + TEST_NAME);
+		OperationResult result = task.getResult();
+
+		// WHEN
+		TestUtil.displayWhen(TEST_NAME);
+		recomputeUser(userBrokenOid, ModelExecuteOptions.createParallelProjections(), task, result);
+
+		// THEN
+		TestUtil.displayThen(TEST_NAME);
+		result.computeStatus();
+		TestUtil.assertSuccess(result);
+		assertLinks(getUser(userBrokenOid), 3);
+		assertDummyAccount(null, USER_BROKEN_NAME, USER_BROKEN_FULL_NAME, true);
+		assertDummyAccount(RESOURCE_DUMMY_RED_NAME, USER_BROKEN_NAME, USER_BROKEN_FULL_NAME, true);
+		assertDummyAccount(RESOURCE_DUMMY_BLUE_NAME, USER_BROKEN_NAME, USER_BROKEN_FULL_NAME, true);
+	}
+
+	private ObjectDelta<UserType> createAccountAssignmentsDelta(String userOid) throws Exception {
+		Collection<ItemDelta<?, ?>> modifications = new ArrayList<>();
+		modifications.add(createAssignmentModification(RESOURCE_DUMMY_OID, ShadowKindType.ACCOUNT, null, true));
+		modifications.add(createAssignmentModification(RESOURCE_DUMMY_RED_OID, ShadowKindType.ACCOUNT, null, true));
+		modifications.add(createAssignmentModification(RESOURCE_DUMMY_BLUE_OID, ShadowKindType.ACCOUNT, null, true));
+		return ObjectDelta.createModifyDelta(userOid, modifications, UserType.class, prismContext);
+	}
+
+	// The worker pool creates a new thread for each task submitted while it has fewer threads than its size.
+	private long getWorkerThreadCount() {
+		return Thread.getAllStackTraces().keySet().stream()
+				.filter(thread -> thread.getName().startsWith(WORKER_THREAD_PREFIX))
+				.count();
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.model.intest;
+
+import com.evolveum.midpoint.model.impl.trigger.TriggerHandler;
+import com.evolveum.midpoint.model.impl.trigger.TriggerHandlerRegistry;
+import com.evolveum.midpoint.model.impl.trigger.TriggerTimer;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.delta.builder.DeltaBuilder;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
+import com.evolveum.midpoint.schema.constants.SchemaConstants;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.test.Checker;
+import com.evolveum.midpoint.test.IntegrationTestTools;
+import com.evolveum.midpoint.test.util.TestUtil;
+import com.evolveum.midpoint.util.exception.CommonException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.TriggerType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ContextConfiguration;
+import org.testng.annotations.Test;
+
+import javax.xml.datatype.XMLGregorianCalendar;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests firing of triggers by the trigger timer (the trigger scanner task is not running here).
+ */
+@ContextConfiguration(locations = {"classpath:ctx-model-intest-test-main.xml"})
+@DirtiesContext(classMode = ClassMode.AFTER_CLASS)
+public class TestTriggerTimer extends AbstractInitializedModelIntegrationTest {
+
+	private static final String HANDLER_URI = SchemaConstants.NS_MIDPOINT_TEST + "/counting-trigger-handler";
+	private static final int TIMEOUT = 30000;
+
+	private static final XMLGregorianCalendar LONG_LONG_TIME_AGO = XmlTypeConverter.createXMLGregorianCalendar(1111, 1, 1, 12, 00, 00);
+
+	@Autowired private TriggerHandlerRegistry triggerHandlerRegistry;
+	@Autowired private TriggerTimer triggerTimer;
+
+	private final CountingTriggerHandler triggerHandler = new CountingTriggerHandler();
+
+	@Override
+	public void initSystem(Task initTask, OperationResult initResult) throws Exception {
+		super.initSystem(initTask, initResult);
+		triggerHandlerRegistry.register(HANDLER_URI, triggerHandler);
+		triggerTimer.setEnabled(true);
+	}
+
+	/**
+	 * Trigger added via model is scheduled by the change hook and fired at its timestamp.
+	 */
+	@Test
+	public void test100FireTriggerAddedViaModel() throws Exception {
+		final String TEST_NAME = "test100FireTriggerAddedViaModel";
+		TestUtil.displayTestTile(this, TEST_NAME);
+
+		// GIVEN
+		assertTrue("Trigger timer is not running", triggerTimer.isRunning());
+		triggerHandler.reset();
+
+		// WHEN
+		TestUtil.displayWhen(TEST_NAME);
+		addTrigger(USER_JACK_OID, XmlTypeConverter.createXMLGregorianCalendar(clock.currentTimeMillis() + 2000L), HANDLER_URI);
+
+		// THEN
+		TestUtil.displayThen(TEST_NAME);
+		assertFired(USER_JACK_OID);
+	}
+
+	/**
+	 * Trigger written directly to the repository is not seen by the hook; it is found when the triggers are (re)loaded.
+	 */
+	@Test
+	public void test110FireTriggerAddedToRepository() throws Exception {
+		final String TEST_NAME = "test110FireTriggerAddedToRepository";
+		TestUtil.displayTestTile(this, TEST_NAME);
+
+		// GIVEN
+		Task task = createTask(TestTriggerTimer.class.getName() + "." + TEST_NAME);
+		OperationResult result = task.getResult();
+		triggerHandler.reset();
+		TriggerType trigger = new TriggerType();
+		trigger.setTimestamp(LONG_LONG_TIME_AGO);
+		trigger.setHandlerUri(HANDLER_URI);
+		repositoryService.modifyObject(UserType.class, USER_JACK_OID,
+				DeltaBuilder.deltaFor(UserType.class, prismContext).item(ObjectType.F_TRIGGER).add(trigger).asItemDeltas(),
+				result);
+
+		// WHEN
+		TestUtil.displayWhen(TEST_NAME);
+		triggerTimer.setEnabled(false);
+		triggerTimer.setEnabled(true);
+
+		// THEN
+		TestUtil.displayThen(TEST_NAME);
+		assertFired(USER_JACK_OID);
+	}
+
+	/**
+	 * Trigger removed via model is taken out of the timer immediately.
+	 */
+	@Test
+	public void test120RemoveTriggerBeforeFiring() throws Exception {
+		final String TEST_NAME = "test120RemoveTriggerBeforeFiring";
+		TestUtil.displayTestTile(this, TEST_NAME);
+
+		// GIVEN
+		Task task = createTask(TestTriggerTimer.class.getName() + "." + TEST_NAME);
+		OperationResult result = task.getResult();
+		triggerHandler.reset();
+		int scheduledBefore = triggerTimer.getScheduledCount();
+		addTrigger(USER_JACK_OID, XmlTypeConverter.createXMLGregorianCalendar(clock.currentTimeMillis() + 600000L), HANDLER_URI);
+		assertEquals("Trigger was not scheduled", scheduledBefore + 1, triggerTimer.getScheduledCount());
+		TriggerType trigger = getUser(USER_JACK_OID).asObjectable().getTrigger().stream()
+				.filter(t -> HANDLER_URI.equals(t.getHandlerUri()))
+				.findFirst().orElseThrow(() -> new AssertionError("No trigger in jack"));
+
+		// WHEN
+		TestUtil.displayWhen(TEST_NAME);
+		TriggerType triggerToDelete = new TriggerType();
+		triggerToDelete.setId(trigger.getId());
+		modifyObjectDeleteContainer(UserType.class, USER_JACK_OID, new ItemPath(ObjectType.F_TRIGGER), task, result,
+				triggerToDelete);
+
+		// THEN
+		TestUtil.displayThen(TEST_NAME);
+		result.computeStatus();
+		TestUtil.assertSuccess(result);
+		assertEquals("Trigger was not unscheduled", scheduledBefore, triggerTimer.getScheduledCount());
+		assertNoTrigger(UserType.class, USER_JACK_OID);
+		assertEquals("Trigger was fired", 0, triggerHandler.getInvocationCount());
+	}
+
+	private void assertFired(String oid) throws Exception {
+		assertTrue("Trigger was not fired", triggerHandler.await());
+		assertNotNull("Trigger was fired on no object", triggerHandler.getLastObject());
+		assertEquals("Trigger was fired on a wrong object", oid, triggerHandler.getLastObject().getOid());
+		// the trigger is removed after the handler finishes
+		IntegrationTestTools.waitFor("Waiting for the trigger to be removed", new Checker() {
+			@Override
+			public boolean check() throws CommonException {
+				return repositoryService.getObject(UserType.class, oid, null, new OperationResult("check"))
+						.asObjectable().getTrigger().isEmpty();
+			}
+
+			@Override
+			public void timeout() {
+				throw new AssertionError("Trigger was not removed from " + oid);
+			}
+		}, TIMEOUT);
+		assertNoTrigger(UserType.class, oid);
+		assertEquals("Trigger was fired wrong number of times", 1, triggerHandler.getInvocationCount());
+	}
+
+	private static class CountingTriggerHandler implements TriggerHandler {
+
+		private final AtomicInteger invocationCount = new AtomicInteger();
+		private volatile PrismObject<?> lastObject;
+		private volatile CountDownLatch fired = new CountDownLatch(1);
+
+		@Override
+		public <O extends ObjectType> void handle(PrismObject<O> object, TriggerType trigger, Task task, OperationResult result) {
+			IntegrationTestTools.display("Counting trigger handler called with " + object);
+			lastObject = object.clone();
+			invocationCount.incrementAndGet();
+			fired.countDown();
+		}
+
+		private boolean await() throws InterruptedException {
+			return fired.await(TIMEOUT, TimeUnit.MILLISECONDS);
+		}
+
+		private int getInvocationCount() {
+			return invocationCount.get();
+		}
+
+		private PrismObject<?> getLastObject() {
+			return lastObject;
+		}
+
+		private void reset() {
+			invocationCount.set(0);
+			lastObject = null;
+			fired = new CountDownLatch(1);
+		}
+	}
+}
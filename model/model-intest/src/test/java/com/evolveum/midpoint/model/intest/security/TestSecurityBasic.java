@@ -48,6 +48,10 @@ import com.evolveum.midpoint.prism.query.RefFilter;
 import com.evolveum.midpoint.prism.query.TypeFilter;
 import com.evolveum.midpoint.prism.util.PrismAsserts;
 import com.evolveum.midpoint.prism.util.PrismTestUtil;
+import com.evolveum.midpoint.schema.AggregationQuery;
+import com.evolveum.midpoint.schema.AggregationQuery.Aggregate;
+import com.evolveum.midpoint.schema.AggregationQuery.Comparison;
+import com.evolveum.midpoint.schema.AggregationResult;
 import com.evolveum.midpoint.schema.GetOperationOptions;
 import com.evolveum.midpoint.schema.SearchResultList;
 import com.evolveum.midpoint.schema.SelectorOptions;
@@ -555,6 +559,56 @@ public class TestSecurityBasic extends AbstractSecurityTest {
 		
 		assertGlobalStateUntouched();
 	}
+
+	/**
+	 * Aggregation must not disclose values of items that cannot be read.
+	 */
+	@Test
+    public void test217AutzJackPropReadSomeAggregate() throws Exception {
+		final String TEST_NAME = "test217AutzJackPropReadSomeAggregate";
+		displayTestTile(TEST_NAME);
+		// GIVEN
+		cleanupAutzTest(USER_JACK_OID);
+		assignRole(USER_JACK_OID, ROLE_PROP_READ_SOME_MODIFY_SOME_OID);
+		login(USER_JACK_USERNAME);
+
+		// WHEN
+		displayWhen(TEST_NAME);
+
+		assertAggregateAllow("group by fullName", new AggregationQuery()
+				.groupBy(UserType.F_FULL_NAME)
+				.aggregate(Aggregate.count()));
+		assertAggregateAllow("group by administrativeStatus", new AggregationQuery()
+				.groupBy(new ItemPath(UserType.F_ACTIVATION, ActivationType.F_ADMINISTRATIVE_STATUS))
+				.aggregate(Aggregate.count()));
+		assertAggregateDeny("group by givenName", new AggregationQuery()
+				.groupBy(UserType.F_GIVEN_NAME)
+				.aggregate(Aggregate.count()));
+		assertAggregateDeny("max of costCenter", new AggregationQuery()
+				.groupBy(UserType.F_FULL_NAME)
+				.aggregate(Aggregate.max(new ItemPath(UserType.F_COST_CENTER))));
+		assertAggregateDeny("having min of costCenter", new AggregationQuery()
+				.groupBy(UserType.F_FULL_NAME)
+				.aggregate(Aggregate.count())
+				.having(Aggregate.min(new ItemPath(UserType.F_COST_CENTER)), Comparison.EQ, "V3RYC0STLY"));
+
+		assertGlobalStateUntouched();
+	}
+
+	private void assertAggregateAllow(String opname, AggregationQuery aggregation) throws Exception {
+		assertAllow("aggregate users: " + opname,
+				(task, result) -> {
+					SearchResultList<AggregationResult> groups = modelService.aggregateObjects(UserType.class, null,
+							aggregation, task, result);
+					display("Groups", groups);
+					AssertJUnit.assertFalse("No groups returned", groups.isEmpty());
+				});
+	}
+
+	private void assertAggregateDeny(String opname, AggregationQuery aggregation) throws Exception {
+		assertDeny("aggregate users: " + opname,
+				(task, result) -> modelService.aggregateObjects(UserType.class, null, aggregation, task, result));
+	}
     
     private void assertUserJackReadSomeModifySome(PrismObject<UserType> userJack) throws ObjectNotFoundException, SchemaException, SecurityViolationException, CommunicationException, ConfigurationException {
     	
@@ -25,6 +25,8 @@ import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.query.ObjectFilter;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.prism.query.builder.QueryBuilder;
+import com.evolveum.midpoint.schema.AggregationQuery;
+import com.evolveum.midpoint.schema.AggregationResult;
 import com.evolveum.midpoint.schema.GetOperationOptions;
 import com.evolveum.midpoint.schema.ResultHandler;
 import com.evolveum.midpoint.schema.RetrieveOption;
@@ -495,4 +497,31 @@ public class ReportFunctions {
         return model.searchObjects(AccessCertificationCampaignType.class, query, options, task, task.getResult());
     }
 
+    /**
+     * Aggregates objects in the repository, e.g. counts users in individual organizational units.
+     * Objects are not loaded into memory; only the groups are returned.
+     */
+    public <O extends ObjectType> List<AggregationResult> aggregateObjects(Class<O> type, ObjectQuery query,
+            AggregationQuery aggregation) throws SchemaException, SecurityViolationException, ObjectNotFoundException,
+            ExpressionEvaluationException, CommunicationException, ConfigurationException {
+        Task task = taskManager.createTaskInstance();
+        return model.aggregateObjects(type, query, aggregation, task, task.getResult());
+    }
+
+    /**
+     * Returns the number of objects for each value of the given item (property or reference target OID).
+     */
+    public <O extends ObjectType> Map<Object, Long> countObjectsGroupedBy(Class<O> type, ObjectQuery query, QName itemName)
+            throws SchemaException, SecurityViolationException, ObjectNotFoundException, ExpressionEvaluationException,
+            CommunicationException, ConfigurationException {
+        AggregationQuery aggregation = new AggregationQuery()
+                .groupBy(itemName)
+                .aggregate(AggregationQuery.Aggregate.count());
+        Map<Object, Long> rv = new LinkedHashMap<>();
+        for (AggregationResult group : aggregateObjects(type, query, aggregation)) {
+            rv.put(group.getGroupValue(0), (Long) group.getAggregateValue(0));
+        }
+        return rv;
+    }
+
 }
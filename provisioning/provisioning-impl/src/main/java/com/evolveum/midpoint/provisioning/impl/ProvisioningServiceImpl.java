@@ -110,6 +110,7 @@ public class ProvisioningServiceImpl implements ProvisioningService {
 
 	@Autowired ShadowCacheFactory shadowCacheFactory;	
 	@Autowired ResourceManager resourceManager;
+	@Autowired ResourceCache resourceCache;
 	@Autowired ConnectorManager connectorManager;
 	@Autowired ProvisioningContextFactory ctxFactory;
 	@Autowired PrismContext prismContext;
@@ -672,6 +673,9 @@ public class ProvisioningServiceImpl implements ProvisioningService {
 					result);
 			} else {
 				cacheRepositoryService.modifyObject(type, oid, modifications, result);
+				if (ResourceType.class.isAssignableFrom(type)) {
+					resourceCache.invalidate(oid);
+				}
 			}
 			result.computeStatus();
 
@@ -1100,7 +1104,8 @@ public class ProvisioningServiceImpl implements ProvisioningService {
 		PrismObject<ResourceType> resource;
 		try {
 			
-			resource = resourceManager.getResource(resourceOid, null, task, result);
+			// Only read, so there's no need to clone the cached resource
+			resource = resourceManager.getResource(resourceOid, GetOperationOptions.createReadOnly(), task, result);
 
 		} catch (SchemaException | ObjectNotFoundException | ExpressionEvaluationException ex) {
 			ProvisioningUtil.recordFatalError(LOGGER, result, ex.getMessage(), ex);
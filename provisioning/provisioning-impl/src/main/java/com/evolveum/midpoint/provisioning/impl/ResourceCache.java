@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010-2013 Evolveum
+ * Copyright (c) 2010-2017 Evolveum
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,54 +15,102 @@
  */
 package com.evolveum.midpoint.provisioning.impl;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.common.refinery.RefinedResourceSchemaImpl;
+import com.evolveum.midpoint.common.refinery.ResourceSchemaParseCache;
 import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.schema.GetOperationOptions;
+import com.evolveum.midpoint.schema.statistics.ConnectorOperationalStatus;
+import com.evolveum.midpoint.task.api.ClusterEvent;
+import com.evolveum.midpoint.task.api.TaskManager;
 import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ResourceType;
 
 /**
  * Class for caching ResourceType instances with a parsed schemas.
- * 
+ *
+ * The cache holds immutable snapshots of resources. Parsed resource schema and refined schema are stored
+ * in the user data of the snapshot, so they are shared by all its users (clones included, as user data
+ * are copied shallowly). Reads do not take any lock. Read-only requests get the cached snapshot itself;
+ * the resource is cloned only if the caller may want to modify it, i.e. typically at the boundary
+ * of the provisioning API.
+ *
+ * Schemas are not parsed when a resource is put into the cache (the resource may never be read from it,
+ * and the object being put is not touched at all). They are parsed on the first hit instead: the snapshot
+ * is then replaced by one carrying the schemas. If the schema cannot be parsed, the snapshot is served
+ * without it, so its users get the error (or parse it themselves) as if the resource was not cached.
+ *
+ * Entries of changed or deleted resources are dropped (together with their parsed schemas) also on other
+ * nodes of the cluster, by means of cluster events. Stale entries would not be served anyway, as the versions
+ * do not match, but they would occupy the memory until the next use of the resource.
+ *
  * @author Radovan Semancik
  *
  */
 @Component
 public class ResourceCache {
 
-	private Map<String,PrismObject<ResourceType>> cache;
+	private static final Trace LOGGER = TraceManager.getTrace(ResourceCache.class);
+
+	@Autowired
+	private ResourceSchemaParseCache resourceSchemaParseCache;
+
+	@Autowired
+	private TaskManager taskManager;
 
-    ResourceCache() {
-        cache = new HashMap<>();
-    }
-	
-	public synchronized void put(PrismObject<ResourceType> resource) throws SchemaException {
+	private final ConcurrentMap<String, CachedResource> cache = new ConcurrentHashMap<>();
+
+	// Kept separately from the entries, so they survive invalidation of the cached resource.
+	private final ConcurrentMap<String, AccessCounters> accessCounters = new ConcurrentHashMap<>();
+
+	ResourceCache() {
+	}
+
+	@PostConstruct
+	public void initialize() {
+		taskManager.registerClusterEventListener(this::onClusterEvent);
+	}
+
+	public void put(PrismObject<ResourceType> resource) throws SchemaException {
 		String oid = resource.getOid();
 		if (oid == null) {
 			throw new SchemaException("Attempt to cache "+resource+" without an OID");
 		}
-		
+
 		String version = resource.getVersion();
 		if (version == null) {
 			throw new SchemaException("Attempt to cache "+resource+" without version");
 		}
-		
-		PrismObject<ResourceType> cachedResource = cache.get(oid);
-		if (cachedResource == null) {
-			cache.put(oid, resource.createImmutableClone());
-		} else {
-			if (compareVersion(resource.getVersion(), cachedResource.getVersion())) {
-				// We already have equivalent resource, nothing to do
+
+		CachedResource cachedResource = cache.get(oid);
+		if (cachedResource != null && compareVersion(version, cachedResource.version)) {
+			// We already have equivalent resource, nothing to do
+			return;
+		}
+
+		// Cloning is done outside of the map to keep the critical section short.
+		CachedResource newEntry = new CachedResource(resource.createImmutableClone(), version);
+		cache.compute(oid, (key, existing) -> {
+			if (existing != cachedResource) {
+				// Someone has put another version meanwhile. We prefer ours, as we have just got it from the repository.
+				getAccessCounters(oid).conflictingPuts.increment();
+			}
+			if (existing != null && compareVersion(version, existing.version)) {
+				return existing;
 			} else {
-				cache.put(oid, resource.createImmutableClone());
+				return newEntry;
 			}
-		}
+		});
 	}
 
 	private boolean compareVersion(String version1, String version2) {
@@ -75,48 +123,132 @@ public class ResourceCache {
 		return version1.equals(version2);
 	}
 
-	public synchronized PrismObject<ResourceType> get(PrismObject<ResourceType> resource, GetOperationOptions options) throws SchemaException {
+	public PrismObject<ResourceType> get(PrismObject<ResourceType> resource, GetOperationOptions options) throws SchemaException {
 		return get(resource.getOid(), resource.getVersion(), options);
 	}
-	
-	public synchronized PrismObject<ResourceType> get(String oid, String version, GetOperationOptions options) throws SchemaException {
+
+	public PrismObject<ResourceType> get(String oid, String version, GetOperationOptions options) throws SchemaException {
 		if (oid == null) {
 			return null;
 		}
-		
-		PrismObject<ResourceType> cachedResource = cache.get(oid);
-		if (cachedResource == null) {
+		CachedResource cachedResource = cache.get(oid);
+		AccessCounters counters = getAccessCounters(oid);
+		if (cachedResource == null || !compareVersion(version, cachedResource.version)) {
+			counters.misses.increment();
 			return null;
 		}
 
-		if (!compareVersion(version, cachedResource.getVersion())) {
-			return null;
-		}
-		
+		PrismObject<ResourceType> resource = cachedResource.getResource(resourceSchemaParseCache);
 		if (GetOperationOptions.isReadOnly(options)) {
-			cachedResource.checkImmutability();
-			return cachedResource;
+			counters.readOnlyHits.increment();
+			resource.checkImmutability();
+			return resource;
 		} else {
-			return cachedResource.clone();
+			counters.clones.increment();
+			return resource.clone();
 		}
 	}
-	
+
+	private AccessCounters getAccessCounters(String oid) {
+		AccessCounters counters = accessCounters.get(oid);
+		return counters != null ? counters : accessCounters.computeIfAbsent(oid, k -> new AccessCounters());
+	}
+
 	/**
-	 * Returns currently cached version. FOR DIAGNOSTICS ONLY. 
+	 * Returns currently cached version. FOR DIAGNOSTICS ONLY.
 	 */
-	public synchronized String getVersion(String oid) {
+	public String getVersion(String oid) {
 		if (oid == null) {
 			return null;
 		}
-		PrismObject<ResourceType> cachedResource = cache.get(oid);
+		CachedResource cachedResource = cache.get(oid);
 		if (cachedResource == null) {
 			return null;
 		}
-		return cachedResource.getVersion();
+		return cachedResource.version;
 	}
 
-	public synchronized void remove(String oid) {
+	public void remove(String oid) {
 		cache.remove(oid);
 	}
 
+	/**
+	 * Drops the resource from this cache and from the schema parse cache, here and on the other nodes.
+	 * To be called after the resource was modified or deleted in the repository.
+	 */
+	public void invalidate(String oid) {
+		remove(oid);
+		resourceSchemaParseCache.invalidate(oid);
+		taskManager.publishClusterEvent(ClusterEvent.objectChanged(ResourceType.class, oid, null));
+	}
+
+	private void onClusterEvent(ClusterEvent event) {
+		if (event.getType() == ClusterEvent.Type.OBJECT_CHANGED && event.isAbout(ResourceType.class) && event.getOid() != null) {
+			LOGGER.trace("Resource {} was changed on another node, removing it from the cache", event.getOid());
+			remove(event.getOid());
+			resourceSchemaParseCache.invalidate(event.getOid());
+		}
+	}
+
+	/**
+	 * Fills in cache statistics of given resource (hits served without cloning, clones, misses
+	 * and puts that found the entry concurrently replaced by another thread).
+	 */
+	public void fillInStatistics(String oid, ConnectorOperationalStatus status) {
+		AccessCounters counters = accessCounters.get(oid);
+		status.setResourceCacheReadOnlyHits(counters != null ? counters.readOnlyHits.sum() : 0L);
+		status.setResourceCacheClones(counters != null ? counters.clones.sum() : 0L);
+		status.setResourceCacheMisses(counters != null ? counters.misses.sum() : 0L);
+		status.setResourceCacheConflictingPuts(counters != null ? counters.conflictingPuts.sum() : 0L);
+	}
+
+	@Override
+	public String toString() {
+		return "ResourceCache(" + cache.size() + " resources)";
+	}
+
+	private static class AccessCounters {
+		private final LongAdder readOnlyHits = new LongAdder();
+		private final LongAdder clones = new LongAdder();
+		private final LongAdder misses = new LongAdder();
+		private final LongAdder conflictingPuts = new LongAdder();
+	}
+
+	private static class CachedResource {
+		private volatile PrismObject<ResourceType> resource;			// immutable
+		private volatile boolean schemaPrepared;
+		private final String version;
+
+		private CachedResource(PrismObject<ResourceType> resource, String version) {
+			this.resource = resource;
+			this.version = version;
+		}
+
+		private PrismObject<ResourceType> getResource(ResourceSchemaParseCache parseCache) {
+			if (!schemaPrepared) {
+				prepareSchema(parseCache);
+			}
+			return resource;
+		}
+
+		/**
+		 * Replaces the snapshot by an (immutable) one with the schemas parsed. Done at most once for each cached version;
+		 * concurrent readers of the same entry wait for the parsing instead of doing it themselves.
+		 */
+		private synchronized void prepareSchema(ResourceSchemaParseCache parseCache) {
+			if (schemaPrepared) {
+				return;
+			}
+			PrismObject<ResourceType> withSchema = resource.clone();
+			try {
+				RefinedResourceSchemaImpl.getResourceSchema(withSchema, parseCache, withSchema.getPrismContext());
+				RefinedResourceSchemaImpl.getRefinedSchema(withSchema);
+				withSchema.setImmutable(true);
+				resource = withSchema;
+			} catch (SchemaException | RuntimeException e) {
+				LOGGER.warn("Couldn't parse schema of cached {}, serving it without the schema: {}", resource, e.getMessage(), e);
+			}
+			schemaPrepared = true;
+		}
+	}
 }
@@ -26,6 +26,7 @@ import java.util.Map;
 import javax.xml.namespace.QName;
 
 import com.evolveum.midpoint.common.refinery.RefinedResourceSchemaImpl;
+import com.evolveum.midpoint.common.refinery.ResourceSchemaParseCache;
 import com.evolveum.midpoint.prism.*;
 import com.evolveum.midpoint.prism.schema.PrismSchemaImpl;
 import com.evolveum.midpoint.schema.processor.*;
@@ -114,6 +115,9 @@ public class ResourceManager {
 	@Autowired(required = true)
 	private ResourceCache resourceCache;
 	
+	@Autowired(required = true)
+	private ResourceSchemaParseCache resourceSchemaParseCache;
+	
 	@Autowired(required = true)
 	private ConnectorManager connectorManager;
 	
@@ -201,8 +205,11 @@ public class ResourceManager {
 	}
 	
 	public void deleteResource(String oid, ProvisioningOperationOptions options, Task task, OperationResult parentResult) throws ObjectNotFoundException {
-		resourceCache.remove(oid);
-		repositoryService.deleteObject(ResourceType.class, oid, parentResult);
+		try {
+			repositoryService.deleteObject(ResourceType.class, oid, parentResult);
+		} finally {
+			resourceCache.invalidate(oid);
+		}
 	}
 		
 	/**
@@ -311,7 +318,7 @@ public class ResourceManager {
 		try {
 			// make sure it has parsed resource and refined schema. We are going to cache
 			// it, so we want to cache it with the parsed schemas
-			RefinedResourceSchemaImpl.getResourceSchema(newResource, prismContext);
+			RefinedResourceSchemaImpl.getResourceSchema(newResource, resourceSchemaParseCache, prismContext);
 			RefinedResourceSchemaImpl.getRefinedSchema(newResource);
 			
 		} catch (SchemaException e) {
@@ -363,7 +370,7 @@ public class ResourceManager {
 		if (resourceSchema == null) { 
 			// Try to get existing schema from resource. We do not want to override this if it exists
 			// (but we still want to refresh the capabilities, that happens below)
-			resourceSchema = RefinedResourceSchemaImpl.getResourceSchema(resource, prismContext);
+			resourceSchema = RefinedResourceSchemaImpl.getResourceSchema(resource, resourceSchemaParseCache, prismContext);
 		}
 			
 		if (resourceSchema == null || resourceSchema.isEmpty()) {
@@ -1202,6 +1209,7 @@ public class ResourceManager {
 			ConnectorOperationalStatus operationalStatus = connectorInstance.getOperationalStatus();
 			if (operationalStatus != null) {
 				operationalStatus.setConnectorName(connectorSpec.getConnectorName());
+				resourceCache.fillInStatistics(resource.getOid(), operationalStatus);
 				statuses.add(operationalStatus);
 			}
 		}
@@ -1151,6 +1151,10 @@ public class ResourceObjectConverter {
 			LOGGER.trace("Excuting entitlement chanes, roMap:\n{}", DebugUtil.debugDump(roMap, 1));
 		}
 		
+		// Entitlements that need nothing more than a single connector modify operation are modified in bulk,
+		// so the connector can process them concurrently (see ConnectorInstance.modifyObjects).
+		Map<RefinedObjectClassDefinition, List<ModifyObjectRequest>> bulkRequests = new LinkedHashMap<>();
+		Map<RefinedObjectClassDefinition, ProvisioningContext> bulkContexts = new HashMap<>();
 		for (Entry<ResourceObjectDiscriminator,ResourceObjectOperations> entry: roMap.entrySet()) {
 			ResourceObjectDiscriminator disc = entry.getKey();
 			ProvisioningContext entitlementCtx = entry.getValue().getResourceObjectContext();
@@ -1165,6 +1169,14 @@ public class ResourceObjectConverter {
 			if (LOGGER.isTraceEnabled()) {
 				LOGGER.trace("Excuting entitlement change identifiers={}:\n{}", allIdentifiers, DebugUtil.debugDump(operations, 1));
 			}
+
+			RefinedObjectClassDefinition objectClassDefinition = getBulkModificationObjectClass(entitlementCtx, allIdentifiers, operations);
+			if (objectClassDefinition != null) {
+				bulkRequests.computeIfAbsent(objectClassDefinition, k -> new ArrayList<>())
+						.add(new ModifyObjectRequest(cloneIdentifiers(allIdentifiers), operations));
+				bulkContexts.putIfAbsent(objectClassDefinition, entitlementCtx);
+				continue;
+			}
 			
 			OperationResult result = parentResult.createMinorSubresult(OPERATION_MODIFY_ENTITLEMENT);
 			try {
@@ -1190,6 +1202,82 @@ public class ResourceObjectConverter {
 			}
 			
 		}
+
+		for (Entry<RefinedObjectClassDefinition, List<ModifyObjectRequest>> entry : bulkRequests.entrySet()) {
+			executeEntitlementsInBulk(subjectCtx, bulkContexts.get(entry.getKey()), entry.getKey(), entry.getValue(), parentResult);
+		}
+	}
+
+	/**
+	 * Entitlement can be modified in bulk if the modification is a single connector operation, i.e. no identifier
+	 * resolution, pre-reading for duplicate filtering, read+replace conversion or more operation waves are needed.
+	 * Returns the object class of the entitlement in that case, null otherwise.
+	 */
+	private RefinedObjectClassDefinition getBulkModificationObjectClass(ProvisioningContext ctx,
+			Collection<? extends ResourceAttribute<?>> identifiers, Collection<Operation> operations) {
+		try {
+			RefinedObjectClassDefinition objectClassDefinition = ctx.getObjectClassDefinition();
+			boolean bulkModifiable = !operations.isEmpty()
+					&& ShadowUtil.hasPrimaryIdentifier(identifiers, objectClassDefinition)
+					&& !ResourceTypeUtil.isAvoidDuplicateValues(ctx.getResource())
+					&& ResourceTypeUtil.isUpdateCapabilityEnabled(ctx.getResource())
+					&& sortOperationsIntoWaves(operations, objectClassDefinition).size() == 1
+					&& determineReadReplace(ctx, operations, objectClassDefinition).isEmpty();
+			return bulkModifiable ? objectClassDefinition : null;
+		} catch (ObjectNotFoundException | SchemaException | CommunicationException | ConfigurationException | ExpressionEvaluationException | RuntimeException e) {
+			// the modification will be executed (and the problem reported) in the usual way
+			LOGGER.trace("Couldn't determine whether entitlement {} can be modified in bulk: {}", ctx, e.getMessage(), e);
+			return null;
+		}
+	}
+
+	/**
+	 * Modifies entitlements of one object class by a single bulk connector operation. As in the one-by-one processing,
+	 * failures are only recorded in the operation result, except for runtime and generic connector errors.
+	 */
+	private void executeEntitlementsInBulk(ProvisioningContext subjectCtx, ProvisioningContext entitlementCtx,
+			RefinedObjectClassDefinition objectClassDefinition, List<ModifyObjectRequest> requests, OperationResult parentResult) {
+		OperationResult result = parentResult.createMinorSubresult(OPERATION_MODIFY_ENTITLEMENT);
+		result.addParam("bulkSize", requests.size());
+		ConnectorInstance connector;
+		List<BulkOperationItemResult<AsynchronousOperationReturnValue<Collection<PropertyModificationOperation>>>> itemResults;
+		try {
+			if (LOGGER.isDebugEnabled()) {
+				LOGGER.debug("PROVISIONING MODIFY operation on {}\n MODIFY {} object(s) of object class {} in bulk:\n{}",
+						entitlementCtx.getResource(), requests.size(), objectClassDefinition.getHumanReadableName(),
+						DebugUtil.debugDump(requests, 1));
+			}
+			connector = entitlementCtx.getConnector(UpdateCapabilityType.class, result);
+			itemResults = connector.modifyObjects(objectClassDefinition, requests, entitlementCtx, result);
+		} catch (ObjectNotFoundException | CommunicationException | SchemaException | ConfigurationException | ExpressionEvaluationException e) {
+			LOGGER.error("Error while modifying entitlements {} of {}: {}", entitlementCtx, subjectCtx, e.getMessage(), e);
+			result.recordFatalError(e);
+			return;
+		} catch (RuntimeException | Error e) {
+			LOGGER.error("Error while modifying entitlements {} of {}: {}", entitlementCtx, subjectCtx, e.getMessage(), e);
+			result.recordFatalError(e);
+			throw e;
+		}
+		result.computeStatus();
+
+		Throwable severeException = null;
+		for (int i = 0; i < itemResults.size(); i++) {
+			Throwable e = itemResults.get(i).getException();
+			if (e != null) {
+				LOGGER.error("Error while modifying entitlement {} of {}: {}", requests.get(i), subjectCtx, e.getMessage(), e);
+				if (severeException == null && (e instanceof RuntimeException || e instanceof Error || e instanceof GenericFrameworkException)) {
+					severeException = e;
+				}
+			}
+		}
+		if (severeException instanceof GenericFrameworkException) {
+			throw new GenericConnectorException("Generic error in connector " + connector + ": "
+					+ severeException.getMessage(), severeException);
+		} else if (severeException instanceof RuntimeException) {
+			throw (RuntimeException) severeException;
+		} else if (severeException instanceof Error) {
+			throw (Error) severeException;
+		}
 	}
 
 	public SearchResultMetadata searchResourceObjects(final ProvisioningContext ctx,
@@ -1050,6 +1050,9 @@ public class AbstractBasicDummyTest extends AbstractDummyTest {
 		assertEquals("Wrong poolConfigMinEvictableIdleTime", (Long)120000L, operationalStatus.getPoolConfigMinEvictableIdleTime());
 		assertEquals("Wrong poolStatusNumIdle", (Integer)1, operationalStatus.getPoolStatusNumIdle());
 		assertEquals("Wrong poolStatusNumActive", (Integer)0, operationalStatus.getPoolStatusNumActive());
+		// getConnectorOperationalStatus itself reads the cached resource without cloning it
+		assertNotNull("No resource cache statistics", operationalStatus.getResourceCacheReadOnlyHits());
+		assertTrue("No read-only resource cache hits", operationalStatus.getResourceCacheReadOnlyHits() > 0);
 		
 		assertSteadyResource();
 	}
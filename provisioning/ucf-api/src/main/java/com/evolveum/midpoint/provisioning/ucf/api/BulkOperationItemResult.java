@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.provisioning.ucf.api;
+
+import com.evolveum.midpoint.schema.result.AsynchronousOperationResult;
+import com.evolveum.midpoint.schema.result.OperationResult;
+
+/**
+ * Outcome of a single item of a bulk connector operation (see {@link ConnectorInstance#addObjects} and friends).
+ * Either the return value of the corresponding single-object operation, or the exception it has thrown.
+ */
+public class BulkOperationItemResult<R extends AsynchronousOperationResult> {
+
+	private final R returnValue;
+	private final Throwable exception;
+	private final OperationResult operationResult;
+
+	private BulkOperationItemResult(R returnValue, Throwable exception, OperationResult operationResult) {
+		this.returnValue = returnValue;
+		this.exception = exception;
+		this.operationResult = operationResult;
+	}
+
+	public static <R extends AsynchronousOperationResult> BulkOperationItemResult<R> success(R returnValue, OperationResult operationResult) {
+		return new BulkOperationItemResult<>(returnValue, null, operationResult);
+	}
+
+	public static <R extends AsynchronousOperationResult> BulkOperationItemResult<R> failure(Throwable exception, OperationResult operationResult) {
+		return new BulkOperationItemResult<>(null, exception, operationResult);
+	}
+
+	public boolean isSuccess() {
+		return exception == null;
+	}
+
+	public R getReturnValue() {
+		return returnValue;
+	}
+
+	/**
+	 * Exception thrown by the single-object operation; null if the operation succeeded.
+	 */
+	public Throwable getException() {
+		return exception;
+	}
+
+	/**
+	 * Operation result created for this item (a subresult of the result passed to the bulk operation).
+	 */
+	public OperationResult getOperationResult() {
+		return operationResult;
+	}
+
+	@Override
+	public String toString() {
+		return "BulkOperationItemResult(" + (isSuccess() ? "success: " + returnValue : "failure: " + exception) + ")";
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.provisioning.ucf.api;
+
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.schema.processor.ObjectClassComplexTypeDefinition;
+import com.evolveum.midpoint.schema.processor.ResourceAttribute;
+import com.evolveum.midpoint.schema.result.AsynchronousOperationResult;
+import com.evolveum.midpoint.schema.result.AsynchronousOperationReturnValue;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.task.api.StateReporter;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Executes bulk connector operations as a sequence of single-object operations, optionally pipelining them
+ * (i.e. executing up to <i>parallelism</i> of them concurrently). Used as a fallback for connectors that
+ * have no native support for bulk operations.
+ *
+ * The calling thread takes part in the processing; the other workers run in a pool shared by all bulk operations.
+ * Workers take items one by one from the input list, so at most <i>parallelism</i> items are processed at any time.
+ *
+ * Each item gets its own operation result (created upfront in the calling thread) and its own state reporter,
+ * as neither of them is thread-safe. Results are returned in the order of the input list.
+ */
+public class BulkOperationPipeline {
+
+	private static final Trace LOGGER = TraceManager.getTrace(BulkOperationPipeline.class);
+
+	public static final String OPERATION_ADD_OBJECTS = ConnectorInstance.class.getName() + ".addObjects";
+	public static final String OPERATION_MODIFY_OBJECTS = ConnectorInstance.class.getName() + ".modifyObjects";
+	public static final String OPERATION_DELETE_OBJECTS = ConnectorInstance.class.getName() + ".deleteObjects";
+	private static final String OPERATION_ITEM_SUFFIX = ".item";
+
+	private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+	// threads are created on demand and terminated after 60 seconds of inactivity
+	private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "ucf-bulk-" + THREAD_COUNTER.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	@FunctionalInterface
+	public interface ItemOperation<R extends AsynchronousOperationResult> {
+		R execute(StateReporter reporter, OperationResult result) throws Exception;
+	}
+
+	public static List<BulkOperationItemResult<AsynchronousOperationReturnValue<Collection<ResourceAttribute<?>>>>> addObjects(
+			ConnectorInstance connector, List<PrismObject<? extends ShadowType>> objects, int parallelism,
+			StateReporter reporter, OperationResult parentResult) {
+		List<ItemOperation<AsynchronousOperationReturnValue<Collection<ResourceAttribute<?>>>>> operations = new ArrayList<>(objects.size());
+		for (PrismObject<? extends ShadowType> object : objects) {
+			operations.add((itemReporter, itemResult) -> connector.addObject(object, null, itemReporter, itemResult));
+		}
+		return execute(OPERATION_ADD_OBJECTS, operations, parallelism, reporter, parentResult);
+	}
+
+	public static List<BulkOperationItemResult<AsynchronousOperationReturnValue<Collection<PropertyModificationOperation>>>> modifyObjects(
+			ConnectorInstance connector, ObjectClassComplexTypeDefinition objectClass, List<ModifyObjectRequest> requests,
+			int parallelism, StateReporter reporter, OperationResult parentResult) {
+		List<ItemOperation<AsynchronousOperationReturnValue<Collection<PropertyModificationOperation>>>> operations = new ArrayList<>(requests.size());
+		for (ModifyObjectRequest request : requests) {
+			operations.add((itemReporter, itemResult) ->
+					connector.modifyObject(objectClass, request.getIdentifiers(), request.getChanges(), itemReporter, itemResult));
+		}
+		return execute(OPERATION_MODIFY_OBJECTS, operations, parallelism, reporter, parentResult);
+	}
+
+	public static List<BulkOperationItemResult<AsynchronousOperationResult>> deleteObjects(
+			ConnectorInstance connector, ObjectClassComplexTypeDefinition objectClass,
+			List<Collection<? extends ResourceAttribute<?>>> identifiersList, int parallelism,
+			StateReporter reporter, OperationResult parentResult) {
+		List<ItemOperation<AsynchronousOperationResult>> operations = new ArrayList<>(identifiersList.size());
+		for (Collection<? extends ResourceAttribute<?>> identifiers : identifiersList) {
+			operations.add((itemReporter, itemResult) -> connector.deleteObject(objectClass, null, identifiers, itemReporter, itemResult));
+		}
+		return execute(OPERATION_DELETE_OBJECTS, operations, parallelism, reporter, parentResult);
+	}
+
+	public static <R extends AsynchronousOperationResult> List<BulkOperationItemResult<R>> execute(String operationName,
+			List<ItemOperation<R>> operations, int parallelism, StateReporter reporter, OperationResult parentResult) {
+		OperationResult result = parentResult.createSubresult(operationName);
+		result.addParam("items", operations.size());
+		result.addParam("parallelism", parallelism);
+		try {
+			List<OperationResult> itemResults = new ArrayList<>(operations.size());
+			for (int i = 0; i < operations.size(); i++) {
+				itemResults.add(result.createMinorSubresult(operationName + OPERATION_ITEM_SUFFIX));
+			}
+			if (parallelism <= 1 || operations.size() <= 1) {
+				List<BulkOperationItemResult<R>> rv = new ArrayList<>(operations.size());
+				for (int i = 0; i < operations.size(); i++) {
+					rv.add(executeItem(operations.get(i), reporter, itemResults.get(i)));
+				}
+				return rv;
+			} else {
+				return executeConcurrently(operationName, operations, itemResults, parallelism, reporter);
+			}
+		} finally {
+			result.computeStatusIfUnknown();
+		}
+	}
+
+	private static <R extends AsynchronousOperationResult> List<BulkOperationItemResult<R>> executeConcurrently(String operationName,
+			List<ItemOperation<R>> operations, List<OperationResult> itemResults, int parallelism, StateReporter reporter) {
+		int workers = Math.min(parallelism, operations.size());
+		LOGGER.debug("Executing {} with {} item(s) using {} worker(s)", operationName, operations.size(), workers);
+		AtomicInteger nextItem = new AtomicInteger();
+		AtomicReferenceArray<BulkOperationItemResult<R>> itemOutcomes = new AtomicReferenceArray<>(operations.size());
+		Runnable worker = () -> {
+			StateReporter workerReporter = reporter != null ? new StateReporter(reporter.getResourceOid(), reporter.getTask()) : null;
+			int i;
+			while ((i = nextItem.getAndIncrement()) < operations.size()) {
+				itemOutcomes.set(i, executeItem(operations.get(i), workerReporter, itemResults.get(i)));
+			}
+		};
+		List<Future<?>> futures = new ArrayList<>(workers - 1);
+		for (int w = 1; w < workers; w++) {
+			futures.add(EXECUTOR.submit(worker));
+		}
+		worker.run();
+		boolean interrupted = false;
+		for (Future<?> future : futures) {
+			for (;;) {
+				try {
+					future.get();
+					break;
+				} catch (InterruptedException e) {
+					// the items are still being processed, so we have to wait for their results anyway
+					interrupted = true;
+				} catch (ExecutionException e) {
+					// executeItem catches everything, so this should not occur
+					LOGGER.error("Unexpected failure of a bulk operation worker: {}", e.getMessage(), e);
+					break;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		List<BulkOperationItemResult<R>> rv = new ArrayList<>(operations.size());
+		for (int i = 0; i < operations.size(); i++) {
+			BulkOperationItemResult<R> itemOutcome = itemOutcomes.get(i);
+			if (itemOutcome == null) {
+				IllegalStateException e = new IllegalStateException("Item was not processed");
+				itemResults.get(i).recordFatalError(e);
+				itemOutcome = BulkOperationItemResult.failure(e, itemResults.get(i));
+			}
+			rv.add(itemOutcome);
+		}
+		return rv;
+	}
+
+	private static <R extends AsynchronousOperationResult> BulkOperationItemResult<R> executeItem(ItemOperation<R> operation,
+			StateReporter reporter, OperationResult itemResult) {
+		try {
+			R returnValue = operation.execute(reporter, itemResult);
+			itemResult.computeStatusIfUnknown();
+			return BulkOperationItemResult.success(returnValue, itemResult);
+		} catch (Throwable t) {
+			LOGGER.debug("Bulk operation item failed: {}", t.getMessage(), t);
+			itemResult.recordFatalError(t);
+			return BulkOperationItemResult.failure(t, itemResult);
+		}
+	}
+}
@@ -270,6 +270,36 @@ public interface ConnectorInstance {
 							 OperationResult parentResult)
 					throws ObjectNotFoundException, CommunicationException, GenericFrameworkException, SchemaException, ConfigurationException;
 	
+	/**
+	 * Adds several objects to the resource. Failure to add one object does not prevent adding the others;
+	 * outcome of each operation is returned in the order of the input list.
+	 * 
+	 * The default implementation adds the objects one after another. Connectors that can process more
+	 * operations at once (natively or by issuing them concurrently) should override it.
+	 */
+	default List<BulkOperationItemResult<AsynchronousOperationReturnValue<Collection<ResourceAttribute<?>>>>> addObjects(
+			List<PrismObject<? extends ShadowType>> objects, StateReporter reporter, OperationResult parentResult) {
+		return BulkOperationPipeline.addObjects(this, objects, 1, reporter, parentResult);
+	}
+
+	/**
+	 * Modifies several objects of the given object class. See {@link #addObjects}.
+	 */
+	default List<BulkOperationItemResult<AsynchronousOperationReturnValue<Collection<PropertyModificationOperation>>>> modifyObjects(
+			ObjectClassComplexTypeDefinition objectClass, List<ModifyObjectRequest> requests, StateReporter reporter,
+			OperationResult parentResult) {
+		return BulkOperationPipeline.modifyObjects(this, objectClass, requests, 1, reporter, parentResult);
+	}
+
+	/**
+	 * Deletes several objects of the given object class. See {@link #addObjects}.
+	 */
+	default List<BulkOperationItemResult<AsynchronousOperationResult>> deleteObjects(
+			ObjectClassComplexTypeDefinition objectClass, List<Collection<? extends ResourceAttribute<?>>> identifiersList,
+			StateReporter reporter, OperationResult parentResult) {
+		return BulkOperationPipeline.deleteObjects(this, objectClass, identifiersList, 1, reporter, parentResult);
+	}
+
 	Object executeScript(ExecuteProvisioningScriptOperation scriptOperation, StateReporter reporter, OperationResult parentResult) throws CommunicationException, GenericFrameworkException;
 	
 	/**
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.provisioning.ucf.api;
+
+import com.evolveum.midpoint.schema.processor.ResourceAttribute;
+
+import java.util.Collection;
+
+/**
+ * Parameters of one object modification within {@link ConnectorInstance#modifyObjects}.
+ */
+public class ModifyObjectRequest {
+
+	private final Collection<? extends ResourceAttribute<?>> identifiers;
+	private final Collection<Operation> changes;
+
+	public ModifyObjectRequest(Collection<? extends ResourceAttribute<?>> identifiers, Collection<Operation> changes) {
+		this.identifiers = identifiers;
+		this.changes = changes;
+	}
+
+	public Collection<? extends ResourceAttribute<?>> getIdentifiers() {
+		return identifiers;
+	}
+
+	public Collection<Operation> getChanges() {
+		return changes;
+	}
+
+	@Override
+	public String toString() {
+		return "ModifyObjectRequest(identifiers=" + identifiers + ", changes: " + (changes != null ? changes.size() : 0) + ")";
+	}
+}
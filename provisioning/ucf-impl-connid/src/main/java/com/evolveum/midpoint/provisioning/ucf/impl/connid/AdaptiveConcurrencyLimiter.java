@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.provisioning.ucf.impl.connid;
+
+import com.evolveum.midpoint.schema.statistics.ProvisioningOperation;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Limits the number of concurrently executed operations on a resource, adapting the limit to the observed
+ * behavior of the resource (additive increase, multiplicative decrease):
+ *
+ * - an operation failing because of communication problems (resource unreachable, timeouts) halves the limit,
+ * - average latency of any operation type growing significantly above its baseline decreases the limit by a quarter,
+ * - a window of successful operations with acceptable latency increases the limit by one, up to the maximum
+ *   (the size of the connector pool).
+ *
+ * The limit is adjusted at most once per window (the number of operations equal to the current limit), so that
+ * a burst of failures of operations that were already in flight does not collapse the limit to one.
+ *
+ * Latency is tracked separately for each operation type, as e.g. a create is usually much slower than a get.
+ * The baseline of each operation type follows improvements immediately and drifts slowly towards worse
+ * latencies, so a permanent change of the resource latency is eventually accepted as the new normal
+ * instead of keeping the limit low forever.
+ */
+class AdaptiveConcurrencyLimiter {
+
+	private static final Trace LOGGER = TraceManager.getTrace(AdaptiveConcurrencyLimiter.class);
+
+	private static final double LATENCY_SMOOTHING = 0.2;
+	private static final double BASELINE_DRIFT = 0.1;				// per window
+	private static final double LATENCY_TOLERANCE_FACTOR = 2.0;
+	private static final long LATENCY_TOLERANCE_MINIMUM_NANOS = 50_000_000L;		// 50 ms
+
+	private final String description;
+	private final int maxLimit;
+
+	private int limit;
+	private int inFlight;
+	private int operationsInWindow;
+	private boolean windowHadFailure;
+
+	private final Map<ProvisioningOperation, LatencyTracker> latencies = new EnumMap<>(ProvisioningOperation.class);
+
+	private long totalWaitTime;					// in nanoseconds
+
+	AdaptiveConcurrencyLimiter(String description, int maxLimit) {
+		if (maxLimit < 1) {
+			throw new IllegalArgumentException("Maximal concurrency limit must be at least 1: " + maxLimit);
+		}
+		this.description = description;
+		this.maxLimit = maxLimit;
+		this.limit = maxLimit;
+	}
+
+	/**
+	 * Waits until the operation can be started. Each call must be paired with {@link #release}.
+	 *
+	 * Waiting is not interruptible (just like waiting for a pooled connector instance); the interrupt
+	 * flag is restored after the wait, so the caller can react to it.
+	 *
+	 * @return time spent waiting (in nanoseconds)
+	 */
+	synchronized long acquire() {
+		long waitTime = 0;
+		if (inFlight >= limit) {
+			long start = System.nanoTime();
+			boolean interrupted = false;
+			while (inFlight >= limit) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			waitTime = System.nanoTime() - start;
+			totalWaitTime += waitTime;
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		inFlight++;
+		return waitTime;
+	}
+
+	/**
+	 * @param operation type of the operation; latencies of different types are not compared with each other
+	 * @param latency duration of the operation in nanoseconds
+	 * @param overloaded true if the operation failed in a way that indicates the resource is overloaded
+	 */
+	synchronized void release(ProvisioningOperation operation, long latency, boolean overloaded) {
+		inFlight--;
+		latencies.computeIfAbsent(operation, op -> new LatencyTracker()).record(latency);
+		windowHadFailure |= overloaded;
+		if (++operationsInWindow >= limit) {
+			adjustLimit();
+			operationsInWindow = 0;
+			windowHadFailure = false;
+		}
+		notifyAll();
+	}
+
+	private void adjustLimit() {
+		int oldLimit = limit;
+		ProvisioningOperation degraded = null;
+		for (Map.Entry<ProvisioningOperation, LatencyTracker> entry : latencies.entrySet()) {
+			if (entry.getValue().isDegraded()) {
+				degraded = entry.getKey();
+				break;
+			}
+		}
+		if (windowHadFailure) {
+			limit = Math.max(1, limit / 2);
+		} else if (degraded != null) {
+			limit = Math.max(1, limit - Math.max(1, limit / 4));
+		} else if (limit < maxLimit) {
+			limit++;
+		}
+		if (limit != oldLimit) {
+			LOGGER.debug("Concurrency limit for {} changed from {} to {} (failures: {}, degraded latency: {})",
+					description, oldLimit, limit, windowHadFailure,
+					degraded != null ? degraded + " " + latencies.get(degraded) : "none");
+		}
+		for (LatencyTracker tracker : latencies.values()) {
+			tracker.endWindow();
+		}
+	}
+
+	synchronized int getLimit() {
+		return limit;
+	}
+
+	int getMaxLimit() {
+		return maxLimit;
+	}
+
+	synchronized int getInFlight() {
+		return inFlight;
+	}
+
+	/**
+	 * Total time spent waiting for the limiter, in milliseconds.
+	 */
+	synchronized long getTotalWaitTime() {
+		return totalWaitTime / 1000000;
+	}
+
+	/**
+	 * Latency of one operation type. Not thread safe; guarded by the limiter.
+	 */
+	private static class LatencyTracker {
+
+		private double average = -1;			// exponentially weighted, in nanoseconds
+		private double baseline = -1;			// in nanoseconds
+		private boolean recordedInWindow;
+
+		private void record(long latency) {
+			if (average < 0) {
+				average = latency;
+			} else {
+				average = LATENCY_SMOOTHING * latency + (1 - LATENCY_SMOOTHING) * average;
+			}
+			recordedInWindow = true;
+		}
+
+		/**
+		 * Only operation types executed in the current window are taken into account; the average
+		 * of an operation type that is no longer executed says nothing about the current state.
+		 */
+		private boolean isDegraded() {
+			return recordedInWindow && baseline >= 0
+					&& average > Math.max(baseline * LATENCY_TOLERANCE_FACTOR, baseline + LATENCY_TOLERANCE_MINIMUM_NANOS);
+		}
+
+		private void endWindow() {
+			if (recordedInWindow) {
+				if (baseline < 0 || average < baseline) {
+					baseline = average;
+				} else {
+					baseline += BASELINE_DRIFT * (average - baseline);
+				}
+			}
+			recordedInWindow = false;
+		}
+
+		@Override
+		public String toString() {
+			return "average " + (long) (average / 1000000) + " ms, baseline " + (long) (baseline / 1000000) + " ms";
+		}
+	}
+}
@@ -103,11 +103,14 @@ import com.evolveum.midpoint.prism.schema.PrismSchema;
 import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
 import com.evolveum.midpoint.prism.xml.XsdTypeMapper;
 import com.evolveum.midpoint.provisioning.ucf.api.AttributesToReturn;
+import com.evolveum.midpoint.provisioning.ucf.api.BulkOperationItemResult;
+import com.evolveum.midpoint.provisioning.ucf.api.BulkOperationPipeline;
 import com.evolveum.midpoint.provisioning.ucf.api.Change;
 import com.evolveum.midpoint.provisioning.ucf.api.ConnectorInstance;
 import com.evolveum.midpoint.provisioning.ucf.api.ExecuteProvisioningScriptOperation;
 import com.evolveum.midpoint.provisioning.ucf.api.ExecuteScriptArgument;
 import com.evolveum.midpoint.provisioning.ucf.api.GenericFrameworkException;
+import com.evolveum.midpoint.provisioning.ucf.api.ModifyObjectRequest;
 import com.evolveum.midpoint.provisioning.ucf.api.Operation;
 import com.evolveum.midpoint.provisioning.ucf.api.PasswordChangeOperation;
 import com.evolveum.midpoint.provisioning.ucf.api.PropertyModificationOperation;
@@ -207,6 +210,12 @@ public class ConnectorInstanceConnIdImpl implements ConnectorInstance {
 	private Boolean legacySchema = null;
 	private boolean supportsReturnDefaultAttributes = false;
 
+	/**
+	 * Statistics and concurrency limiting of the operations executed on the connector facade.
+	 * Replaced on each (re)configuration, as the limits depend on the pool configuration.
+	 */
+	private volatile ConnectorOperationMonitor operationMonitor = new ConnectorOperationMonitor(null, 1);
+
 	ConnectorInstanceConnIdImpl(ConnectorInfo connectorInfo, ConnectorType connectorType,
 			String schemaNamespace, PrismSchema connectorSchema, Protector protector,
 			PrismContext prismContext) {
@@ -280,6 +289,7 @@ public class ConnectorInstanceConnIdImpl implements ConnectorInstance {
 
 			// Create new connector instance using the transformed configuration
 			connIdConnectorFacade = ConnectorFacadeFactory.getInstance().newInstance(apiConfig);
+			operationMonitor = new ConnectorOperationMonitor(getHumanReadableName(), getConnectorPoolSize());
 
 			result.recordSuccess();
 
@@ -386,6 +396,11 @@ public class ConnectorInstanceConnIdImpl implements ConnectorInstance {
 				status.setPoolStatusNumIdle(poolStats.getNumIdle());
 			}
 		}
+
+		ConnectorOperationMonitor monitor = operationMonitor;
+		status.getOperationStatistics().addAll(monitor.getStatistics());
+		status.setConcurrencyLimit(monitor.getConcurrencyLimit());
+		status.setConcurrencyLimiterWaitTime(monitor.getConcurrencyLimiterWaitTime());
 		
 		return status;
 	}
@@ -1153,7 +1168,7 @@ public class ConnectorInstanceConnIdImpl implements ConnectorInstance {
 			// Invoke the ConnId connector
 			InternalMonitor.recordConnectorOperation("getObject");
 			recordIcfOperationStart(reporter, ProvisioningOperation.ICF_GET, objectClassDefinition, uid);
-			co = connIdConnectorFacade.getObject(icfObjectClass, uid, options);
+			co = operationMonitor.execute(ProvisioningOperation.ICF_GET, reporter, () -> connIdConnectorFacade.getObject(icfObjectClass, uid, options));
 			recordIcfOperationEnd(reporter, ProvisioningOperation.ICF_GET, objectClassDefinition, uid);
 
 			icfResult.recordSuccess();
@@ -1307,7 +1322,7 @@ public class ConnectorInstanceConnIdImpl implements ConnectorInstance {
 		}
 
 		// setting ifc attributes from resource object attributes
-		Set<Attribute> attributes = null;
+		Set<Attribute> attributes;
 		try {
 			if (LOGGER.isTraceEnabled()) {
 				LOGGER.trace("midPoint object before conversion:\n{}", attributesContainer.debugDump());
@@ -1386,7 +1401,7 @@ public class ConnectorInstanceConnIdImpl implements ConnectorInstance {
 			// CALL THE ConnId FRAMEWORK
 			InternalMonitor.recordConnectorOperation("create");
 			recordIcfOperationStart(reporter, ProvisioningOperation.ICF_CREATE, ocDef, null);		// TODO provide object name
-			uid = connIdConnectorFacade.create(icfObjectClass, attributes, options);
+			uid = operationMonitor.execute(ProvisioningOperation.ICF_CREATE, reporter, () -> connIdConnectorFacade.create(icfObjectClass, attributes, options));
 			recordIcfOperationEnd(reporter, ProvisioningOperation.ICF_CREATE, ocDef, uid);
 
 		} catch (Throwable ex) {
@@ -1704,7 +1719,8 @@ public class ConnectorInstanceConnIdImpl implements ConnectorInstance {
 				
 				// Invoking ConnId
 				recordIcfOperationStart(reporter, ProvisioningOperation.ICF_UPDATE, objectClassDef, uid);
-				uid = connIdConnectorFacade.addAttributeValues(objClass, uid, attributesToAdd, options);
+				Uid currentUid = uid;
+				uid = operationMonitor.execute(ProvisioningOperation.ICF_UPDATE, reporter, () -> connIdConnectorFacade.addAttributeValues(objClass, currentUid, attributesToAdd, options));
 				recordIcfOperationEnd(reporter, ProvisioningOperation.ICF_UPDATE, objectClassDef, null, uid);
 
 				connIdResult.recordSuccess();
@@ -1783,7 +1799,8 @@ public class ConnectorInstanceConnIdImpl implements ConnectorInstance {
 					// Call ConnId
 					InternalMonitor.recordConnectorOperation("update");
 					recordIcfOperationStart(reporter, ProvisioningOperation.ICF_UPDATE, objectClassDef, uid);
-					uid = connIdConnectorFacade.update(objClass, uid, attributesToUpdate, options);
+					Uid currentUid = uid;
+					uid = operationMonitor.execute(ProvisioningOperation.ICF_UPDATE, reporter, () -> connIdConnectorFacade.update(objClass, currentUid, attributesToUpdate, options));
 					recordIcfOperationEnd(reporter, ProvisioningOperation.ICF_UPDATE, objectClassDef, null, uid);
 	
 					connIdResult.recordSuccess();
@@ -1838,7 +1855,8 @@ public class ConnectorInstanceConnIdImpl implements ConnectorInstance {
 
 				InternalMonitor.recordConnectorOperation("removeAttributeValues");
 				recordIcfOperationStart(reporter, ProvisioningOperation.ICF_UPDATE, objectClassDef, uid);
-				uid = connIdConnectorFacade.removeAttributeValues(objClass, uid, attributesToRemove, options);
+				Uid currentUid = uid;
+				uid = operationMonitor.execute(ProvisioningOperation.ICF_UPDATE, reporter, () -> connIdConnectorFacade.removeAttributeValues(objClass, currentUid, attributesToRemove, options));
 				recordIcfOperationEnd(reporter, ProvisioningOperation.ICF_UPDATE, objectClassDef, null, uid);
 				connIdResult.recordSuccess();
 			}
@@ -1921,6 +1939,46 @@ public class ConnectorInstanceConnIdImpl implements ConnectorInstance {
 		return sb.toString();
 	}
 
+	/*
+	 * ConnId has no bulk operations, so bulk operations are executed as single operations pipelined
+	 * up to the size of the connector pool (see getConnectorPoolSize).
+	 */
+
+	@Override
+	public List<BulkOperationItemResult<AsynchronousOperationReturnValue<Collection<ResourceAttribute<?>>>>> addObjects(
+			List<PrismObject<? extends ShadowType>> objects, StateReporter reporter, OperationResult parentResult) {
+		return BulkOperationPipeline.addObjects(this, objects, getConnectorPoolSize(), reporter, parentResult);
+	}
+
+	@Override
+	public List<BulkOperationItemResult<AsynchronousOperationReturnValue<Collection<PropertyModificationOperation>>>> modifyObjects(
+			ObjectClassComplexTypeDefinition objectClass, List<ModifyObjectRequest> requests, StateReporter reporter,
+			OperationResult parentResult) {
+		return BulkOperationPipeline.modifyObjects(this, objectClass, requests, getConnectorPoolSize(), reporter, parentResult);
+	}
+
+	@Override
+	public List<BulkOperationItemResult<AsynchronousOperationResult>> deleteObjects(ObjectClassComplexTypeDefinition objectClass,
+			List<Collection<? extends ResourceAttribute<?>>> identifiersList, StateReporter reporter, OperationResult parentResult) {
+		return BulkOperationPipeline.deleteObjects(this, objectClass, identifiersList, getConnectorPoolSize(), reporter, parentResult);
+	}
+
+	/**
+	 * Number of operations that can be executed concurrently without waiting for a pooled connector instance.
+	 * Connectors without pooling (or with unlimited pool) are treated as able to execute one operation at a time,
+	 * as we have no idea what the resource is able to withstand.
+	 */
+	int getConnectorPoolSize() {
+		if (apiConfig == null || !apiConfig.isConnectorPoolingSupported()) {
+			return 1;
+		}
+		ObjectPoolConfiguration poolConfiguration = apiConfig.getConnectorPoolConfiguration();
+		if (poolConfiguration == null || poolConfiguration.getMaxObjects() <= 0) {
+			return 1;
+		}
+		return poolConfiguration.getMaxObjects();
+	}
+
 	@Override
 	public AsynchronousOperationResult deleteObject(ObjectClassComplexTypeDefinition objectClass, Collection<Operation> additionalOperations, Collection<? extends ResourceAttribute<?>> identifiers, StateReporter reporter,
 							 OperationResult parentResult) 
@@ -1951,7 +2009,10 @@ public class ConnectorInstanceConnIdImpl implements ConnectorInstance {
 
 			InternalMonitor.recordConnectorOperation("delete");
 			recordIcfOperationStart(reporter, ProvisioningOperation.ICF_DELETE, objectClass, uid);
-			connIdConnectorFacade.delete(objClass, uid, new OperationOptionsBuilder().build());
+			operationMonitor.execute(ProvisioningOperation.ICF_DELETE, reporter, () -> {
+				connIdConnectorFacade.delete(objClass, uid, new OperationOptionsBuilder().build());
+				return null;
+			});
 			recordIcfOperationEnd(reporter, ProvisioningOperation.ICF_DELETE, objectClass, null, uid);
 
 			icfResult.recordSuccess();
@@ -2015,7 +2076,7 @@ public class ConnectorInstanceConnIdImpl implements ConnectorInstance {
 		try {
 			InternalMonitor.recordConnectorOperation("getLatestSyncToken");
 			recordIcfOperationStart(reporter, ProvisioningOperation.ICF_GET_LATEST_SYNC_TOKEN, objectClassDef);
-			syncToken = connIdConnectorFacade.getLatestSyncToken(icfObjectClass);
+			syncToken = operationMonitor.execute(ProvisioningOperation.ICF_GET_LATEST_SYNC_TOKEN, reporter, () -> connIdConnectorFacade.getLatestSyncToken(icfObjectClass));
 			recordIcfOperationEnd(reporter, ProvisioningOperation.ICF_GET_LATEST_SYNC_TOKEN, objectClassDef);
 			icfResult.recordSuccess();
 			icfResult.addReturn("syncToken", syncToken==null?null:String.valueOf(syncToken.getValue()));
@@ -2059,7 +2120,7 @@ public class ConnectorInstanceConnIdImpl implements ConnectorInstance {
 		result.addArbitraryObjectAsParam("lastToken", lastToken);
 
 		// create sync token from the property last token
-		SyncToken syncToken = null;
+		SyncToken syncToken;
 		try {
 			syncToken = getSyncToken(lastToken);
 			LOGGER.trace("Sync token created from the property last token: {}", syncToken==null?null:syncToken.getValue());
@@ -2101,8 +2162,7 @@ public class ConnectorInstanceConnIdImpl implements ConnectorInstance {
 		try {
 			InternalMonitor.recordConnectorOperation("sync");
 			recordIcfOperationStart(reporter, ProvisioningOperation.ICF_SYNC, objectClass);
-			lastReceivedToken = connIdConnectorFacade.sync(icfObjectClass, syncToken, syncHandler,
-					options);
+			lastReceivedToken = operationMonitor.execute(ProvisioningOperation.ICF_SYNC, reporter, () -> connIdConnectorFacade.sync(icfObjectClass, syncToken, syncHandler, options));
 			recordIcfOperationEnd(reporter, ProvisioningOperation.ICF_SYNC, objectClass);
 			connIdResult.recordSuccess();
 			connIdResult.addReturn(OperationResult.RETURN_COUNT, syncDeltas.size());
@@ -2342,7 +2402,7 @@ public class ConnectorInstanceConnIdImpl implements ConnectorInstance {
 
 			InternalMonitor.recordConnectorOperation("search");
 			recordIcfOperationStart(reporter, ProvisioningOperation.ICF_SEARCH, objectClassDefinition);
-			icfSearchResult = connIdConnectorFacade.search(icfObjectClass, filter, icfHandler, options);
+			icfSearchResult = operationMonitor.execute(ProvisioningOperation.ICF_SEARCH, reporter, () -> connIdConnectorFacade.search(icfObjectClass, filter, icfHandler, options));
 			recordIcfOperationEnd(reporter, ProvisioningOperation.ICF_SEARCH, objectClassDefinition);
 
 			icfResult.recordSuccess();
@@ -2459,7 +2519,8 @@ public class ConnectorInstanceConnIdImpl implements ConnectorInstance {
             };
             InternalMonitor.recordConnectorOperation("search");
 			recordIcfOperationStart(reporter, ProvisioningOperation.ICF_SEARCH, objectClassDefinition);
-            SearchResult searchResult = connIdConnectorFacade.search(icfObjectClass, filter, icfHandler, options);
+			SearchResult searchResult;
+			searchResult = operationMonitor.execute(ProvisioningOperation.ICF_SEARCH, reporter, () -> connIdConnectorFacade.search(icfObjectClass, filter, icfHandler, options));
 			recordIcfOperationEnd(reporter, ProvisioningOperation.ICF_SEARCH, objectClassDefinition);
 
             if (searchResult == null || searchResult.getRemainingPagedResults() == -1) {
@@ -2945,13 +3006,17 @@ public class ConnectorInstanceConnIdImpl implements ConnectorInstance {
 			LOGGER.trace("Running script ({})", icfOpName);
 
 			recordIcfOperationStart(reporter, ProvisioningOperation.ICF_SCRIPT, null);
-			if (scriptOperation.isConnectorHost()) {
-				InternalMonitor.recordConnectorOperation("runScriptOnConnector");
-				output = connIdConnectorFacade.runScriptOnConnector(scriptContext, new OperationOptionsBuilder().build());
-			} else if (scriptOperation.isResourceHost()) {
-				InternalMonitor.recordConnectorOperation("runScriptOnResource");
-				output = connIdConnectorFacade.runScriptOnResource(scriptContext, new OperationOptionsBuilder().build());
-			}
+			output = operationMonitor.execute(ProvisioningOperation.ICF_SCRIPT, reporter, () -> {
+				if (scriptOperation.isConnectorHost()) {
+					InternalMonitor.recordConnectorOperation("runScriptOnConnector");
+					return connIdConnectorFacade.runScriptOnConnector(scriptContext, new OperationOptionsBuilder().build());
+				} else if (scriptOperation.isResourceHost()) {
+					InternalMonitor.recordConnectorOperation("runScriptOnResource");
+					return connIdConnectorFacade.runScriptOnResource(scriptContext, new OperationOptionsBuilder().build());
+				} else {
+					return null;
+				}
+			});
 			recordIcfOperationEnd(reporter, ProvisioningOperation.ICF_SCRIPT, null);
 
 			icfResult.recordSuccess();
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.provisioning.ucf.impl.connid;
+
+import com.evolveum.midpoint.schema.statistics.ConnectorOperationStatistics;
+import com.evolveum.midpoint.schema.statistics.ProvisioningOperation;
+import com.evolveum.midpoint.task.api.StateReporter;
+import org.identityconnectors.framework.common.exceptions.ConnectionBrokenException;
+import org.identityconnectors.framework.common.exceptions.ConnectionFailedException;
+import org.identityconnectors.framework.common.exceptions.ConnectorIOException;
+import org.identityconnectors.framework.common.exceptions.OperationTimeoutException;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collects statistics of operations invoked on a ConnId connector facade (counts, errors, latencies)
+ * and optionally limits their concurrency using {@link AdaptiveConcurrencyLimiter}.
+ *
+ * Unlike task-level statistics (collected via StateReporter) these are kept per connector instance,
+ * i.e. per resource, across all tasks and threads. Thread safe.
+ *
+ * Only single-object operations are subject to concurrency limiting; searches and synchronization
+ * are long-running and their duration says little about the load of the resource.
+ */
+class ConnectorOperationMonitor {
+
+	private static final Set<ProvisioningOperation> LIMITED_OPERATIONS = EnumSet.of(
+			ProvisioningOperation.ICF_GET, ProvisioningOperation.ICF_CREATE,
+			ProvisioningOperation.ICF_UPDATE, ProvisioningOperation.ICF_DELETE);
+
+	private final Map<ProvisioningOperation, OperationStatistics> statistics = new EnumMap<>(ProvisioningOperation.class);
+	private final AdaptiveConcurrencyLimiter limiter;			// null if concurrency is not limited
+
+	ConnectorOperationMonitor(String description, int maxConcurrency) {
+		for (ProvisioningOperation operation : ProvisioningOperation.values()) {
+			statistics.put(operation, new OperationStatistics());
+		}
+		limiter = maxConcurrency > 1 ? new AdaptiveConcurrencyLimiter(description, maxConcurrency) : null;
+	}
+
+	/**
+	 * Executes a connector facade call, waiting for the concurrency limiter if needed and recording
+	 * its duration and outcome. ConnId operations throw only runtime exceptions, which are rethrown as they are.
+	 *
+	 * @param reporter if not null, time spent waiting for the concurrency limiter is reported to it (so it gets into task statistics)
+	 */
+	<T> T execute(ProvisioningOperation operation, StateReporter reporter, Supplier<T> call) {
+		Invocation invocation = start(operation, reporter);
+		try {
+			T rv = call.get();
+			invocation.end(null);
+			return rv;
+		} catch (RuntimeException | Error e) {
+			invocation.end(e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Marks the start of an operation, waiting for the concurrency limiter if needed.
+	 * The returned invocation has to be ended exactly once, even if the operation fails.
+	 */
+	private Invocation start(ProvisioningOperation operation, StateReporter reporter) {
+		boolean limited = limiter != null && LIMITED_OPERATIONS.contains(operation);
+		if (limited) {
+			long waitTime = limiter.acquire();
+			if (waitTime > 0 && reporter != null) {
+				reporter.recordIcfOperationLimiterWait(TimeUnit.NANOSECONDS.toMillis(waitTime));
+			}
+		}
+		return new Invocation(operation, limited);
+	}
+
+	List<ConnectorOperationStatistics> getStatistics() {
+		List<ConnectorOperationStatistics> rv = new ArrayList<>();
+		for (Map.Entry<ProvisioningOperation, OperationStatistics> entry : statistics.entrySet()) {
+			OperationStatistics stats = entry.getValue();
+			long count = stats.count.sum();
+			if (count > 0) {
+				long[] histogram = new long[stats.histogram.length()];
+				for (int i = 0; i < histogram.length; i++) {
+					histogram[i] = stats.histogram.get(i);
+				}
+				rv.add(new ConnectorOperationStatistics(entry.getKey(), count, stats.errors.sum(),
+						TimeUnit.NANOSECONDS.toMillis(stats.totalTime.sum()),
+						TimeUnit.NANOSECONDS.toMillis(stats.maxTime.get()), histogram));
+			}
+		}
+		return rv;
+	}
+
+	/**
+	 * Current concurrency limit; null if concurrency is not limited.
+	 */
+	Integer getConcurrencyLimit() {
+		return limiter != null ? limiter.getLimit() : null;
+	}
+
+	/**
+	 * Total time (in milliseconds) operations spent waiting for the concurrency limiter; null if concurrency is not limited.
+	 */
+	Long getConcurrencyLimiterWaitTime() {
+		return limiter != null ? limiter.getTotalWaitTime() : null;
+	}
+
+	/**
+	 * Failures that indicate that the resource is unreachable or overloaded, as opposed to e.g. schema violations
+	 * or missing objects.
+	 */
+	private static boolean isOverloadIndication(Throwable t) {
+		return t instanceof ConnectionFailedException || t instanceof ConnectionBrokenException
+				|| t instanceof OperationTimeoutException || t instanceof ConnectorIOException;
+	}
+
+	private class Invocation {
+
+		private final ProvisioningOperation operation;
+		private final boolean limited;
+		private final long started = System.nanoTime();
+		private boolean ended;
+
+		private Invocation(ProvisioningOperation operation, boolean limited) {
+			this.operation = operation;
+			this.limited = limited;
+		}
+
+		/**
+		 * @param failure exception thrown by the operation (null if successful)
+		 */
+		void end(Throwable failure) {
+			if (ended) {
+				return;
+			}
+			ended = true;
+			long duration = System.nanoTime() - started;
+			statistics.get(operation).record(duration, failure != null);
+			if (limited) {
+				limiter.release(operation, duration, isOverloadIndication(failure));
+			}
+		}
+	}
+
+	private static class OperationStatistics {
+
+		private final LongAdder count = new LongAdder();
+		private final LongAdder errors = new LongAdder();
+		private final LongAdder totalTime = new LongAdder();
+		private final AtomicLong maxTime = new AtomicLong();
+		private final AtomicLongArray histogram = new AtomicLongArray(ConnectorOperationStatistics.LATENCY_BUCKET_BOUNDS.length + 1);
+
+		private void record(long duration, boolean error) {
+			count.increment();
+			if (error) {
+				errors.increment();
+			}
+			totalTime.add(duration);
+			maxTime.accumulateAndGet(duration, Math::max);
+			long millis = TimeUnit.NANOSECONDS.toMillis(duration);
+			int bucket = 0;
+			while (bucket < ConnectorOperationStatistics.LATENCY_BUCKET_BOUNDS.length
+					&& millis >= ConnectorOperationStatistics.LATENCY_BUCKET_BOUNDS[bucket]) {
+				bucket++;
+			}
+			histogram.incrementAndGet(bucket);
+		}
+	}
+}
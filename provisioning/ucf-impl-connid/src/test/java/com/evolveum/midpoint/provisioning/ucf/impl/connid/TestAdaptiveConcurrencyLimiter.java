@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.provisioning.ucf.impl.connid;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.schema.statistics.ProvisioningOperation;
+import com.evolveum.midpoint.test.util.TestUtil;
+
+/**
+ * Feeds the limiter with synthetic latencies; no real operations are executed.
+ */
+public class TestAdaptiveConcurrencyLimiter {
+
+	private static final int MAX_LIMIT = 8;
+
+	@Test
+	public void test100PermanentLatencyIncrease() throws Exception {
+		final String TEST_NAME = "test100PermanentLatencyIncrease";
+		TestUtil.displayTestTile(TEST_NAME);
+
+		// GIVEN
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(TEST_NAME, MAX_LIMIT);
+		execute(limiter, ProvisioningOperation.ICF_GET, 10, 100);
+		assertEquals("Wrong limit for fast resource", MAX_LIMIT, limiter.getLimit());
+
+		// WHEN
+		int minimalLimit = MAX_LIMIT;
+		for (int i = 0; i < 1000; i++) {
+			execute(limiter, ProvisioningOperation.ICF_GET, 500, 1);
+			minimalLimit = Math.min(minimalLimit, limiter.getLimit());
+		}
+
+		// THEN
+		assertTrue("Limit was not decreased: " + minimalLimit, minimalLimit < MAX_LIMIT);
+		assertEquals("Limit was not restored after the latency stabilized", MAX_LIMIT, limiter.getLimit());
+	}
+
+	@Test
+	public void test110DifferentOperationTypes() throws Exception {
+		final String TEST_NAME = "test110DifferentOperationTypes";
+		TestUtil.displayTestTile(TEST_NAME);
+
+		// GIVEN
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(TEST_NAME, MAX_LIMIT);
+
+		// WHEN
+		for (int i = 0; i < 500; i++) {
+			execute(limiter, ProvisioningOperation.ICF_GET, 5, 1);
+			execute(limiter, ProvisioningOperation.ICF_CREATE, 400, 1);
+
+			// THEN
+			assertEquals("Limit changed although latencies of both operation types are stable", MAX_LIMIT, limiter.getLimit());
+		}
+	}
+
+	@Test
+	public void test120Overload() throws Exception {
+		final String TEST_NAME = "test120Overload";
+		TestUtil.displayTestTile(TEST_NAME);
+
+		// GIVEN
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(TEST_NAME, MAX_LIMIT);
+
+		// WHEN
+		limiter.acquire();
+		limiter.release(ProvisioningOperation.ICF_UPDATE, TimeUnit.MILLISECONDS.toNanos(10), true);
+		execute(limiter, ProvisioningOperation.ICF_UPDATE, 10, MAX_LIMIT - 1);
+
+		// THEN
+		assertEquals("Limit was not halved", MAX_LIMIT / 2, limiter.getLimit());
+		assertEquals("Wrong number of operations in flight", 0, limiter.getInFlight());
+	}
+
+	private void execute(AdaptiveConcurrencyLimiter limiter, ProvisioningOperation operation, long latencyMillis, int count) {
+		for (int i = 0; i < count; i++) {
+			limiter.acquire();
+			limiter.release(operation, TimeUnit.MILLISECONDS.toNanos(latencyMillis), false);
+		}
+	}
+}
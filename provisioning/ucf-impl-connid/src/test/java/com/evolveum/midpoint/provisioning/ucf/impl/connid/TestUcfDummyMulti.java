@@ -19,6 +19,8 @@ import static com.evolveum.midpoint.test.IntegrationTestTools.display;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertTrue;
+import static org.testng.AssertJUnit.fail;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -35,18 +37,23 @@ import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.prism.schema.PrismSchema;
 import com.evolveum.midpoint.prism.schema.SchemaRegistry;
 import com.evolveum.midpoint.prism.util.PrismTestUtil;
+import com.evolveum.midpoint.provisioning.ucf.api.BulkOperationItemResult;
 import com.evolveum.midpoint.provisioning.ucf.api.GenericFrameworkException;
 import com.evolveum.midpoint.provisioning.ucf.api.ShadowResultHandler;
 import com.evolveum.midpoint.schema.constants.SchemaConstants;
 import com.evolveum.midpoint.schema.processor.ObjectClassComplexTypeDefinition;
 import com.evolveum.midpoint.schema.processor.ResourceAttribute;
 import com.evolveum.midpoint.schema.processor.ResourceAttributeContainer;
+import com.evolveum.midpoint.schema.result.AsynchronousOperationReturnValue;
 import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.statistics.ConnectorOperationStatistics;
 import com.evolveum.midpoint.schema.statistics.ConnectorOperationalStatus;
+import com.evolveum.midpoint.schema.statistics.ProvisioningOperation;
 import com.evolveum.midpoint.schema.util.ResourceTypeUtil;
 import com.evolveum.midpoint.schema.util.ShadowUtil;
 import com.evolveum.midpoint.test.util.TestUtil;
 import com.evolveum.midpoint.util.exception.CommunicationException;
+import com.evolveum.midpoint.util.exception.ObjectAlreadyExistsException;
 import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.util.exception.SecurityViolationException;
@@ -66,6 +73,10 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowType;
 public class TestUcfDummyMulti extends AbstractUcfDummyTest {
 	
 	private static Trace LOGGER = TraceManager.getTrace(TestUcfDummyMulti.class);
+
+	private static final long STATS_OPERATION_DELAY = 300;
+	private static final String STATS_ACCOUNT_USERNAME = "stats";
+	private static final String BULK_ACCOUNT_PREFIX = "bulk";
 		
 	@Test
 	public void test000PrismContextSanity() throws Exception {
@@ -349,6 +360,107 @@ public class TestUcfDummyMulti extends AbstractUcfDummyTest {
 		display("Search result 2", searchResult2);
 	}
 		
+	/**
+	 * Creates one account on a slow resource and then tries to create it again. Statistics are compared
+	 * to the values before the test, so the test does not depend on operations executed by other tests.
+	 */
+	@Test
+	public void test300OperationStatistics() throws Exception {
+		final String TEST_NAME = "test300OperationStatistics";
+		TestUtil.displayTestTile(this, TEST_NAME);
+
+		OperationResult result = new OperationResult(this.getClass().getName() + "." + TEST_NAME);
+
+		ObjectClassComplexTypeDefinition defaultAccountDefinition = resourceSchema.findDefaultObjectClassDefinition(ShadowKindType.ACCOUNT);
+		ConnectorOperationStatistics createStatsBefore = findCreateStatistics(cc.getOperationalStatus());
+		long countBefore = createStatsBefore != null ? createStatsBefore.getCount() : 0;
+		long errorsBefore = createStatsBefore != null ? createStatsBefore.getErrorCount() : 0;
+
+		// WHEN
+		dummyResource.setOperationDelay(STATS_OPERATION_DELAY);
+		try {
+			cc.addObject(createAccountShadow(defaultAccountDefinition, STATS_ACCOUNT_USERNAME), null, null, result);
+		} finally {
+			dummyResource.setOperationDelay(0);
+		}
+		try {
+			cc.addObject(createAccountShadow(defaultAccountDefinition, STATS_ACCOUNT_USERNAME), null, null, result);
+			fail("Unexpected success while creating existing account");
+		} catch (ObjectAlreadyExistsException e) {
+			// expected
+		}
+
+		// THEN
+		ConnectorOperationalStatus opStat = cc.getOperationalStatus();
+		display("stats", opStat);
+		ConnectorOperationStatistics createStats = findCreateStatistics(opStat);
+		assertNotNull("No statistics for create operation", createStats);
+		assertEquals("Wrong number of create operations", countBefore + 2, createStats.getCount());
+		assertEquals("Wrong number of failed create operations", errorsBefore + 1, createStats.getErrorCount());
+		assertTrue("Max time too low: " + createStats.getMaxTime(), createStats.getMaxTime() >= STATS_OPERATION_DELAY);
+		assertNotNull("No concurrency limit", opStat.getConcurrencyLimit());
+		assertTrue("Wrong concurrency limit: " + opStat.getConcurrencyLimit(),
+				opStat.getConcurrencyLimit() >= 1 && opStat.getConcurrencyLimit() <= opStat.getPoolConfigMaxSize());
+	}
+
+	/**
+	 * Bulk add where one of the accounts already exists. Failure of that item must not prevent processing
+	 * of the others, and the results must be returned in the order of the input.
+	 */
+	@Test
+	public void test310BulkAddAccountsPartialFailure() throws Exception {
+		final String TEST_NAME = "test310BulkAddAccountsPartialFailure";
+		TestUtil.displayTestTile(this, TEST_NAME);
+
+		OperationResult result = new OperationResult(this.getClass().getName() + "." + TEST_NAME);
+
+		ObjectClassComplexTypeDefinition defaultAccountDefinition = resourceSchema.findDefaultObjectClassDefinition(ShadowKindType.ACCOUNT);
+		List<PrismObject<? extends ShadowType>> shadows = new ArrayList<>();
+		shadows.add(createAccountShadow(defaultAccountDefinition, BULK_ACCOUNT_PREFIX + "1"));
+		shadows.add(createAccountShadow(defaultAccountDefinition, ACCOUNT_JACK_USERNAME));		// already exists
+		shadows.add(createAccountShadow(defaultAccountDefinition, BULK_ACCOUNT_PREFIX + "2"));
+
+		// WHEN
+		List<BulkOperationItemResult<AsynchronousOperationReturnValue<Collection<ResourceAttribute<?>>>>> itemResults =
+				cc.addObjects(shadows, null, result);
+
+		// THEN
+		display("Item results", itemResults);
+		assertEquals("Wrong number of item results", 3, itemResults.size());
+		assertTrue("Item 0 failed: " + itemResults.get(0), itemResults.get(0).isSuccess());
+		assertFalse("Item 1 succeeded unexpectedly", itemResults.get(1).isSuccess());
+		assertTrue("Wrong exception: " + itemResults.get(1).getException(),
+				itemResults.get(1).getException() instanceof ObjectAlreadyExistsException);
+		assertTrue("Item 2 failed: " + itemResults.get(2), itemResults.get(2).isSuccess());
+		assertNotNull("Account " + BULK_ACCOUNT_PREFIX + "1 was not created", dummyResource.getAccountByUsername(BULK_ACCOUNT_PREFIX + "1"));
+		assertNotNull("Account " + BULK_ACCOUNT_PREFIX + "2 was not created", dummyResource.getAccountByUsername(BULK_ACCOUNT_PREFIX + "2"));
+	}
+
+	private ConnectorOperationStatistics findCreateStatistics(ConnectorOperationalStatus opStat) {
+		for (ConnectorOperationStatistics stats : opStat.getOperationStatistics()) {
+			if (stats.getOperation() == ProvisioningOperation.ICF_CREATE) {
+				return stats;
+			}
+		}
+		return null;
+	}
+
+	private PrismObject<? extends ShadowType> createAccountShadow(ObjectClassComplexTypeDefinition accountDefinition,
+			String username) throws SchemaException {
+		ShadowType shadowType = new ShadowType();
+		PrismTestUtil.getPrismContext().adopt(shadowType);
+		shadowType.setName(PrismTestUtil.createPolyStringType(username));
+		ObjectReferenceType resourceRef = new ObjectReferenceType();
+		resourceRef.setOid(resource.getOid());
+		shadowType.setResourceRef(resourceRef);
+		shadowType.setObjectClass(accountDefinition.getTypeName());
+		PrismObject<ShadowType> shadow = shadowType.asPrismObject();
+		ResourceAttributeContainer attributesContainer = ShadowUtil.getOrCreateAttributesContainer(shadow, accountDefinition);
+		ResourceAttribute<String> icfsNameProp = attributesContainer.findOrCreateAttribute(SchemaConstants.ICFS_NAME);
+		icfsNameProp.setRealValue(username);
+		return shadow;
+	}
+
 	private void checkUcfShadow(PrismObject<ShadowType> shadow, ObjectClassComplexTypeDefinition objectClassDefinition) {
 		assertNotNull("No objectClass in shadow "+shadow, shadow.asObjectable().getObjectClass());
 		assertEquals("Wrong objectClass in shadow "+shadow, objectClassDefinition.getTypeName(), shadow.asObjectable().getObjectClass());
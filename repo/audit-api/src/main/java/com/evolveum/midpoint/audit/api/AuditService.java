@@ -38,8 +38,9 @@ public interface AuditService {
      * Clean up audit records that are older than specified.
      *
      * @param policy Records will be deleted base on this policy.
+     * @param task Task executing the cleanup; the cleanup stops when the task cannot run any more. May be null.
      */
-	void cleanupAudit(CleanupPolicyType policy, OperationResult parentResult);
+	void cleanupAudit(CleanupPolicyType policy, Task task, OperationResult parentResult);
 
     /**
      * @throws UnsupportedOperationException if object retrieval is not supported
@@ -31,4 +31,10 @@ public interface ConflictWatcher {
 	boolean hasConflict();
 
 	void setExpectedVersion(String version);
+
+	/**
+	 * If set, a modification of the object is not carried out when the object was changed since the expected version.
+	 * Nothing is written in such case; the caller finds out by calling {@link #hasConflict()} after the modification.
+	 */
+	void setSkipModificationOnConflict(boolean skipModificationOnConflict);
 }
@@ -133,6 +133,7 @@ public interface RepositoryService {
     String LIST_RESOURCE_OBJECT_SHADOWS = CLASS_NAME_WITH_DOT + "listResourceObjectShadows";
     String MODIFY_OBJECT = CLASS_NAME_WITH_DOT + "modifyObject";
     String COUNT_OBJECTS = CLASS_NAME_WITH_DOT + "countObjects";
+    String AGGREGATE_OBJECTS = CLASS_NAME_WITH_DOT + "aggregateObjects";
     String GET_VERSION = CLASS_NAME_WITH_DOT + "getVersion";
     String SEARCH_OBJECTS_ITERATIVE = CLASS_NAME_WITH_DOT + "searchObjectsIterative";
     String SEARCH_SHADOW_OWNER = CLASS_NAME_WITH_DOT + "searchShadowOwner";
@@ -343,6 +344,29 @@ public interface RepositoryService {
 			Collection<SelectorOptions<GetOperationOptions>> options,
 			OperationResult parentResult) throws SchemaException;
 
+	/**
+	 * <p>Groups objects that match specified criteria and computes aggregate values (count, min, max) for each group.</p>
+	 * <p>The grouping and aggregation is done by the repository (e.g. by SQL GROUP BY), so the objects need not
+	 * be loaded. If no search criteria specified, all objects of specified type are aggregated.</p>
+	 * <p>Paging of the query (offset, max size) is applied to the groups. Ordering from the query is ignored;
+	 * use the ordering in the aggregation query instead.</p>
+	 *
+	 * @param query
+	 *            search query (selects objects to be aggregated)
+	 * @param aggregation
+	 *            what to group by and what to compute
+	 * @param parentResult
+	 *            parent OperationResult (in/out)
+	 * @return one result per group
+	 *
+	 * @throws IllegalArgumentException
+	 *             wrong object type
+	 * @throws SchemaException
+	 *             unknown property used in search or aggregation query, or a property that cannot be aggregated
+	 */
+	<T extends ObjectType> SearchResultList<AggregationResult> aggregateObjects(Class<T> type, ObjectQuery query,
+			@NotNull AggregationQuery aggregation, OperationResult parentResult) throws SchemaException;
+
 	boolean isAnySubordinate(String upperOrgOid, Collection<String> lowerObjectOids) throws SchemaException;
 	
 	<O extends ObjectType> boolean isDescendant(PrismObject<O> object, String orgOid) throws SchemaException;
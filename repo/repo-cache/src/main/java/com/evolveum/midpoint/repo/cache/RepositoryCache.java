@@ -240,6 +240,13 @@ public class RepositoryCache implements RepositoryService {
 		return repository.countObjects(type, query, options, parentResult);
 	}
 
+	@Override
+	public <T extends ObjectType> SearchResultList<AggregationResult> aggregateObjects(Class<T> type, ObjectQuery query,
+			@NotNull AggregationQuery aggregation, OperationResult parentResult) throws SchemaException {
+		log("Cache: PASS aggregateObjects ({})", type.getSimpleName());
+		return repository.aggregateObjects(type, query, aggregation, parentResult);
+	}
+
 	public <T extends ObjectType> void modifyObject(Class<T> type, String oid, Collection<? extends ItemDelta> modifications,
 													OperationResult parentResult) throws ObjectNotFoundException, SchemaException, ObjectAlreadyExistsException {
 		modifyObject(type, oid, modifications, null, parentResult);
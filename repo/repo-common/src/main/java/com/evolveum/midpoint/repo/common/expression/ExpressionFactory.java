@@ -28,19 +28,33 @@ import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.util.ObjectResolver;
 import com.evolveum.midpoint.security.api.SecurityEnforcer;
 import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.util.caching.BoundedLruCache;
 import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ExpressionType;
 
 /**
+ * Creates expressions. Parsed expressions (with their evaluators, including compiled scripts) are cached,
+ * so each distinct expression definition is parsed only once and then reused by all mappings that contain it.
+ * The cache is keyed by the content of the expression definition, so a changed object (e.g. a role) simply
+ * gets its new expressions parsed.
+ *
+ * The cache is shared by all threads; parsed expressions must therefore be thread-safe. When the cache is full,
+ * the least recently used expressions are evicted. The cache itself is concurrent, so no locking is done here:
+ * two threads missing the same expression at the same time both parse it, and the later one simply replaces
+ * the cached instance. Cached keys hold their own copy of the expression definition, as the definition
+ * passed in may be changed afterwards by the caller (which would change its hash code).
+ *
  * @author semancik
  *
  */
 public class ExpressionFactory {
-	
+
+	private static final int MAX_CACHE_SIZE = 20000;
+
 	private Map<QName,ExpressionEvaluatorFactory> evaluatorFactoriesMap = new HashMap<QName, ExpressionEvaluatorFactory>();
 	private ExpressionEvaluatorFactory defaultEvaluatorFactory;
-	private Map<ExpressionIdentifier, Expression<?,?>> cache = new HashMap<ExpressionIdentifier, Expression<?,?>>();
+	private final BoundedLruCache<ExpressionIdentifier, Expression<?,?>> cache = new BoundedLruCache<>(MAX_CACHE_SIZE);
 	final private PrismContext prismContext;
 	private ObjectResolver objectResolver;					// using setter to allow Spring to handle circular references
 	final private SecurityEnforcer securityEnforcer;
@@ -71,11 +85,28 @@ public class ExpressionFactory {
 		Expression<V,D> expression = (Expression<V,D>) cache.get(eid);
 		if (expression == null) {
 			expression = createExpression(expressionType, outputDefinition, shortDesc, task, result);
-			cache.put(eid, expression);
+			ExpressionType expressionTypeCopy = expressionType != null ? expressionType.clone() : null;
+			cache.put(new ExpressionIdentifier(expressionTypeCopy, outputDefinition), expression);
 		}
 		return expression;
 	}
 
+	public int getCacheSize() {
+		return cache.size();
+	}
+
+	public long getCacheHits() {
+		return cache.getHits();
+	}
+
+	public long getCacheMisses() {
+		return cache.getMisses();
+	}
+
+	public void clearCache() {
+		cache.clear();
+	}
+
 	private <V extends PrismValue,D extends ItemDefinition> Expression<V,D> createExpression(ExpressionType expressionType,
 																							 D outputDefinition, String shortDesc, Task task, OperationResult result)
 					throws SchemaException, ObjectNotFoundException {
@@ -21,6 +21,7 @@ import com.evolveum.midpoint.prism.*;
 import com.evolveum.midpoint.prism.delta.ItemDelta;
 import com.evolveum.midpoint.prism.delta.ObjectDelta;
 import com.evolveum.midpoint.prism.delta.ReferenceDelta;
+import com.evolveum.midpoint.prism.delta.builder.DeltaBuilder;
 import com.evolveum.midpoint.prism.util.PrismTestUtil;
 import com.evolveum.midpoint.repo.api.ConflictWatcher;
 import com.evolveum.midpoint.repo.api.RepoAddOptions;
@@ -731,6 +732,37 @@ public class AddGetObjectTest extends BaseSQLRepoTest {
         assertFalse("false conflict reported for " + watcher, hasConflict);
     }
 
+    @Test
+    public void test240WatcherSkipModificationOnConflict() throws Exception {
+        OperationResult result = new OperationResult("test240WatcherSkipModificationOnConflict");
+
+        // GIVEN
+        UserType user = new UserType(prismContext).name("t240");
+        String oid = repositoryService.addObject(user.asPrismObject(), null, result);
+        String version = repositoryService.getVersion(UserType.class, oid, result);
+        repositoryService.modifyObject(UserType.class, oid, DeltaBuilder.deltaFor(UserType.class, prismContext)
+                .item(UserType.F_DESCRIPTION).replace("changed by someone else")
+                .asItemDeltas(), result);
+
+        // WHEN
+        ConflictWatcher watcher = repositoryService.createAndRegisterConflictWatcher(oid);
+        try {
+            watcher.setExpectedVersion(version);
+            watcher.setSkipModificationOnConflict(true);
+            repositoryService.modifyObject(UserType.class, oid, DeltaBuilder.deltaFor(UserType.class, prismContext)
+                    .item(UserType.F_DESCRIPTION).replace("changed by us")
+                    .asItemDeltas(), result);
+
+            // THEN
+            assertTrue("conflict was not detected", watcher.hasConflict());
+        } finally {
+            repositoryService.unregisterConflictWatcher(watcher);
+        }
+        UserType userAfter = repositoryService.getObject(UserType.class, oid, null, result).asObjectable();
+        assertEquals("modification was not skipped", "changed by someone else", userAfter.getDescription());
+        assertEquals("wrong version", Integer.parseInt(version) + 1, Integer.parseInt(userAfter.getVersion()));
+    }
+
     @Test
     public void test990AddResourceWithEmptyConnectorConfiguration() throws Exception {
         OperationResult result = new OperationResult("test990AddResourceWithEmptyConnectorConfiguration");
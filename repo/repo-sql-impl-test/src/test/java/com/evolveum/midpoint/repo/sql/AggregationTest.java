@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.midpoint.repo.sql;
+
+import com.evolveum.midpoint.prism.ItemDefinition;
+import com.evolveum.midpoint.prism.Objectable;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.prism.query.OrderDirection;
+import com.evolveum.midpoint.prism.query.builder.QueryBuilder;
+import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
+import com.evolveum.midpoint.schema.AggregationQuery;
+import com.evolveum.midpoint.schema.AggregationQuery.Aggregate;
+import com.evolveum.midpoint.schema.AggregationQuery.Comparison;
+import com.evolveum.midpoint.schema.AggregationResult;
+import com.evolveum.midpoint.schema.SearchResultList;
+import com.evolveum.midpoint.schema.constants.MidPointConstants;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ActivationStatusType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ActivationType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowKindType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Runs aggregation queries on real data. (QueryInterpreter2Test checks only the HQL produced.)
+ */
+@ContextConfiguration(locations = {"../../../../../ctx-test.xml"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public class AggregationTest extends BaseSQLRepoTest {
+
+    private static final File FOLDER_AGGREGATION = new File(FOLDER_BASE, "aggregation");
+
+    private static final String RESOURCE_1_OID = "a9900000-0000-0000-0000-00000000f001";
+    private static final String RESOURCE_2_OID = "a9900000-0000-0000-0000-00000000f002";
+    private static final String COST_CENTER_PREFIX = "AGGR-";
+    private static final QName SHIP_NAME = new QName("http://example.com/p", "shipName");
+    private static final QName ACCOUNT_OBJECT_CLASS = new QName(MidPointConstants.NS_RI, "AccountObjectClass");
+    private static final QName GROUP_OBJECT_CLASS = new QName(MidPointConstants.NS_RI, "GroupObjectClass");
+
+    @BeforeClass
+    public void beforeClass() throws Exception {
+        super.beforeClass();
+
+        List<PrismObject<? extends Objectable>> objects = prismContext.parserFor(new File(FOLDER_AGGREGATION, "objects.xml")).parseObjects();
+        OperationResult result = new OperationResult("add objects");
+        for (PrismObject object : objects) {
+            repositoryService.addObject(object, null, result);
+        }
+        result.recomputeStatus();
+        assertTrue(result.isSuccess());
+    }
+
+    @Test
+    public void test100GroupByReference() throws Exception {
+        OperationResult result = new OperationResult("test100GroupByReference");
+
+        ObjectQuery query = QueryBuilder.queryFor(ShadowType.class, prismContext)
+                .item(ShadowType.F_RESOURCE_REF).ref(RESOURCE_1_OID, RESOURCE_2_OID)
+                .build();
+        AggregationQuery aggregation = new AggregationQuery()
+                .groupBy(ShadowType.F_RESOURCE_REF)
+                .aggregate(Aggregate.count());
+        SearchResultList<AggregationResult> groups = repositoryService.aggregateObjects(ShadowType.class, query, aggregation, result);
+
+        assertSuccess(result);
+        assertEquals("Wrong # of groups: " + groups, 2, groups.size());
+        assertGroup(groups.get(0), Arrays.asList(RESOURCE_1_OID), Arrays.asList(3L));
+        assertGroup(groups.get(1), Arrays.asList(RESOURCE_2_OID), Arrays.asList(1L));
+    }
+
+    /**
+     * Object class is stored as a string and kind as a repository enum; both must be converted back.
+     */
+    @Test
+    public void test110GroupByQNameAndEnum() throws Exception {
+        OperationResult result = new OperationResult("test110GroupByQNameAndEnum");
+
+        ObjectQuery query = QueryBuilder.queryFor(ShadowType.class, prismContext)
+                .item(ShadowType.F_RESOURCE_REF).ref(RESOURCE_1_OID, RESOURCE_2_OID)
+                .build();
+        AggregationQuery aggregation = new AggregationQuery()
+                .groupBy(ShadowType.F_OBJECT_CLASS)
+                .groupBy(ShadowType.F_KIND)
+                .aggregate(Aggregate.count());
+        SearchResultList<AggregationResult> groups = repositoryService.aggregateObjects(ShadowType.class, query, aggregation, result);
+
+        assertSuccess(result);
+        assertEquals("Wrong # of groups: " + groups, 2, groups.size());
+        assertGroup(groups.get(0), Arrays.asList(ACCOUNT_OBJECT_CLASS, ShadowKindType.ACCOUNT), Arrays.asList(3L));
+        assertGroup(groups.get(1), Arrays.asList(GROUP_OBJECT_CLASS, ShadowKindType.ENTITLEMENT), Arrays.asList(1L));
+    }
+
+    @Test
+    public void test120GroupByExtensionItem() throws Exception {
+        OperationResult result = new OperationResult("test120GroupByExtensionItem");
+
+        ItemPath shipNamePath = new ItemPath(UserType.F_EXTENSION, SHIP_NAME);
+        ItemDefinition shipNameDefinition = prismContext.getSchemaRegistry()
+                .findObjectDefinitionByCompileTimeClass(UserType.class).findItemDefinition(shipNamePath);
+        AggregationQuery aggregation = new AggregationQuery()
+                .groupBy(shipNamePath, shipNameDefinition)
+                .aggregate(Aggregate.count())
+                .orderBy(Aggregate.count(), OrderDirection.DESCENDING);
+        SearchResultList<AggregationResult> groups = repositoryService.aggregateObjects(UserType.class, createUsersQuery(),
+                aggregation, result);
+
+        assertSuccess(result);
+        assertEquals("Wrong # of groups: " + groups, 2, groups.size());
+        assertGroup(groups.get(0), Arrays.asList("Black Pearl"), Arrays.asList(3L));
+        assertGroup(groups.get(1), Arrays.asList("Flying Dutchman"), Arrays.asList(2L));
+    }
+
+    @Test
+    public void test130MinMaxDate() throws Exception {
+        OperationResult result = new OperationResult("test130MinMaxDate");
+
+        ItemPath validFromPath = new ItemPath(UserType.F_ACTIVATION, ActivationType.F_VALID_FROM);
+        AggregationQuery aggregation = new AggregationQuery()
+                .groupBy(UserType.F_COST_CENTER)
+                .aggregate(Aggregate.min(validFromPath))
+                .aggregate(Aggregate.max(validFromPath));
+        SearchResultList<AggregationResult> groups = repositoryService.aggregateObjects(UserType.class, createUsersQuery(),
+                aggregation, result);
+
+        assertSuccess(result);
+        assertEquals("Wrong # of groups: " + groups, 3, groups.size());
+        assertEquals("Wrong group value", "AGGR-1", groups.get(0).getGroupValue(0));
+        assertDate("2017-01-10T00:00:00.000Z", groups.get(0).getAggregateValue(0));
+        assertDate("2017-03-01T00:00:00.000Z", groups.get(0).getAggregateValue(1));
+        assertEquals("Wrong group value", "AGGR-2", groups.get(1).getGroupValue(0));
+        assertDate("2016-05-01T00:00:00.000Z", groups.get(1).getAggregateValue(0));
+        assertDate("2016-05-01T00:00:00.000Z", groups.get(1).getAggregateValue(1));
+        assertEquals("Wrong group value", "AGGR-3", groups.get(2).getGroupValue(0));
+        assertNull("Unexpected min value", groups.get(2).getAggregateValue(0));
+        assertNull("Unexpected max value", groups.get(2).getAggregateValue(1));
+    }
+
+    @Test
+    public void test140Having() throws Exception {
+        OperationResult result = new OperationResult("test140Having");
+
+        AggregationQuery aggregation = new AggregationQuery()
+                .groupBy(UserType.F_COST_CENTER)
+                .aggregate(Aggregate.count())
+                .having(Aggregate.count(), Comparison.GE, 2);
+        SearchResultList<AggregationResult> groups = repositoryService.aggregateObjects(UserType.class, createUsersQuery(),
+                aggregation, result);
+
+        assertSuccess(result);
+        assertEquals("Wrong # of groups: " + groups, 1, groups.size());
+        assertGroup(groups.get(0), Arrays.asList("AGGR-1"), Arrays.asList(3L));
+    }
+
+    /**
+     * Grouping by an enum in an embedded container, with having on a date. The latest validFrom of enabled users
+     * is 2017-02-15, so only disabled users pass.
+     */
+    @Test
+    public void test150GroupByEmbeddedEnumHavingDate() throws Exception {
+        OperationResult result = new OperationResult("test150GroupByEmbeddedEnumHavingDate");
+
+        ItemPath validFromPath = new ItemPath(UserType.F_ACTIVATION, ActivationType.F_VALID_FROM);
+        AggregationQuery aggregation = new AggregationQuery()
+                .groupBy(new ItemPath(UserType.F_ACTIVATION, ActivationType.F_ADMINISTRATIVE_STATUS))
+                .aggregate(Aggregate.count())
+                .having(Aggregate.max(validFromPath), Comparison.GT,
+                        XmlTypeConverter.createXMLGregorianCalendar("2017-02-20T00:00:00.000Z"));
+        SearchResultList<AggregationResult> groups = repositoryService.aggregateObjects(UserType.class, createUsersQuery(),
+                aggregation, result);
+
+        assertSuccess(result);
+        assertEquals("Wrong # of groups: " + groups, 1, groups.size());
+        assertGroup(groups.get(0), Arrays.asList(ActivationStatusType.DISABLED), Arrays.asList(2L));
+    }
+
+    private ObjectQuery createUsersQuery() {
+        return QueryBuilder.queryFor(UserType.class, prismContext)
+                .item(UserType.F_COST_CENTER).startsWith(COST_CENTER_PREFIX)
+                .build();
+    }
+
+    private void assertSuccess(OperationResult result) {
+        result.recomputeStatus();
+        assertTrue("Operation failed: " + result, result.isSuccess());
+    }
+
+    private void assertGroup(AggregationResult group, List<Object> expectedGroupValues, List<Object> expectedAggregateValues) {
+        assertEquals("Wrong group values", expectedGroupValues, group.getGroupValues());
+        assertEquals("Wrong aggregate values", expectedAggregateValues, group.getAggregateValues());
+    }
+
+    private void assertDate(String expected, Object real) {
+        assertTrue("Not a date: " + real, real instanceof XMLGregorianCalendar);
+        assertEquals("Wrong date", XmlTypeConverter.toMillis(XmlTypeConverter.createXMLGregorianCalendar(expected)),
+                XmlTypeConverter.toMillis((XMLGregorianCalendar) real));
+    }
+}
@@ -124,7 +124,7 @@ public class CleanupTest extends BaseSQLRepoTest {
         CleanupPolicyType policy = createPolicy(calendar, NOW);
 
         OperationResult result = new OperationResult("Cleanup audit");
-        auditService.cleanupAudit(policy, result);
+        auditService.cleanupAudit(policy, null, result);
         result.recomputeStatus();
 
         //THEN
@@ -153,7 +153,7 @@ public class CleanupTest extends BaseSQLRepoTest {
         CleanupPolicyType policy = createPolicy(1);
 
         OperationResult result = new OperationResult("Cleanup audit");
-        auditService.cleanupAudit(policy, result);
+        auditService.cleanupAudit(policy, null, result);
         result.recomputeStatus();
 
         //THEN
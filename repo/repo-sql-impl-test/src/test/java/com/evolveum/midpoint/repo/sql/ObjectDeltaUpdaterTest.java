@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.midpoint.repo.sql;
+
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.delta.ItemDelta;
+import com.evolveum.midpoint.prism.delta.builder.DeltaBuilder;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.prism.query.builder.QueryBuilder;
+import com.evolveum.midpoint.prism.util.PrismTestUtil;
+import com.evolveum.midpoint.repo.sql.helpers.ObjectDeltaUpdater;
+import com.evolveum.midpoint.schema.MidPointPrismContextFactory;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AssignmentType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import javax.xml.namespace.QName;
+import java.io.File;
+import java.util.List;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Checks that modifications applied by updating the object tables in place (without merge) are correctly
+ * stored and searchable, and that the modifications touching other tables still go the merge way.
+ */
+@ContextConfiguration(locations = {"../../../../../ctx-test.xml"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public class ObjectDeltaUpdaterTest extends BaseSQLRepoTest {
+
+    private static final File FILE_USER = new File("src/test/resources/modify/user-with-extension.xml");
+
+    private static final String NS_P = "http://example.com/p";
+    private static final QName EXT_SHIP_NAME = new QName(NS_P, "shipName");
+    private static final QName EXT_WEAPON = new QName(NS_P, "weapon");
+
+    @Autowired
+    private ObjectDeltaUpdater objectDeltaUpdater;
+
+    private String userOid;
+
+    @BeforeClass
+    public void beforeClass() throws Exception {
+        super.beforeClass();
+
+        PrismTestUtil.resetPrismContext(MidPointPrismContextFactory.FACTORY);
+    }
+
+    @Test
+    public void test100ModifyFullNameInPlace() throws Exception {
+        OperationResult result = new OperationResult("test100ModifyFullNameInPlace");
+
+        PrismObject<UserType> user = prismContext.parseObject(FILE_USER);
+        user.asObjectable().setName(PolyString.toPolyStringType(new PolyString("delta-updater", "delta-updater")));
+        userOid = repositoryService.addObject(user, null, result);
+        String versionBefore = repositoryService.getVersion(UserType.class, userOid, result);
+
+        List<ItemDelta<?, ?>> modifications = DeltaBuilder.deltaFor(UserType.class, prismContext)
+                .item(UserType.F_FULL_NAME).replace(new PolyString("Jack Sparrow", "jack sparrow"))
+                .asItemDeltas();
+        assertTrue("Full name modification is not applicable in place",
+                objectDeltaUpdater.isApplicable(UserType.class, modifications));
+
+        repositoryService.modifyObject(UserType.class, userOid, modifications, result);
+
+        PrismObject<UserType> repoUser = repositoryService.getObject(UserType.class, userOid, null, result);
+        assertEquals("Wrong full name", "Jack Sparrow", repoUser.asObjectable().getFullName().getOrig());
+        assertEquals("Wrong given name", "gi2", repoUser.asObjectable().getGivenName().getOrig());
+        assertEquals("Wrong extension", "gun", repoUser.findProperty(new ItemPath(UserType.F_EXTENSION, EXT_WEAPON)).getRealValue());
+        assertEquals("Wrong version", Integer.parseInt(versionBefore) + 1, Integer.parseInt(repoUser.getVersion()));
+
+        ObjectQuery byFullName = QueryBuilder.queryFor(UserType.class, prismContext)
+                .item(UserType.F_FULL_NAME).eqPoly("Jack Sparrow", "jack sparrow").matchingOrig()
+                .build();
+        assertSearchResult("full name", byFullName, userOid, result);
+
+        ObjectQuery byOldFullName = QueryBuilder.queryFor(UserType.class, prismContext)
+                .item(UserType.F_FULL_NAME).eqPoly("fu2", "fu2").matchingOrig()
+                .and().item(UserType.F_NAME).eqPoly("delta-updater", "delta-updater").matchingOrig()
+                .build();
+        assertSearchResult("old full name", byOldFullName, null, result);
+
+        // extension values are stored in separate tables that were not touched
+        assertSearchResult("extension item", createShipNameQuery("pltka"), userOid, result);
+    }
+
+    /**
+     * Extension values are stored in separate tables, so the whole object has to be merged.
+     */
+    @Test
+    public void test110ModifyExtensionMerge() throws Exception {
+        OperationResult result = new OperationResult("test110ModifyExtensionMerge");
+
+        String versionBefore = repositoryService.getVersion(UserType.class, userOid, result);
+        List<ItemDelta<?, ?>> modifications = DeltaBuilder.deltaFor(UserType.class, prismContext)
+                .item(UserType.F_FULL_NAME).replace(new PolyString("Captain Jack Sparrow", "captain jack sparrow"))
+                .item(new ItemPath(UserType.F_EXTENSION, EXT_SHIP_NAME)).replace("Black Pearl")
+                .asItemDeltas();
+        assertFalse("Extension modification is applicable in place",
+                objectDeltaUpdater.isApplicable(UserType.class, modifications));
+
+        repositoryService.modifyObject(UserType.class, userOid, modifications, result);
+
+        PrismObject<UserType> repoUser = repositoryService.getObject(UserType.class, userOid, null, result);
+        assertEquals("Wrong full name", "Captain Jack Sparrow", repoUser.asObjectable().getFullName().getOrig());
+        assertEquals("Wrong version", Integer.parseInt(versionBefore) + 1, Integer.parseInt(repoUser.getVersion()));
+
+        assertSearchResult("new extension value", createShipNameQuery("Black Pearl"), userOid, result);
+        assertSearchResult("old extension value", createShipNameQuery("pltka"), null, result);
+        ObjectQuery byFullName = QueryBuilder.queryFor(UserType.class, prismContext)
+                .item(UserType.F_FULL_NAME).eqPoly("Captain Jack Sparrow", "captain jack sparrow").matchingOrig()
+                .build();
+        assertSearchResult("full name", byFullName, userOid, result);
+    }
+
+    @Test
+    public void test120MultivaluedModificationsNotApplicable() throws Exception {
+        List<ItemDelta<?, ?>> assignmentModifications = DeltaBuilder.deltaFor(UserType.class, prismContext)
+                .item(UserType.F_ASSIGNMENT).add(new AssignmentType().description("new"))
+                .asItemDeltas();
+        assertFalse("Assignment modification is applicable in place",
+                objectDeltaUpdater.isApplicable(UserType.class, assignmentModifications));
+
+        List<ItemDelta<?, ?>> employeeTypeModifications = DeltaBuilder.deltaFor(UserType.class, prismContext)
+                .item(UserType.F_EMPLOYEE_TYPE).add("pirate")
+                .asItemDeltas();
+        assertFalse("Multivalued property modification is applicable in place",
+                objectDeltaUpdater.isApplicable(UserType.class, employeeTypeModifications));
+    }
+
+    private ObjectQuery createShipNameQuery(String shipName) {
+        return QueryBuilder.queryFor(UserType.class, prismContext)
+                .item(new ItemPath(UserType.F_EXTENSION, EXT_SHIP_NAME)).eq(shipName)
+                .build();
+    }
+
+    private void assertSearchResult(String description, ObjectQuery query, String expectedOid, OperationResult result)
+            throws Exception {
+        List<PrismObject<UserType>> users = repositoryService.searchObjects(UserType.class, query, null, result);
+        if (expectedOid == null) {
+            assertEquals("Unexpected users found by " + description + ": " + users, 0, users.size());
+        } else {
+            assertEquals("Wrong number of users found by " + description + ": " + users, 1, users.size());
+            assertEquals("Wrong user found by " + description, expectedOid, users.get(0).getOid());
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.evolveum.midpoint.repo.sql;
 
 import com.evolveum.midpoint.prism.*;
+import com.evolveum.midpoint.prism.delta.ItemDelta;
+import com.evolveum.midpoint.prism.delta.PropertyDelta;
 import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.repo.sql.type.XMLGregorianCalendarType;
 import com.evolveum.midpoint.schema.constants.SchemaConstants;
 import com.evolveum.midpoint.schema.result.OperationResult;
@@ -19,6 +22,8 @@ import javax.xml.namespace.QName;
 import java.io.*;
 import java.util.*;
 
+import static org.testng.AssertJUnit.assertEquals;
+
 /**
  * @author lazyman
  */
@@ -124,6 +129,48 @@ public class PerformanceTest extends BaseSQLRepoTest {
         LOGGER.info("xxx>> time: {} ms, per get: {} ms", duration, (double) duration/COUNT);
     }
 
+    /**
+     * Measures the latency of a simple modification (columns and full object only) depending on the number of assignments.
+     * Such modifications should not touch the assignment rows, so the latency should not grow much with the object size.
+     */
+    @Test
+    public void test400ModifyLatencyVersusObjectSize() throws Exception {
+        OperationResult result = new OperationResult("test400ModifyLatencyVersusObjectSize");
+        PrismObjectDefinition<UserType> userDefinition = prismContext.getSchemaRegistry()
+                .findObjectDefinitionByCompileTimeClass(UserType.class);
+
+        final int COUNT = 50;
+        for (int assignments : new int[] { 0, 10, 100, 300 }) {
+            UserType user = new UserType(prismContext);
+            user.setName(PolyStringType.fromOrig("modify-latency-" + assignments));
+            for (int i = 0; i < assignments; i++) {
+                AssignmentType assignment = new AssignmentType(prismContext);
+                assignment.setTargetRef(createRef(UUID.randomUUID().toString(), RoleType.COMPLEX_TYPE));
+                user.getAssignment().add(assignment);
+            }
+            String oid = repositoryService.addObject(user.asPrismObject(), null, result);
+            int versionBefore = Integer.parseInt(repositoryService.getVersion(UserType.class, oid, result));
+
+            long time = System.currentTimeMillis();
+            for (int i = 0; i < COUNT; i++) {
+                List<ItemDelta<?, ?>> modifications = new ArrayList<>();
+                modifications.add(PropertyDelta.createModificationReplaceProperty(UserType.F_FULL_NAME, userDefinition,
+                        new PolyString("Full name " + i)));
+                modifications.add(PropertyDelta.createModificationReplaceProperty(UserType.F_DESCRIPTION, userDefinition,
+                        "description " + i));
+                repositoryService.modifyObject(UserType.class, oid, modifications, result);
+            }
+            long duration = System.currentTimeMillis() - time;
+            LOGGER.info("xxx>> assignments: {}, time: {} ms, per modify: {} ms", assignments, duration, (double) duration/COUNT);
+
+            UserType userAfter = repositoryService.getObject(UserType.class, oid, null, result).asObjectable();
+            assertEquals("Wrong full name", "Full name " + (COUNT - 1), userAfter.getFullName().getOrig());
+            assertEquals("Wrong description", "description " + (COUNT - 1), userAfter.getDescription());
+            assertEquals("Wrong # of assignments", assignments, userAfter.getAssignment().size());
+            assertEquals("Wrong version", String.valueOf(versionBefore + COUNT), userAfter.getVersion());
+        }
+    }
+
 
     private ResourceType createResource(int resourceId) throws SchemaException, IOException {
         PrismObject<ResourceType> prism = prismContext.parseObject(new File(FOLDER_BASIC, "resource-opendj.xml"));
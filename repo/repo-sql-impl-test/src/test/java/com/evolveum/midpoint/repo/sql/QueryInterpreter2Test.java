@@ -29,6 +29,7 @@ import com.evolveum.midpoint.repo.sql.query2.QueryEngine2;
 import com.evolveum.midpoint.repo.sql.query2.RQueryImpl;
 import com.evolveum.midpoint.repo.sql.query2.hqm.RootHibernateQuery;
 import com.evolveum.midpoint.repo.sql.type.XMLGregorianCalendarType;
+import com.evolveum.midpoint.schema.AggregationQuery;
 import com.evolveum.midpoint.schema.GetOperationOptions;
 import com.evolveum.midpoint.schema.MidPointPrismContextFactory;
 import com.evolveum.midpoint.schema.SelectorOptions;
@@ -60,6 +61,7 @@ import javax.xml.datatype.XMLGregorianCalendar;
 import javax.xml.namespace.QName;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
@@ -4135,6 +4137,42 @@ public class QueryInterpreter2Test extends BaseSQLRepoTest {
         return createCollection(createDistinct());
     }
 
+    @Test
+    public void test950AggregateUsersByCostCenter() throws Exception {
+        Session session = open();
+        try {
+            ObjectQuery query = QueryBuilder.queryFor(UserType.class, prismContext)
+                    .item(UserType.F_EMPLOYEE_TYPE).eq("employee")
+                    .build();
+            AggregationQuery aggregation = new AggregationQuery()
+                    .groupBy(UserType.F_COST_CENTER)
+                    .aggregate(AggregationQuery.Aggregate.count())
+                    .having(AggregationQuery.Aggregate.count(), AggregationQuery.Comparison.GE, 10)
+                    .orderBy(AggregationQuery.Aggregate.count(), DESCENDING);
+
+            QueryEngine2 engine = new QueryEngine2(baseHelper.getConfiguration(), prismContext);
+            List<Class<?>> columnTypes = new ArrayList<>();
+            RQuery rQuery = engine.interpretAggregation(query, UserType.class, aggregation, columnTypes, session);
+            rQuery.list();
+            String real = ((RQueryImpl) rQuery).getQuery().getQueryString();
+            String expected = "select\n"
+                    + "  u.costCenter,\n"
+                    + "  count(distinct u.oid)\n"
+                    + "from\n"
+                    + "  RUser u\n"
+                    + "    left join u.employeeType e\n"
+                    + "where\n"
+                    + "  e = :e\n"
+                    + "group by u.costCenter\n"
+                    + "having count(distinct u.oid) >= :having\n"
+                    + "order by count(distinct u.oid) desc, u.costCenter asc";
+            assertEqualsIgnoreWhitespace(expected, real);
+            assertEquals("Wrong # of column types", 2, columnTypes.size());
+        } finally {
+            close(session);
+        }
+    }
+
     private SqlRepositoryConfiguration getConfiguration() {
         return ((SqlRepositoryServiceImpl) repositoryService).getConfiguration();
     }
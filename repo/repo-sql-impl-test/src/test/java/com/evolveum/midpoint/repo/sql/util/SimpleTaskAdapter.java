@@ -708,7 +708,8 @@ public class SimpleTaskAdapter implements Task {
     }
 
     @Override
-    public void recordProvisioningOperation(String resourceOid, String resourceName, QName objectClassName, ProvisioningOperation operation, boolean success, int count, long duration) {
+    public void recordProvisioningOperation(String resourceOid, String resourceName, QName objectClassName, ProvisioningOperation operation, boolean success, int count, long duration,
+            long limiterWaitDuration) {
     }
 
     @Override
@@ -716,7 +717,12 @@ public class SimpleTaskAdapter implements Task {
     }
 
     @Override
-    public void recordMappingOperation(String objectOid, String objectName, String objectTypeName, String mappingName, long duration) {
+    public void recordMappingOperation(String objectOid, String objectName, String objectTypeName, String mappingName, long duration,
+            long compileDuration) {
+    }
+
+    @Override
+    public void recordClockworkRun(int repositoryWrites, long projectorTime, long executionTime) {
     }
 
     @Override
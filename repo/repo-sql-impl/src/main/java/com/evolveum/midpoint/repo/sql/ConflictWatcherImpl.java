@@ -32,6 +32,7 @@ public class ConflictWatcherImpl implements ConflictWatcher {
 	private boolean hasConflict;
 	private int expectedVersion;
 	private boolean objectDeleted;              // skip all future checks
+	private boolean skipModificationOnConflict;
 
 	ConflictWatcherImpl(@NotNull String oid) {
 		this.oid = oid;
@@ -63,6 +64,13 @@ public class ConflictWatcherImpl implements ConflictWatcher {
 		checkExpectedVersion(object.getVersion());
 	}
 
+	/**
+	 * Called after beforeModifyObject: tells whether the modification of the object should not be carried out.
+	 */
+	public boolean isModificationToBeSkipped(@NotNull String oid) {
+		return skipModificationOnConflict && hasConflict && !objectDeleted && this.oid.equals(oid);
+	}
+
 	void afterModifyObject(String oid) {
 		if (notRelevant(oid)) {
 			return;
@@ -140,6 +148,11 @@ public class ConflictWatcherImpl implements ConflictWatcher {
 		}
 	}
 
+	@Override
+	public void setSkipModificationOnConflict(boolean skipModificationOnConflict) {
+		this.skipModificationOnConflict = skipModificationOnConflict;
+	}
+
 	@Override
 	public String toString() {
 		return "ConflictWatcherImpl{" +
@@ -25,8 +25,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
 
-import javax.xml.datatype.Duration;
 import javax.xml.datatype.XMLGregorianCalendar;
 
 import com.evolveum.midpoint.repo.sql.data.audit.*;
@@ -56,10 +56,12 @@ import com.evolveum.midpoint.repo.sql.util.DtoTranslationException;
 import com.evolveum.midpoint.repo.sql.util.GetObjectResult;
 import com.evolveum.midpoint.repo.sql.util.RUtil;
 import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.util.CleanupPolicyUtil;
 import com.evolveum.midpoint.task.api.Task;
 import com.evolveum.midpoint.util.DebugUtil;
 import com.evolveum.midpoint.util.Holder;
 import com.evolveum.midpoint.util.MiscUtil;
+import com.evolveum.midpoint.util.ParallelBatchProcessor;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.util.exception.SystemException;
 import com.evolveum.midpoint.util.logging.Trace;
@@ -76,6 +78,7 @@ public class SqlAuditServiceImpl extends SqlBaseService implements AuditService
 
 	private static final Trace LOGGER = TraceManager.getTrace(SqlAuditServiceImpl.class);
 	private static final Integer CLEANUP_AUDIT_BATCH_SIZE = 500;
+	private static final int CLEANUP_AUDIT_FETCH_SIZE = 10000;
 	
 	private static final String QUERY_MAX_RESULT = "setMaxResults"; 
 	private static final String QUERY_FIRST_RESULT = "setFirstResult";
@@ -358,68 +361,126 @@ public class SqlAuditServiceImpl extends SqlBaseService implements AuditService
 	}
 
 	@Override
-	public void cleanupAudit(CleanupPolicyType policy, OperationResult parentResult) {
+	public void cleanupAudit(CleanupPolicyType policy, Task task, OperationResult parentResult) {
 		Validate.notNull(policy, "Cleanup policy must not be null.");
 		Validate.notNull(parentResult, "Operation result must not be null.");
 
 		cleanupAuditMaxRecords(policy, parentResult);
-		cleanupAuditMaxAge(policy, parentResult);
+		cleanupAuditMaxAge(policy, task, parentResult);
 	}
 
-	private void cleanupAuditMaxAge(CleanupPolicyType policy, OperationResult parentResult) {
+	/**
+	 * Streams IDs of old records using keyset pagination (by record ID) and deletes them in batches - possibly in
+	 * more threads, throttled and/or limited by a time budget, according to the policy. Each batch is deleted in its
+	 * own transaction by set-based statements, dependent rows first. Stops when the task (if any) cannot run any more.
+	 */
+	private void cleanupAuditMaxAge(CleanupPolicyType policy, Task task, OperationResult parentResult) {
 
-		final String operation = "deletingMaxAge";
+		Date minValue = CleanupPolicyUtil.getDeleteUpTo(policy);
+		if (minValue == null) {
+			return;
+		}
 
 		SqlPerformanceMonitor pm = getPerformanceMonitor();
 		long opHandle = pm.registerOperationStart("cleanupAuditMaxAge");
-		int attempt = 1;
 
-		if (policy.getMaxAge() == null) {
-			return;
+		BooleanSupplier canRun = task != null ? task::canRun : () -> true;
+		ParallelBatchProcessor<Long> processor = CleanupPolicyUtil.createBatchProcessor("AuditCleanup", policy,
+				CLEANUP_AUDIT_BATCH_SIZE, canRun, this::deleteAuditRecords);
+		LOGGER.info("Starting audit cleanup, deleting up to {} (duration '{}'), batch size {}, threads {}.",
+				minValue, policy.getMaxAge(), policy.getBatchSize() != null ? policy.getBatchSize() : CLEANUP_AUDIT_BATCH_SIZE,
+				policy.getThreads() != null ? policy.getThreads() : 1);
+		ParallelBatchProcessor.Statistics statistics = null;
+		try {
+			Long lastId = null;
+main:		for (;;) {
+				List<Long> ids = selectRecordIdsByMaxAge(minValue, lastId, parentResult);
+				if (ids.isEmpty()) {
+					break;
+				}
+				for (Long id : ids) {
+					if (!processor.add(id)) {
+						break main;
+					}
+				}
+				lastId = ids.get(ids.size() - 1);
+			}
+		} catch (InterruptedException e) {
+			LOGGER.warn("Audit cleanup was interrupted");
+			Thread.currentThread().interrupt();
+		} finally {
+			try {
+				statistics = processor.finish();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				statistics = processor.getStatistics();
+			}
+			pm.registerOperationFinish(opHandle, 1);
+			LOGGER.info("Audit cleanup based on age finished: {}.", statistics);
+		}
+		if (statistics.getFailedBatches() > 0) {
+			parentResult.recordPartialError("Couldn't delete " + statistics.getFailedItems() + " audit record(s)",
+					statistics.getLastFailure());
 		}
+	}
 
-		Duration duration = policy.getMaxAge();
-		if (duration.getSign() > 0) {
-			duration = duration.negate();
+	// keyset pagination: the next page starts after the last ID seen, so deleted records don't shift the pages
+	private List<Long> selectRecordIdsByMaxAge(Date minValue, Long afterId, OperationResult result) {
+		Session session = null;
+		try {
+			session = baseHelper.beginReadOnlyTransaction();
+			Query query = session.createQuery("select a.id from RAuditEventRecord a where a.timestamp < :minValue"
+					+ (afterId != null ? " and a.id > :afterId" : "") + " order by a.id");
+			query.setParameter("minValue", new Timestamp(minValue.getTime()));
+			if (afterId != null) {
+				query.setParameter("afterId", afterId);
+			}
+			query.setMaxResults(CLEANUP_AUDIT_FETCH_SIZE);
+			@SuppressWarnings("unchecked")
+			List<Long> ids = query.list();
+			session.getTransaction().commit();
+			return ids;
+		} catch (RuntimeException ex) {
+			baseHelper.handleGeneralRuntimeException(ex, session, result);
+			throw new AssertionError("We shouldn't get here.");
+		} finally {
+			baseHelper.cleanupSessionAndResult(session, null);
 		}
-		Date minValue = new Date();
-		duration.addTo(minValue);
+	}
 
-		// factored out because it produces INFO-level message
-		Dialect dialect = Dialect.getDialect(baseHelper.getSessionFactoryBean().getHibernateProperties());
-		checkTemporaryTablesSupport(dialect);
+	// deletes one batch of records along with their dependent rows; retried on serialization-related problems
+	private int deleteAuditRecords(List<Long> ids) {
+		OperationResult result = new OperationResult(SqlAuditServiceImpl.class.getName() + ".deleteAuditRecords");
+		int attempt = 1;
+		for (;;) {
+			try {
+				return deleteAuditRecordsAttempt(ids, result);
+			} catch (RuntimeException ex) {
+				attempt = baseHelper.logOperationAttempt(null, "deletingMaxAge", attempt, ex, result);
+			}
+		}
+	}
 
-		long start = System.currentTimeMillis();
-		boolean first = true;
-		Holder<Integer> totalCountHolder = new Holder<>(0);
+	private int deleteAuditRecordsAttempt(List<Long> ids, OperationResult result) {
+		Session session = null;
 		try {
-			while (true) {
-				try {
-					LOGGER.info("{} audit cleanup, deleting up to {} (duration '{}'), batch size {}{}.",
-							first ? "Starting" : "Continuing with ", minValue, duration, CLEANUP_AUDIT_BATCH_SIZE,
-							first ? "" : ", up to now deleted " + totalCountHolder.getValue() + " entries");
-					first = false;
-					int count;
-					do {
-						// the following method may restart due to concurrency
-						// (or any other) problem - in any iteration
-						long batchStart = System.currentTimeMillis();
-						LOGGER.debug(
-								"Starting audit cleanup batch, deleting up to {} (duration '{}'), batch size {}, up to now deleted {} entries.",
-								minValue, duration, CLEANUP_AUDIT_BATCH_SIZE, totalCountHolder.getValue());
-						count = batchDeletionAttempt((session, tempTable) -> selectRecordsByMaxAge(session, tempTable, minValue, dialect),
-								totalCountHolder, batchStart, dialect, parentResult);
-					} while (count > 0);
-					return;
-				} catch (RuntimeException ex) {
-					attempt = baseHelper.logOperationAttempt(null, operation, attempt, ex, parentResult);
-					pm.registerOperationNewAttempt(opHandle, attempt);
-				}
+			session = baseHelper.beginTransaction();
+			for (String dependentTable : new String[] { RAuditItem.TABLE_NAME, RObjectDeltaOperation.TABLE_NAME,
+					RAuditPropertyValue.TABLE_NAME, RAuditReferenceValue.TABLE_NAME }) {
+				session.createSQLQuery("delete from " + dependentTable + " where " + RAuditItem.COLUMN_RECORD_ID + " in (:ids)")
+						.setParameterList("ids", ids)
+						.executeUpdate();
 			}
+			int count = session.createSQLQuery("delete from " + RAuditEventRecord.TABLE_NAME + " where id in (:ids)")
+					.setParameterList("ids", ids)
+					.executeUpdate();
+			session.getTransaction().commit();
+			return count;
+		} catch (RuntimeException ex) {
+			baseHelper.handleGeneralRuntimeException(ex, session, result);
+			throw new AssertionError("We shouldn't get here.");
 		} finally {
-			pm.registerOperationFinish(opHandle, attempt);
-			LOGGER.info("Audit cleanup based on age finished; deleted {} entries in {} seconds.",
-					totalCountHolder.getValue(), (System.currentTimeMillis() - start) / 1000L);
+			baseHelper.cleanupSessionAndResult(session, null);
 		}
 	}
 
@@ -538,37 +599,6 @@ public class SqlAuditServiceImpl extends SqlBaseService implements AuditService
 		}
 	}
 
-	private int selectRecordsByMaxAge(Session session, String tempTable, Date minValue, Dialect dialect) {
-
-		// fill temporary table, we don't need to join task on object on
-		// container, oid and id is already in task table
-		StringBuilder selectSB = new StringBuilder();
-		selectSB.append("select a.id as id from ").append(RAuditEventRecord.TABLE_NAME).append(" a");
-		selectSB.append(" where a.").append(RAuditEventRecord.COLUMN_TIMESTAMP).append(" < ###TIME###");
-		String selectString = selectSB.toString();
-
-		// batch size
-		RowSelection rowSelection = new RowSelection();
-		rowSelection.setMaxRows(CLEANUP_AUDIT_BATCH_SIZE);
-		LimitHandler limitHandler = dialect.buildLimitHandler(selectString, rowSelection);
-		selectString = limitHandler.getProcessedSql();
-
-		// replace ? -> batch size, $ -> ?
-		// Sorry for that .... I just don't know how to write this query in HQL,
-		// nor I'm not sure if limiting max size in
-		// compound insert into ... select ... query via query.setMaxSize()
-		// would work - TODO write more nicely if anybody knows how)
-		selectString = selectString.replace("?", String.valueOf(CLEANUP_AUDIT_BATCH_SIZE));
-		selectString = selectString.replace("###TIME###", "?");
-
-		String queryString = "insert into " + tempTable + " " + selectString;
-		LOGGER.trace("Query string = {}", queryString);
-		SQLQuery query = session.createSQLQuery(queryString);
-		query.setParameter(0, new Timestamp(minValue.getTime()));
-
-		return query.executeUpdate();
-	}
-
 	private int selectRecordsByNumberToKeep(Session session, String tempTable, Integer recordsToKeep, Dialect dialect) {
 		Number totalAuditRecords = (Number) session.createCriteria(RAuditEventRecord.class)
 				.setProjection(Projections.rowCount())
@@ -419,6 +419,10 @@ public class SqlRepositoryServiceImpl extends SqlBaseService implements Reposito
 	    emptyIfNull(conflictWatchersThreadLocal.get()).forEach(consumer);
     }
 
+    public boolean isModificationToBeSkipped(String oid) {
+	    return emptyIfNull(conflictWatchersThreadLocal.get()).stream().anyMatch(w -> w.isModificationToBeSkipped(oid));
+    }
+
     private void validateName(PrismObject object) throws SchemaException {
         PrismProperty name = object.findProperty(ObjectType.F_NAME);
         if (name == null || ((PolyString) name.getRealValue()).isEmpty()) {
@@ -468,6 +472,29 @@ public class SqlRepositoryServiceImpl extends SqlBaseService implements Reposito
                 () -> 0,
                 (q) -> objectRetriever.countObjectsAttempt(type, q, options, subResult));
     }
+
+    @NotNull
+    @Override
+    public <T extends ObjectType> SearchResultList<AggregationResult> aggregateObjects(Class<T> type, ObjectQuery query,
+            @NotNull AggregationQuery aggregation, OperationResult result) throws SchemaException {
+        Validate.notNull(type, "Object type must not be null.");
+        Validate.notNull(result, "Operation result must not be null.");
+
+        LOGGER.debug("Aggregating objects of type '{}', query and aggregation (on trace level).", type.getSimpleName());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("Full query\n{}\nAggregation\n{}", query == null ? "undefined" : query.debugDump(),
+                    aggregation.debugDump());
+        }
+
+        OperationResult subResult = result.createSubresult(AGGREGATE_OBJECTS);
+        subResult.addParam("type", type.getName());
+        subResult.addParam("query", query);
+        subResult.addParam("aggregation", aggregation.toString());
+
+        return executeAttempts(query, "aggregateObjects", "aggregating", subResult,
+                () -> new SearchResultList<>(new ArrayList<AggregationResult>(0)),
+                (q) -> objectRetriever.aggregateObjectsAttempt(type, q, aggregation, subResult));
+    }
     
     @Override
     public <T extends ObjectType> void modifyObject(Class<T> type, String oid,
@@ -1064,6 +1091,7 @@ public class SqlRepositoryServiceImpl extends SqlBaseService implements Reposito
 		}
 		applyFullTextSearchConfiguration(systemConfiguration.getFullTextSearch());
         SystemConfigurationTypeUtil.applyOperationResultHandling(systemConfiguration);
+        SystemConfigurationTypeUtil.applyPolyStringNormalizerConfiguration(systemConfiguration);
 	}
 
     @Override
@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.midpoint.repo.sql.helpers;
+
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.delta.ItemDelta;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.repo.api.RepositoryService;
+import com.evolveum.midpoint.repo.sql.data.common.RObject;
+import com.evolveum.midpoint.repo.sql.query.QueryException;
+import com.evolveum.midpoint.repo.sql.query2.QueryDefinitionRegistry2;
+import com.evolveum.midpoint.repo.sql.query2.definition.*;
+import com.evolveum.midpoint.repo.sql.query2.resolution.DataSearchResult;
+import com.evolveum.midpoint.schema.util.FullTextSearchConfigurationUtil;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.FullTextSearchConfigurationType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.Mapping;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.type.CompositeType;
+import org.hibernate.type.Type;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Updates an object in place, i.e. without merging the whole RObject graph into the session.
+ *
+ * Merging a detached RObject makes Hibernate load and compare all its collections (assignments, references,
+ * extension values, ...), even if the modification touches a single column. If we know that the modifications
+ * do not affect any data stored outside of the object tables (m_object, m_focus, m_user, ...), it is sufficient
+ * to rewrite the columns of these tables, i.e. to issue one UPDATE statement per table.
+ *
+ * Whether the modifications touch only such data is decided using the query definitions (the same ones that
+ * are used to translate queries): an item is stored in a separate table if it is mapped to a collection,
+ * to an extension ("any") container or to a separate entity. Items not mapped at all are stored only in the
+ * full object. Anything else (e.g. photo or full-text indexed items) goes the merge way.
+ *
+ * All column values are taken from the RObject created from the modified object, so the columns are written
+ * exactly as the merge would write them.
+ */
+@Component
+public class ObjectDeltaUpdater {
+
+	private static final Trace LOGGER = TraceManager.getTrace(ObjectDeltaUpdater.class);
+
+	@Autowired
+	@Qualifier("repositoryService")
+	private RepositoryService repositoryService;
+
+	@Autowired private BaseHelper baseHelper;
+	@Autowired private PrismContext prismContext;
+
+	private final Map<Class<?>, List<TableUpdate>> tableUpdates = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns true if the modifications can be carried out by updating the object tables only.
+	 */
+	public <T extends ObjectType> boolean isApplicable(Class<T> type, Collection<? extends ItemDelta> modifications) {
+		try {
+			JpaEntityDefinition entityDefinition = QueryDefinitionRegistry2.getInstance().findEntityDefinition(type);
+			Set<ItemPath> fullTextPaths = getFullTextSearchItemPaths(type);
+			for (ItemDelta<?, ?> modification : modifications) {
+				ItemPath path = modification.getPath();
+				if (ItemPath.isNullOrEmpty(path) || isFullTextIndexed(path, fullTextPaths)
+						|| affectsSeparateTables(entityDefinition, path)) {
+					LOGGER.trace("Modification of {} in {} requires merging the object", path, type.getSimpleName());
+					return false;
+				}
+			}
+			return true;
+		} catch (QueryException | RuntimeException e) {
+			LOGGER.debug("Couldn't determine whether modifications of {} can be applied in place, using merge: {}",
+					type.getSimpleName(), e.getMessage(), e);
+			return false;
+		}
+	}
+
+	private boolean affectsSeparateTables(JpaEntityDefinition entityDefinition, ItemPath path) throws QueryException {
+		JpaDataNodeDefinition current = entityDefinition;
+		ItemPath remainder = path;
+		while (!ItemPath.isNullOrEmpty(remainder)) {
+			DataSearchResult<?> result = current.nextLinkDefinition(remainder, null, prismContext);
+			if (result == null) {
+				// The rest of the path is not mapped here. But it can be a prefix of a (multi-segment) mapped path.
+				return current instanceof JpaEntityDefinition && hasSeparatelyStoredLinkUnder((JpaEntityDefinition) current, remainder);
+			}
+			JpaLinkDefinition<?> link = result.getLinkDefinition();
+			if (isStoredSeparately(link)) {
+				return true;
+			}
+			current = link.getTargetDefinition();
+			remainder = result.getRemainder();
+		}
+		return containsSeparatelyStoredData(current);
+	}
+
+	private boolean hasSeparatelyStoredLinkUnder(JpaEntityDefinition entityDefinition, ItemPath prefix) {
+		for (JpaLinkDefinition<?> link : entityDefinition.getDefinitions()) {
+			if (link.getItemPath().startsWith(prefix)
+					&& (isStoredSeparately(link) || containsSeparatelyStoredData(link.getTargetDefinition()))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean containsSeparatelyStoredData(JpaDataNodeDefinition definition) {
+		if (definition instanceof JpaAnyContainerDefinition) {
+			return true;
+		} else if (definition instanceof JpaEntityDefinition) {
+			for (JpaLinkDefinition<?> link : ((JpaEntityDefinition) definition).getDefinitions()) {
+				if (isStoredSeparately(link) || containsSeparatelyStoredData(link.getTargetDefinition())) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private boolean isStoredSeparately(JpaLinkDefinition<?> link) {
+		JpaDataNodeDefinition target = link.getTargetDefinition();
+		return link.isMultivalued()
+				|| target instanceof JpaAnyContainerDefinition
+				|| link.hasJpaRepresentation() && !link.isEmbedded() && !(target instanceof JpaPropertyDefinition);
+	}
+
+	private Set<ItemPath> getFullTextSearchItemPaths(Class<? extends ObjectType> type) {
+		FullTextSearchConfigurationType config = repositoryService.getFullTextSearchConfiguration();
+		if (FullTextSearchConfigurationUtil.isEnabled(config)) {
+			return FullTextSearchConfigurationUtil.getFullTextSearchItemPaths(config, type);
+		} else {
+			return Collections.emptySet();
+		}
+	}
+
+	private boolean isFullTextIndexed(ItemPath path, Set<ItemPath> fullTextPaths) {
+		for (ItemPath fullTextPath : fullTextPaths) {
+			if (path.isSubPathOrEquivalent(fullTextPath) || fullTextPath.isSubPathOrEquivalent(path)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Writes all the (updatable) columns of the object tables. Collections are not touched.
+	 */
+	public void updateObjectTables(Session session, RObject<?> rObject) {
+		AbstractEntityPersister persister = getPersister(rObject.getClass());
+		SessionImplementor sessionImplementor = (SessionImplementor) session;
+		Object[] values = persister.getPropertyValues(rObject);
+		String oid = rObject.getOid();
+		session.doWork(connection -> {
+			for (TableUpdate update : getTableUpdates(rObject.getClass())) {
+				try (PreparedStatement statement = connection.prepareStatement(update.sql)) {
+					int index = 1;
+					for (ColumnGroup group : update.groups) {
+						group.type.nullSafeSet(statement, values[group.propertyIndex], index, group.settable, sessionImplementor);
+						index += group.settableCount;
+					}
+					statement.setString(index, oid);
+					int rows = statement.executeUpdate();
+					if (rows != 1) {
+						throw new IllegalStateException("Expected to update one row in " + update.table + " for " + oid
+								+ ", updated " + rows + " instead");
+					}
+				}
+			}
+		});
+	}
+
+	private AbstractEntityPersister getPersister(Class<?> rClass) {
+		return (AbstractEntityPersister) baseHelper.getSessionFactory().getClassMetadata(rClass);
+	}
+
+	private List<TableUpdate> getTableUpdates(Class<?> rClass) {
+		return tableUpdates.computeIfAbsent(rClass, this::createTableUpdates);
+	}
+
+	private List<TableUpdate> createTableUpdates(Class<?> rClass) {
+		AbstractEntityPersister persister = getPersister(rClass);
+		Mapping mapping = (Mapping) baseHelper.getSessionFactory();
+		String[] propertyNames = persister.getPropertyNames();
+		Type[] propertyTypes = persister.getPropertyTypes();
+		boolean[] updatable = persister.getPropertyUpdateability();
+		String keyColumn = persister.getIdentifierColumnNames()[0];		// the same in all tables of the hierarchy
+
+		Map<String, TableUpdate> updates = new LinkedHashMap<>();
+		for (int i = 0; i < propertyNames.length; i++) {
+			Type type = propertyTypes[i];
+			if (!updatable[i] || type.isAssociationType()) {
+				continue;		// collections and other entities are not touched
+			}
+			boolean[] settable = getSettableColumns(type, mapping);
+			String[] columns = persister.getPropertyColumnNames(propertyNames[i]);
+			if (columns.length != settable.length) {
+				throw new IllegalStateException("Column count mismatch for " + rClass.getSimpleName() + "." + propertyNames[i]);
+			}
+			String table = persister.getPropertyTableName(propertyNames[i]);
+			TableUpdate update = updates.computeIfAbsent(table, TableUpdate::new);
+			update.groups.add(new ColumnGroup(i, type, settable));
+			for (int c = 0; c < columns.length; c++) {
+				if (settable[c]) {
+					if (columns[c] == null) {
+						throw new IllegalStateException("Formula-based property " + rClass.getSimpleName() + "." + propertyNames[i]);
+					}
+					update.columns.add(columns[c]);
+				}
+			}
+		}
+		List<TableUpdate> rv = new ArrayList<>();
+		for (TableUpdate update : updates.values()) {
+			if (!update.columns.isEmpty()) {
+				update.createSql(keyColumn);
+				rv.add(update);
+			}
+		}
+		LOGGER.debug("Created in-place updates for {}: {}", rClass.getSimpleName(), rv);
+		return rv;
+	}
+
+	// associations embedded in components (e.g. target of an embedded reference) are read-only
+	private boolean[] getSettableColumns(Type type, Mapping mapping) {
+		boolean[] settable = new boolean[type.getColumnSpan(mapping)];
+		if (type.isComponentType()) {
+			int position = 0;
+			for (Type subtype : ((CompositeType) type).getSubtypes()) {
+				boolean[] subSettable = getSettableColumns(subtype, mapping);
+				System.arraycopy(subSettable, 0, settable, position, subSettable.length);
+				position += subSettable.length;
+			}
+		} else {
+			Arrays.fill(settable, !type.isAssociationType());
+		}
+		return settable;
+	}
+
+	private static class TableUpdate {
+		private final String table;
+		private final List<String> columns = new ArrayList<>();
+		private final List<ColumnGroup> groups = new ArrayList<>();
+		private String sql;
+
+		private TableUpdate(String table) {
+			this.table = table;
+		}
+
+		private void createSql(String keyColumn) {
+			StringBuilder sb = new StringBuilder("update ").append(table).append(" set ");
+			for (int i = 0; i < columns.size(); i++) {
+				if (i > 0) {
+					sb.append(", ");
+				}
+				sb.append(columns.get(i)).append(" = ?");
+			}
+			sb.append(" where ").append(keyColumn).append(" = ?");
+			sql = sb.toString();
+		}
+
+		@Override
+		public String toString() {
+			return sql;
+		}
+	}
+
+	private static class ColumnGroup {
+		private final int propertyIndex;
+		private final Type type;
+		private final boolean[] settable;
+		private final int settableCount;
+
+		private ColumnGroup(int propertyIndex, Type type, boolean[] settable) {
+			this.propertyIndex = propertyIndex;
+			this.type = type;
+			this.settable = settable;
+			int count = 0;
+			for (boolean b : settable) {
+				if (b) {
+					count++;
+				}
+			}
+			this.settableCount = count;
+		}
+	}
+}
@@ -21,6 +21,7 @@ import com.evolveum.midpoint.prism.*;
 import com.evolveum.midpoint.prism.marshaller.XNodeProcessorEvaluationMode;
 import com.evolveum.midpoint.prism.query.ObjectPaging;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
 import com.evolveum.midpoint.repo.api.RepositoryObjectDiagnosticData;
 import com.evolveum.midpoint.repo.api.RepositoryService;
 import com.evolveum.midpoint.repo.sql.ObjectPagingAfterOid;
@@ -29,6 +30,7 @@ import com.evolveum.midpoint.repo.sql.SqlRepositoryServiceImpl;
 import com.evolveum.midpoint.repo.sql.data.common.RObject;
 import com.evolveum.midpoint.repo.sql.data.common.any.RAnyValue;
 import com.evolveum.midpoint.repo.sql.data.common.any.RValueType;
+import com.evolveum.midpoint.repo.sql.data.common.enums.SchemaEnum;
 import com.evolveum.midpoint.repo.sql.data.common.type.RObjectExtensionType;
 import com.evolveum.midpoint.repo.sql.query.QueryException;
 import com.evolveum.midpoint.repo.sql.query.RQuery;
@@ -382,18 +384,70 @@ public class ObjectRetriever {
         }
     }
 
+	public <T extends ObjectType> SearchResultList<AggregationResult> aggregateObjectsAttempt(Class<T> type, ObjectQuery query,
+			AggregationQuery aggregation, OperationResult result) {
+		LOGGER_PERFORMANCE.debug("> aggregate objects {}", type.getSimpleName());
+		Session session = null;
+		try {
+			session = baseHelper.beginReadOnlyTransaction();
+
+			List<Class<?>> columnJaxbTypes = new ArrayList<>();
+			QueryEngine2 engine = new QueryEngine2(getConfiguration(), prismContext);
+			RQuery rQuery = engine.interpretAggregation(query, type, aggregation, columnJaxbTypes, session);
+
+			List<?> queryResult = rQuery.list();
+			LOGGER.trace("Found {} groups.", queryResult.size());
+
+			int groups = aggregation.getGroupBy().size();
+			List<AggregationResult> list = new ArrayList<>(queryResult.size());
+			for (Object row : queryResult) {
+				Object[] columns = row instanceof Object[] ? (Object[]) row : new Object[] { row };
+				List<Object> groupValues = new ArrayList<>(groups);
+				List<Object> aggregateValues = new ArrayList<>(columns.length - groups);
+				for (int i = 0; i < columns.length; i++) {
+					Object value = fromRepoAggregationValue(columns[i], columnJaxbTypes.get(i));
+					(i < groups ? groupValues : aggregateValues).add(value);
+				}
+				list.add(new AggregationResult(groupValues, aggregateValues));
+			}
+			session.getTransaction().commit();
+			return new SearchResultList<>(list);
+		} catch (QueryException | RuntimeException ex) {
+			baseHelper.handleGeneralException(ex, session, result);
+			throw new IllegalStateException("shouldn't get here");
+		} finally {
+			baseHelper.cleanupSessionAndResult(session, result);
+		}
+	}
+
+	private Object fromRepoAggregationValue(Object value, Class<?> jaxbType) {
+		if (value == null) {
+			return null;
+		} else if (QName.class.equals(jaxbType) && value instanceof String) {
+			return RUtil.stringToQName((String) value);
+		} else if (value instanceof SchemaEnum) {
+			return ((SchemaEnum) value).getSchemaValue();
+		} else if (value instanceof Date) {
+			return XmlTypeConverter.createXMLGregorianCalendar((Date) value);
+		} else {
+			return value;
+		}
+	}
+
 	@NotNull
 	private <T extends ObjectType> List<PrismObject<T>> queryResultToPrismObjects(List<GetObjectResult> objects, Class<T> type,
 			Collection<SelectorOptions<GetOperationOptions>> options,
 			Session session, OperationResult result) throws SchemaException {
 		List<PrismObject<T>> rv = new ArrayList<>();
+		List<PrismContainerValue<T>> loadedValues = new ArrayList<>();
 		if (objects != null) {
 			for (GetObjectResult object : objects) {
 				String oid = object.getOid();
 				Holder<PrismObject<T>> partialValueHolder = new Holder<>();
 				PrismObject<T> prismObject;
 				try {
-					prismObject = updateLoadedObject(object, type, oid, options, partialValueHolder, session, result);
+					prismObject = updateLoadedObject(object, type, oid, options, partialValueHolder, false, session, result);
+					loadedValues.add(prismObject.getValue());
 				} catch (Throwable t) {
 					if (!partialValueHolder.isEmpty()) {
 						prismObject = partialValueHolder.getValue();
@@ -408,6 +462,8 @@ public class ObjectRetriever {
 				rv.add(prismObject);
 			}
 		}
+		// names are resolved for the whole page at once, using as few queries as possible
+		nameResolutionHelper.resolveNamesIfRequested(session, loadedValues, options);
 		return rv;
 	}
 
@@ -474,6 +530,16 @@ public class ObjectRetriever {
     		String oid, Collection<SelectorOptions<GetOperationOptions>> options,
 			Holder<PrismObject<T>> partialValueHolder,
 			Session session, OperationResult operationResult) throws SchemaException {
+		return updateLoadedObject(result, type, oid, options, partialValueHolder, true, session, operationResult);
+	}
+
+	/**
+	 * @param resolveNames false if the caller resolves names itself (e.g. for more objects at once)
+	 */
+    private <T extends ObjectType> PrismObject<T> updateLoadedObject(GetObjectResult result, Class<T> type,
+    		String oid, Collection<SelectorOptions<GetOperationOptions>> options,
+			Holder<PrismObject<T>> partialValueHolder, boolean resolveNames,
+			Session session, OperationResult operationResult) throws SchemaException {
 
 		byte[] fullObject = result.getFullObject();
 		String xml = RUtil.getXmlFromByteArray(fullObject, getConfiguration().isUseZip());
@@ -534,7 +600,9 @@ public class ObjectRetriever {
         if (partialValueHolder != null) {
         	partialValueHolder.setValue(prismObject);
 		}
-        nameResolutionHelper.resolveNamesIfRequested(session, prismObject.getValue(), options);
+        if (resolveNames) {
+			nameResolutionHelper.resolveNamesIfRequested(session, prismObject.getValue(), options);
+		}
         validateObjectType(prismObject, type);
 
         ObjectTypeUtil.normalizeAllRelations(prismObject);
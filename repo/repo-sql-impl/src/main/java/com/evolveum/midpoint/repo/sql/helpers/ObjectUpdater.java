@@ -97,6 +97,9 @@ public class ObjectUpdater {
     @Autowired
     private OrgClosureManager closureManager;
 
+    @Autowired
+    private ObjectDeltaUpdater objectDeltaUpdater;
+
     @Autowired
     private PrismContext prismContext;
 
@@ -390,6 +393,12 @@ public class ObjectUpdater {
                 // get object
                 PrismObject<T> prismObject = objectRetriever.getObjectInternal(session, type, oid, options, true, result);
 	            sqlRepositoryService.invokeConflictWatchers(w -> w.beforeModifyObject(prismObject));
+	            if (sqlRepositoryService.isModificationToBeSkipped(oid)) {
+		            LOGGER.debug("Object {} was changed since the version expected by the conflict watcher, not modifying it", oid);
+		            baseHelper.rollbackTransaction(session, null, result, false);
+		            result.recordNotApplicableIfUnknown();
+		            return;
+	            }
                 // apply diff
 				LOGGER.trace("OBJECT before:\n{}", prismObject.debugDumpLazily());
                 PrismObject<T> originalObject = null;
@@ -409,8 +418,14 @@ public class ObjectUpdater {
                 rObject.setVersion(rObject.getVersion() + 1);
 
                 updateFullObject(rObject, prismObject);
-                LOGGER.trace("Starting merge.");
-                session.merge(rObject);
+                if (!containsFocusPhotoModification && objectDeltaUpdater.isApplicable(type, modifications)) {
+                    // no collections are affected, so there's no need to let Hibernate load and compare them
+                    LOGGER.trace("Updating object tables in place.");
+                    objectDeltaUpdater.updateObjectTables(session, rObject);
+                } else {
+                    LOGGER.trace("Starting merge.");
+                    session.merge(rObject);
+                }
                 if (closureManager.isEnabled()) {
                     closureManager.updateOrgClosure(originalObject, modifications, session, oid, type, OrgClosureManager.Operation.MODIFY, closureContext);
                 }
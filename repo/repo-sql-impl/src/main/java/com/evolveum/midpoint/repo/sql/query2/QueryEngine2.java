@@ -23,11 +23,13 @@ import com.evolveum.midpoint.repo.sql.SqlRepositoryConfiguration;
 import com.evolveum.midpoint.repo.sql.query.QueryException;
 import com.evolveum.midpoint.repo.sql.query.RQuery;
 import com.evolveum.midpoint.repo.sql.query2.hqm.RootHibernateQuery;
+import com.evolveum.midpoint.schema.AggregationQuery;
 import com.evolveum.midpoint.schema.GetOperationOptions;
 import com.evolveum.midpoint.schema.SelectorOptions;
 import org.hibernate.Session;
 
 import java.util.Collection;
+import java.util.List;
 
 /**
  * @author lazyman
@@ -51,4 +53,14 @@ public class QueryEngine2 {
 
         return new RQueryImpl(hibernateQuery.getAsHqlQuery(session), hibernateQuery);
     }
+
+    public RQuery interpretAggregation(ObjectQuery query, Class<? extends Containerable> type,
+            AggregationQuery aggregation, List<Class<?>> columnJaxbTypes, Session session) throws QueryException {
+
+        QueryInterpreter2 interpreter = new QueryInterpreter2(repoConfiguration);
+        RootHibernateQuery hibernateQuery = interpreter.interpretAggregation(query, type, aggregation, prismContext,
+                session, columnJaxbTypes);
+
+        return new RQueryImpl(hibernateQuery.getAsHqlQuery(session), hibernateQuery);
+    }
 }
@@ -24,10 +24,13 @@ import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.prism.query.*;
 import com.evolveum.midpoint.repo.sql.ObjectPagingAfterOid;
 import com.evolveum.midpoint.repo.sql.SqlRepositoryConfiguration;
+import com.evolveum.midpoint.repo.sql.data.common.RObjectReference;
+import com.evolveum.midpoint.repo.sql.data.common.any.ROExtReference;
 import com.evolveum.midpoint.repo.sql.data.common.embedded.RPolyString;
 import com.evolveum.midpoint.repo.sql.query.QueryException;
 import com.evolveum.midpoint.repo.sql.query2.definition.*;
 import com.evolveum.midpoint.repo.sql.query2.hqm.CountProjectionElement;
+import com.evolveum.midpoint.repo.sql.query2.hqm.GenericProjectionElement;
 import com.evolveum.midpoint.repo.sql.query2.hqm.RootHibernateQuery;
 import com.evolveum.midpoint.repo.sql.query2.hqm.condition.Condition;
 import com.evolveum.midpoint.repo.sql.query2.matcher.DefaultMatcher;
@@ -40,17 +43,21 @@ import com.evolveum.midpoint.repo.sql.query2.restriction.*;
 import com.evolveum.midpoint.repo.sql.util.GetCertificationWorkItemResult;
 import com.evolveum.midpoint.repo.sql.util.GetContainerableResult;
 import com.evolveum.midpoint.repo.sql.util.GetObjectResult;
+import com.evolveum.midpoint.repo.sql.util.RUtil;
 import com.evolveum.midpoint.repo.sql.util.ResultStyle;
+import com.evolveum.midpoint.schema.AggregationQuery;
 import com.evolveum.midpoint.schema.GetOperationOptions;
 import com.evolveum.midpoint.schema.SelectorOptions;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.AccessCertificationCaseType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.AccessCertificationWorkItemType;
+import com.evolveum.prism.xml.ns._public.types_3.PolyStringType;
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.Session;
 import org.jetbrains.annotations.NotNull;
 
+import javax.xml.namespace.QName;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -181,6 +188,170 @@ public class QueryInterpreter2 {
 		}
     }
 
+	/**
+	 * Creates a query that groups objects selected by the query and computes aggregate values for each group.
+	 * The columns of the result are: grouping items (in the order of specification), then the aggregates.
+	 *
+	 * @param columnJaxbTypes Filled-in with a JAXB type for each result column that needs conversion from the
+	 *                        repository form (e.g. QName), or null if no conversion is needed.
+	 */
+	public RootHibernateQuery interpretAggregation(ObjectQuery query, @NotNull Class<? extends Containerable> type,
+			@NotNull AggregationQuery aggregation, @NotNull PrismContext prismContext, @NotNull Session session,
+			@NotNull List<Class<?>> columnJaxbTypes) throws QueryException {
+		LOGGER.trace("Interpreting aggregation for type '{}', query:\n{}\naggregation:\n{}", type, query, aggregation);
+		if (aggregation.getGroupBy().isEmpty() && aggregation.getAggregates().isEmpty()) {
+			throw new QueryException("Nothing to group by nor to aggregate");
+		}
+
+		InterpretationContext context = new InterpretationContext(this, type, prismContext, session);
+		interpretQueryFilter(context, query);
+		RootHibernateQuery hibernateQuery = context.getHibernateQuery();
+
+		List<String> groupingPaths = new ArrayList<>();
+		for (AggregationQuery.AggregationItem item : aggregation.getGroupBy()) {
+			String hqlPath = resolveAggregationItem(context, item, columnJaxbTypes);
+			groupingPaths.add(hqlPath);
+			hibernateQuery.addProjectionElement(new GenericProjectionElement(hqlPath));
+			hibernateQuery.addGrouping(hqlPath);
+		}
+		// the same aggregate can be used in projection, having and ordering; we don't want to create separate joins for them
+		Map<AggregationQuery.Aggregate, String> aggregateTexts = new HashMap<>();
+		for (AggregationQuery.Aggregate aggregate : aggregation.getAggregates()) {
+			String text = getAggregateText(context, aggregate, aggregateTexts, columnJaxbTypes);
+			hibernateQuery.addProjectionElement(new GenericProjectionElement(text));
+		}
+		for (AggregationQuery.HavingCondition having : aggregation.getHaving()) {
+			String text = getAggregateText(context, having.getAggregate(), aggregateTexts, null);
+			Object value = having.getValue();
+			if (having.getAggregate().getFunction() == AggregationQuery.Function.COUNT) {
+				if (!(value instanceof Number)) {
+					throw new QueryException("Count can be compared only to a number, not to " + value);
+				}
+				value = ((Number) value).longValue();
+			} else {
+				value = toRepoAggregationValue(value);
+			}
+			String parameterName = hibernateQuery.addParameter("having", value);
+			hibernateQuery.addHavingCondition(text + " " + having.getComparison().getOperator() + " :" + parameterName);
+		}
+		for (AggregationQuery.AggregateOrdering ordering : aggregation.getOrdering()) {
+			String text = getAggregateText(context, ordering.getAggregate(), aggregateTexts, null);
+			hibernateQuery.addOrdering(text, ordering.getDirection());
+		}
+		for (String groupingPath : groupingPaths) {
+			hibernateQuery.addOrdering(groupingPath, OrderDirection.ASCENDING);
+		}
+
+		if (query != null && query.getPaging() != null) {
+			ObjectPaging paging = query.getPaging();
+			if (paging.getOffset() != null) {
+				hibernateQuery.setFirstResult(paging.getOffset());
+			}
+			if (paging.getMaxSize() != null) {
+				hibernateQuery.setMaxResults(paging.getMaxSize());
+			}
+		}
+		return hibernateQuery;
+	}
+
+	private String getAggregateText(InterpretationContext context, AggregationQuery.Aggregate aggregate,
+			Map<AggregationQuery.Aggregate, String> aggregateTexts, List<Class<?>> columnJaxbTypes) throws QueryException {
+		String existing = aggregateTexts.get(aggregate);
+		if (existing != null) {
+			if (columnJaxbTypes != null) {
+				columnJaxbTypes.add(getJaxbTypeForAggregate(context, aggregate));
+			}
+			return existing;
+		}
+		String text;
+		switch (aggregate.getFunction()) {
+			case COUNT:
+				// distinct, because joins (from filters or grouping items) can multiply the rows of a single object
+				String rootAlias = context.getPrimaryEntityAlias();
+				text = "count(distinct " + getResultStyle(context).getCountString(rootAlias) + ")";
+				if (columnJaxbTypes != null) {
+					columnJaxbTypes.add(null);
+				}
+				break;
+			case MIN:
+			case MAX:
+				List<Class<?>> types = new ArrayList<>();
+				String hqlPath = resolveAggregationItem(context, aggregate.getItem(), types);
+				text = aggregate.getFunction().name().toLowerCase() + "(" + hqlPath + ")";
+				if (columnJaxbTypes != null) {
+					columnJaxbTypes.addAll(types);
+				}
+				break;
+			default:
+				throw new IllegalStateException("Unknown aggregate function: " + aggregate.getFunction());
+		}
+		aggregateTexts.put(aggregate, text);
+		return text;
+	}
+
+	private Class<?> getJaxbTypeForAggregate(InterpretationContext context, AggregationQuery.Aggregate aggregate) throws QueryException {
+		if (aggregate.getItem() == null) {
+			return null;
+		}
+		ProperDataSearchResult<JpaDataNodeDefinition> result = findAggregationItemDefinition(context, aggregate.getItem());
+		return getJaxbTypeForColumn(result.getLinkDefinition().getTargetDefinition());
+	}
+
+	private String resolveAggregationItem(InterpretationContext context, AggregationQuery.AggregationItem item,
+			List<Class<?>> columnJaxbTypes) throws QueryException {
+		ItemPath path = item.getPath();
+		ProperDataSearchResult<JpaDataNodeDefinition> result = findAggregationItemDefinition(context, item);
+		JpaDataNodeDefinition targetDefinition = result.getLinkDefinition().getTargetDefinition();
+		if (targetDefinition instanceof JpaEntityDefinition || targetDefinition instanceof JpaAnyContainerDefinition) {
+			throw new QueryException("Aggregation based on entity or container is not supported: " + path);
+		} else if (!(targetDefinition instanceof JpaReferenceDefinition) && !(targetDefinition instanceof JpaPropertyDefinition)) {
+			throw new IllegalStateException("Unknown item definition type: " + targetDefinition.getClass());
+		}
+
+		// multi-valued items are joined, so an object falls into the group of each of its values
+		String hqlPath = context.getItemPathResolver()
+				.resolveItemPath(path, item.getDefinition(), context.getPrimaryEntityAlias(), result.getEntityDefinition(), false)
+				.getHqlPath();
+		if (targetDefinition instanceof JpaAnyReferenceDefinition) {
+			hqlPath += "." + ROExtReference.F_TARGET_OID;
+		} else if (targetDefinition instanceof JpaReferenceDefinition) {
+			hqlPath += "." + RObjectReference.F_TARGET_OID;
+		} else if (RPolyString.class.equals(targetDefinition.getJpaClass())) {
+			hqlPath += ".orig";
+		}
+		columnJaxbTypes.add(getJaxbTypeForColumn(targetDefinition));
+		return hqlPath;
+	}
+
+	@NotNull
+	private ProperDataSearchResult<JpaDataNodeDefinition> findAggregationItemDefinition(InterpretationContext context,
+			AggregationQuery.AggregationItem item) throws QueryException {
+		ProperDataSearchResult<JpaDataNodeDefinition> result = context.getItemPathResolver().findProperDataDefinition(
+				context.getRootEntityDefinition(), item.getPath(), item.getDefinition(), JpaDataNodeDefinition.class,
+				context.getPrismContext());
+		if (result == null) {
+			throw new QueryException("Unknown path '" + item.getPath() + "', couldn't find definition for it");
+		}
+		return result;
+	}
+
+	private Class<?> getJaxbTypeForColumn(JpaDataNodeDefinition targetDefinition) {
+		return targetDefinition instanceof JpaPropertyDefinition && QName.class.equals(targetDefinition.getJaxbClass())
+				? QName.class : null;
+	}
+
+	private Object toRepoAggregationValue(Object value) {
+		if (value instanceof PolyString) {
+			return ((PolyString) value).getOrig();
+		} else if (value instanceof PolyStringType) {
+			return ((PolyStringType) value).getOrig();
+		} else if (value instanceof QName) {
+			return RUtil.qnameToString((QName) value);
+		} else {
+			return value;
+		}
+	}
+
 	private List<String> getOrderingAttributes(InterpretationContext context) {
 		return context.getHibernateQuery().getOrderingList().stream().map(o -> o.getByProperty()).collect(Collectors.toList());
 	}
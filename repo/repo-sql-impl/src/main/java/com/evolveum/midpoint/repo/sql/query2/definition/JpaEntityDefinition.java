@@ -33,6 +33,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -61,6 +62,10 @@ public class JpaEntityDefinition extends JpaDataNodeDefinition implements DebugD
         definitions.add(definition);
     }
 
+    public List<JpaLinkDefinition> getDefinitions() {
+        return Collections.unmodifiableList(definitions);
+    }
+
     public void sortDefinitions() {
         definitions.sort(new LinkDefinitionComparator());
     }
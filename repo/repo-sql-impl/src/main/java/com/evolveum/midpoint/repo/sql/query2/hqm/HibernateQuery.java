@@ -23,6 +23,7 @@ import com.evolveum.midpoint.repo.sql.query2.definition.JpaEntityDefinition;
 import com.evolveum.midpoint.repo.sql.query2.definition.JpaLinkDefinition;
 import com.evolveum.midpoint.repo.sql.query2.hqm.condition.Condition;
 import com.evolveum.midpoint.repo.sql.util.ClassMapper;
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.Validate;
 import org.jetbrains.annotations.NotNull;
 
@@ -80,6 +81,16 @@ public abstract class HibernateQuery {
 
     private List<Ordering> orderingList = new ArrayList<>();
 
+    /**
+     * Items in the "group by" clause (used for aggregation queries).
+     */
+    private List<String> groupingList = new ArrayList<>();
+
+    /**
+     * Conditions in the "having" clause. They are to be interpreted as a conjunction.
+     */
+    private List<String> havingConditions = new ArrayList<>();
+
     public HibernateQuery(@NotNull JpaEntityDefinition primaryEntityDef) {
         primaryEntity = createItemSpecification(primaryEntityDef);
     }
@@ -140,6 +151,18 @@ public abstract class HibernateQuery {
             sb.append("where\n");
             Condition.dumpToHql(sb, conditions, indent+1);
         }
+        if (!groupingList.isEmpty()) {
+            sb.append("\n");
+            indent(sb, indent);
+            sb.append("group by ");
+            sb.append(StringUtils.join(groupingList, ", "));
+        }
+        if (!havingConditions.isEmpty()) {
+            sb.append("\n");
+            indent(sb, indent);
+            sb.append("having ");
+            sb.append(StringUtils.join(havingConditions, " and "));
+        }
         if (!orderingList.isEmpty()) {
             sb.append("\n");
             indent(sb, indent);
@@ -232,6 +255,22 @@ public abstract class HibernateQuery {
         return orderingList;
     }
 
+    public void addGrouping(String propertyPath) {
+        groupingList.add(propertyPath);
+    }
+
+    public List<String> getGroupingList() {
+        return groupingList;
+    }
+
+    public void addHavingCondition(String condition) {
+        havingConditions.add(condition);
+    }
+
+    public List<String> getHavingConditions() {
+        return havingConditions;
+    }
+
     public abstract RootHibernateQuery getRootQuery();
 
     // used to narrow the primary entity e.g. from RObject to RUser (e.g. during ItemValueRestriction processing)
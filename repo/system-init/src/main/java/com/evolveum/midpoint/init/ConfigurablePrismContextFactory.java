@@ -36,6 +36,7 @@ public class ConfigurablePrismContextFactory extends MidPointPrismContextFactory
 	private static final Trace LOGGER = TraceManager.getTrace(ConfigurablePrismContextFactory.class);
     private static final String CONFIGURATION_GLOBAL = "midpoint.global";        //todo move somewhere else
     private static final String EXTENSION_DIR = "extensionDir";
+    private static final String SCHEMA_SNAPSHOT_FILE = "schemaSnapshotFile";
     private MidpointConfiguration configuration;
 
 	ConfigurablePrismContextFactory() {
@@ -85,4 +86,22 @@ public class ConfigurablePrismContextFactory extends MidPointPrismContextFactory
             throw new SchemaException(ex.getMessage(), ex);
         }
     }
+
+    /**
+     * Sets up the schema snapshot file, if configured. Relative paths are resolved against midpoint.home.
+     */
+    @Override
+    protected void configureSchemaRegistry(SchemaRegistryImpl schemaRegistry) {
+        Configuration config = configuration.getConfiguration(CONFIGURATION_GLOBAL);
+        String snapshotFileName = config != null ? config.getString(SCHEMA_SNAPSHOT_FILE) : null;
+        if (StringUtils.isEmpty(snapshotFileName)) {
+            return;
+        }
+        File snapshotFile = new File(snapshotFileName);
+        if (!snapshotFile.isAbsolute() && StringUtils.isNotEmpty(configuration.getMidpointHome())) {
+            snapshotFile = new File(configuration.getMidpointHome(), snapshotFileName);
+        }
+        LOGGER.info("Using schema snapshot file '{}'.", snapshotFile);
+        schemaRegistry.setSnapshotFile(snapshotFile);
+    }
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.midpoint.task.api;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * An event sent to other nodes in the cluster, so they do not have to wait for the next polling cycle
+ * to learn about a change. Events carry only identifiers; receivers re-read the data from the repository.
+ *
+ * Delivery is not guaranteed (e.g. if a node is temporarily unreachable), so the receivers must not rely
+ * on events alone: the existing periodic checks stay in place as a fallback.
+ */
+public class ClusterEvent implements Serializable {
+
+	public enum Type {
+		/**
+		 * An object was added, modified or deleted. Object type (simple name of the class, e.g. RoleType),
+		 * OID and (if known) the new version are provided.
+		 */
+		OBJECT_CHANGED,
+
+		/**
+		 * A node-local cache should be invalidated. Object type denotes the cache (or the type of cached objects),
+		 * OID is the cache entry to be invalidated (null means the whole cache).
+		 */
+		CACHE_INVALIDATION,
+
+		/**
+		 * Waiting tasks should be checked now (e.g. because a task they wait for was closed). OID is the task that
+		 * caused the check, if any.
+		 */
+		TASK_WAKE_UP
+	}
+
+	@NotNull private final Type type;
+	private final String objectType;
+	private final String oid;
+	private final String version;
+
+	public ClusterEvent(@NotNull Type type, String objectType, String oid, String version) {
+		this.type = type;
+		this.objectType = objectType;
+		this.oid = oid;
+		this.version = version;
+	}
+
+	public static ClusterEvent objectChanged(@NotNull Class<?> objectType, String oid, String version) {
+		return new ClusterEvent(Type.OBJECT_CHANGED, objectType.getSimpleName(), oid, version);
+	}
+
+	public static ClusterEvent cacheInvalidation(@NotNull String cacheName, String oid) {
+		return new ClusterEvent(Type.CACHE_INVALIDATION, cacheName, oid, null);
+	}
+
+	public static ClusterEvent taskWakeUp(String taskOid) {
+		return new ClusterEvent(Type.TASK_WAKE_UP, null, taskOid, null);
+	}
+
+	@NotNull
+	public Type getType() {
+		return type;
+	}
+
+	public String getObjectType() {
+		return objectType;
+	}
+
+	public String getOid() {
+		return oid;
+	}
+
+	public String getVersion() {
+		return version;
+	}
+
+	public boolean isAbout(Class<?> objectClass) {
+		return objectClass.getSimpleName().equals(objectType);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (!(o instanceof ClusterEvent))
+			return false;
+		ClusterEvent that = (ClusterEvent) o;
+		return type == that.type && Objects.equals(objectType, that.objectType) && Objects.equals(oid, that.oid)
+				&& Objects.equals(version, that.version);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(type, objectType, oid, version);
+	}
+
+	@Override
+	public String toString() {
+		return "ClusterEvent{" + type + ", " + objectType + ":" + oid + (version != null ? " v" + version : "") + "}";
+	}
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.midpoint.task.api;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Receives events published by other nodes in the cluster (see {@link ClusterEvent}).
+ * Called from the event receiving thread, so the processing should be short.
+ */
+@FunctionalInterface
+public interface ClusterEventListener {
+
+	void onClusterEvent(@NotNull ClusterEvent event);
+}
@@ -70,6 +70,7 @@ public class StateReporter {
     private ProvisioningOperation lastOperation = null;
     private ObjectClassComplexTypeDefinition lastObjectClass = null;
     private Date lastStarted = null;
+    private long lastLimiterWaitTime = 0;           // part of the current operation spent waiting for the concurrency limiter
 
     public void recordIcfOperationStart(ProvisioningOperation operation, ObjectClassComplexTypeDefinition objectClassDef, String identifier) {
         if (lastOperation != null) {
@@ -78,6 +79,7 @@ public class StateReporter {
         lastOperation = operation;
         lastObjectClass = objectClassDef;
         lastStarted = new Date();
+        lastLimiterWaitTime = 0;
         String object = "";
         if (identifier != null) {
             object = " " + identifier;
@@ -85,6 +87,14 @@ public class StateReporter {
         recordState("Starting " + operation + " of " + getObjectClassName(objectClassDef) + object + " on " + getResourceName());
     }
 
+    /**
+     * Records time (in milliseconds) the current operation spent waiting for the connector concurrency limiter.
+     * It is reported to the task along with the operation duration.
+     */
+    public void recordIcfOperationLimiterWait(long waitTime) {
+        lastLimiterWaitTime += waitTime;
+    }
+
     // we just add duration, not count (we'll do this on end)
     public void recordIcfOperationSuspend(ProvisioningOperation operation, ObjectClassComplexTypeDefinition objectClassDef) {
         if (lastOperation != operation) {
@@ -96,7 +106,8 @@ public class StateReporter {
         } else {
             long duration = System.currentTimeMillis() - lastStarted.getTime();
             if (task != null) {
-                task.recordProvisioningOperation(resourceOid, getResourceName(), objectClassDef.getTypeName(), lastOperation, true, 0, duration);
+                task.recordProvisioningOperation(resourceOid, getResourceName(), objectClassDef.getTypeName(), lastOperation, true, 0, duration,
+                        lastLimiterWaitTime);
             } else {
                 reportNoTask(resourceOid, lastOperation);
             }
@@ -112,6 +123,7 @@ public class StateReporter {
         lastOperation = operation;
         lastObjectClass = objectClassDef;
         lastStarted = new Date();
+        lastLimiterWaitTime = 0;
         recordState("Continuing " + operation + " of " + objectClassDef.getTypeName().getLocalPart() + " on " + getResourceName());
     }
 
@@ -156,7 +168,8 @@ public class StateReporter {
 		recordState(stateMessage);
         if (task != null) {
             if (duration >= 0) {
-                task.recordProvisioningOperation(resourceOid, getResourceName(), getObjectClassQName(objectClassDef), lastOperation, ex == null, 1, duration);
+                task.recordProvisioningOperation(resourceOid, getResourceName(), getObjectClassQName(objectClassDef), lastOperation, ex == null, 1, duration,
+                        lastLimiterWaitTime);
             } else {
 				LOGGER.warn("Negative duration while recording provisiong operation: {}", stateMessage);
 			}
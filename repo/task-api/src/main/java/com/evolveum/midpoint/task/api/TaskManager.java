@@ -685,4 +685,18 @@ public interface TaskManager {
 
 	void registerTaskDeletionListener(TaskDeletionListener listener);
     //endregion
+
+    //region Cluster events
+    /**
+     * Sends an event to all other nodes in the cluster (if cluster events are enabled). The event is not
+     * delivered to listeners on this node. Events are sent asynchronously, in batches; equal events
+     * published shortly one after another are sent only once.
+     */
+    void publishClusterEvent(ClusterEvent event);
+
+    /**
+     * Registers a listener for events published by other nodes in the cluster.
+     */
+    void registerClusterEventListener(ClusterEventListener listener);
+    //endregion
 }
@@ -74,10 +74,14 @@ public class TaskManagerConfiguration {
     private static final String STALLED_TASKS_REPEATED_NOTIFICATION_INTERVAL_CONFIG_ENTRY = "stalledTasksRepeatedNotificationInterval";
     private static final String RUN_NOW_KEEPS_ORIGINAL_SCHEDULE_CONFIG_ENTRY = "runNowKeepsOriginalSchedule";
     private static final String SCHEDULER_INITIALLY_STOPPED_CONFIG_ENTRY = "schedulerInitiallyStopped";
+    private static final String CLUSTER_EVENT_PORT_CONFIG_ENTRY = "clusterEventPort";
+    private static final String CLUSTER_EVENT_SECRET_CONFIG_ENTRY = "clusterEventSecret";
+    private static final String CLUSTER_EVENT_BIND_ADDRESS_CONFIG_ENTRY = "clusterEventBindAddress";
 
     private static final String MIDPOINT_NODE_ID_PROPERTY = "midpoint.nodeId";
     private static final String MIDPOINT_JMX_HOST_NAME_PROPERTY = "midpoint.jmxHostName";
     private static final String JMX_PORT_PROPERTY = "com.sun.management.jmxremote.port";
+    private static final String MIDPOINT_CLUSTER_EVENT_PORT_PROPERTY = "midpoint.clusterEventPort";
     private static final String SUREFIRE_PRESENCE_PROPERTY = "surefire.real.class.path";
 
     private static final boolean STOP_ON_INITIALIZATION_FAILURE_DEFAULT = true;
@@ -98,6 +102,7 @@ public class TaskManagerConfiguration {
     private static final int STALLED_TASKS_THRESHOLD_DEFAULT = 600;             // if a task does not advance its progress for 10 minutes, it is considered stalled
     private static final int STALLED_TASKS_REPEATED_NOTIFICATION_INTERVAL_DEFAULT = 3600;
     private static final boolean RUN_NOW_KEEPS_ORIGINAL_SCHEDULE_DEFAULT = false;
+    private static final int CLUSTER_EVENT_PORT_DEFAULT = 0;                   // i.e. cluster events are disabled
 
     private boolean stopOnInitializationFailure;
     private int threads;
@@ -116,6 +121,9 @@ public class TaskManagerConfiguration {
     private int stalledTasksRepeatedNotificationInterval;
     private boolean runNowKeepsOriginalSchedule;
     private boolean schedulerInitiallyStopped;
+    private int clusterEventPort;
+    private String clusterEventSecret;
+    private String clusterEventBindAddress;
 
     // JMX credentials for connecting to remote nodes
     private String jmxUsername;
@@ -178,7 +186,10 @@ public class TaskManagerConfiguration {
             STALLED_TASKS_THRESHOLD_CONFIG_ENTRY,
             STALLED_TASKS_REPEATED_NOTIFICATION_INTERVAL_CONFIG_ENTRY,
             RUN_NOW_KEEPS_ORIGINAL_SCHEDULE_CONFIG_ENTRY,
-			SCHEDULER_INITIALLY_STOPPED_CONFIG_ENTRY
+			SCHEDULER_INITIALLY_STOPPED_CONFIG_ENTRY,
+            CLUSTER_EVENT_PORT_CONFIG_ENTRY,
+            CLUSTER_EVENT_SECRET_CONFIG_ENTRY,
+            CLUSTER_EVENT_BIND_ADDRESS_CONFIG_ENTRY
     );
 
     void checkAllowedKeys(MidpointConfiguration masterConfig) throws TaskManagerConfigurationException {
@@ -269,6 +280,19 @@ public class TaskManagerConfiguration {
         stalledTasksRepeatedNotificationInterval = c.getInt(STALLED_TASKS_REPEATED_NOTIFICATION_INTERVAL_CONFIG_ENTRY, STALLED_TASKS_REPEATED_NOTIFICATION_INTERVAL_DEFAULT);
         runNowKeepsOriginalSchedule = c.getBoolean(RUN_NOW_KEEPS_ORIGINAL_SCHEDULE_CONFIG_ENTRY, RUN_NOW_KEEPS_ORIGINAL_SCHEDULE_DEFAULT);
         schedulerInitiallyStopped = c.getBoolean(SCHEDULER_INITIALLY_STOPPED_CONFIG_ENTRY, false);
+
+        String eventPortString = System.getProperty(MIDPOINT_CLUSTER_EVENT_PORT_PROPERTY);      // to allow more nodes on one host
+        if (StringUtils.isEmpty(eventPortString)) {
+            clusterEventPort = c.getInt(CLUSTER_EVENT_PORT_CONFIG_ENTRY, CLUSTER_EVENT_PORT_DEFAULT);
+        } else {
+            try {
+                clusterEventPort = Integer.parseInt(eventPortString);
+            } catch (NumberFormatException nfe) {
+                throw new TaskManagerConfigurationException("Cannot get cluster event port - invalid integer value of " + eventPortString, nfe);
+            }
+        }
+        clusterEventSecret = c.getString(CLUSTER_EVENT_SECRET_CONFIG_ENTRY, null);
+        clusterEventBindAddress = c.getString(CLUSTER_EVENT_BIND_ADDRESS_CONFIG_ENTRY, null);        // null = all local addresses
     }
 
     private static final Map<String,String> schemas = new HashMap<>();
@@ -359,6 +383,11 @@ public class TaskManagerConfiguration {
         mustBeTrue(quartzNodeRegistrationCycleTime > 1 && quartzNodeRegistrationCycleTime <= 600, "Quartz node registration cycle time must be between 1 and 600 seconds");
         mustBeTrue(nodeRegistrationCycleTime > 1 && nodeRegistrationCycleTime <= 600, "Node registration cycle time must be between 1 and 600 seconds");
         mustBeTrue(nodeTimeout > 5 && nodeTimeout <= 3600, "Node timeout must be between 5 and 3600 seconds");
+
+        mustBeTrue(clusterEventPort >= 0 && clusterEventPort <= 65535, "Cluster event port must be between 0 and 65535");
+        if (clusterEventPort > 0) {
+            notEmpty(clusterEventSecret, "Cluster event secret (" + CLUSTER_EVENT_SECRET_CONFIG_ENTRY + ") must be set when cluster events are enabled.");
+        }
     }
 
     void validateJdbcJobStoreInformation() throws TaskManagerConfigurationException {
@@ -418,6 +447,18 @@ public class TaskManagerConfiguration {
         return nodeId;
     }
 
+    public int getClusterEventPort() {
+        return clusterEventPort;
+    }
+
+    public String getClusterEventSecret() {
+        return clusterEventSecret;
+    }
+
+    public String getClusterEventBindAddress() {
+        return clusterEventBindAddress;
+    }
+
     public int getJmxPort() {
         return jmxPort;
     }
@@ -34,12 +34,14 @@ import com.evolveum.midpoint.schema.SearchResultMetadata;
 import com.evolveum.midpoint.schema.SelectorOptions;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.result.OperationResultStatus;
+import com.evolveum.midpoint.schema.util.CleanupPolicyUtil;
 import com.evolveum.midpoint.security.api.SecurityEnforcer;
 import com.evolveum.midpoint.task.api.*;
 import com.evolveum.midpoint.task.quartzimpl.cluster.ClusterManager;
 import com.evolveum.midpoint.task.quartzimpl.cluster.ClusterStatusInformation;
 import com.evolveum.midpoint.task.quartzimpl.execution.ExecutionManager;
 import com.evolveum.midpoint.task.quartzimpl.execution.StalledTasksWatcher;
+import com.evolveum.midpoint.util.ParallelBatchProcessor;
 import com.evolveum.midpoint.util.exception.ObjectAlreadyExistsException;
 import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
 import com.evolveum.midpoint.util.exception.SchemaException;
@@ -67,14 +69,15 @@ import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
-import javax.xml.datatype.Duration;
 import javax.xml.datatype.XMLGregorianCalendar;
 import java.text.ParseException;
 import java.util.*;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.evolveum.midpoint.schema.result.OperationResultStatus.IN_PROGRESS;
 import static com.evolveum.midpoint.schema.result.OperationResultStatus.SUCCESS;
@@ -110,6 +113,7 @@ public class TaskManagerQuartzImpl implements TaskManager, BeanFactoryAware {
     private static final String OPERATION_SUSPEND_TASKS = DOT_INTERFACE + "suspendTasks";
     private static final String OPERATION_DEACTIVATE_SERVICE_THREADS = DOT_INTERFACE + "deactivateServiceThreads";
     private static final String CLEANUP_TASKS = DOT_INTERFACE + "cleanupTasks";
+    private static final int CLEANUP_TASKS_BATCH_SIZE = 100;
 
     // instances of all the helper classes (see their definitions for their description)
     private TaskManagerConfiguration configuration = new TaskManagerConfiguration();
@@ -222,6 +226,7 @@ public class TaskManagerQuartzImpl implements TaskManager, BeanFactoryAware {
         if (!configuration.isTestMode()) {
             clusterManager.startClusterManagerThread();
         }
+        clusterManager.startClusterEventBus(result);
 
         if (configuration.isSchedulerInitiallyStopped()) {
         	LOGGER.info("Scheduler was not started because of system configuration 'schedulerInitiallyStopped' setting. You can start it manually if needed.");
@@ -261,6 +266,7 @@ public class TaskManagerQuartzImpl implements TaskManager, BeanFactoryAware {
         }
 
         clusterManager.stopClusterManagerThread(0L, result);
+        clusterManager.stopClusterEventBus();
         clusterManager.recordNodeShutdown(result);
 
         if (configuration.isJdbcJobStore() && configuration.isDatabaseIsEmbedded()) {
@@ -1596,6 +1602,16 @@ public class TaskManagerQuartzImpl implements TaskManager, BeanFactoryAware {
         clusterManager.deleteNode(nodeOid, result);
     }
 
+    @Override
+    public void publishClusterEvent(ClusterEvent event) {
+        clusterManager.publishClusterEvent(event);
+    }
+
+    @Override
+    public void registerClusterEventListener(ClusterEventListener listener) {
+        clusterManager.registerClusterEventListener(listener);
+    }
+
     @Override
     public void scheduleTaskNow(Task task, OperationResult parentResult) throws SchemaException, ObjectNotFoundException {
         /*
@@ -1758,108 +1774,121 @@ public class TaskManagerQuartzImpl implements TaskManager, BeanFactoryAware {
         return tasks;
     }
 
+    /**
+     * Root tasks are streamed from the repository (strictly sequential iterative search, i.e. keyset pagination
+     * by OID) and their trees are deleted in batches, in more threads if the policy says so.
+     */
     @Override
     public void cleanupTasks(CleanupPolicyType policy, Task executionTask, OperationResult parentResult) throws SchemaException {
         OperationResult result = parentResult.createSubresult(CLEANUP_TASKS);
 
-        if (policy.getMaxAge() == null) {
+        Date deleteTasksClosedUpTo = CleanupPolicyUtil.getDeleteUpTo(policy);
+        if (deleteTasksClosedUpTo == null) {
             return;
         }
 
-        Duration duration = policy.getMaxAge();
-        if (duration.getSign() > 0) {
-            duration = duration.negate();
-        }
-        Date deleteTasksClosedUpTo = new Date();
-        duration.addTo(deleteTasksClosedUpTo);
-
-        LOGGER.info("Starting cleanup for closed tasks deleting up to {} (duration '{}').", deleteTasksClosedUpTo, duration);
+        LOGGER.info("Starting cleanup for closed tasks deleting up to {} (duration '{}').", deleteTasksClosedUpTo, policy.getMaxAge());
 
         XMLGregorianCalendar timeXml = XmlTypeConverter.createXMLGregorianCalendar(deleteTasksClosedUpTo.getTime());
-
-        List<PrismObject<TaskType>> obsoleteTasks;
+        ObjectQuery obsoleteTasksQuery = QueryBuilder.queryFor(TaskType.class, prismContext)
+                .item(TaskType.F_COMPLETION_TIMESTAMP).le(timeXml)
+                .and().item(TaskType.F_PARENT).isNull()
+                .build();
+
+        AtomicInteger deleted = new AtomicInteger();
+        AtomicInteger problems = new AtomicInteger();
+        AtomicInteger bigProblems = new AtomicInteger();
+        Queue<OperationResult> batchResults = new ConcurrentLinkedQueue<>();
+        ParallelBatchProcessor<PrismObject<TaskType>> processor = CleanupPolicyUtil.createBatchProcessor("TaskCleanup",
+                policy, CLEANUP_TASKS_BATCH_SIZE, executionTask::canRun, batch -> {
+                    // operation results are not thread-safe, so each batch has its own
+                    OperationResult batchResult = new OperationResult(CLEANUP_TASKS + ".batch");
+                    for (PrismObject<TaskType> rootTaskPrism : batch) {
+                        deleteTaskTree(rootTaskPrism, executionTask, deleted, problems, bigProblems, batchResult);
+                    }
+                    batchResult.computeStatusIfUnknown();
+                    batchResults.add(batchResult);
+                    return batch.size();
+                });
+        ParallelBatchProcessor.Statistics statistics;
         try {
-            ObjectQuery obsoleteTasksQuery = QueryBuilder.queryFor(TaskType.class, prismContext)
-					.item(TaskType.F_COMPLETION_TIMESTAMP).le(timeXml)
-					.and().item(TaskType.F_PARENT).isNull()
-					.build();
-            obsoleteTasks = repositoryService.searchObjects(TaskType.class, obsoleteTasksQuery, null, result);
+            repositoryService.searchObjectsIterative(TaskType.class, obsoleteTasksQuery, (object, searchResult) -> {
+                try {
+                    return processor.add(object);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }, null, true, result);
         } catch (SchemaException e) {
             throw new SchemaException("Couldn't get the list of obsolete tasks: " + e.getMessage(), e);
-        }
-
-        // enable when having enough time
-//        result.createSubresult(result.getOperation()+".count").recordStatus(SUCCESS, "Task tree(s) to be deleted: " + obsoleteTasks.size());
-//        // show the result immediately
-//        try {
-//            executionTask.setResultImmediate(executionTask.getResult(), new OperationResult("dummy"));
-//        } catch (ObjectNotFoundException e) {
-//            LoggingUtils.logUnexpectedException(LOGGER, "Task {} does not exist", e, executionTask);
-//        }
-
-        LOGGER.debug("Found {} task tree(s) to be cleaned up", obsoleteTasks.size());
-
-        boolean interrupted = false;
-        int deleted = 0;
-        int problems = 0;
-        int bigProblems = 0;
-        for (PrismObject<TaskType> rootTaskPrism : obsoleteTasks) {
-
-            if (!executionTask.canRun()) {
-                result.recordWarning("Interrupted");
-                LOGGER.warn("Task cleanup was interrupted.");
-                interrupted = true;
-                break;
-            }
-
-            final String taskName = PolyString.getOrig(rootTaskPrism.getName());
-            final String taskOid = rootTaskPrism.getOid();
-            final long started = System.currentTimeMillis();
-            executionTask.recordIterativeOperationStart(taskName, null, TaskType.COMPLEX_TYPE, taskOid);
+        } finally {
             try {
-                // get whole tree
-                Task rootTask = createTaskInstance(rootTaskPrism, result);
-                List<Task> taskTreeMembers = rootTask.listSubtasksDeeply(result);
-                taskTreeMembers.add(rootTask);
-
-                LOGGER.trace("Removing task {} along with its {} children.", rootTask, taskTreeMembers.size() - 1);
-
-                Throwable lastProblem = null;
-                for (Task task : taskTreeMembers) {
-                    try {
-                        deleteTask(task.getOid(), result);
-                        deleted++;
-                    } catch (SchemaException|ObjectNotFoundException|RuntimeException e) {
-                        LoggingUtils.logUnexpectedException(LOGGER, "Couldn't delete obsolete task {}", e, task);
-                        lastProblem = e;
-                        problems++;
-                        if (!task.getTaskIdentifier().equals(rootTask.getTaskIdentifier())) {
-                            bigProblems++;
-                        }
-                    }
-                }
-                // approximate solution (as the problem might be connected to a subtask)
-                executionTask.recordIterativeOperationEnd(taskName, null, TaskType.COMPLEX_TYPE, taskOid, started, lastProblem);
-            } catch (Throwable t) {
-                executionTask.recordIterativeOperationEnd(taskName, null, TaskType.COMPLEX_TYPE, taskOid, started, t);
-                throw t;
+                statistics = processor.finish();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                statistics = processor.getStatistics();
             }
         }
+        // all batches are finished here, so their results can be safely merged in this thread
+        for (OperationResult batchResult : batchResults) {
+            result.addSubresult(batchResult);
+        }
+        boolean interrupted = statistics.getStopReason() != null;
+        if (interrupted) {
+            result.recordWarning("Interrupted (" + statistics.getStopReason() + ")");
+            LOGGER.warn("Task cleanup was interrupted ({}).", statistics.getStopReason());
+        }
         result.computeStatusIfUnknown();
 
         LOGGER.info("Task cleanup procedure " + (interrupted ? "was interrupted" : "finished") + ". Successfully deleted {} tasks; there were problems with deleting {} tasks.", deleted, problems);
-        if (bigProblems > 0) {
+        if (bigProblems.get() > 0) {
             LOGGER.error("{} subtask(s) couldn't be deleted. Inspect that manually, otherwise they might reside in repo forever.", bigProblems);
         }
         String suffix = interrupted ? " Interrupted." : "";
-        if (problems == 0) {
+        if (problems.get() == 0) {
             parentResult.createSubresult(CLEANUP_TASKS + ".statistics").recordStatus(SUCCESS, "Successfully deleted " + deleted + " task(s)." + suffix);
         } else {
             parentResult.createSubresult(CLEANUP_TASKS + ".statistics").recordPartialError("Successfully deleted " + deleted + " task(s), "
                     + "there was problems with deleting " + problems + " tasks." + suffix
-                    + (bigProblems > 0 ? (" " + bigProblems + " subtask(s) couldn't be deleted, please see the log.") : ""));
+                    + (bigProblems.get() > 0 ? (" " + bigProblems + " subtask(s) couldn't be deleted, please see the log.") : ""));
         }
+    }
+
+    private void deleteTaskTree(PrismObject<TaskType> rootTaskPrism, Task executionTask, AtomicInteger deleted,
+            AtomicInteger problems, AtomicInteger bigProblems, OperationResult result) throws SchemaException {
+        final String taskName = PolyString.getOrig(rootTaskPrism.getName());
+        final String taskOid = rootTaskPrism.getOid();
+        final long started = System.currentTimeMillis();
+        executionTask.recordIterativeOperationStart(taskName, null, TaskType.COMPLEX_TYPE, taskOid);
+        try {
+            // get whole tree
+            Task rootTask = createTaskInstance(rootTaskPrism, result);
+            List<Task> taskTreeMembers = rootTask.listSubtasksDeeply(result);
+            taskTreeMembers.add(rootTask);
+
+            LOGGER.trace("Removing task {} along with its {} children.", rootTask, taskTreeMembers.size() - 1);
 
+            Throwable lastProblem = null;
+            for (Task task : taskTreeMembers) {
+                try {
+                    deleteTask(task.getOid(), result);
+                    deleted.incrementAndGet();
+                } catch (SchemaException|ObjectNotFoundException|RuntimeException e) {
+                    LoggingUtils.logUnexpectedException(LOGGER, "Couldn't delete obsolete task {}", e, task);
+                    lastProblem = e;
+                    problems.incrementAndGet();
+                    if (!task.getTaskIdentifier().equals(rootTask.getTaskIdentifier())) {
+                        bigProblems.incrementAndGet();
+                    }
+                }
+            }
+            // approximate solution (as the problem might be connected to a subtask)
+            executionTask.recordIterativeOperationEnd(taskName, null, TaskType.COMPLEX_TYPE, taskOid, started, lastProblem);
+        } catch (Throwable t) {
+            executionTask.recordIterativeOperationEnd(taskName, null, TaskType.COMPLEX_TYPE, taskOid, started, t);
+            throw t;
+        }
     }
 
     private<T> Set<T> oneItemSet(T item) {
@@ -50,6 +50,7 @@ import com.evolveum.midpoint.schema.statistics.ProvisioningOperation;
 import com.evolveum.midpoint.schema.statistics.ActionsExecutedInformation;
 import com.evolveum.midpoint.schema.statistics.StatisticsUtil;
 import com.evolveum.midpoint.schema.statistics.SynchronizationInformation;
+import com.evolveum.midpoint.task.api.ClusterEvent;
 import com.evolveum.midpoint.task.api.LightweightIdentifier;
 import com.evolveum.midpoint.task.api.LightweightTaskHandler;
 import com.evolveum.midpoint.task.api.Task;
@@ -878,6 +879,8 @@ public class TaskQuartzImpl implements Task {
         if (parentTask != null) {
             ((TaskQuartzImpl) parentTask).checkDependencies(result);
         }
+        // other nodes can resume their waiting tasks without waiting for the next check
+        taskManager.publishClusterEvent(ClusterEvent.taskWakeUp(getOid()));
     }
 
     public void checkDependencies(OperationResult result) throws SchemaException, ObjectNotFoundException {
@@ -2829,8 +2832,10 @@ public class TaskQuartzImpl implements Task {
 	}
 
 	@Override
-	public void recordProvisioningOperation(String resourceOid, String resourceName, QName objectClassName, ProvisioningOperation operation, boolean success, int count, long duration) {
-		environmentalPerformanceInformation.recordProvisioningOperation(resourceOid, resourceName, objectClassName, operation, success, count, duration);
+	public void recordProvisioningOperation(String resourceOid, String resourceName, QName objectClassName, ProvisioningOperation operation, boolean success, int count, long duration,
+			long limiterWaitDuration) {
+		environmentalPerformanceInformation.recordProvisioningOperation(resourceOid, resourceName, objectClassName, operation, success, count, duration,
+				limiterWaitDuration);
 	}
 
 	@Override
@@ -2839,8 +2844,15 @@ public class TaskQuartzImpl implements Task {
 	}
 
 	@Override
-	public void recordMappingOperation(String objectOid, String objectName, String objectTypeName, String mappingName, long duration) {
-		environmentalPerformanceInformation.recordMappingOperation(objectOid, objectName, objectTypeName, mappingName, duration);
+	public void recordMappingOperation(String objectOid, String objectName, String objectTypeName, String mappingName, long duration,
+			long compileDuration) {
+		environmentalPerformanceInformation.recordMappingOperation(objectOid, objectName, objectTypeName, mappingName, duration,
+				compileDuration);
+	}
+
+	@Override
+	public void recordClockworkRun(int repositoryWrites, long projectorTime, long executionTime) {
+		environmentalPerformanceInformation.recordClockworkRun(repositoryWrites, projectorTime, executionTime);
 	}
 
 	@Override
@@ -0,0 +1,483 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.task.quartzimpl.cluster;
+
+import com.evolveum.midpoint.task.api.ClusterEvent;
+import com.evolveum.midpoint.task.api.ClusterEventListener;
+import com.evolveum.midpoint.util.exception.SystemException;
+import com.evolveum.midpoint.util.logging.LoggingUtils;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes cluster events to other nodes, so they can react to changes (system configuration, cached objects)
+ * immediately, not only in the next cluster manager cycle.
+ *
+ * Events are sent over plain TCP connections to the cluster event port of each remote node. The sender waits
+ * a little before sending, so events produced in a quick succession are sent in one connection and duplicates
+ * are sent only once. The protocol is line-based: the first line contains the sending node identifier
+ * and the time of sending, each of the following lines contains one event, and the last line contains
+ * HMAC (SHA-256) of all the previous lines, keyed by the shared secret. The secret itself is never sent.
+ * Messages that are not authenticated or that are too old are ignored. (Replaying a recent message is possible;
+ * it does no harm, as events only make the receivers re-read the data from the repository.)
+ *
+ * Each remote node has its own sender thread with a bounded queue of batches, so a slow or unreachable node
+ * delays neither the other nodes nor the publishing threads. Batches for a node are sent in the order they were
+ * created; if the node cannot keep up, further batches for it are dropped.
+ *
+ * Incoming connections are processed by a small thread pool, so a slow or malicious client cannot block the others.
+ *
+ * Events are delivered on a best-effort basis. Any failure is only logged, as the receivers check the
+ * repository periodically anyway.
+ */
+public class ClusterEventBus {
+
+	private static final transient Trace LOGGER = TraceManager.getTrace(ClusterEventBus.class);
+
+	private static final String PROTOCOL_HEADER = "midpoint-cluster-events-2";
+	private static final String MAC_LINE_HEADER = "mac";
+	private static final String MAC_ALGORITHM = "HmacSHA256";
+	private static final String SEPARATOR = "\t";
+
+	private static final long BATCH_DELAY = 50L;
+	private static final int CONNECT_TIMEOUT = 2000;
+	private static final int READ_TIMEOUT = 5000;
+	private static final long RECEIVE_TIMEOUT = 10000L;			// for the whole message
+	private static final long MAX_MESSAGE_AGE = 60000L;			// tolerates also some clock differences between nodes
+	private static final int MAX_BATCH_SIZE = 1000;
+	private static final int MAX_LINE_LENGTH = 4096;
+	private static final int RECEIVER_THREADS = 4;
+	private static final int RECEIVER_QUEUE_SIZE = 100;
+	private static final int SENDER_QUEUE_SIZE = 100;				// batches waiting for one remote node
+	private static final long SENDER_KEEP_ALIVE = 60000L;
+
+	@NotNull private final String localNodeIdentifier;
+	@Nullable private final InetAddress bindAddress;
+	private final int port;
+	@NotNull private final SecretKeySpec key;
+
+	private final List<ClusterEventListener> listeners = new CopyOnWriteArrayList<>();
+	private final BlockingQueue<ClusterEvent> outgoing = new LinkedBlockingQueue<>();
+	private volatile Collection<InetSocketAddress> remoteNodes = Collections.emptyList();
+	private final Map<InetSocketAddress, ThreadPoolExecutor> senders = new HashMap<>();		// guarded by itself
+	private volatile IncomingBatchListener incomingBatchListener;
+
+	private ServerSocket serverSocket;
+	private Thread acceptorThread;
+	private Thread senderThread;
+	private ExecutorService receivers;
+	private ExecutorService dispatcher;
+	private volatile boolean running;
+
+	/**
+	 * Gets all incoming messages, after they are checked. Used in tests.
+	 */
+	interface IncomingBatchListener {
+		/**
+		 * @param events Events received, or null if the message was rejected.
+		 */
+		void onBatch(@Nullable List<ClusterEvent> events);
+	}
+
+	/**
+	 * @param bindAddress Local address to listen on; null means all local addresses.
+	 * @param port Port to listen on; 0 means an ephemeral port (used in tests).
+	 */
+	public ClusterEventBus(@NotNull String localNodeIdentifier, @Nullable InetAddress bindAddress, int port, @NotNull String secret) {
+		if (StringUtils.isEmpty(secret)) {
+			throw new IllegalArgumentException("Cluster event secret must be specified");
+		}
+		this.localNodeIdentifier = localNodeIdentifier;
+		this.bindAddress = bindAddress;
+		this.port = port;
+		this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), MAC_ALGORITHM);
+	}
+
+	/**
+	 * Starts listening on the port and sending events.
+	 */
+	public synchronized void start() throws IOException {
+		if (running) {
+			return;
+		}
+		serverSocket = new ServerSocket(port, 0, bindAddress);
+		running = true;
+		dispatcher = Executors.newSingleThreadExecutor(createThreadFactory("ClusterEventDispatcher"));
+		receivers = new ThreadPoolExecutor(RECEIVER_THREADS, RECEIVER_THREADS, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(RECEIVER_QUEUE_SIZE), createThreadFactory("ClusterEventReceiver"));
+		acceptorThread = new Thread(this::accept, "ClusterEventAcceptor");
+		acceptorThread.setDaemon(true);
+		acceptorThread.start();
+		senderThread = new Thread(this::send, "ClusterEventSender");
+		senderThread.setDaemon(true);
+		senderThread.start();
+		LOGGER.info("Cluster event bus started on {}", serverSocket.getLocalSocketAddress());
+	}
+
+	public synchronized void stop() {
+		if (!running) {
+			return;
+		}
+		running = false;
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			LOGGER.debug("Couldn't close cluster event server socket: {}", e.getMessage(), e);
+		}
+		senderThread.interrupt();
+		synchronized (senders) {
+			senders.values().forEach(ExecutorService::shutdownNow);
+			senders.clear();
+		}
+		receivers.shutdownNow();
+		dispatcher.shutdownNow();
+		LOGGER.info("Cluster event bus stopped");
+	}
+
+	private ThreadFactory createThreadFactory(String namePrefix) {
+		AtomicInteger threadNumber = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, namePrefix + "-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * The port the bus actually listens on.
+	 */
+	public int getPort() {
+		return serverSocket != null ? serverSocket.getLocalPort() : port;
+	}
+
+	public void setRemoteNodes(@NotNull Collection<InetSocketAddress> remoteNodes) {
+		this.remoteNodes = new ArrayList<>(remoteNodes);
+		synchronized (senders) {
+			Iterator<Map.Entry<InetSocketAddress, ThreadPoolExecutor>> iterator = senders.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Map.Entry<InetSocketAddress, ThreadPoolExecutor> entry = iterator.next();
+				if (!remoteNodes.contains(entry.getKey())) {
+					entry.getValue().shutdownNow();
+					iterator.remove();
+				}
+			}
+		}
+	}
+
+	public Collection<InetSocketAddress> getRemoteNodes() {
+		return remoteNodes;
+	}
+
+	public void registerListener(@NotNull ClusterEventListener listener) {
+		listeners.add(listener);
+	}
+
+	void setIncomingBatchListener(IncomingBatchListener incomingBatchListener) {
+		this.incomingBatchListener = incomingBatchListener;
+	}
+
+	/**
+	 * Sends the event to all the other nodes. Local listeners are not notified: the change is already known here.
+	 */
+	public void publish(@NotNull ClusterEvent event) {
+		if (running && !remoteNodes.isEmpty()) {
+			LOGGER.trace("Publishing {}", event);
+			outgoing.add(event);
+		}
+	}
+
+	private Mac createMac() {
+		try {
+			Mac mac = Mac.getInstance(MAC_ALGORITHM);
+			mac.init(key);
+			return mac;
+		} catch (GeneralSecurityException e) {
+			throw new SystemException("Couldn't initialize " + MAC_ALGORITHM + ": " + e.getMessage(), e);
+		}
+	}
+
+	//region Sending
+	private void send() {
+		while (running) {
+			Set<ClusterEvent> batch = new LinkedHashSet<>();
+			try {
+				batch.add(outgoing.take());
+				Thread.sleep(BATCH_DELAY);
+			} catch (InterruptedException e) {
+				if (batch.isEmpty()) {
+					continue;
+				}
+			}
+			List<ClusterEvent> drained = new ArrayList<>();
+			outgoing.drainTo(drained, MAX_BATCH_SIZE - 1);
+			batch.addAll(drained);
+			List<ClusterEvent> events = Collections.unmodifiableList(new ArrayList<>(batch));
+			for (InetSocketAddress remoteNode : remoteNodes) {
+				submit(remoteNode, events);
+			}
+		}
+	}
+
+	private void submit(InetSocketAddress remoteNode, List<ClusterEvent> events) {
+		try {
+			getSender(remoteNode).execute(() -> sendTo(remoteNode, events));
+		} catch (RejectedExecutionException e) {
+			// the node is too slow or the bus is being stopped; the node will find out about the changes by polling
+			LOGGER.debug("Dropping {} cluster event(s) for {}: sender queue is full or stopped", events.size(), remoteNode);
+		}
+	}
+
+	/**
+	 * Single thread per node keeps the batches in order. The thread terminates when idle for some time.
+	 */
+	private ThreadPoolExecutor getSender(InetSocketAddress remoteNode) {
+		synchronized (senders) {
+			return senders.computeIfAbsent(remoteNode, node -> {
+				ThreadPoolExecutor sender = new ThreadPoolExecutor(1, 1, SENDER_KEEP_ALIVE, TimeUnit.MILLISECONDS,
+						new ArrayBlockingQueue<>(SENDER_QUEUE_SIZE), createThreadFactory("ClusterEventSender-" + node));
+				sender.allowCoreThreadTimeOut(true);
+				return sender;
+			});
+		}
+	}
+
+	private void sendTo(InetSocketAddress remoteNode, Collection<ClusterEvent> events) {
+		try (Socket socket = new Socket()) {
+			socket.connect(remoteNode, CONNECT_TIMEOUT);
+			Writer writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+			Mac mac = createMac();
+			writeLine(writer, mac, PROTOCOL_HEADER, localNodeIdentifier, String.valueOf(System.currentTimeMillis()));
+			for (ClusterEvent event : events) {
+				writeLine(writer, mac, event.getType().name(), event.getObjectType(), event.getOid(), event.getVersion());
+			}
+			writeLine(writer, null, MAC_LINE_HEADER, Base64.getEncoder().encodeToString(mac.doFinal()));
+			writer.flush();
+			LOGGER.trace("Sent {} cluster event(s) to {}", events.size(), remoteNode);
+		} catch (IOException e) {
+			// the node will find out about the changes by polling
+			LOGGER.debug("Couldn't send {} cluster event(s) to {}: {}", events.size(), remoteNode, e.getMessage(), e);
+		}
+	}
+
+	private void writeLine(Writer writer, Mac mac, String... fields) throws IOException {
+		List<String> encoded = new ArrayList<>(fields.length);
+		for (String field : fields) {
+			encoded.add(field != null ? URLEncoder.encode(field, "UTF-8") : "");
+		}
+		String line = StringUtils.join(encoded, SEPARATOR);
+		if (mac != null) {
+			updateMac(mac, line);
+		}
+		writer.write(line);
+		writer.write('\n');
+	}
+
+	private void updateMac(Mac mac, String line) {
+		mac.update(line.getBytes(StandardCharsets.UTF_8));
+		mac.update((byte) '\n');
+	}
+	//endregion
+
+	//region Receiving
+	private void accept() {
+		while (running) {
+			Socket socket;
+			try {
+				socket = serverSocket.accept();
+			} catch (IOException e) {
+				if (running) {
+					LOGGER.debug("Couldn't accept cluster event connection: {}", e.getMessage(), e);
+				}
+				continue;
+			}
+			try {
+				receivers.execute(() -> receive(socket));
+			} catch (RejectedExecutionException e) {
+				LOGGER.warn("Too many incoming cluster event connections, dropping the one from {}", socket.getRemoteSocketAddress());
+				closeQuietly(socket);
+			}
+		}
+	}
+
+	private void receive(Socket socket) {
+		try {
+			socket.setSoTimeout(READ_TIMEOUT);
+			List<ClusterEvent> events = receiveFrom(socket);
+			notifyIncomingBatchListener(events);
+			if (events != null) {
+				dispatcher.execute(() -> events.forEach(this::dispatch));
+			}
+		} catch (IOException e) {
+			LOGGER.debug("Couldn't receive cluster events from {}: {}", socket.getRemoteSocketAddress(), e.getMessage(), e);
+			notifyIncomingBatchListener(null);
+		} catch (RejectedExecutionException e) {
+			LOGGER.debug("Cluster event bus is stopped, ignoring events from {}", socket.getRemoteSocketAddress());
+		} catch (RuntimeException e) {
+			LoggingUtils.logUnexpectedException(LOGGER, "Unexpected exception while receiving cluster events", e);
+		} finally {
+			closeQuietly(socket);
+		}
+	}
+
+	/**
+	 * Returns the received events, or null if the message is not authentic.
+	 */
+	private List<ClusterEvent> receiveFrom(Socket socket) throws IOException {
+		long deadline = System.currentTimeMillis() + RECEIVE_TIMEOUT;
+		Reader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+		Mac mac = createMac();
+		String headerLine = readLine(reader, deadline);
+		String[] header = headerLine != null ? decode(headerLine) : null;
+		if (header == null || header.length != 3 || !PROTOCOL_HEADER.equals(header[0])) {
+			LOGGER.warn("Ignoring cluster events from {}: unknown protocol", socket.getRemoteSocketAddress());
+			return null;
+		}
+		updateMac(mac, headerLine);
+		String node = header[1];
+		List<String[]> eventLines = new ArrayList<>();
+		for (;;) {
+			String line = readLine(reader, deadline);
+			if (line == null) {
+				LOGGER.warn("Ignoring cluster events from {} (node {}): message is not authenticated", socket.getRemoteSocketAddress(), node);
+				return null;
+			}
+			String[] fields = decode(line);
+			if (MAC_LINE_HEADER.equals(fields[0])) {
+				byte[] expected = mac.doFinal();
+				byte[] actual = decodeBase64(field(fields, 1));
+				if (actual == null || !MessageDigest.isEqual(expected, actual)) {
+					LOGGER.warn("Ignoring cluster events from {} (node {}): wrong secret", socket.getRemoteSocketAddress(), node);
+					return null;
+				}
+				break;
+			}
+			if (eventLines.size() >= MAX_BATCH_SIZE) {
+				LOGGER.warn("Ignoring cluster events from {} (node {}): too many events", socket.getRemoteSocketAddress(), node);
+				return null;
+			}
+			updateMac(mac, line);
+			eventLines.add(fields);
+		}
+		if (!isRecent(header[2])) {
+			LOGGER.warn("Ignoring cluster events from {} (node {}): message is too old (sent at {})",
+					socket.getRemoteSocketAddress(), node, header[2]);
+			return null;
+		}
+		List<ClusterEvent> events = new ArrayList<>(eventLines.size());
+		for (String[] fields : eventLines) {
+			try {
+				events.add(new ClusterEvent(ClusterEvent.Type.valueOf(fields[0]), field(fields, 1), field(fields, 2), field(fields, 3)));
+			} catch (IllegalArgumentException | NullPointerException e) {
+				LOGGER.warn("Ignoring unknown cluster event from node {}: {}", node, Arrays.toString(fields));
+			}
+		}
+		LOGGER.trace("Received {} from node {}", events, node);
+		return events;
+	}
+
+	private boolean isRecent(String timestamp) {
+		try {
+			return Math.abs(System.currentTimeMillis() - Long.parseLong(timestamp)) <= MAX_MESSAGE_AGE;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	private byte[] decodeBase64(String value) {
+		try {
+			return value != null ? Base64.getDecoder().decode(value) : null;
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Reads a line with limited length and within given deadline, so a client cannot occupy a receiver thread forever.
+	 */
+	private String readLine(Reader reader, long deadline) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (;;) {
+			if (System.currentTimeMillis() > deadline) {
+				throw new SocketTimeoutException("Cluster event message was not received in " + RECEIVE_TIMEOUT + " ms");
+			}
+			int c = reader.read();
+			if (c == -1) {
+				return sb.length() > 0 ? sb.toString() : null;
+			} else if (c == '\n') {
+				return sb.toString();
+			} else if (sb.length() >= MAX_LINE_LENGTH) {
+				throw new IOException("Cluster event message line is longer than " + MAX_LINE_LENGTH + " characters");
+			}
+			sb.append((char) c);
+		}
+	}
+
+	private String[] decode(String line) throws UnsupportedEncodingException {
+		String[] fields = line.split(SEPARATOR, -1);
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = fields[i].isEmpty() ? null : URLDecoder.decode(fields[i], "UTF-8");
+		}
+		return fields;
+	}
+
+	private String field(String[] fields, int index) {
+		return index < fields.length ? fields[index] : null;
+	}
+
+	private void notifyIncomingBatchListener(List<ClusterEvent> events) {
+		IncomingBatchListener listener = incomingBatchListener;
+		if (listener != null) {
+			listener.onBatch(events);
+		}
+	}
+
+	private void closeQuietly(Socket socket) {
+		try {
+			socket.close();
+		} catch (IOException e) {
+			LOGGER.debug("Couldn't close cluster event connection: {}", e.getMessage(), e);
+		}
+	}
+
+	private void dispatch(ClusterEvent event) {
+		for (ClusterEventListener listener : listeners) {
+			try {
+				listener.onClusterEvent(event);
+			} catch (Throwable t) {
+				LoggingUtils.logUnexpectedException(LOGGER, "Cluster event listener {} failed to process {}", t, listener, event);
+			}
+		}
+	}
+	//endregion
+}
@@ -26,6 +26,8 @@ import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.util.ObjectQueryUtil;
 import com.evolveum.midpoint.schema.util.SystemConfigurationTypeUtil;
 import com.evolveum.midpoint.security.api.SecurityUtil;
+import com.evolveum.midpoint.task.api.ClusterEvent;
+import com.evolveum.midpoint.task.api.ClusterEventListener;
 import com.evolveum.midpoint.task.api.TaskManagerInitializationException;
 import com.evolveum.midpoint.task.quartzimpl.TaskManagerQuartzImpl;
 import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
@@ -39,9 +41,15 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.NodeType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.SystemConfigurationType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.SystemObjectsType;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.commons.configuration.Configuration;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 /**
@@ -57,13 +65,17 @@ public class ClusterManager {
     private static final String CLASS_DOT = ClusterManager.class.getName() + ".";
     private static final String CHECK_SYSTEM_CONFIGURATION_CHANGED = CLASS_DOT + "checkSystemConfigurationChanged";
     private static final String CHECK_WAITING_TASKS = CLASS_DOT + "checkWaitingTasks";
+    private static final String PROCESS_CLUSTER_EVENT = CLASS_DOT + "processClusterEvent";
 
     private TaskManagerQuartzImpl taskManager;
 
     private NodeRegistrar nodeRegistrar;
 
     private ClusterManagerThread clusterManagerThread;
-    
+
+    private ClusterEventBus clusterEventBus;
+    private final List<ClusterEventListener> clusterEventListeners = new CopyOnWriteArrayList<>();
+
     public ClusterManager(TaskManagerQuartzImpl taskManager) {
         this.taskManager = taskManager;
         this.nodeRegistrar = new NodeRegistrar(taskManager, this);
@@ -135,6 +147,12 @@ public class ClusterManager {
                 try {
                     checkSystemConfigurationChanged(result);
 
+                    try {
+                        updateClusterEventTargets(result);
+                    } catch (Throwable t) {
+                        LoggingUtils.logUnexpectedException(LOGGER, "Unexpected exception while updating cluster event targets; continuing execution.", t);
+                    }
+
                     // these checks are separate in order to prevent a failure in one method blocking execution of others
                     try {
                         NodeType node = checkClusterConfiguration(result);         				// if error, the scheduler will be stopped
@@ -208,6 +226,90 @@ public class ClusterManager {
 
 
 
+    //region Cluster events
+    /**
+     * Starts the cluster event bus, if enabled by the clusterEventPort configuration option.
+     */
+    public void startClusterEventBus(OperationResult result) {
+        int port = taskManager.getConfiguration().getClusterEventPort();
+        if (port <= 0) {
+            LOGGER.debug("Cluster event bus is disabled; changes on other nodes will be found by polling only.");
+            return;
+        }
+        String bindAddress = taskManager.getConfiguration().getClusterEventBindAddress();
+        ClusterEventBus bus;
+        try {
+            bus = new ClusterEventBus(taskManager.getNodeId(), bindAddress != null ? InetAddress.getByName(bindAddress) : null,
+                    port, taskManager.getConfiguration().getClusterEventSecret());
+            bus.registerListener(this::processClusterEvent);
+            bus.start();
+        } catch (IOException e) {
+            LoggingUtils.logUnexpectedException(LOGGER, "Couldn't start cluster event bus on port {}; changes on other nodes "
+                    + "will be found by polling only", e, port);
+            return;
+        }
+        clusterEventBus = bus;
+        // only now other nodes can send events here
+        nodeRegistrar.recordClusterEventPort(bus.getPort(), result);
+        updateClusterEventTargets(result);
+    }
+
+    public void stopClusterEventBus() {
+        if (clusterEventBus != null) {
+            clusterEventBus.stop();
+            clusterEventBus = null;
+        }
+    }
+
+    public void publishClusterEvent(@NotNull ClusterEvent event) {
+        ClusterEventBus bus = clusterEventBus;
+        if (bus != null) {
+            bus.publish(event);
+        }
+    }
+
+    public void registerClusterEventListener(@NotNull ClusterEventListener listener) {
+        clusterEventListeners.add(listener);
+    }
+
+    private void updateClusterEventTargets(OperationResult result) {
+        ClusterEventBus bus = clusterEventBus;
+        if (bus == null) {
+            return;
+        }
+        List<InetSocketAddress> targets = new ArrayList<>();
+        for (PrismObject<NodeType> node : getAllNodes(result)) {
+            NodeType nodeBean = node.asObjectable();
+            if (nodeBean.getClusterEventPort() != null && nodeBean.getHostname() != null && !isCurrentNode(node)
+                    && isUp(nodeBean)) {
+                targets.add(new InetSocketAddress(nodeBean.getHostname(), nodeBean.getClusterEventPort()));
+            }
+        }
+        LOGGER.trace("Cluster event targets: {}", targets);
+        bus.setRemoteNodes(targets);
+    }
+
+    private void processClusterEvent(ClusterEvent event) {
+        OperationResult result = new OperationResult(PROCESS_CLUSTER_EVENT);
+        if (event.getType() == ClusterEvent.Type.OBJECT_CHANGED && event.isAbout(SystemConfigurationType.class)) {
+            checkSystemConfigurationChanged(result);
+        } else if (event.getType() == ClusterEvent.Type.TASK_WAKE_UP) {
+            try {
+                taskManager.checkWaitingTasks(result);
+            } catch (SchemaException e) {
+                LoggingUtils.logUnexpectedException(LOGGER, "Couldn't check waiting tasks", e);
+            }
+        }
+        for (ClusterEventListener listener : clusterEventListeners) {
+            try {
+                listener.onClusterEvent(event);
+            } catch (Throwable t) {
+                LoggingUtils.logUnexpectedException(LOGGER, "Cluster event listener {} failed to process {}", t, listener, event);
+            }
+        }
+    }
+    //endregion
+
     private RepositoryService getRepositoryService() {
         return taskManager.getRepositoryService();
     }
@@ -261,7 +363,8 @@ public class ClusterManager {
      * @param parentResult
      */
 
-    public void checkSystemConfigurationChanged(OperationResult parentResult) {
+    // synchronized, as it is called both from the cluster manager thread and on cluster events
+    public synchronized void checkSystemConfigurationChanged(OperationResult parentResult) {
 
         OperationResult result = parentResult.createSubresult(CHECK_SYSTEM_CONFIGURATION_CHANGED);
 
@@ -295,6 +398,7 @@ public class ClusterManager {
 
 				getRepositoryService().applyFullTextSearchConfiguration(config.asObjectable().getFullTextSearch());
                 SystemConfigurationTypeUtil.applyOperationResultHandling(config.asObjectable());
+                SystemConfigurationTypeUtil.applyPolyStringNormalizerConfiguration(config.asObjectable());
             } else {
                 if (LOGGER.isTraceEnabled()) {
                     LOGGER.trace("System configuration change check: version in repo = version currently applied = {}", versionApplied);
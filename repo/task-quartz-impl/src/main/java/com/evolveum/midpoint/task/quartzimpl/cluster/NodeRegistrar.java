@@ -218,6 +218,25 @@ public class NodeRegistrar {
         }
     }
 
+    /**
+     * Records the port of the cluster event bus, after the bus was successfully started.
+     */
+    void recordClusterEventPort(int port, OperationResult result) {
+        String nodeName = taskManager.getNodeId();
+        String nodeOid = getLocalNodeObjectOid();
+        LOGGER.trace("Registering cluster event port {} of this node (name {}, oid {})", port, nodeName, nodeOid);
+        try {
+            List<ItemDelta<?, ?>> modifications = DeltaBuilder.deltaFor(NodeType.class, getPrismContext())
+                    .item(NodeType.F_CLUSTER_EVENT_PORT).replace(port)
+                    .asItemDeltas();
+            getRepositoryService().modifyObject(NodeType.class, nodeOid, modifications, result);
+            LOGGER.trace("Cluster event port successfully registered.");
+        } catch (ObjectNotFoundException | ObjectAlreadyExistsException | SchemaException e) {
+            // other nodes will not send events here, so the changes will be found by polling only
+            LoggingUtils.logUnexpectedException(LOGGER, "Cannot register cluster event port of this node (name {}, oid {}).", e, nodeName, nodeOid);
+        }
+    }
+
     /**
      * Updates registration of this node (runs periodically within ClusterManager thread).
      */
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2010-2017 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.evolveum.midpoint.task.quartzimpl.cluster;
+
+import com.evolveum.midpoint.task.api.ClusterEvent;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.RoleType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.SystemConfigurationType;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Runs two (or three) cluster event buses on localhost, simulating nodes of a cluster.
+ */
+public class TestClusterEventBus {
+
+	private static final long TIMEOUT = 5000L;
+
+	private final List<ClusterEventBus> buses = new ArrayList<>();
+
+	@AfterMethod
+	public void stopBuses() {
+		buses.forEach(ClusterEventBus::stop);
+		buses.clear();
+	}
+
+	@Test
+	public void test100SendAndReceive() throws Exception {
+		ClusterEventBus node1 = start("node1", "secret");
+		ClusterEventBus node2 = start("node2", "secret");
+		Receiver receiver1 = listen(node1, 0);
+		Receiver receiver2 = listen(node2, 1);
+		connect(node1, node2);
+		connect(node2, node1);
+
+		ClusterEvent event = ClusterEvent.objectChanged(SystemConfigurationType.class, "00000000-0000-0000-0000-000000000001", "42");
+		node1.publish(event);
+
+		receiver2.await();
+		assertEquals("Wrong events received", Collections.singletonList(event), receiver2.getEvents());
+		ClusterEvent receivedEvent = receiver2.getEvents().get(0);
+		assertTrue("Event is not about system configuration", receivedEvent.isAbout(SystemConfigurationType.class));
+		assertEquals("Wrong version", "42", receivedEvent.getVersion());
+		assertEquals("Publisher received its own event", 0, receiver1.getEvents().size());
+	}
+
+	/**
+	 * Events published in a quick succession are sent in batches; each batch must contain every event only once.
+	 */
+	@Test
+	public void test110Deduplication() throws Exception {
+		ClusterEventBus node1 = start("node1", "secret");
+		ClusterEventBus node2 = start("node2", "secret");
+		List<List<ClusterEvent>> batches = Collections.synchronizedList(new ArrayList<>());
+		node2.setIncomingBatchListener(batches::add);
+		ClusterEvent invalidation = ClusterEvent.cacheInvalidation("RoleCache", "c0c010c0-d34d-b33f-f00d-222222222222");
+		ClusterEvent change = ClusterEvent.objectChanged(RoleType.class, "c0c010c0-d34d-b33f-f00d-222222222222", "2");
+		Receiver receiver2 = listenFor(node2, change);
+		connect(node1, node2);
+
+		for (int i = 0; i < 10; i++) {
+			node1.publish(invalidation);
+		}
+		node1.publish(change);
+		node1.publish(invalidation);
+
+		receiver2.await();
+		List<ClusterEvent> events = receiver2.getEvents();
+		assertTrue("Invalidation was not received", events.contains(invalidation));
+		synchronized (batches) {
+			for (List<ClusterEvent> batch : batches) {
+				assertEquals("Duplicate events in batch " + batch, new HashSet<>(batch).size(), batch.size());
+			}
+		}
+	}
+
+	@Test
+	public void test120MoreNodes() throws Exception {
+		ClusterEventBus node1 = start("node1", "secret");
+		ClusterEventBus node2 = start("node2", "secret");
+		ClusterEventBus node3 = start("node3", "secret");
+		Receiver receiver2 = listen(node2, 1);
+		Receiver receiver3 = listen(node3, 1);
+		connect(node1, node2, node3);
+
+		// special characters must survive the transfer
+		ClusterEvent event = ClusterEvent.objectChanged(RoleType.class, "oid with\ttab and spaces", "1");
+		node1.publish(event);
+
+		receiver2.await();
+		receiver3.await();
+		assertEquals("Wrong events received by node2", Collections.singletonList(event), receiver2.getEvents());
+		assertEquals("Wrong events received by node3", Collections.singletonList(event), receiver3.getEvents());
+	}
+
+	/**
+	 * Task wake-up events have no object type.
+	 */
+	@Test
+	public void test130TaskWakeUp() throws Exception {
+		ClusterEventBus node1 = start("node1", "secret");
+		ClusterEventBus node2 = start("node2", "secret");
+		Receiver receiver2 = listen(node2, 1);
+		connect(node1, node2);
+
+		ClusterEvent event = ClusterEvent.taskWakeUp("11111111-2222-3333-4444-000000000001");
+		node1.publish(event);
+
+		receiver2.await();
+		assertEquals("Wrong events received", Collections.singletonList(event), receiver2.getEvents());
+		assertEquals("Wrong event type", ClusterEvent.Type.TASK_WAKE_UP, receiver2.getEvents().get(0).getType());
+		assertNull("Unexpected object type", receiver2.getEvents().get(0).getObjectType());
+	}
+
+	@Test
+	public void test200WrongSecret() throws Exception {
+		ClusterEventBus node1 = start("node1", "secret");
+		ClusterEventBus node2 = start("node2", "another-secret");
+		Receiver receiver2 = listen(node2, 0);
+		BatchReceiver batchReceiver2 = listenForBatch(node2);
+		connect(node1, node2);
+
+		node1.publish(ClusterEvent.cacheInvalidation("RoleCache", null));
+
+		assertNull("Event with a wrong secret was accepted", batchReceiver2.await());
+		assertEquals("Event with a wrong secret was dispatched", 0, receiver2.getEvents().size());
+	}
+
+	@Test
+	public void test210UnreachableNode() throws Exception {
+		ClusterEventBus node1 = start("node1", "secret");
+		ClusterEventBus node2 = start("node2", "secret");
+		Receiver receiver2 = listen(node2, 1);
+		ClusterEventBus node3 = start("node3", "secret");
+		int deadPort = node3.getPort();
+		node3.stop();
+		node1.setRemoteNodes(Arrays.asList(address(deadPort), address(node2.getPort())));
+
+		ClusterEvent event = ClusterEvent.cacheInvalidation("RoleCache", null);
+		node1.publish(event);
+
+		receiver2.await();
+		assertEquals("Wrong events received", Collections.singletonList(event), receiver2.getEvents());
+	}
+
+	/**
+	 * The secret must not be sent over the wire; a message containing only the secret (and no MAC) is rejected.
+	 */
+	@Test
+	public void test220UnauthenticatedMessage() throws Exception {
+		ClusterEventBus node2 = start("node2", "secret");
+		Receiver receiver2 = listen(node2, 0);
+		BatchReceiver batchReceiver2 = listenForBatch(node2);
+
+		try (Socket socket = new Socket()) {
+			socket.connect(address(node2.getPort()), (int) TIMEOUT);
+			Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+			writer.write("midpoint-cluster-events-2\tintruder\t" + System.currentTimeMillis() + "\n");
+			writer.write("CACHE_INVALIDATION\tRoleCache\t\t\n");
+			writer.write("mac\tsecret\n");
+			writer.flush();
+			socket.shutdownOutput();
+
+			assertNull("Unauthenticated message was accepted", batchReceiver2.await());
+		}
+		assertEquals("Unauthenticated event was dispatched", 0, receiver2.getEvents().size());
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void test230NoSecret() throws Exception {
+		new ClusterEventBus("node1", InetAddress.getLoopbackAddress(), 0, "");
+	}
+
+	private ClusterEventBus start(String nodeId, String secret) throws Exception {
+		ClusterEventBus bus = new ClusterEventBus(nodeId, InetAddress.getLoopbackAddress(), 0, secret);
+		bus.start();
+		buses.add(bus);
+		return bus;
+	}
+
+	/**
+	 * Collects events received by the bus; allows waiting for the expected number of them.
+	 */
+	private Receiver listen(ClusterEventBus bus, int expectedCount) {
+		Receiver receiver = new Receiver(expectedCount, null);
+		bus.registerListener(receiver::onEvent);
+		return receiver;
+	}
+
+	/**
+	 * Collects events received by the bus; allows waiting for the specific event.
+	 */
+	private Receiver listenFor(ClusterEventBus bus, ClusterEvent expectedEvent) {
+		Receiver receiver = new Receiver(1, expectedEvent);
+		bus.registerListener(receiver::onEvent);
+		return receiver;
+	}
+
+	private BatchReceiver listenForBatch(ClusterEventBus bus) {
+		BatchReceiver receiver = new BatchReceiver();
+		bus.setIncomingBatchListener(receiver::onBatch);
+		return receiver;
+	}
+
+	private void connect(ClusterEventBus from, ClusterEventBus... to) {
+		List<InetSocketAddress> targets = new ArrayList<>();
+		for (ClusterEventBus bus : to) {
+			targets.add(address(bus.getPort()));
+		}
+		from.setRemoteNodes(targets);
+	}
+
+	private InetSocketAddress address(int port) {
+		return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+	}
+
+	private static class Receiver {
+
+		private final List<ClusterEvent> events = Collections.synchronizedList(new ArrayList<>());
+		private final CountDownLatch latch;
+		private final ClusterEvent expectedEvent;
+
+		private Receiver(int expectedCount, ClusterEvent expectedEvent) {
+			this.latch = new CountDownLatch(expectedCount);
+			this.expectedEvent = expectedEvent;
+		}
+
+		private void onEvent(ClusterEvent event) {
+			events.add(event);
+			if (expectedEvent == null || expectedEvent.equals(event)) {
+				latch.countDown();
+			}
+		}
+
+		private void await() throws InterruptedException {
+			assertTrue("Expected event(s) were not received in " + TIMEOUT + " ms; got " + getEvents(),
+					latch.await(TIMEOUT, TimeUnit.MILLISECONDS));
+		}
+
+		private List<ClusterEvent> getEvents() {
+			synchronized (events) {
+				return new ArrayList<>(events);
+			}
+		}
+	}
+
+	private static class BatchReceiver {
+
+		private final CountDownLatch latch = new CountDownLatch(1);
+		private volatile List<ClusterEvent> batch;
+
+		private synchronized void onBatch(List<ClusterEvent> batch) {
+			if (latch.getCount() > 0) {
+				this.batch = batch;
+				latch.countDown();
+			}
+		}
+
+		/**
+		 * Returns events of the first incoming message (null if it was rejected).
+		 */
+		private List<ClusterEvent> await() throws InterruptedException {
+			assertTrue("No message was received in " + TIMEOUT + " ms", latch.await(TIMEOUT, TimeUnit.MILLISECONDS));
+			return batch;
+		}
+	}
+}